@@ -47,6 +47,14 @@ void ARGC_assignARGCObject(ARGC_FIELD_REF id* pField, __unsafe_unretained id new
 /* replace field with newValue that maybe extends ARGCObject. */
 void ARGC_assignGenericObject(ARGC_FIELD_REF id* pField, __unsafe_unretained id newValue) J2OBJC_METHOD_ATTR;
 
+/* initialize field of an instance that is not yet visible to other threads.
+   falls back to ARGC_assignARGCObject if the field is already set. */
+void ARGC_initARGCObject(ARGC_FIELD_REF id* pField, __unsafe_unretained id newValue) J2OBJC_METHOD_ATTR;
+
+/* initialize field of an instance that is not yet visible to other threads.
+   falls back to ARGC_assignGenericObject if the field is already set. */
+void ARGC_initGenericObject(ARGC_FIELD_REF id* pField, __unsafe_unretained id newValue) J2OBJC_METHOD_ATTR;
+
 /* replace field with newValue that is static or not extends ARGCObject. */
 void ARGC_assignStrongObject(__strong id* pField, __unsafe_unretained id newValue) J2OBJC_METHOD_ATTR;
 
@@ -65,6 +73,37 @@ id ARGC_allocateArray(Class cls, NSUInteger extraBytes, NSZone* zone) NS_RETURNS
 
 void ARGC_initStatic(Class cls) NS_RETURNS_RETAINED J2OBJC_METHOD_ATTR;
 
+/* offset of an object field, in pointer-sized words from the start of the instance. */
+typedef uint16_t scan_offset_t;
+
+/* stores the offsets of the fields declared by one class (excluding superclass fields). */
+typedef void (*ARGCScanOffsetsFiller)(scan_offset_t* refOffsets, scan_offset_t* nativeOffsets);
+
+/*
+ scan-offset table generated by the translator for each class.
+ refCount: fields scanned by the collector (ARGC_FIELD_REF, ARGC_WEAK_REF and volatile fields).
+ nativeCount: strong fields that hold objects not managed by ARGC.
+ Ivar offsets are only final once the class is realized (non-fragile ABI),
+ so the offsets are computed by 'fill' when the class is first allocated.
+ */
+typedef struct ARGCScanTable {
+  int refCount;
+  int nativeCount;
+  ARGCScanOffsetsFiller fill;
+} ARGCScanTable;
+
+#define ARGC_FIELD_OFFSET(cls, field) \
+  ((scan_offset_t)((uintptr_t)&((cls *)NULL)->field / sizeof(id)))
+
+/* registers the table with the class; ARGC looks it up via +argc_scanTable. */
+#define J2OBJC_ARGC_SCAN_TABLE_SOURCE(cls, refCount, nativeCount, filler) \
+  static const ARGCScanTable cls##_scanTable_ = { refCount, nativeCount, filler }; \
+  @implementation cls (ARGCScanTable) \
+  + (const ARGCScanTable *)argc_scanTable { \
+    return &cls##_scanTable_; \
+  } \
+  @end
+
 #define ARGC_FIELD(type, name)
 #define ARGC_PROXY_FIELD(type, name)
 #define ARGC_SYNTHESIZE(type, name)
@@ -670,35 +670,67 @@ void ARGC_setGarbageCollectionInterval(int t) {
 
 
 
-ScanOffsetArray* ARGC::registerScanOffsets(Class clazz) {
-  scan_offset_t _offset_buf[4096];
-  id _test_obj_buf[4096];
-  ScanOffsetArray* res = objc_getAssociatedObject(clazz, &_instance);
-  if (res != NULL) {
-    return res;
-  }
-  
-  @synchronized (_scanOffsetCache) {
-    res = objc_getAssociatedObject(clazz, &_instance);
-    if (res != NULL) {
-      return res;
+/*
+ Returns the scan-offset table the translator emitted for the fields declared
+ by cls itself, or NULL if cls only inherits one (or has none).
+ */
+static const ARGCScanTable* getOwnScanTable(Class cls) {
+  SEL sel = @selector(argc_scanTable);
+  Method m = class_getClassMethod(cls, sel);
+  if (m == NULL) {
+    return NULL;
+  }
+  IMP imp = method_getImplementation(m);
+  Method inherited = class_getClassMethod(class_getSuperclass(cls), sel);
+  if (inherited != NULL && method_getImplementation(inherited) == imp) {
+    return NULL;
+  }
+  return ((const ARGCScanTable* (*)(id, SEL))imp)(cls, sel);
+}
+
+/*
+ Builds the offsets of clazz from the static tables of every class in its
+ hierarchy. Returns NULL if any class up to ARGCObject has no table (e.g. it was
+ not translated with --gc), in which case the ivars must be inspected instead.
+ */
+static ScanOffsetArray* buildStaticScanOffsets(Class clazz) {
+  int cntRef = 0;
+  int cntNative = 0;
+  for (Class cls = clazz; cls != g_ARGCClass; cls = class_getSuperclass(cls)) {
+    const ARGCScanTable* table = cls == NULL ? NULL : getOwnScanTable(cls);
+    if (table == NULL) {
+      return NULL;
     }
-    objc_setAssociatedObject(clazz, &_instance, _scanOffsetCache, OBJC_ASSOCIATION_RETAIN_NONATOMIC);
+    cntRef += table->refCount;
+    cntNative += table->nativeCount;
   }
-  
-  if (clazz == GC_TRACE_CLASS) {
-    NSLog(@"clazz = OrgJunitRunnerResult.class");
+
+  /* ARGC references, 0, native references, 0. NSAllocateObject zero-fills. */
+  int memsize = (cntRef + cntNative + 2) * sizeof(scan_offset_t);
+  ScanOffsetArray* offsetArray = NSAllocateObject([ScanOffsetArray class], memsize, NULL);
+  scan_offset_t* refs = offsetArray->offsets;
+  scan_offset_t* natives = refs + cntRef + 1;
+  for (Class cls = clazz; cls != g_ARGCClass; cls = class_getSuperclass(cls)) {
+    const ARGCScanTable* table = getOwnScanTable(cls);
+    if (table->fill != NULL) {
+      table->fill(refs, natives);
+    }
+    refs += table->refCount;
+    natives += table->nativeCount;
   }
-  
+  return offsetArray;
+}
+
+/*
+ Classifies the object ivars of clazz by storing a retained dummy into each one
+ and checking which ones are released when the clone is disposed.
+ */
+static ScanOffsetArray* buildScanOffsetsFromIvars(Class clazz) {
+  scan_offset_t _offset_buf[4096];
+  id _test_obj_buf[4096];
   int cntARGC = 0;
   id clone = NSAllocateObject(clazz, 0, NULL);
   int cntObjField = 0;
-  Method method = class_getInstanceMethod(clazz, @selector(java_finalize));
-  assert(method != NULL);
-  if (method != _no_java_finalize) {
-    _finalizeClasses[clazz] = clazz;
-  }
-  
   for (Class cls = clazz; cls && cls != [NSObject class]; ) {
     unsigned int ivarCount;
     Ivar *ivars = class_copyIvarList(cls, &ivarCount);
@@ -739,7 +771,38 @@ ScanOffsetArray* ARGC::registerScanOffsets(Class clazz) {
       cntNative++;
     }
   }
+  return offsetArray;
+}
+
+ScanOffsetArray* ARGC::registerScanOffsets(Class clazz) {
+  ScanOffsetArray* res = objc_getAssociatedObject(clazz, &_instance);
+  if (res != NULL) {
+    return res;
+  }
+  
+  @synchronized (_scanOffsetCache) {
+    res = objc_getAssociatedObject(clazz, &_instance);
+    if (res != NULL) {
+      return res;
+    }
+    objc_setAssociatedObject(clazz, &_instance, _scanOffsetCache, OBJC_ASSOCIATION_RETAIN_NONATOMIC);
+  }
   
+  if (clazz == GC_TRACE_CLASS) {
+    NSLog(@"clazz = OrgJunitRunnerResult.class");
+  }
+  
+  Method method = class_getInstanceMethod(clazz, @selector(java_finalize));
+  assert(method != NULL);
+  if (method != _no_java_finalize) {
+    _finalizeClasses[clazz] = clazz;
+  }
+
+  ScanOffsetArray* offsetArray = buildStaticScanOffsets(clazz);
+  if (offsetArray == NULL) {
+    offsetArray = buildScanOffsetsFromIvars(clazz);
+  }
+
   //_offset_buf[cntARGC] = 0;
   //_offset_buf[cntObjField+1] = 0;
   //memcpy(offsetArray->offsets, _offset_buf, memsize);
@@ -812,6 +875,33 @@ void ARGC_assignGenericObject(ARGC_FIELD_REF id* pField, __unsafe_unretained id
 
 
 
+void ARGC_initARGCObject(ARGC_FIELD_REF id* pField, __unsafe_unretained id newValue0) {
+  if (*pField != NULL) {
+    ARGC_assignARGCObject(pField, newValue0);
+    return;
+  }
+  ARGCObject* newValue = newValue0;
+  if (newValue != NULL) {
+    JObj_p jobj = newValue;
+    ARGC::increaseReferenceCount(jobj, @"++argc");
+    ARGC::touchInstance(jobj);
+  }
+  // The collector may scan the instance concurrently, so the store must not be torn
+  // or reordered before the reference count update. It needs no read-modify-write.
+  std::atomic<ARGCObject*>* field = (std::atomic<ARGCObject*>*)pField;
+  field->store(newValue, std::memory_order_release);
+}
+
+void ARGC_initGenericObject(ARGC_FIELD_REF id* pField, __unsafe_unretained id newValue) {
+  if (*pField != NULL) {
+    ARGC_assignGenericObject(pField, newValue);
+    return;
+  }
+  ARGC_genericRetain(newValue);
+  std::atomic<id>* field = (std::atomic<id>*)pField;
+  field->store(newValue, std::memory_order_release);
+}
+
 void ARGC::dealloc_in_collecting(JObj_p jobj) {
   if (GC_TRACE(jobj, GC_LOG_ALLOC)) {
     NSLog(@"dealloc-in-collecting: %p %@", jobj, getARGCClass(jobj));
@@ -227,7 +227,6 @@ public:
 
 @class ARGCObject;
 typedef ARGCObject* JObj_p;
-typedef uint16_t scan_offset_t;
 typedef std::atomic<JObj_p> RefSlot;
 
 typedef void (*ARGCObjectFieldVisitor)(__unsafe_unretained id, int depth) J2OBJC_METHOD_ATTR;
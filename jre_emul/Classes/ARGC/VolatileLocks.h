@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ Reference-counted volatile fields for ARGC.
+
+ A volatile load has to retain the value it reads before a concurrent store
+ can release it, so loads and stores of the same field exclude each other
+ with a spin lock. The locks are striped by field address, so accesses to
+ unrelated fields don't contend. Each lock is only held for the load and
+ retain, or for the exchange: stores release the previous value after
+ unlocking, so no lock is ever held while another is acquired, and a null
+ field is loaded without locking at all.
+
+ This is portable C++ that doesn't depend on the Objective-C runtime; the
+ retain function is supplied by the caller. It is stress tested on any
+ platform by misc_tests/VolatileLocksStressTest.cc.
+ */
+
+#ifndef __ARGC_VOLATILE_LOCKS_H__
+#define __ARGC_VOLATILE_LOCKS_H__
+
+#include <atomic>
+#include <cstddef>
+#include <cstdint>
+#include <thread>
+
+class VolatileLocks {
+  static const int STRIPE_BITS = 6;
+
+  class SpinLock {
+  public:
+    void lock() {
+      int spins = 0;
+      while (_locked.exchange(true, std::memory_order_acquire)) {
+        while (_locked.load(std::memory_order_relaxed)) {
+          if (++spins >= 64) {
+            // The holder may have been preempted; let it run.
+            std::this_thread::yield();
+            spins = 0;
+          }
+        }
+      }
+    }
+
+    void unlock() {
+      _locked.store(false, std::memory_order_release);
+    }
+
+  private:
+    std::atomic<bool> _locked{false};
+  };
+
+public:
+  static const size_t STRIPE_COUNT = (size_t)1 << STRIPE_BITS;
+
+  /* holds the lock of a field until the end of the scope. */
+  class Guard {
+  public:
+    explicit Guard(const void* field) : _lock(lockFor(field)) {
+      _lock.lock();
+    }
+
+    ~Guard() {
+      _lock.unlock();
+    }
+
+  private:
+    SpinLock& _lock;
+
+    Guard(const Guard&) = delete;
+    Guard& operator=(const Guard&) = delete;
+  };
+
+  /* acquires the locks of all fields, in a fixed order. */
+  static void lockAll() {
+    for (size_t i = 0; i < STRIPE_COUNT; i++) {
+      stripes()[i].lock();
+    }
+  }
+
+  static void unlockAll() {
+    for (size_t i = STRIPE_COUNT; i-- > 0; ) {
+      stripes()[i].unlock();
+    }
+  }
+
+  /* returns the value of field, retained by retain() unless it is null. */
+  template <typename T, typename Retain>
+  static T loadRetained(std::atomic<T>* field, Retain retain) {
+    T value = field->load();
+    if (value == nullptr) {
+      return value;
+    }
+    Guard guard(field);
+    value = field->load();
+    if (value != nullptr) {
+      retain(value);
+    }
+    return value;
+  }
+
+  /* stores newValue, which the caller has already retained, and returns the
+     previous value, which the caller must release. */
+  template <typename T>
+  static T exchange(std::atomic<T>* field, T newValue) {
+    Guard guard(field);
+    return field->exchange(newValue);
+  }
+
+  /* stores newValue, which the caller has already retained, if field contains
+     expected. The caller must then release expected if this returns true, and
+     newValue otherwise. */
+  template <typename T>
+  static bool compareAndSwap(std::atomic<T>* field, T expected, T newValue) {
+    Guard guard(field);
+    return field->compare_exchange_strong(expected, newValue);
+  }
+
+private:
+  // Each lock is on its own cache line, so that threads spinning on one
+  // don't slow down threads that use another.
+  struct alignas(64) Stripe : SpinLock {
+  };
+
+  static Stripe* stripes() {
+    static Stripe _stripes[STRIPE_COUNT];
+    return _stripes;
+  }
+
+  static SpinLock& lockFor(const void* field) {
+    // Fibonacci hashing spreads the fields of an object, which are adjacent
+    // pointers, over different stripes.
+    uint64_t slot = (uint64_t)(uintptr_t)field >> 3;
+    return stripes()[(slot * 0x9E3779B97F4A7C15ULL) >> (64 - STRIPE_BITS)];
+  }
+};
+
+#endif // __ARGC_VOLATILE_LOCKS_H__
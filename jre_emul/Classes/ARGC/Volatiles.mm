@@ -6,116 +6,96 @@
 #define GC_DEBUG 0
 
 #include "NSObject+ARGC.h"
-#include <pthread.h>
+#include "VolatileLocks.h"
 
 extern "C" {
 void ARGC_lock_volatile();
 void ARGC_unlock_volatile();
 }
 
-static pthread_t g_lockThread = NULL;
-static int g_cntLock = 0;
-
+/* Excludes all volatile stores, for copying an instance's fields. */
 void ARGC_lock_volatile() {
-  pthread_t curr_thread = pthread_self();
-  if (curr_thread != g_lockThread) {
-    while (!__sync_bool_compare_and_swap(&g_lockThread, NULL, curr_thread)) {}
-  }
-  g_cntLock ++;
+  VolatileLocks::lockAll();
 }
 
 void ARGC_unlock_volatile() {
-  if (GC_DEBUG) {
-    assert(pthread_self() == g_lockThread);
-  }
-  if (--g_cntLock == 0) {
-    g_lockThread = NULL;
+  VolatileLocks::unlockAll();
+}
+
+static inline std::atomic<id>* atomicField(volatile_id *pVar) {
+  return (std::atomic<id>*)pVar;
+}
+
+static void strongRetain(id oid) {
+  [oid retain];
+}
+
+static void assignGenericObject(volatile_id *pVar, id newValue) {
+  if (atomicField(pVar)->load(std::memory_order_relaxed) == newValue) {
+    return;
   }
+  ARGC_genericRetain(newValue);
+  id oldValue = VolatileLocks::exchange(atomicField(pVar), newValue);
+  ARGC_genericRelease(oldValue);
 }
 
 id JreLoadVolatileId(volatile_id *pVar) {
-  ARGC_lock_volatile();
-  id oid = *(std::atomic<id>*)pVar;
+  id oid = VolatileLocks::loadRetained(atomicField(pVar), strongRetain);
   if (oid != NULL) {
-    [oid retain];
     [oid autorelease];
-  };
-  ARGC_unlock_volatile();
+  }
   return oid;
 }
 
 id JreAssignVolatileId(volatile_id *pVar, id newValue) {
-  ARGC_lock_volatile();
-  ARGC_assignGenericObject((ARGC_FIELD_REF id*)pVar, newValue);
-  ARGC_unlock_volatile();
-  
+  assignGenericObject(pVar, newValue);
   return newValue;
 }
 
 void JreReleaseVolatile(volatile_id *pVar) {
-  ARGC_lock_volatile();
-  ARGC_assignGenericObject((ARGC_FIELD_REF id*)pVar, NULL);
-  ARGC_unlock_volatile();
+  assignGenericObject(pVar, NULL);
 }
 
 id JreVolatileStrongAssign(volatile_id *pVar, id newValue) {
-  ARGC_lock_volatile();
-  ARGC_assignGenericObject((ARGC_FIELD_REF id*)pVar, newValue);
-  ARGC_unlock_volatile();
+  assignGenericObject(pVar, newValue);
   return newValue;
 }
 
 
 id JreVolatileStaticAssign(volatile_id *pVar, id newValue) {
-  ARGC_lock_volatile();
-  ARGC_assignStrongObject((ARGC_FIELD_REF id*)pVar, newValue);
-  ARGC_unlock_volatile();
+  if (atomicField(pVar)->load(std::memory_order_relaxed) == newValue) {
+    return newValue;
+  }
+  [newValue retain];
+  id oldValue = VolatileLocks::exchange(atomicField(pVar), newValue);
+  [oldValue release];
   return newValue;
 }
 
 bool JreCompareAndSwapVolatileStrongId(volatile_id *ptr, id expected, id newValue) {
-  std::atomic<id>* field = (std::atomic<id>*)ptr;
-  ARGC_lock_volatile();
-  bool res =  field->compare_exchange_strong(expected, newValue);
-  if (res) {
-    if (newValue) ARGC_genericRetain(newValue);
-    if (expected) ARGC_genericRelease(expected);
-  }
-  ARGC_unlock_volatile();
+  // newValue is retained before it is stored, so that another thread can't
+  // replace and release it first.
+  ARGC_genericRetain(newValue);
+  bool res = VolatileLocks::compareAndSwap(atomicField(ptr), expected, newValue);
+  ARGC_genericRelease(res ? expected : newValue);
   return res;
 }
 
 id JreExchangeVolatileStrongId(volatile_id *pVar, id newValue) {
-  std::atomic<id>* field = (std::atomic<id>*)pVar;
-  ARGC_lock_volatile();
-  id oldValue = field->exchange(newValue);
-  if (oldValue != newValue) {
-    if (newValue) {
-      [newValue retain];
-    }
-    if (oldValue) {
-      //            if (GC_DEBUG && GC_LOG_ALLOC) {
-      //                if ([oldValue toJObject] == NULL) {
-      //                    NSLog(@"--nstr %p #%d %@", oldValue, (int)NSExtraRefCount(oldValue), [oldValue class]);
-      //                }
-      //            }
-      [oldValue autorelease];
-    }
-  }
-  ARGC_unlock_volatile();
+  [newValue retain];
+  id oldValue = VolatileLocks::exchange(atomicField(pVar), newValue);
+  [oldValue autorelease];
   return oldValue;
 }
 
 void JreCloneVolatile(volatile_id *pVar, volatile_id *pOther) {
-  ARGC_lock_volatile();
-  ARGC_assignGenericObject((ARGC_FIELD_REF id*)pVar, *(id*)pOther);
-  ARGC_unlock_volatile();
+  id value = VolatileLocks::loadRetained(atomicField(pOther), ARGC_genericRetain);
+  id oldValue = VolatileLocks::exchange(atomicField(pVar), value);
+  ARGC_genericRelease(oldValue);
 }
 
 void JreCloneVolatileStrong(volatile_id *pVar, volatile_id *pOther) {
-  ARGC_lock_volatile();
-  ARGC_assignGenericObject((ARGC_FIELD_REF id*)pVar, *(id*)pOther);
-  ARGC_unlock_volatile();
+  JreCloneVolatile(pVar, pOther);
 }
 
 #endif // J2OBJC_USE_GC
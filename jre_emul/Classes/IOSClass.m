@@ -87,13 +87,13 @@ static J2ObjcMethodInfo proxyMethods[] = {
 static const J2ObjcClassInfo proxyClassMetadata = {
   empty_static_initialize,
   ptrTable, proxyMethods, NULL, J2OBJC_METADATA_VERSION, 0x0, 1, 0,
-  -1, -1, -1, -1, -1
+  -1, -1, -1, -1, -1, -1, -1
 };
 
 const J2ObjcClassInfo JreEmptyClassInfo = {
   empty_static_initialize,
   NULL, NULL, NULL, J2OBJC_METADATA_VERSION, 0x0, 0, 0,
-  -1, -1, -1, -1, -1
+  -1, -1, -1, -1, -1, -1, -1
 };
 
 
@@ -1343,7 +1343,7 @@ IOSClass *IOSClass_NewProxyClass(Class cls) {
     proxyMethods[0].selector = @selector(initWithJavaLangReflectInvocationHandler:);
     static const J2ObjcClassInfo proxyClassMetadata = {
       empty_static_initialize,
-      ptrTable, proxyMethods, NULL, J2OBJC_METADATA_VERSION, 0x0, 1, 0, -1, -1, -1, -1, -1
+      ptrTable, proxyMethods, NULL, J2OBJC_METADATA_VERSION, 0x0, 1, 0, -1, -1, -1, -1, -1, -1, -1
     };
     NSString* name = NSStringFromClass(cls);
     IOSClass *javaClass = [[IOSProxyClass alloc] initWithClass:cls metadata:&proxyClassMetadata name:name simpleNamePos:(int)name.length];
@@ -25,7 +25,7 @@
 #import "J2ObjC_types.h"
 
 // Current metadata structure version
-#define J2OBJC_METADATA_VERSION 7
+#define J2OBJC_METADATA_VERSION 8
 
 // A raw value is the union of all possible native types.
 typedef union {
@@ -86,6 +86,11 @@ typedef struct J2ObjcClassInfo {
   ptr_idx enclosingMethodIdx;
   ptr_idx genericSignatureIdx;
   ptr_idx annotationsIdx;
+  // Since version 8: uint16_t arrays with the positions of the methods and
+  // fields sorted by Java name, in strcmp() order, or -1 if there are fewer
+  // than two.
+  ptr_idx methodIndexIdx;
+  ptr_idx fieldIndexIdx;
 } J2ObjcClassInfo;
 
 #endif  // JreEmulation_IOSMetadata_h
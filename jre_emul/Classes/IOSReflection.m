@@ -124,24 +124,71 @@ static NSString *MetadataNameList(IOSObjectArray *classes) {
   return str;
 }
 
+// Return the sorted method or field positions, or NULL. Metadata older than version 8 has
+// neither the positions nor the fields that hold their indexes, so those aren't read.
+static const uint16_t *MethodIndex(const J2ObjcClassInfo *metadata) {
+  return metadata->version >= 8 ? JrePtrAtIndex(metadata->ptrTable, metadata->methodIndexIdx)
+                                : NULL;
+}
+
+static const uint16_t *FieldIndex(const J2ObjcClassInfo *metadata) {
+  return metadata->version >= 8 ? JrePtrAtIndex(metadata->ptrTable, metadata->fieldIndexIdx)
+                                : NULL;
+}
+
+// Compares fieldName with a field's Java name like strcmp(). The Java name is only in the
+// metadata if it isn't the Objective-C name, less the trailing underscore of instance variables.
+static int CompareFieldName(
+    const char *fieldName, const J2ObjcFieldInfo *fieldInfo, const void **ptrTable) {
+  const char *javaName = JrePtrAtIndex(ptrTable, fieldInfo->javaNameIdx);
+  if (javaName) {
+    return strcmp(fieldName, javaName);
+  }
+  if (fieldInfo->modifiers & JavaLangReflectModifier_STATIC) {
+    return strcmp(fieldName, fieldInfo->name);
+  }
+  size_t length = strlen(fieldInfo->name) - 1;
+  int result = strncmp(fieldName, fieldInfo->name, length);
+  return result != 0 ? result : (unsigned char)fieldName[length];
+}
+
 const J2ObjcFieldInfo *JreFindFieldInfo(const J2ObjcClassInfo *metadata, const char *fieldName) {
-  if (metadata) {
-    for (int i = 0; i < metadata->fieldCount; i++) {
-      const J2ObjcFieldInfo *fieldInfo = &metadata->fields[i];
-      const char *javaName = JrePtrAtIndex(metadata->ptrTable, fieldInfo->javaNameIdx);
-      if (javaName && strcmp(fieldName, javaName) == 0) {
-        return fieldInfo;
-      }
-      if (strcmp(fieldName, fieldInfo->name) == 0) {
-        return fieldInfo;
-      }
-      // See if field name has trailing underscore added.
-      size_t max  = strlen(fieldInfo->name) - 1;
-      if (fieldInfo->name[max] == '_' && strlen(fieldName) == max &&
-          strncmp(fieldName, fieldInfo->name, max) == 0) {
+  if (!metadata) {
+    return NULL;
+  }
+  const uint16_t *index = FieldIndex(metadata);
+  if (index) {
+    int low = 0;
+    int high = metadata->fieldCount - 1;
+    while (low <= high) {
+      int mid = (low + high) / 2;
+      const J2ObjcFieldInfo *fieldInfo = &metadata->fields[index[mid]];
+      int result = CompareFieldName(fieldName, fieldInfo, metadata->ptrTable);
+      if (result == 0) {
         return fieldInfo;
+      } else if (result < 0) {
+        high = mid - 1;
+      } else {
+        low = mid + 1;
       }
     }
+    return NULL;
+  }
+  for (int i = 0; i < metadata->fieldCount; i++) {
+    const J2ObjcFieldInfo *fieldInfo = &metadata->fields[i];
+    const char *javaName = JrePtrAtIndex(metadata->ptrTable, fieldInfo->javaNameIdx);
+    if (javaName && strcmp(fieldName, javaName) == 0) {
+      return fieldInfo;
+    }
+    if (strcmp(fieldName, fieldInfo->name) == 0) {
+      return fieldInfo;
+    }
+    // See if field name has trailing underscore added.
+    size_t max  = strlen(fieldInfo->name) - 1;
+    if (fieldInfo->name[max] == '_' && strlen(fieldName) == max &&
+        strncmp(fieldName, fieldInfo->name, max) == 0) {
+      return fieldInfo;
+    }
   }
   return NULL;
 }
@@ -157,6 +204,31 @@ JavaLangReflectMethod *JreMethodWithNameAndParamTypes(
   const void **ptrTable = metadata->ptrTable;
   const char *cname = [name UTF8String];
   const char *cparams = [MetadataNameList(paramTypes) UTF8String];
+  const uint16_t *index = MethodIndex(metadata);
+  if (index) {
+    // Find the first method with the name, then check the overloads that follow it.
+    int low = 0;
+    int high = metadata->methodCount;
+    while (low < high) {
+      int mid = (low + high) / 2;
+      if (strcmp(JreMethodJavaName(&metadata->methods[index[mid]], ptrTable), cname) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    for (int i = low; i < metadata->methodCount; i++) {
+      const J2ObjcMethodInfo *methodInfo = &metadata->methods[index[i]];
+      if (strcmp(JreMethodJavaName(methodInfo, ptrTable), cname) != 0) {
+        break;
+      }
+      if (methodInfo->returnType
+          && NullableCStrEquals(JrePtrAtIndex(ptrTable, methodInfo->paramsIdx), cparams)) {
+        return [JavaLangReflectMethod methodWithDeclaringClass:iosClass metadata:methodInfo];
+      }
+    }
+    return nil;
+  }
   for (int i = 0; i < metadata->methodCount; i++) {
     const J2ObjcMethodInfo *methodInfo = &metadata->methods[i];
     if (methodInfo->returnType && strcmp(JreMethodJavaName(methodInfo, ptrTable), cname) == 0
@@ -108,6 +108,22 @@ __attribute__((always_inline)) inline id JreGenericFieldAssign(__unsafe_unretain
   return value;
 }
 
+/* Initializing stores into an instance that is not yet visible to other threads. */
+__attribute__((always_inline)) inline id JreObjectFieldInit(__unsafe_unretained id *pIvar, __unsafe_unretained id value) J2OBJC_METHOD_ATTR {
+  ARGC_initARGCObject(pIvar, value);
+  return value;
+}
+
+__attribute__((always_inline)) inline id JreUnsafeFieldInit(__unsafe_unretained id *pIvar, __unsafe_unretained id value) J2OBJC_METHOD_ATTR {
+  ARGC_initGenericObject(pIvar, value);
+  return value;
+}
+
+__attribute__((always_inline)) inline id JreGenericFieldInit(__unsafe_unretained id *pIvar, __unsafe_unretained id value) J2OBJC_METHOD_ATTR {
+  ARGC_initGenericObject(pIvar, value);
+  return value;
+}
+
 #define JreStrongAssignAndConsume       JreStrongAssign
 #define JreStaticAssign                 JreStrongAssign
 #define JreStaticAssignAndConsume       JreStrongAssign
@@ -156,6 +172,9 @@ __attribute__((always_inline)) inline id JreUnsafeFieldAssignAndConsume(__unsafe
 #define JreObjectFieldAssignAndConsume   JreStrongAssignAndConsume
 #define JreGenericFieldAssign            JreStrongAssign
 #define JreGenericFieldAssignAndConsume  JreStrongAssignAndConsume
+#define JreObjectFieldInit               JreStrongAssign
+#define JreUnsafeFieldInit               JreStrongAssign
+#define JreGenericFieldInit              JreStrongAssign
 
 #endif
 
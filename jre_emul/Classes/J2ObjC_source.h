@@ -86,6 +86,26 @@ __attribute__((always_inline)) inline void JreCheckFinalize(id self, Class cls)
 #endif
 }
 
+/*!
+ * Enters and exits the monitor of obj, as @synchronized(obj) does. These share
+ * their locks with @synchronized, JNI monitors and Object.wait()/notify().
+ */
+FOUNDATION_EXPORT id JreMonitorEnter(id obj) J2OBJC_METHOD_ATTR;
+FOUNDATION_EXPORT void JreMonitorExit(id obj) J2OBJC_METHOD_ATTR;
+
+__attribute__((always_inline)) inline void JreMonitorScopeExit(__strong id *obj) {
+  JreMonitorExit(*obj);
+}
+
+/*!
+ * Holds the monitor of obj until the end of the enclosing scope, including when
+ * an exception propagates out of it. Generated code uses this instead of
+ * @synchronized when translated with --monitor-functions.
+ */
+#define J2OBJC_SYNCHRONIZED(obj) \
+  __attribute__((cleanup(JreMonitorScopeExit), unused)) __strong id monitor__ = \
+  JreMonitorEnter(obj)
+
 /*!
  * Defines a mapping of a Java name to its iOS equivalent. These are defined for
  * any Java name that has an iOS name that doesn't follow the default camel-cased
@@ -128,6 +148,13 @@ typedef struct J2ObjcResourceDefinition {
   static J2ObjcResourceDefinition BUF##_resource __attribute__((used, no_sanitize("address"), \
   section("__DATA,__j2objcresource"))) = { QUOTE(BUF), BUF, LEN, HASH };
 
+/*!
+ * Returns the linked resource with the specified resource path, such as
+ * "/com/google/foo/data.bin", or NULL if there is none. The resource's data
+ * lives as long as the process, so it can be read in place.
+ */
+FOUNDATION_EXPORT const J2ObjcResourceDefinition *JreFindLinkedResource(NSString *name);
+
 FOUNDATION_EXPORT jint JreIndexOfStr(NSString *str, NSString **values, jint size);
 FOUNDATION_EXPORT NSString *JreEnumConstantName(IOSClass *enumClass, jint ordinal);
 
@@ -0,0 +1,70 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+//
+//  JreThinLock.h
+//  JreEmulation
+//
+//  Recursive object monitors that support Java's wait and notify. Objects are
+//  identified by address only, so this is plain C with no Objective-C or Apple
+//  dependencies, and can be built and stress tested on any POSIX platform.
+//
+//  An uncontended enter or exit is a lookup in a lock-free table and a single
+//  atomic operation on the object's owner word. A lock is only inflated, by
+//  attaching a mutex and condition variables to it, when a thread has to block
+//  on it or waits on it.
+//
+
+#ifndef JreThinLock_H_
+#define JreThinLock_H_
+
+#include <stdbool.h>
+
+#ifdef __cplusplus
+extern "C" {
+#endif
+
+enum {
+  JRE_THIN_LOCK_SUCCESS = 0,
+  JRE_THIN_LOCK_NOT_OWNER = -1,
+  JRE_THIN_LOCK_TIMED_OUT = -2,
+};
+
+// Acquires obj's lock if it is free or already held by the calling thread.
+// Returns false without blocking if another thread holds it.
+bool JreThinLockTryEnter(const void *obj);
+
+// Acquires obj's lock, blocking while another thread holds it.
+void JreThinLockEnter(const void *obj);
+
+// Releases one hold on obj's lock. Returns JRE_THIN_LOCK_NOT_OWNER if the
+// calling thread doesn't hold it.
+int JreThinLockExit(const void *obj);
+
+// Releases obj's lock until another thread notifies obj, or until
+// timeoutMillis have passed if it is positive, then reacquires it. Returns
+// JRE_THIN_LOCK_TIMED_OUT if the wait timed out without a notification.
+int JreThinLockWait(const void *obj, long long timeoutMillis);
+
+// Wakes one or all of the threads waiting on obj. The calling thread must
+// hold obj's lock.
+int JreThinLockNotify(const void *obj);
+int JreThinLockNotifyAll(const void *obj);
+
+// Returns true if the calling thread holds obj's lock.
+bool JreThinLockHeldByCurrentThread(const void *obj);
+
+#ifdef __cplusplus
+}
+#endif
+
+#endif // JreThinLock_H_
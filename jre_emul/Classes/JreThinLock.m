@@ -0,0 +1,363 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+// This file is plain C11 so that it can also be compiled with "-x c" on other
+// platforms, like the stress test in misc_tests/ThinLockStressTest.c.
+
+#include "JreThinLock.h"
+
+#include <errno.h>
+#include <pthread.h>
+#include <sched.h>
+#include <stdatomic.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include <time.h>
+
+#define BUCKET_BITS 8
+#define BUCKET_COUNT (1 << BUCKET_BITS)
+
+// Number of locks a bucket keeps before it reassigns free ones.
+#define LOCKS_PER_BUCKET 4
+
+// Number of times a contended enter retries before blocking.
+#define SPIN_COUNT 32
+
+// A thread blocked in JreThinLockWait().
+typedef struct Waiter {
+  struct Waiter *next;
+  bool notified;
+} Waiter;
+
+// The blocking state of a lock, attached to it the first time a thread
+// blocks or waits on it. All fields are guarded by mutex.
+typedef struct Monitor {
+  pthread_mutex_t mutex;
+  pthread_cond_t released;  // Signaled when the lock is released with blocked threads.
+  pthread_cond_t notified;  // Broadcast when waiters are notified.
+  Waiter *firstWaiter;
+  Waiter *lastWaiter;
+} Monitor;
+
+// An object's lock. Locks are never freed. Once no thread holds or waits on a
+// lock it may be reassigned to another object in the same bucket, so a thread
+// that finds a lock without owning it must check the lock's object again after
+// acquiring it.
+typedef struct Lock {
+  // Non-atomic. Never mutated once the lock is visible to lock-free lookups.
+  struct Lock *next;
+  // Atomic. Only changed by a thread that owns the lock and its bucket.
+  _Atomic(uintptr_t) object;
+  // Atomic. The owning thread, or zero if the lock is free.
+  _Atomic(uintptr_t) owner;
+  // Atomic. Threads that are blocked acquiring the lock or waiting on it.
+  // Locks with users are not reassigned.
+  _Atomic(int) users;
+  // Atomic. Threads blocked on the monitor's released condition.
+  _Atomic(int) blocked;
+  _Atomic(Monitor *) monitor;
+  // Non-atomic. Only accessed by the owning thread.
+  unsigned int count;
+} Lock;
+
+typedef struct Bucket {
+  // Atomic. Held while adding or reassigning locks in this bucket.
+  _Atomic(int) busy;
+  _Atomic(Lock *) head;
+} Bucket;
+
+static Bucket buckets[BUCKET_COUNT];
+
+static uintptr_t CurrentThread(void) {
+  return (uintptr_t)pthread_self();
+}
+
+static Bucket *BucketFor(uintptr_t object) {
+  // Fibonacci hashing; the low bits of object addresses are mostly zero.
+  uint32_t h = (uint32_t)(object >> 4) * 2654435761u;
+  return &buckets[h >> (32 - BUCKET_BITS)];
+}
+
+static Lock *FindLock(Bucket *bucket, uintptr_t object) {
+  Lock *lock = atomic_load(&bucket->head);
+  while (lock && atomic_load(&lock->object) != object) {
+    lock = lock->next;
+  }
+  return lock;
+}
+
+static bool TryAcquire(Lock *lock, uintptr_t self) {
+  uintptr_t expected = 0;
+  return atomic_compare_exchange_strong(&lock->owner, &expected, self);
+}
+
+static Monitor *Inflate(Lock *lock) {
+  Monitor *monitor = atomic_load(&lock->monitor);
+  if (monitor) {
+    return monitor;
+  }
+  Monitor *newMonitor = (Monitor *)calloc(1, sizeof(Monitor));
+  pthread_mutex_init(&newMonitor->mutex, NULL);
+  pthread_cond_init(&newMonitor->released, NULL);
+  pthread_cond_init(&newMonitor->notified, NULL);
+  if (atomic_compare_exchange_strong(&lock->monitor, &monitor, newMonitor)) {
+    return newMonitor;
+  }
+  pthread_cond_destroy(&newMonitor->notified);
+  pthread_cond_destroy(&newMonitor->released);
+  pthread_mutex_destroy(&newMonitor->mutex);
+  free(newMonitor);
+  return monitor;
+}
+
+// Wakes a blocked thread, if there is one. The caller must not hold the
+// monitor's mutex.
+static void WakeBlocked(Lock *lock) {
+  // Either a blocking thread's increment of blocked is visible here, or the
+  // release of the owner is visible to its next TryAcquire().
+  if (atomic_load(&lock->blocked) > 0) {
+    Monitor *monitor = atomic_load(&lock->monitor);
+    pthread_mutex_lock(&monitor->mutex);
+    pthread_cond_signal(&monitor->released);
+    pthread_mutex_unlock(&monitor->mutex);
+  }
+}
+
+static void Release(Lock *lock) {
+  atomic_store(&lock->owner, 0);
+  WakeBlocked(lock);
+}
+
+// Acquires a lock already found for the calling thread, spinning briefly
+// and then blocking until it's available.
+static void AcquireBlocking(Lock *lock, uintptr_t self) {
+  for (int i = 0; i < SPIN_COUNT; i++) {
+    if (TryAcquire(lock, self)) {
+      return;
+    }
+    sched_yield();
+  }
+  Monitor *monitor = Inflate(lock);
+  pthread_mutex_lock(&monitor->mutex);
+  atomic_fetch_add(&lock->blocked, 1);
+  while (!TryAcquire(lock, self)) {
+    pthread_cond_wait(&monitor->released, &monitor->mutex);
+  }
+  atomic_fetch_sub(&lock->blocked, 1);
+  pthread_mutex_unlock(&monitor->mutex);
+}
+
+// Adds or reassigns a lock for object, which had no lock when last looked up.
+// Returns the lock held by the calling thread, or NULL if another thread added
+// a lock for object first.
+static Lock *AddLock(Bucket *bucket, uintptr_t object, uintptr_t self) {
+  while (atomic_exchange(&bucket->busy, 1)) {
+    sched_yield();
+  }
+  Lock *result = NULL;
+  Lock *head = atomic_load(&bucket->head);
+  if (!FindLock(bucket, object)) {
+    int lockCount = 0;
+    for (Lock *lock = head; lock; lock = lock->next) {
+      lockCount++;
+    }
+    for (Lock *lock = lockCount >= LOCKS_PER_BUCKET ? head : NULL; lock; lock = lock->next) {
+      if (atomic_load(&lock->users) == 0 && TryAcquire(lock, self)) {
+        // A waiting thread may have become a user before releasing the lock.
+        if (atomic_load(&lock->users) == 0) {
+          atomic_store(&lock->object, object);
+          result = lock;
+          break;
+        }
+        Release(lock);
+      }
+    }
+    if (!result) {
+      result = (Lock *)calloc(1, sizeof(Lock));
+      result->next = head;
+      atomic_store(&result->object, object);
+      atomic_store(&result->owner, self);
+      atomic_store(&bucket->head, result);
+    }
+    result->count = 1;
+  }
+  atomic_store(&bucket->busy, 0);
+  return result;
+}
+
+static bool Enter(uintptr_t object, bool block) {
+  uintptr_t self = CurrentThread();
+  Bucket *bucket = BucketFor(object);
+  for (;;) {
+    Lock *lock = FindLock(bucket, object);
+    if (!lock) {
+      if (AddLock(bucket, object, self)) {
+        return true;
+      }
+      continue;
+    }
+    if (atomic_load(&lock->owner) == self) {
+      // Only the owner can reassign the lock, so it's still object's.
+      lock->count++;
+      return true;
+    }
+    if (!TryAcquire(lock, self)) {
+      if (!block) {
+        return false;
+      }
+      atomic_fetch_add(&lock->users, 1);
+      AcquireBlocking(lock, self);
+      atomic_fetch_sub(&lock->users, 1);
+    }
+    if (atomic_load(&lock->object) != object) {
+      // The lock was reassigned after it was found.
+      Release(lock);
+      continue;
+    }
+    lock->count = 1;
+    return true;
+  }
+}
+
+// Returns object's lock if the calling thread holds it, otherwise NULL.
+static Lock *HeldLock(uintptr_t object) {
+  Lock *lock = FindLock(BucketFor(object), object);
+  return lock && atomic_load(&lock->owner) == CurrentThread() ? lock : NULL;
+}
+
+bool JreThinLockTryEnter(const void *obj) {
+  return Enter((uintptr_t)obj, false);
+}
+
+void JreThinLockEnter(const void *obj) {
+  Enter((uintptr_t)obj, true);
+}
+
+int JreThinLockExit(const void *obj) {
+  Lock *lock = HeldLock((uintptr_t)obj);
+  if (!lock) {
+    return JRE_THIN_LOCK_NOT_OWNER;
+  }
+  if (--lock->count == 0) {
+    Release(lock);
+  }
+  return JRE_THIN_LOCK_SUCCESS;
+}
+
+int JreThinLockWait(const void *obj, long long timeoutMillis) {
+  Lock *lock = HeldLock((uintptr_t)obj);
+  if (!lock) {
+    return JRE_THIN_LOCK_NOT_OWNER;
+  }
+  uintptr_t self = CurrentThread();
+  unsigned int count = lock->count;
+  Monitor *monitor = Inflate(lock);
+  Waiter waiter = { NULL, false };
+  int result = JRE_THIN_LOCK_SUCCESS;
+
+  // Keeps the lock from being reassigned while it is released.
+  atomic_fetch_add(&lock->users, 1);
+  pthread_mutex_lock(&monitor->mutex);
+  if (monitor->lastWaiter) {
+    monitor->lastWaiter->next = &waiter;
+  } else {
+    monitor->firstWaiter = &waiter;
+  }
+  monitor->lastWaiter = &waiter;
+
+  // Release the lock while holding the mutex, so a notifying thread can't
+  // signal before this thread is waiting.
+  lock->count = 0;
+  atomic_store(&lock->owner, 0);
+  if (atomic_load(&lock->blocked) > 0) {
+    pthread_cond_signal(&monitor->released);
+  }
+
+  if (timeoutMillis > 0) {
+    struct timespec deadline;
+    clock_gettime(CLOCK_REALTIME, &deadline);
+    deadline.tv_sec += (time_t)(timeoutMillis / 1000);
+    deadline.tv_nsec += (long)(timeoutMillis % 1000) * 1000000;
+    if (deadline.tv_nsec >= 1000000000) {
+      deadline.tv_sec++;
+      deadline.tv_nsec -= 1000000000;
+    }
+    while (!waiter.notified) {
+      if (pthread_cond_timedwait(&monitor->notified, &monitor->mutex, &deadline) == ETIMEDOUT) {
+        break;
+      }
+    }
+    if (!waiter.notified) {
+      Waiter **link = &monitor->firstWaiter;
+      Waiter *previous = NULL;
+      while (*link != &waiter) {
+        previous = *link;
+        link = &(*link)->next;
+      }
+      *link = waiter.next;
+      if (monitor->lastWaiter == &waiter) {
+        monitor->lastWaiter = previous;
+      }
+      result = JRE_THIN_LOCK_TIMED_OUT;
+    }
+  } else {
+    while (!waiter.notified) {
+      pthread_cond_wait(&monitor->notified, &monitor->mutex);
+    }
+  }
+  pthread_mutex_unlock(&monitor->mutex);
+
+  if (!TryAcquire(lock, self)) {
+    AcquireBlocking(lock, self);
+  }
+  lock->count = count;
+  atomic_fetch_sub(&lock->users, 1);
+  return result;
+}
+
+static int Notify(const void *obj, bool all) {
+  Lock *lock = HeldLock((uintptr_t)obj);
+  if (!lock) {
+    return JRE_THIN_LOCK_NOT_OWNER;
+  }
+  Monitor *monitor = atomic_load(&lock->monitor);
+  if (!monitor) {
+    return JRE_THIN_LOCK_SUCCESS;  // Nothing has waited on this lock.
+  }
+  pthread_mutex_lock(&monitor->mutex);
+  Waiter *waiter = monitor->firstWaiter;
+  if (waiter) {
+    do {
+      waiter->notified = true;
+      waiter = waiter->next;
+    } while (all && waiter);
+    monitor->firstWaiter = waiter;
+    if (!waiter) {
+      monitor->lastWaiter = NULL;
+    }
+    pthread_cond_broadcast(&monitor->notified);
+  }
+  pthread_mutex_unlock(&monitor->mutex);
+  return JRE_THIN_LOCK_SUCCESS;
+}
+
+int JreThinLockNotify(const void *obj) {
+  return Notify(obj, false);
+}
+
+int JreThinLockNotifyAll(const void *obj) {
+  return Notify(obj, true);
+}
+
+bool JreThinLockHeldByCurrentThread(const void *obj) {
+  return HeldLock((uintptr_t)obj) != NULL;
+}
@@ -0,0 +1,242 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.j2objc.util;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * A hash map from {@code int} keys to object values that doesn't box its keys. Keys and values are
+ * stored in parallel arrays using open addressing with linear probing, so there are no per-entry
+ * objects for the runtime to allocate or track.
+ *
+ * <p>Null values are permitted, so {@link #get} returning null doesn't mean the key is absent; use
+ * {@link #containsKey} to tell. This class is not thread safe.
+ *
+ * @param <V> the type of mapped values
+ */
+public final class IntObjectHashMap<V> extends IntKeyTable {
+
+  /** Accepts the entries of a map, see {@link #forEach}. */
+  @FunctionalInterface
+  public interface EntryConsumer<V> {
+    void accept(int key, V value);
+  }
+
+  private Object[] values;
+  private V freeKeyValue;
+
+  public IntObjectHashMap() {
+    this(PrimitiveHashing.DEFAULT_EXPECTED_SIZE);
+  }
+
+  /**
+   * Creates a map that can hold {@code expectedSize} entries without growing.
+   */
+  public IntObjectHashMap(int expectedSize) {
+    super(expectedSize);
+    values = new Object[keys.length];
+  }
+
+  /**
+   * Returns the value mapped to {@code key}, or null if there is none.
+   */
+  @SuppressWarnings("unchecked")
+  public V get(int key) {
+    if (key == FREE_KEY) {
+      return freeKeyValue;
+    }
+    int index = indexOf(key);
+    return index >= 0 ? (V) values[index] : null;
+  }
+
+  /**
+   * Maps {@code key} to {@code value}, and returns the previous value, or null if there was none.
+   */
+  @SuppressWarnings("unchecked")
+  public V put(int key, V value) {
+    if (key == FREE_KEY) {
+      V previous = freeKeyValue;
+      hasFreeKey = true;
+      freeKeyValue = value;
+      return previous;
+    }
+    int index = slotOf(key);
+    if (keys[index] == key) {
+      V previous = (V) values[index];
+      values[index] = value;
+      return previous;
+    }
+    index = insertAt(index, key);
+    values[index] = value;
+    return null;
+  }
+
+  /**
+   * Returns the value mapped to {@code key}. If there is none, or it is null, maps it to the result
+   * of {@code mappingFunction} first, unless that is null.
+   */
+  @SuppressWarnings("unchecked")
+  public V computeIfAbsent(int key, IntFunction<? extends V> mappingFunction) {
+    Objects.requireNonNull(mappingFunction);
+    if (key == FREE_KEY) {
+      if (freeKeyValue != null) {
+        return freeKeyValue;
+      }
+      V value = mappingFunction.apply(key);
+      if (value != null) {
+        hasFreeKey = true;
+        freeKeyValue = value;
+      }
+      return value;
+    }
+    int index = indexOf(key);
+    if (index >= 0 && values[index] != null) {
+      return (V) values[index];
+    }
+    V value = mappingFunction.apply(key);
+    if (value != null) {
+      // The function may have modified this map, so find the slot again.
+      index = slotOf(key);
+      if (keys[index] == key) {
+        values[index] = value;
+      } else {
+        index = insertAt(index, key);
+        values[index] = value;
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Removes the entry for {@code key}, and returns its value, or null if there was none.
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(int key) {
+    if (key == FREE_KEY) {
+      V previous = freeKeyValue;
+      hasFreeKey = false;
+      freeKeyValue = null;
+      return previous;
+    }
+    int index = indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+    V previous = (V) values[index];
+    removeAt(index);
+    return previous;
+  }
+
+  /**
+   * Calls {@code action} for each entry, in no particular order. The map must not be modified
+   * until this returns.
+   */
+  @SuppressWarnings("unchecked")
+  public void forEach(EntryConsumer<? super V> action) {
+    if (hasFreeKey) {
+      action.accept(FREE_KEY, freeKeyValue);
+    }
+    int[] keys = this.keys;
+    Object[] values = this.values;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != FREE_KEY) {
+        action.accept(keys[i], (V) values[i]);
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof IntObjectHashMap)) {
+      return false;
+    }
+    IntObjectHashMap<?> other = (IntObjectHashMap<?>) o;
+    if (other.size() != size()) {
+      return false;
+    }
+    if (hasFreeKey && (!other.hasFreeKey || !Objects.equals(other.freeKeyValue, freeKeyValue))) {
+      return false;
+    }
+    for (int i = 0; i < keys.length; i++) {
+      int key = keys[i];
+      if (key != FREE_KEY) {
+        int index = other.indexOf(key);
+        if (index < 0 || !Objects.equals(other.values[index], values[i])) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the same hash code as a {@code java.util.Map} with the boxed entries.
+   */
+  @Override
+  public int hashCode() {
+    int hash = hasFreeKey ? Integer.hashCode(FREE_KEY) ^ Objects.hashCode(freeKeyValue) : 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != FREE_KEY) {
+        hash += Integer.hashCode(keys[i]) ^ Objects.hashCode(values[i]);
+      }
+    }
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    forEach((key, value) -> {
+      if (sb.length() > 1) {
+        sb.append(", ");
+      }
+      sb.append(key).append('=').append(value == this ? "(this Map)" : value);
+    });
+    return sb.append('}').toString();
+  }
+
+  @Override
+  Object newValues(int capacity) {
+    Object[] oldValues = values;
+    values = new Object[capacity];
+    return oldValues;
+  }
+
+  @Override
+  void copyValue(Object oldValues, int from, int to) {
+    values[to] = ((Object[]) oldValues)[from];
+  }
+
+  @Override
+  void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clearValue(int index) {
+    values[index] = null;
+  }
+
+  @Override
+  void clearValues() {
+    Arrays.fill(values, null);
+    freeKeyValue = null;
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.j2objc.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of {@code long} values that doesn't box. Use it in place of a {@code
+ * List<Long>} where the boxed elements would be a cost: each is a separate object that the
+ * runtime must allocate and track.
+ *
+ * <p>This class is not thread safe.
+ */
+public final class LongArrayList {
+
+  private static final long[] EMPTY = {};
+
+  private long[] elements;
+  private int size;
+
+  public LongArrayList() {
+    elements = EMPTY;
+  }
+
+  public LongArrayList(int initialCapacity) {
+    if (initialCapacity < 0) {
+      throw new IllegalArgumentException("initialCapacity < 0: " + initialCapacity);
+    }
+    elements = initialCapacity == 0 ? EMPTY : new long[initialCapacity];
+  }
+
+  /**
+   * Creates a list holding a copy of {@code values}.
+   */
+  public static LongArrayList of(long... values) {
+    LongArrayList list = new LongArrayList(values.length);
+    System.arraycopy(values, 0, list.elements, 0, values.length);
+    list.size = values.length;
+    return list;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public long get(int index) {
+    checkIndex(index);
+    return elements[index];
+  }
+
+  /**
+   * Replaces the element at {@code index}, and returns the previous one.
+   */
+  public long set(int index, long value) {
+    checkIndex(index);
+    long previous = elements[index];
+    elements[index] = value;
+    return previous;
+  }
+
+  public void add(long value) {
+    if (size == elements.length) {
+      grow(size + 1);
+    }
+    elements[size++] = value;
+  }
+
+  public void add(int index, long value) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+    }
+    if (size == elements.length) {
+      grow(size + 1);
+    }
+    System.arraycopy(elements, index, elements, index + 1, size - index);
+    elements[index] = value;
+    size++;
+  }
+
+  public void addAll(long[] values) {
+    ensureCapacity(size + values.length);
+    System.arraycopy(values, 0, elements, size, values.length);
+    size += values.length;
+  }
+
+  /**
+   * Removes the element at {@code index}, and returns it.
+   */
+  public long removeAt(int index) {
+    checkIndex(index);
+    long previous = elements[index];
+    System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+    size--;
+    return previous;
+  }
+
+  public int indexOf(long value) {
+    for (int i = 0; i < size; i++) {
+      if (elements[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public boolean contains(long value) {
+    return indexOf(value) >= 0;
+  }
+
+  /** Removes all elements. The capacity is kept. */
+  public void clear() {
+    size = 0;
+  }
+
+  /** Sorts the elements into ascending order. */
+  public void sort() {
+    Arrays.sort(elements, 0, size);
+  }
+
+  public void ensureCapacity(int minCapacity) {
+    if (minCapacity > elements.length) {
+      grow(minCapacity);
+    }
+  }
+
+  /** Returns a new array holding the elements. */
+  public long[] toArray() {
+    return Arrays.copyOf(elements, size);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof LongArrayList)) {
+      return false;
+    }
+    LongArrayList other = (LongArrayList) o;
+    if (other.size != size) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (other.elements[i] != elements[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the same hash code as a {@code java.util.List} with the boxed elements.
+   */
+  @Override
+  public int hashCode() {
+    int hash = 1;
+    for (int i = 0; i < size; i++) {
+      hash = 31 * hash + Long.hashCode(elements[i]);
+    }
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < size; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(elements[i]);
+    }
+    return sb.append(']').toString();
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+    }
+  }
+
+  private void grow(int minCapacity) {
+    int newCapacity = Math.max(elements.length + (elements.length >> 1), 10);
+    elements = Arrays.copyOf(elements, Math.max(newCapacity, minCapacity));
+  }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Generated from KeyTable.java.template by scripts/gen_key_tables.py; edit the template instead.
+
+package com.google.j2objc.util;
+
+import java.util.Arrays;
+
+/**
+ * The open-addressing table of {@code long} keys behind {@link LongLongHashMap} and {@link
+ * LongObjectHashMap}. It does the probing, growing and removal; subclasses keep the values in a
+ * parallel array and move them when told to.
+ *
+ * <p>The key 0 marks a free slot, so its entry, if any, is kept outside the table by the subclass.
+ */
+abstract class LongKeyTable {
+
+  /** Marks a free slot. */
+  static final long FREE_KEY = 0;
+
+  long[] keys;
+  private int mask;
+  private int resizeThreshold;
+
+  /** The number of entries in the table, which doesn't include the FREE_KEY entry. */
+  int tableSize;
+
+  boolean hasFreeKey;
+
+  /**
+   * Allocates the key array. The subclass constructor must then allocate its value array with
+   * {@code keys.length} slots; {@link #newValues} is only called to grow it.
+   */
+  LongKeyTable(int expectedSize) {
+    allocateKeys(PrimitiveHashing.tableCapacity(expectedSize));
+  }
+
+  /** Replaces the value array with one of {@code capacity} slots, and returns the previous one. */
+  abstract Object newValues(int capacity);
+
+  /** Copies the value at {@code from} in {@code oldValues} to {@code to} in the value array. */
+  abstract void copyValue(Object oldValues, int from, int to);
+
+  /** Moves the value at {@code from} to {@code to}. */
+  abstract void moveValue(int from, int to);
+
+  /** Clears the value at {@code index}, whose key has been removed. */
+  abstract void clearValue(int index);
+
+  /** Clears the value array, and the value of the FREE_KEY entry. */
+  abstract void clearValues();
+
+  public int size() {
+    return hasFreeKey ? tableSize + 1 : tableSize;
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  public boolean containsKey(long key) {
+    return key == FREE_KEY ? hasFreeKey : indexOf(key) >= 0;
+  }
+
+  public void clear() {
+    Arrays.fill(keys, FREE_KEY);
+    clearValues();
+    tableSize = 0;
+    hasFreeKey = false;
+  }
+
+  /**
+   * Returns a new array of this map's keys, in no particular order.
+   */
+  public long[] keys() {
+    long[] result = new long[size()];
+    int i = 0;
+    if (hasFreeKey) {
+      result[i++] = FREE_KEY;
+    }
+    for (long key : keys) {
+      if (key != FREE_KEY) {
+        result[i++] = key;
+      }
+    }
+    return result;
+  }
+
+  /** Returns the index of {@code key}'s entry, or -1 if it has none. */
+  final int indexOf(long key) {
+    long[] keys = this.keys;
+    int index = PrimitiveHashing.mix(key) & mask;
+    while (true) {
+      long k = keys[index];
+      if (k == key) {
+        return index;
+      }
+      if (k == FREE_KEY) {
+        return -1;
+      }
+      index = (index + 1) & mask;
+    }
+  }
+
+  /** Returns the index of {@code key}'s entry, or of the free slot where it belongs. */
+  final int slotOf(long key) {
+    long[] keys = this.keys;
+    int index = PrimitiveHashing.mix(key) & mask;
+    while (keys[index] != key && keys[index] != FREE_KEY) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  /**
+   * Stores {@code key} at the free slot {@code index}, growing the table if it's now too full, and
+   * returns the index where the caller must store the key's value. If the table can't grow, this
+   * throws without modifying it.
+   */
+  final int insertAt(int index, long key) {
+    if (tableSize < resizeThreshold) {
+      keys[index] = key;
+      tableSize++;
+      return index;
+    }
+    int capacity = PrimitiveHashing.doubleCapacity(keys.length);
+    keys[index] = key;
+    tableSize++;
+    rehash(capacity);
+    return indexOf(key);
+  }
+
+  /**
+   * Removes the entry at {@code gap} by moving later entries of the same probe run back, so that
+   * lookups never need tombstones.
+   */
+  final void removeAt(int gap) {
+    long[] keys = this.keys;
+    int index = gap;
+    while (true) {
+      index = (index + 1) & mask;
+      long key = keys[index];
+      if (key == FREE_KEY) {
+        break;
+      }
+      int home = PrimitiveHashing.mix(key) & mask;
+      if (PrimitiveHashing.canMoveTo(gap, home, index)) {
+        keys[gap] = key;
+        moveValue(index, gap);
+        gap = index;
+      }
+    }
+    keys[gap] = FREE_KEY;
+    clearValue(gap);
+    tableSize--;
+  }
+
+  private void allocateKeys(int capacity) {
+    keys = new long[capacity];
+    mask = capacity - 1;
+    resizeThreshold = PrimitiveHashing.resizeThreshold(capacity);
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    allocateKeys(capacity);
+    Object oldValues = newValues(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      long key = oldKeys[i];
+      if (key != FREE_KEY) {
+        int index = slotOf(key);
+        keys[index] = key;
+        copyValue(oldValues, i, index);
+      }
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.j2objc.util;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from {@code long} keys to {@code long} values that doesn't box. Keys and values are
+ * stored in parallel arrays using open addressing with linear probing, so there are no per-entry
+ * objects for the runtime to allocate or track.
+ *
+ * <p>An absent key reads as 0 from {@link #get}; use {@link #containsKey} or {@link
+ * #getOrDefault} to tell it apart. This class is not thread safe.
+ */
+public final class LongLongHashMap extends LongKeyTable {
+
+  /** Accepts the entries of a map, see {@link #forEach}. */
+  @FunctionalInterface
+  public interface EntryConsumer {
+    void accept(long key, long value);
+  }
+
+  private long[] values;
+  private long freeKeyValue;
+
+  public LongLongHashMap() {
+    this(PrimitiveHashing.DEFAULT_EXPECTED_SIZE);
+  }
+
+  /**
+   * Creates a map that can hold {@code expectedSize} entries without growing.
+   */
+  public LongLongHashMap(int expectedSize) {
+    super(expectedSize);
+    values = new long[keys.length];
+  }
+
+  /**
+   * Returns the value mapped to {@code key}, or 0 if there is none.
+   */
+  public long get(long key) {
+    return getOrDefault(key, 0);
+  }
+
+  /**
+   * Returns the value mapped to {@code key}, or {@code defaultValue} if there is none.
+   */
+  public long getOrDefault(long key, long defaultValue) {
+    if (key == FREE_KEY) {
+      return hasFreeKey ? freeKeyValue : defaultValue;
+    }
+    int index = indexOf(key);
+    return index >= 0 ? values[index] : defaultValue;
+  }
+
+  /**
+   * Maps {@code key} to {@code value}, and returns the previous value, or 0 if there was none.
+   */
+  public long put(long key, long value) {
+    if (key == FREE_KEY) {
+      long previous = freeKeyValue;
+      hasFreeKey = true;
+      freeKeyValue = value;
+      return previous;
+    }
+    int index = slotOf(key);
+    if (keys[index] == key) {
+      long previous = values[index];
+      values[index] = value;
+      return previous;
+    }
+    index = insertAt(index, key);
+    values[index] = value;
+    return 0;
+  }
+
+  /**
+   * Adds {@code delta} to the value mapped to {@code key}, treating a missing entry as 0, and
+   * returns the new value. This is the counting idiom without a get and a put.
+   */
+  public long addTo(long key, long delta) {
+    if (key == FREE_KEY) {
+      hasFreeKey = true;
+      return freeKeyValue += delta;
+    }
+    int index = slotOf(key);
+    if (keys[index] == key) {
+      return values[index] += delta;
+    }
+    index = insertAt(index, key);
+    values[index] = delta;
+    return delta;
+  }
+
+  /**
+   * Removes the entry for {@code key}, and returns its value, or 0 if there was none.
+   */
+  public long remove(long key) {
+    if (key == FREE_KEY) {
+      long previous = freeKeyValue;
+      hasFreeKey = false;
+      freeKeyValue = 0;
+      return previous;
+    }
+    int index = indexOf(key);
+    if (index < 0) {
+      return 0;
+    }
+    long previous = values[index];
+    removeAt(index);
+    return previous;
+  }
+
+  /**
+   * Calls {@code action} for each entry, in no particular order. The map must not be modified
+   * until this returns.
+   */
+  public void forEach(EntryConsumer action) {
+    if (hasFreeKey) {
+      action.accept(FREE_KEY, freeKeyValue);
+    }
+    long[] keys = this.keys;
+    long[] values = this.values;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != FREE_KEY) {
+        action.accept(keys[i], values[i]);
+      }
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof LongLongHashMap)) {
+      return false;
+    }
+    LongLongHashMap other = (LongLongHashMap) o;
+    if (other.size() != size()) {
+      return false;
+    }
+    if (hasFreeKey && (!other.hasFreeKey || other.freeKeyValue != freeKeyValue)) {
+      return false;
+    }
+    for (int i = 0; i < keys.length; i++) {
+      long key = keys[i];
+      if (key != FREE_KEY) {
+        int index = other.indexOf(key);
+        if (index < 0 || other.values[index] != values[i]) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the same hash code as a {@code java.util.Map} with the boxed entries.
+   */
+  @Override
+  public int hashCode() {
+    int hash = hasFreeKey ? Long.hashCode(FREE_KEY) ^ Long.hashCode(freeKeyValue) : 0;
+    for (int i = 0; i < keys.length; i++) {
+      if (keys[i] != FREE_KEY) {
+        hash += Long.hashCode(keys[i]) ^ Long.hashCode(values[i]);
+      }
+    }
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    forEach((key, value) -> {
+      if (sb.length() > 1) {
+        sb.append(", ");
+      }
+      sb.append(key).append('=').append(value);
+    });
+    return sb.append('}').toString();
+  }
+
+  @Override
+  Object newValues(int capacity) {
+    long[] oldValues = values;
+    values = new long[capacity];
+    return oldValues;
+  }
+
+  @Override
+  void copyValue(Object oldValues, int from, int to) {
+    values[to] = ((long[]) oldValues)[from];
+  }
+
+  @Override
+  void moveValue(int from, int to) {
+    values[to] = values[from];
+  }
+
+  @Override
+  void clearValue(int index) {
+    values[index] = 0;
+  }
+
+  @Override
+  void clearValues() {
+    Arrays.fill(values, 0);
+    freeKeyValue = 0;
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.j2objc.util;
+
+/**
+ * Hashing and sizing shared by the open-addressing primitive maps.
+ */
+final class PrimitiveHashing {
+
+  static final int DEFAULT_EXPECTED_SIZE = 8;
+
+  private static final int MIN_CAPACITY = 4;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  private PrimitiveHashing() {}
+
+  /**
+   * Spreads a key's bits so that keys differing only in their high bits, such as multiples of a
+   * power of two, don't all probe from the same slot.
+   */
+  static int mix(int key) {
+    int h = key * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  static int mix(long key) {
+    long h = key * 0x9e3779b97f4a7c15L;
+    int x = (int) (h ^ (h >>> 32));
+    return x ^ (x >>> 16);
+  }
+
+  /**
+   * Returns the power of two table capacity needed to hold {@code expectedSize} entries at a load
+   * factor of 3/4.
+   */
+  static int tableCapacity(int expectedSize) {
+    if (expectedSize < 0) {
+      throw new IllegalArgumentException("expectedSize < 0: " + expectedSize);
+    }
+    long needed = expectedSize + (expectedSize + 2) / 3;
+    int capacity = MIN_CAPACITY;
+    while (capacity < needed) {
+      if (capacity == MAX_CAPACITY) {
+        throw new IllegalArgumentException("expectedSize too large: " + expectedSize);
+      }
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   * Returns the capacity a full table of {@code capacity} grows to, or throws if it is already as
+   * large as a table can be.
+   */
+  static int doubleCapacity(int capacity) {
+    if (capacity >= MAX_CAPACITY) {
+      throw new IllegalStateException("Map is full: cannot grow beyond " + MAX_CAPACITY + " slots");
+    }
+    return capacity << 1;
+  }
+
+  /** Returns the number of entries a table of {@code capacity} holds before growing. */
+  static int resizeThreshold(int capacity) {
+    // Always leave a free slot, so that probing terminates.
+    return Math.min(capacity - (capacity >> 2), capacity - 1);
+  }
+
+  /**
+   * Returns true if the entry at {@code index}, whose home slot is {@code home}, may move back to
+   * the free slot {@code gap}, i.e. if {@code home} isn't cyclically within (gap, index].
+   */
+  static boolean canMoveTo(int gap, int home, int index) {
+    return gap <= index ? (home <= gap || home > index) : (home <= gap && home > index);
+  }
+}
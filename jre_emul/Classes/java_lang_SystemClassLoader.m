@@ -25,25 +25,47 @@
 #include "java/util/Collections.h"
 #include "jni.h"
 
-static IOSByteArray *GetLinkedResource(NSString *name) {
+// Maps the names of all linked resources to their definitions. Built on first
+// use, since the resource section isn't sorted and can hold hundreds of entries.
+static NSDictionary *LinkedResourceIndex() {
+  static NSDictionary *index;
+  static dispatch_once_t once;
+  dispatch_once(&once, ^{
+    extern J2ObjcResourceDefinition start_resource_section __asm(
+        "section$start$__DATA$__j2objcresource");
+    extern J2ObjcResourceDefinition end_resource_section __asm(
+        "section$end$__DATA$__j2objcresource");
+    NSUInteger nResources = (NSUInteger)(&end_resource_section - &start_resource_section);
+    NSMutableDictionary *map = [[NSMutableDictionary alloc] initWithCapacity:nResources];
+    for (long i = 0; i < nResources; i++) {
+      J2ObjcResourceDefinition *resource = (&start_resource_section) + i;
+      [map setObject:[NSValue valueWithPointer:resource]
+              forKey:[NSString stringWithUTF8String:resource->full_name]];
+    }
+    index = map;
+  });
+  return index;
+}
+
+const J2ObjcResourceDefinition *JreFindLinkedResource(NSString *name) {
+  if ([name length] == 0) {
+    return NULL;
+  }
   if ([name characterAtIndex:0] != '/') {
     name = [NSString stringWithFormat:@"/%@", name];
   }
-  const char *resourceName =
-      [[[[name stringByReplacingOccurrencesOfString:@"/" withString:@"_"]
-               stringByReplacingOccurrencesOfString:@"." withString:@"_"]
-               stringByReplacingOccurrencesOfString:@"-" withString:@"_"] UTF8String];
-  extern J2ObjcResourceDefinition start_resource_section __asm(
-      "section$start$__DATA$__j2objcresource");
-  extern J2ObjcResourceDefinition end_resource_section __asm(
-      "section$end$__DATA$__j2objcresource");
-  NSUInteger nResources = (NSUInteger)(&end_resource_section - &start_resource_section);
-  for (long i = 0; i < nResources; i++) {
-    J2ObjcResourceDefinition *resource = (&start_resource_section) + i;
-    if (strcmp(resourceName, resource->full_name) == 0) {
-      return [IOSByteArray arrayWithBytes:(const jbyte *)resource->data
-                                    count:(NSUInteger)resource->length];
-    }
+  NSString *resourceName =
+      [[[name stringByReplacingOccurrencesOfString:@"/" withString:@"_"]
+              stringByReplacingOccurrencesOfString:@"." withString:@"_"]
+              stringByReplacingOccurrencesOfString:@"-" withString:@"_"];
+  return (const J2ObjcResourceDefinition *)
+      [[LinkedResourceIndex() objectForKey:resourceName] pointerValue];
+}
+
+static IOSByteArray *GetLinkedResource(NSString *name) {
+  const J2ObjcResourceDefinition *resource = JreFindLinkedResource(name);
+  if (resource) {
+    return [IOSByteArray arrayWithBytes:resource->data count:(NSUInteger)resource->length];
   }
   return nil;
 }
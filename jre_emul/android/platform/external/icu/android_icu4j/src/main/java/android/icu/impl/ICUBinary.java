@@ -493,6 +493,14 @@ public final class ICUBinary {
         if (resourceName == null) {
             resourceName = ICUData.ICU_BASE_NAME + '/' + itemPath;
         }
+        // J2ObjC: ICU data is embedded in the binary. Read it in place, like a mapped .dat
+        // package, instead of copying each item onto the heap through an InputStream.
+        if (resourceName.startsWith(ICUData.ICU_BASE_NAME)) {
+            bytes = ICUData.getLinkedData(resourceName);
+            if (bytes != null) {
+                return bytes;
+            }
+        }
         ByteBuffer buffer = null;
         try {
             @SuppressWarnings("resource")  // Closed by getByteBufferFromInputStreamAndCloseStream().
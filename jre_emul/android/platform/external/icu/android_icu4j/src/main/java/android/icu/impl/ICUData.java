@@ -15,6 +15,7 @@ package android.icu.impl;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.MissingResourceException;
@@ -23,6 +24,8 @@ import java.util.logging.Logger;
 import android.icu.util.VersionInfo;
 
 /*-[
+#include "java/nio/DirectByteBuffer.h"
+
 // J2ObjC: make sure that the embedded resources are linked by referencing
 // the class ICUData.m which is generated at build time (see jre_emul/icu_data.mk).
 #pragma clang diagnostic push
@@ -160,6 +163,25 @@ public final class ICUData {
         return i;
     }
 
+    /**
+     * J2ObjC: Returns a read-only direct buffer over the data embedded in the binary for
+     * resourceName (see jre_emul/icu_data.mk), or null if there is no such data or a file in
+     * the main bundle overrides it. Unlike getStream(), the data is not copied onto the heap,
+     * it is read in place from the executable's mapped image.
+     * Should be called only from ICUBinary.getData().
+     */
+    static native ByteBuffer getLinkedData(String resourceName) /*-[
+      if ([[NSBundle mainBundle] pathForResource:resourceName ofType:nil]) {
+        return nil;
+      }
+      const J2ObjcResourceDefinition *resource = JreFindLinkedResource(resourceName);
+      if (!resource) {
+        return nil;
+      }
+      return create_JavaNioDirectByteBuffer_initWithInt_withLong_withJavaIoFileDescriptor_withJavaLangRunnable_withBoolean_(
+          resource->length, (jlong)(uintptr_t)resource->data, nil, nil, true);
+    ]-*/;
+
     @SuppressWarnings("unused")  // used if logBinaryDataFromInputStream == true
     private static void checkStreamForBinaryData(InputStream is, String resourceName) {
         if (logBinaryDataFromInputStream && is != null && resourceName.indexOf(PACKAGE_NAME) >= 0) {
@@ -1977,7 +1977,7 @@ public abstract class DateFormat extends UFormat {
     public final static DateFormat getInstanceForSkeleton(String skeleton, ULocale locale) {
         DateTimePatternGenerator generator = DateTimePatternGenerator.getInstance(locale);
         final String bestPattern = generator.getBestPattern(skeleton);
-        return new SimpleDateFormat(bestPattern, locale);
+        return SimpleDateFormat.getCachedInstance(bestPattern, locale);
     }
 
     /**
@@ -2014,7 +2014,7 @@ public abstract class DateFormat extends UFormat {
         Calendar cal, String skeleton, ULocale locale) {
         DateTimePatternGenerator generator = DateTimePatternGenerator.getInstance(locale);
         final String bestPattern = generator.getBestPattern(skeleton);
-        SimpleDateFormat format = new SimpleDateFormat(bestPattern, locale);
+        SimpleDateFormat format = SimpleDateFormat.getCachedInstance(bestPattern, locale);
         format.setCalendar(cal);
         return format;
     }
@@ -24,8 +24,11 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
 
+import android.icu.impl.CacheBase;
 import android.icu.impl.ICUConfig;
+import android.icu.impl.Pair;
 import android.icu.impl.PatternProps;
+import android.icu.impl.SoftCache;
 import android.icu.impl.Utility;
 import android.icu.lang.UCharacter;
 import android.icu.math.BigDecimal;
@@ -776,6 +779,37 @@ public class DecimalFormat extends NumberFormat {
         create(pattern, inputSymbols, info, style);
     }
 
+    /**
+     * Returns a DecimalFormat for the given pattern and the symbols of the given locale.
+     * The result is equivalent to
+     * <code>new DecimalFormat(pattern, new DecimalFormatSymbols(locale))</code>, but the
+     * pattern is parsed and the symbols are loaded only the first time a pattern and
+     * locale pair is requested. Later requests clone a cached, never modified prototype.
+     *
+     * @param pattern a non-localized pattern string
+     * @param locale the locale of the symbols
+     * @throws IllegalArgumentException if the given pattern is invalid
+     * @deprecated This API is ICU internal only.
+     * @hide original deprecated declaration
+     * @hide draft / provisional / internal are hidden on Android
+     */
+    @Deprecated
+    public static DecimalFormat getCachedInstance(String pattern, ULocale locale) {
+        if (pattern == null || locale == null) {
+            throw new NullPointerException();
+        }
+        return (DecimalFormat) PROTOTYPE_CACHE.getInstance(Pair.of(pattern, locale), null).clone();
+    }
+
+    // Prototypes built by getCachedInstance(). Invalid patterns throw and are not cached.
+    private static final CacheBase<Pair<String, ULocale>, DecimalFormat, Void> PROTOTYPE_CACHE =
+        new SoftCache<Pair<String, ULocale>, DecimalFormat, Void>() {
+            @Override
+            protected DecimalFormat createInstance(Pair<String, ULocale> key, Void unused) {
+                return new DecimalFormat(key.first, new DecimalFormatSymbols(key.second));
+            }
+        };
+
     /**
      * {@inheritDoc}
      */
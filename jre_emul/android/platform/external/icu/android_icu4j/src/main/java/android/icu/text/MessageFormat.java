@@ -2161,8 +2161,7 @@ public class MessageFormat extends UFormat {
                 newFormat = NumberFormat.getIntegerInstance(ulocale);
                 break;
             default: // pattern
-                newFormat = new DecimalFormat(style,
-                        new DecimalFormatSymbols(ulocale));
+                newFormat = DecimalFormat.getCachedInstance(style, ulocale);
                 break;
             }
             break;
@@ -2184,7 +2183,7 @@ public class MessageFormat extends UFormat {
                 newFormat = DateFormat.getDateInstance(DateFormat.FULL, ulocale);
                 break;
             default:
-                newFormat = new SimpleDateFormat(style, ulocale);
+                newFormat = SimpleDateFormat.getCachedInstance(style, ulocale);
                 break;
             }
             break;
@@ -2206,7 +2205,7 @@ public class MessageFormat extends UFormat {
                 newFormat = DateFormat.getTimeInstance(DateFormat.FULL, ulocale);
                 break;
             default:
-                newFormat = new SimpleDateFormat(style, ulocale);
+                newFormat = SimpleDateFormat.getCachedInstance(style, ulocale);
                 break;
             }
             break;
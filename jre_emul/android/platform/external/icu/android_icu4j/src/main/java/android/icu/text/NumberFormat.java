@@ -24,8 +24,11 @@ import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.Set;
 
+import android.icu.impl.CacheBase;
 import android.icu.impl.ICUData;
 import android.icu.impl.ICUResourceBundle;
+import android.icu.impl.Pair;
+import android.icu.impl.SoftCache;
 import android.icu.util.Currency;
 import android.icu.util.Currency.CurrencyUsage;
 import android.icu.util.CurrencyAmount;
@@ -1251,6 +1254,29 @@ public abstract class NumberFormat extends UFormat {
     // =======================privates===============================
     // Hook for service
     static NumberFormat createInstance(ULocale desiredLocale, int choice) {
+        // Clone a cached prototype instead of reloading the symbols and reparsing the
+        // pattern. Formats other than DecimalFormat aren't cached, see PROTOTYPE_CACHE.
+        NumberFormat prototype =
+            PROTOTYPE_CACHE.getInstance(Pair.of(desiredLocale, Integer.valueOf(choice)), null);
+        if (prototype == null) {
+            return createNewInstance(desiredLocale, choice);
+        }
+        return (NumberFormat) prototype.clone();
+    }
+
+    // Prototypes for createInstance(), never handed out or modified. A
+    // RuleBasedNumberFormat's rules refer back to the formatter that owns them, so
+    // clones of it aren't independent; those are cached as null and built every time.
+    private static final CacheBase<Pair<ULocale, Integer>, NumberFormat, Void> PROTOTYPE_CACHE =
+        new SoftCache<Pair<ULocale, Integer>, NumberFormat, Void>() {
+            @Override
+            protected NumberFormat createInstance(Pair<ULocale, Integer> key, Void unused) {
+                NumberFormat format = createNewInstance(key.first, key.second.intValue());
+                return (format instanceof DecimalFormat) ? format : null;
+            }
+        };
+
+    private static NumberFormat createNewInstance(ULocale desiredLocale, int choice) {
         // If the choice is PLURALCURRENCYSTYLE, the pattern is not a single
         // pattern, it is a pattern set, so we do not need to get them here.
         // If the choice is ISOCURRENCYSTYLE, the pattern is the currrency
@@ -26,14 +26,17 @@ import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.UUID;
 
+import android.icu.impl.CacheBase;
 import android.icu.impl.DateNumberFormat;
 import android.icu.impl.DayPeriodRules;
 import android.icu.impl.ICUCache;
 import android.icu.impl.ICUData;
 import android.icu.impl.ICUResourceBundle;
+import android.icu.impl.Pair;
 import android.icu.impl.PatternProps;
 import android.icu.impl.SimpleCache;
 import android.icu.impl.SimpleFormatterImpl;
+import android.icu.impl.SoftCache;
 import android.icu.lang.UCharacter;
 import android.icu.text.TimeZoneFormat.Style;
 import android.icu.text.TimeZoneFormat.TimeType;
@@ -1095,6 +1098,43 @@ public class SimpleDateFormat extends DateFormat {
                     formatConfig.getOverrideString());
     }
 
+    /**
+     * Returns a SimpleDateFormat for the given pattern and locale, equivalent to
+     * <code>new SimpleDateFormat(pattern, locale)</code>. The date format symbols,
+     * calendar and number format are loaded and the pattern is parsed only the first
+     * time a pattern and locale pair is requested. Later requests clone a cached,
+     * never modified prototype and give it the current default time zone.
+     *
+     * @param pattern the pattern
+     * @param locale the locale
+     * @deprecated This API is ICU internal only.
+     * @hide original deprecated declaration
+     * @hide draft / provisional / internal are hidden on Android
+     */
+    @Deprecated
+    public static SimpleDateFormat getCachedInstance(String pattern, ULocale locale) {
+        if (pattern == null || locale == null) {
+            throw new NullPointerException();
+        }
+        SimpleDateFormat result = (SimpleDateFormat)
+                PROTOTYPE_CACHE.getInstance(Pair.of(pattern, locale), null).clone();
+        // Match what the constructor would have set up now.
+        long now = System.currentTimeMillis();
+        result.calendar.setTimeZone(TimeZone.getDefault());
+        result.calendar.setTimeInMillis(now);
+        result.defaultCenturyBase = now;
+        return result;
+    }
+
+    // Prototypes built by getCachedInstance().
+    private static final CacheBase<Pair<String, ULocale>, SimpleDateFormat, Void> PROTOTYPE_CACHE =
+        new SoftCache<Pair<String, ULocale>, SimpleDateFormat, Void>() {
+            @Override
+            protected SimpleDateFormat createInstance(Pair<String, ULocale> key, Void unused) {
+                return new SimpleDateFormat(key.first, key.second);
+            }
+        };
+
     /*
      * Initialized fields
      */
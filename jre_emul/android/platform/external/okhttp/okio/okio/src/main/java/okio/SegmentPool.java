@@ -15,46 +15,133 @@
  */
 package okio;
 
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * A collection of unused segments, necessary to avoid GC churn and zero-fill.
  * This pool is a thread-safe static singleton.
+ *
+ * <p>The pool is striped into buckets selected by the current thread's ID, so
+ * threads doing concurrent I/O rarely touch the same bucket. Each bucket is a
+ * singly-linked list whose head is claimed by swapping in the {@link #LOCK}
+ * sentinel; no monitor is ever held. A thread that finds its bucket empty,
+ * full or contended falls back to one shared overflow bucket, and only
+ * allocates or drops a segment if that fails too.
+ *
+ * <p>A pooled segment's {@code limit} holds the number of bytes in the list
+ * from that segment on, so the head's is the bucket's total.
  */
 final class SegmentPool {
-  /** The maximum number of bytes to pool. */
-  // TODO: Is 64 KiB a good maximum size? Do we ever have that many idle segments?
-  static final long MAX_SIZE = 64 * 1024; // 64 KiB.
+  /**
+   * The maximum number of bytes to pool per bucket. Tunable with the
+   * {@code okio.SegmentPool.maxSize} system property.
+   */
+  static final long MAX_SIZE = Long.getLong("okio.SegmentPool.maxSize", 64 * 1024); // 64 KiB.
+
+  /** Marks a bucket whose list is currently claimed by another thread. */
+  static final Segment LOCK = new Segment(new byte[0], 0, 0);
 
-  /** Singly-linked list of segments. */
-  static Segment next;
+  /** A power of two, so a thread ID can be masked to pick a bucket. */
+  static final int BUCKET_COUNT =
+      Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+  /** Per-thread buckets, followed by the shared overflow bucket. */
+  @SuppressWarnings("unchecked")
+  private static final AtomicReference<Segment>[] buckets = new AtomicReference[BUCKET_COUNT + 1];
+
+  static {
+    for (int i = 0; i < buckets.length; i++) {
+      buckets[i] = new AtomicReference<>();
+    }
+  }
 
-  /** Total bytes in this pool. */
-  static long byteCount;
+  private static final LongAdder hits = new LongAdder();
+  private static final LongAdder misses = new LongAdder();
 
   private SegmentPool() {
   }
 
   static Segment take() {
-    synchronized (SegmentPool.class) {
-      if (next != null) {
-        Segment result = next;
-        next = result.next;
-        result.next = null;
-        byteCount -= Segment.SIZE;
-        return result;
-      }
+    AtomicReference<Segment> bucket = threadBucket();
+    Segment result = pop(bucket);
+    if (result == null) {
+      result = pop(buckets[BUCKET_COUNT]);
+    }
+    if (result == null) {
+      misses.increment();
+      return new Segment(); // Pool is empty. Don't zero-fill while holding a bucket.
     }
-    return new Segment(); // Pool is empty. Don't zero-fill while holding a lock.
+    hits.increment();
+    return result;
   }
 
   static void recycle(Segment segment) {
     if (segment.next != null || segment.prev != null) throw new IllegalArgumentException();
     if (segment.shared) return; // This segment cannot be recycled.
-    synchronized (SegmentPool.class) {
-      if (byteCount + Segment.SIZE > MAX_SIZE) return; // Pool is full.
-      byteCount += Segment.SIZE;
-      segment.next = next;
-      segment.pos = segment.limit = 0;
-      next = segment;
+    if (!push(threadBucket(), segment)) {
+      push(buckets[BUCKET_COUNT], segment); // If the overflow is full too, it's dropped.
+    }
+  }
+
+  /** Returns the number of bytes pooled in the current thread's bucket. */
+  static long byteCount() {
+    Segment first = threadBucket().get();
+    return first == null || first == LOCK ? 0 : first.limit;
+  }
+
+  /** Returns the number of segments taken from the pool. */
+  static long hitCount() {
+    return hits.sum();
+  }
+
+  /** Returns the number of segments allocated because the pool was empty. */
+  static long missCount() {
+    return misses.sum();
+  }
+
+  /** Empties every bucket. Segments held by concurrent callers are unaffected. */
+  static void clear() {
+    for (AtomicReference<Segment> bucket : buckets) {
+      if (bucket.getAndSet(LOCK) != LOCK) {
+        bucket.set(null);
+      }
+    }
+  }
+
+  private static AtomicReference<Segment> threadBucket() {
+    return buckets[(int) (Thread.currentThread().getId() & (BUCKET_COUNT - 1))];
+  }
+
+  private static Segment pop(AtomicReference<Segment> bucket) {
+    Segment first = bucket.getAndSet(LOCK);
+    if (first == LOCK) {
+      return null; // Another thread holds this bucket.
+    }
+    if (first == null) {
+      bucket.set(null);
+      return null;
+    }
+    bucket.set(first.next);
+    first.next = null;
+    first.limit = 0;
+    return first;
+  }
+
+  private static boolean push(AtomicReference<Segment> bucket, Segment segment) {
+    Segment first = bucket.getAndSet(LOCK);
+    if (first == LOCK) {
+      return false; // Another thread holds this bucket.
+    }
+    int byteCount = first != null ? first.limit : 0;
+    if (byteCount + Segment.SIZE > MAX_SIZE) {
+      bucket.set(first); // Bucket is full.
+      return false;
     }
+    segment.next = first;
+    segment.pos = 0;
+    segment.limit = byteCount + Segment.SIZE;
+    bucket.set(segment);
+    return true;
   }
 }
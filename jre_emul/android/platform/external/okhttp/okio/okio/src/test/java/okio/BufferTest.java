@@ -114,27 +114,38 @@ public final class BufferTest {
 
   @Test public void fillAndDrainPool() throws Exception {
     Buffer buffer = new Buffer();
+    int segmentCount = (int) (SegmentPool.MAX_SIZE / Segment.SIZE);
+    SegmentPool.clear();
 
-    // Take 2 * MAX_SIZE segments. This will drain the pool, even if other tests filled it.
+    // Take 2 * MAX_SIZE segments. The pool is empty so they're all allocated.
+    long misses = SegmentPool.missCount();
     buffer.write(new byte[(int) SegmentPool.MAX_SIZE]);
     buffer.write(new byte[(int) SegmentPool.MAX_SIZE]);
-    assertEquals(0, SegmentPool.byteCount);
+    assertEquals(0, SegmentPool.byteCount());
+    assertEquals(misses + 2 * segmentCount, SegmentPool.missCount());
 
-    // Recycle MAX_SIZE segments. They're all in the pool.
+    // Recycle MAX_SIZE segments. They're all in this thread's bucket.
     buffer.readByteString(SegmentPool.MAX_SIZE);
-    assertEquals(SegmentPool.MAX_SIZE, SegmentPool.byteCount);
+    assertEquals(SegmentPool.MAX_SIZE, SegmentPool.byteCount());
 
-    // Recycle MAX_SIZE more segments. The pool is full so they get garbage collected.
+    // Recycle MAX_SIZE more segments. The bucket is full so they go to the shared overflow.
     buffer.readByteString(SegmentPool.MAX_SIZE);
-    assertEquals(SegmentPool.MAX_SIZE, SegmentPool.byteCount);
+    assertEquals(SegmentPool.MAX_SIZE, SegmentPool.byteCount());
 
-    // Take MAX_SIZE segments to drain the pool.
+    // Take MAX_SIZE segments to drain the bucket.
+    long hits = SegmentPool.hitCount();
     buffer.write(new byte[(int) SegmentPool.MAX_SIZE]);
-    assertEquals(0, SegmentPool.byteCount);
+    assertEquals(0, SegmentPool.byteCount());
+    assertEquals(hits + segmentCount, SegmentPool.hitCount());
+
+    // Take MAX_SIZE more segments. These come from the overflow.
+    buffer.write(new byte[(int) SegmentPool.MAX_SIZE]);
+    assertEquals(hits + 2 * segmentCount, SegmentPool.hitCount());
 
     // Take MAX_SIZE more segments. The pool is drained so these will need to be allocated.
+    misses = SegmentPool.missCount();
     buffer.write(new byte[(int) SegmentPool.MAX_SIZE]);
-    assertEquals(0, SegmentPool.byteCount);
+    assertEquals(misses + segmentCount, SegmentPool.missCount());
   }
 
   @Test public void moveBytesBetweenBuffersShareSegment() throws Exception {
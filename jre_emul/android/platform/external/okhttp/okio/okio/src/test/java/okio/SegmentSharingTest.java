@@ -78,13 +78,10 @@ public final class SegmentSharingTest {
     ByteString snapshot = buffer.snapshot();
     assertEquals(xs + ys + zs, snapshot.utf8());
 
-    // While locking the pool, confirm that clearing the buffer doesn't release its segments.
-    synchronized (SegmentPool.class) {
-      SegmentPool.next = null;
-      SegmentPool.byteCount = 0L;
-      buffer.clear();
-      assertEquals(null, SegmentPool.next);
-    }
+    // Confirm that clearing the buffer doesn't release its segments.
+    SegmentPool.clear();
+    buffer.clear();
+    assertEquals(0, SegmentPool.byteCount());
   }
 
   /**
@@ -95,15 +92,12 @@ public final class SegmentSharingTest {
     Buffer buffer = concatenateBuffers(xs, ys, zs);
     Buffer clone = buffer.clone();
 
-    // While locking the pool, confirm that clearing the buffer doesn't release its segments.
-    synchronized (SegmentPool.class) {
-      SegmentPool.next = null;
-      SegmentPool.byteCount = 0L;
-      buffer.clear();
-      assertEquals(null, SegmentPool.next);
-      clone.clear();
-      assertEquals(null, SegmentPool.next);
-    }
+    // Confirm that clearing the buffer doesn't release its segments.
+    SegmentPool.clear();
+    buffer.clear();
+    assertEquals(0, SegmentPool.byteCount());
+    clone.clear();
+    assertEquals(0, SegmentPool.byteCount());
   }
 
   @Test public void snapshotJavaSerialization() throws Exception {
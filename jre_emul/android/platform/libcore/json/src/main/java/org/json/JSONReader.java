@@ -0,0 +1,694 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import libcore.internal.StringPool;
+
+/**
+ * Reads a JSON encoded value as a stream of tokens. Unlike {@link
+ * JSONTokener}, which needs the whole document as a string and builds a
+ * {@link JSONObject} or {@link JSONArray} tree from it, this reader pulls
+ * characters from a {@link Reader} through a fixed size buffer, so documents
+ * of any size can be consumed in constant memory. For example:<pre>
+ * JSONReader reader = new JSONReader(new InputStreamReader(in, "UTF-8"));
+ * reader.beginArray();
+ * while (reader.hasNext()) {
+ *     reader.beginObject();
+ *     while (reader.hasNext()) {
+ *         String name = reader.nextName();
+ *         if (name.equals("id")) {
+ *             long id = reader.nextLong();
+ *         } else {
+ *             reader.skipValue();
+ *         }
+ *     }
+ *     reader.endObject();
+ * }
+ * reader.endArray();</pre>
+ *
+ * <p>Numbers are returned through primitive accessors and are never boxed.
+ * Property names are pooled with a {@link StringPool}, so documents that
+ * repeat the same keys don't allocate a new string for each occurrence.
+ *
+ * <p>This reader is strict: it accepts exactly one top-level value, and
+ * doesn't accept the comments, unquoted or single-quoted strings and
+ * alternative separators that {@link JSONTokener} tolerates.
+ *
+ * <p>Instances of this class are not thread safe.
+ */
+public class JSONReader implements Closeable {
+
+    /** The kind of the next element in the stream. */
+    public enum Token {
+        BEGIN_ARRAY,
+        END_ARRAY,
+        BEGIN_OBJECT,
+        END_OBJECT,
+        NAME,
+        STRING,
+        NUMBER,
+        BOOLEAN,
+        NULL,
+        END_DOCUMENT,
+    }
+
+    /*
+     * Lexical scopes. Unlike JSONStringer, the stack is an int array so that
+     * reading deeply nested documents doesn't allocate per level.
+     */
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_ARRAY = 2;
+    private static final int NONEMPTY_ARRAY = 3;
+    private static final int EMPTY_OBJECT = 4;
+    private static final int DANGLING_NAME = 5;
+    private static final int NONEMPTY_OBJECT = 6;
+    private static final int CLOSED = 7;
+
+    private final Reader in;
+    private final StringPool stringPool = new StringPool();
+
+    /**
+     * Characters read from the input but not yet consumed live in
+     * {@code buffer[pos..limit)}. Number literals must fit in the buffer.
+     */
+    private final char[] buffer = new char[1024];
+    private int pos = 0;
+    private int limit = 0;
+
+    /** The number of characters discarded from the front of the buffer. */
+    private long bufferStartOffset = 0;
+
+    private int[] stack = new int[32];
+    private int stackSize = 0;
+
+    /** The peeked token, or null if the next token hasn't been read yet. */
+    private Token token;
+
+    /** The value of a peeked BOOLEAN token. */
+    private boolean booleanValue;
+
+    public JSONReader(Reader in) {
+        if (in == null) {
+            throw new NullPointerException("in == null");
+        }
+        this.in = in;
+        push(EMPTY_DOCUMENT);
+    }
+
+    /**
+     * Consumes the next token, which must be the beginning of an array.
+     */
+    public void beginArray() throws IOException, JSONException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consumes the next token, which must be the end of the current array.
+     */
+    public void endArray() throws IOException, JSONException {
+        expect(Token.END_ARRAY);
+        stackSize--;
+    }
+
+    /**
+     * Consumes the next token, which must be the beginning of an object.
+     */
+    public void beginObject() throws IOException, JSONException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consumes the next token, which must be the end of the current object.
+     */
+    public void endObject() throws IOException, JSONException {
+        expect(Token.END_OBJECT);
+        stackSize--;
+    }
+
+    /**
+     * Returns true if the current array or object has another element.
+     */
+    public boolean hasNext() throws IOException, JSONException {
+        Token next = peek();
+        return next != Token.END_ARRAY && next != Token.END_OBJECT
+                && next != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Returns the kind of the next token without consuming it.
+     */
+    public Token peek() throws IOException, JSONException {
+        if (token != null) {
+            return token;
+        }
+        int c;
+        switch (stack[stackSize - 1]) {
+            case EMPTY_DOCUMENT:
+                stack[stackSize - 1] = NONEMPTY_DOCUMENT;
+                return token = readValueToken(nextNonWhitespace());
+
+            case NONEMPTY_DOCUMENT:
+                if (nextNonWhitespace() != -1) {
+                    throw syntaxError("Unexpected content after the top-level value");
+                }
+                return token = Token.END_DOCUMENT;
+
+            case EMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    pos++;
+                    return token = Token.END_ARRAY;
+                }
+                stack[stackSize - 1] = NONEMPTY_ARRAY;
+                return token = readValueToken(c);
+
+            case NONEMPTY_ARRAY:
+                c = nextNonWhitespace();
+                if (c == ']') {
+                    pos++;
+                    return token = Token.END_ARRAY;
+                } else if (c != ',') {
+                    throw syntaxError("Unterminated array");
+                }
+                pos++;
+                return token = readValueToken(nextNonWhitespace());
+
+            case EMPTY_OBJECT:
+            case NONEMPTY_OBJECT:
+                c = nextNonWhitespace();
+                if (c == '}') {
+                    pos++;
+                    return token = Token.END_OBJECT;
+                }
+                if (stack[stackSize - 1] == NONEMPTY_OBJECT) {
+                    if (c != ',') {
+                        throw syntaxError("Unterminated object");
+                    }
+                    pos++;
+                    c = nextNonWhitespace();
+                }
+                if (c != '"') {
+                    throw syntaxError("Expected a quoted name");
+                }
+                pos++;
+                stack[stackSize - 1] = DANGLING_NAME;
+                return token = Token.NAME;
+
+            case DANGLING_NAME:
+                if (nextNonWhitespace() != ':') {
+                    throw syntaxError("Expected ':' after a name");
+                }
+                pos++;
+                stack[stackSize - 1] = NONEMPTY_OBJECT;
+                return token = readValueToken(nextNonWhitespace());
+
+            case CLOSED:
+                throw new IllegalStateException("JSONReader is closed");
+
+            default:
+                throw new AssertionError();
+        }
+    }
+
+    /**
+     * Consumes the next token, which must be a property name, and returns it.
+     */
+    public String nextName() throws IOException, JSONException {
+        expect(Token.NAME);
+        return readQuoted(true);
+    }
+
+    /**
+     * Consumes the next token and returns its string value. The token must be
+     * a string or a number; numbers are returned as they appear in the input.
+     */
+    public String nextString() throws IOException, JSONException {
+        Token next = peek();
+        if (next == Token.STRING) {
+            token = null;
+            return readQuoted(false);
+        } else if (next == Token.NUMBER) {
+            token = null;
+            int length = numberLength();
+            String result = new String(buffer, pos, length);
+            pos += length;
+            return result;
+        }
+        throw new JSONException("Expected a string but was " + next + this);
+    }
+
+    /**
+     * Consumes the next token, which must be a boolean literal, and returns it.
+     */
+    public boolean nextBoolean() throws IOException, JSONException {
+        expect(Token.BOOLEAN);
+        return booleanValue;
+    }
+
+    /**
+     * Consumes the next token, which must be the null literal.
+     */
+    public void nextNull() throws IOException, JSONException {
+        expect(Token.NULL);
+    }
+
+    /**
+     * Consumes the next token, which must be a number, and returns it as a
+     * double.
+     */
+    public double nextDouble() throws IOException, JSONException {
+        int length = peekNumber();
+        double result = parseDouble(length);
+        consumeNumber(length);
+        return result;
+    }
+
+    /**
+     * Consumes the next token, which must be a number that is exactly
+     * representable as a long, and returns it.
+     */
+    public long nextLong() throws IOException, JSONException {
+        int length = peekNumber();
+        long result = parseLong(length);
+        consumeNumber(length);
+        return result;
+    }
+
+    /**
+     * Consumes the next token, which must be a number that is exactly
+     * representable as an int, and returns it.
+     */
+    public int nextInt() throws IOException, JSONException {
+        int length = peekNumber();
+        long result = parseLong(length);
+        if ((int) result != result) {
+            throw syntaxError("Expected an int but was " + new String(buffer, pos, length));
+        }
+        consumeNumber(length);
+        return (int) result;
+    }
+
+    /**
+     * Skips the next value, including all of its nested elements, without
+     * materializing any of it.
+     */
+    public void skipValue() throws IOException, JSONException {
+        int depth = 0;
+        do {
+            switch (peek()) {
+                case BEGIN_ARRAY:
+                    beginArray();
+                    depth++;
+                    break;
+                case BEGIN_OBJECT:
+                    beginObject();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    depth--;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    depth--;
+                    break;
+                case NAME:
+                case STRING:
+                    token = null;
+                    skipQuoted();
+                    break;
+                case NUMBER:
+                    token = null;
+                    pos += numberLength();
+                    break;
+                case BOOLEAN:
+                case NULL:
+                    token = null;
+                    break;
+                case END_DOCUMENT:
+                    throw syntaxError("End of input");
+            }
+        } while (depth > 0);
+    }
+
+    /**
+     * Closes the underlying reader. Any further use of this reader fails with
+     * an {@link IllegalStateException}.
+     */
+    @Override public void close() throws IOException {
+        token = null;
+        stack[0] = CLOSED;
+        stackSize = 1;
+        in.close();
+    }
+
+    private void expect(Token expected) throws IOException, JSONException {
+        Token next = peek();
+        if (next != expected) {
+            throw new JSONException("Expected " + expected + " but was " + next + this);
+        }
+        token = null;
+    }
+
+    /**
+     * Checks that the next token is a number and returns the length of its
+     * literal. The number stays unconsumed, so a caller that fails to parse
+     * it leaves the reader unchanged.
+     */
+    private int peekNumber() throws IOException, JSONException {
+        Token next = peek();
+        if (next != Token.NUMBER) {
+            throw new JSONException("Expected " + Token.NUMBER + " but was " + next + this);
+        }
+        return numberLength();
+    }
+
+    private void consumeNumber(int length) {
+        token = null;
+        pos += length;
+    }
+
+    private void push(int scope) {
+        if (stackSize == stack.length) {
+            int[] newStack = new int[stackSize * 2];
+            System.arraycopy(stack, 0, newStack, 0, stackSize);
+            stack = newStack;
+        }
+        stack[stackSize++] = scope;
+    }
+
+    /**
+     * Ensures at least {@code minimum} unconsumed characters are buffered,
+     * moving the unconsumed characters to the front of the buffer first.
+     * Returns false if the input ends before that.
+     */
+    private boolean fill(int minimum) throws IOException {
+        if (pos > 0) {
+            bufferStartOffset += pos;
+            limit -= pos;
+            System.arraycopy(buffer, pos, buffer, 0, limit);
+            pos = 0;
+        }
+        while (limit < minimum) {
+            int count = in.read(buffer, limit, buffer.length - limit);
+            if (count == -1) {
+                return false;
+            }
+            limit += count;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next non-whitespace character without consuming it, or -1
+     * at the end of the input.
+     */
+    private int nextNonWhitespace() throws IOException {
+        while (pos < limit || fill(1)) {
+            char c = buffer[pos];
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    /**
+     * Determines the token starting with {@code c}. Structural characters,
+     * opening quotes and literals are consumed; numbers are left in the buffer
+     * for the primitive accessors to parse in place.
+     */
+    private Token readValueToken(int c) throws IOException, JSONException {
+        switch (c) {
+            case -1:
+                throw syntaxError("End of input");
+            case '{':
+                pos++;
+                return Token.BEGIN_OBJECT;
+            case '[':
+                pos++;
+                return Token.BEGIN_ARRAY;
+            case '"':
+                pos++;
+                return Token.STRING;
+            case 't':
+                readLiteral("true");
+                booleanValue = true;
+                return Token.BOOLEAN;
+            case 'f':
+                readLiteral("false");
+                booleanValue = false;
+                return Token.BOOLEAN;
+            case 'n':
+                readLiteral("null");
+                return Token.NULL;
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return Token.NUMBER;
+                }
+                throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void readLiteral(String literal) throws IOException, JSONException {
+        int length = literal.length();
+        if (limit - pos < length + 1) {
+            // One extra character to check that the literal is delimited.
+            fill(length + 1);
+        }
+        boolean matches = limit - pos >= length;
+        for (int i = 0; matches && i < length; i++) {
+            matches = buffer[pos + i] == literal.charAt(i);
+        }
+        if (!matches || (pos + length < limit && isLiteralChar(buffer[pos + length]))) {
+            throw syntaxError("Expected " + literal);
+        }
+        pos += length;
+    }
+
+    private static boolean isLiteralChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '_' || c == '.' || c == '-' || c == '+';
+    }
+
+    /**
+     * Returns the length of the number literal at {@code pos}, buffering all
+     * of it without consuming it.
+     */
+    private int numberLength() throws IOException, JSONException {
+        int i = 0;
+        while (true) {
+            if (pos + i == limit) {
+                if (i == buffer.length) {
+                    throw syntaxError("Number too long");
+                }
+                if (!fill(i + 1)) {
+                    return i;
+                }
+            }
+            char c = buffer[pos + i];
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.'
+                    || c == 'e' || c == 'E') {
+                i++;
+            } else {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Parses the buffered number literal of {@code length} characters as a
+     * long without creating a string. Literals with a fraction or exponent are
+     * accepted if their value is integral.
+     */
+    private long parseLong(int length) throws JSONException {
+        int i = pos;
+        int end = pos + length;
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end || end - i > 19) {
+            return parseIntegralDecimal(length);
+        }
+        // Accumulate negatively, since Long.MIN_VALUE has no positive counterpart.
+        long result = 0;
+        for (; i < end; i++) {
+            char c = buffer[i];
+            if (c < '0' || c > '9') {
+                return parseIntegralDecimal(length);
+            }
+            long next = result * 10 - (c - '0');
+            if (result < Long.MIN_VALUE / 10 || next > result) {
+                return parseIntegralDecimal(length);
+            }
+            result = next;
+        }
+        if (negative) {
+            return result;
+        }
+        if (result == Long.MIN_VALUE) {
+            throw syntaxError("Expected a long but was " + new String(buffer, pos, length));
+        }
+        return -result;
+    }
+
+    /**
+     * Parses a literal that doesn't fit the fast path of {@link #parseLong},
+     * such as {@code 1e3}. The literal is converted exactly, not through a
+     * double, so values beyond the long range or with a nonzero fraction are
+     * rejected rather than rounded. The number stays unconsumed, so callers
+     * can still read it with {@link #nextDouble} or {@link #nextString}.
+     */
+    private long parseIntegralDecimal(int length) throws JSONException {
+        String literal = new String(buffer, pos, length);
+        try {
+            return new BigDecimal(literal).longValueExact();
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number " + literal);
+        } catch (ArithmeticException e) {
+            throw syntaxError("Expected a long but was " + literal);
+        }
+    }
+
+    private double parseDouble(int length) throws JSONException {
+        String literal = new String(buffer, pos, length);
+        try {
+            return JSON.checkDouble(Double.parseDouble(literal));
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number " + literal);
+        }
+    }
+
+    /**
+     * Returns the string up to the closing quote, consuming it. Unescaped
+     * strings that fit in the buffer are copied once, straight from the
+     * buffer, or pooled if {@code intern} is true.
+     */
+    private String readQuoted(boolean intern) throws IOException, JSONException {
+        StringBuilder builder = null;
+        while (true) {
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos++];
+                if (c == '"') {
+                    int length = pos - 1 - start;
+                    if (builder == null) {
+                        return intern
+                                ? stringPool.get(buffer, start, length)
+                                : new String(buffer, start, length);
+                    }
+                    builder.append(buffer, start, length);
+                    return builder.toString();
+                } else if (c == '\\') {
+                    if (builder == null) {
+                        builder = new StringBuilder();
+                    }
+                    builder.append(buffer, start, pos - 1 - start);
+                    builder.append(readEscapeCharacter());
+                    start = pos;
+                }
+            }
+            if (builder == null) {
+                builder = new StringBuilder();
+            }
+            builder.append(buffer, start, pos - start);
+            if (!fill(1)) {
+                throw syntaxError("Unterminated string");
+            }
+        }
+    }
+
+    private void skipQuoted() throws IOException, JSONException {
+        while (pos < limit || fill(1)) {
+            char c = buffer[pos++];
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                readEscapeCharacter();
+            }
+        }
+        throw syntaxError("Unterminated string");
+    }
+
+    /**
+     * Unescapes the character following a backslash, which has already been
+     * consumed. Unknown escapes yield the escaped character, like {@link
+     * JSONTokener}.
+     */
+    private char readEscapeCharacter() throws IOException, JSONException {
+        if (pos == limit && !fill(1)) {
+            throw syntaxError("Unterminated escape sequence");
+        }
+        char escaped = buffer[pos++];
+        switch (escaped) {
+            case 'u':
+                if (limit - pos < 4 && !fill(4)) {
+                    throw syntaxError("Unterminated escape sequence");
+                }
+                int result = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(buffer[pos + i], 16);
+                    if (digit == -1) {
+                        throw syntaxError("Invalid escape sequence: "
+                                + new String(buffer, pos, 4));
+                    }
+                    result = (result << 4) | digit;
+                }
+                pos += 4;
+                return (char) result;
+
+            case 't':
+                return '\t';
+
+            case 'b':
+                return '\b';
+
+            case 'n':
+                return '\n';
+
+            case 'r':
+                return '\r';
+
+            case 'f':
+                return '\f';
+
+            case '\'':
+            case '"':
+            case '\\':
+            default:
+                return escaped;
+        }
+    }
+
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + this);
+    }
+
+    /**
+     * Returns the current position in the input.
+     */
+    @Override public String toString() {
+        return " at character " + (bufferStartOffset + pos);
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.json;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONStringer.Scope;
+
+/**
+ * Writes a JSON encoded value to a {@link Writer} one token at a time. This
+ * is the streaming counterpart of {@link JSONStringer}: it enforces the same
+ * nesting rules, but the output goes straight to the writer instead of being
+ * accumulated in memory, and numbers and booleans are written from primitive
+ * values. For example:<pre>
+ * JSONWriter writer = new JSONWriter(new OutputStreamWriter(out, "UTF-8"));
+ * writer.array();
+ * for (Message message : messages) {
+ *     writer.object()
+ *         .key("id").value(message.getId())
+ *         .key("text").value(message.getText())
+ *         .endObject();
+ * }
+ * writer.endArray();
+ * writer.close();</pre>
+ *
+ * <p>Each writer encodes a single top-level value. Instances of this class
+ * are not thread safe.
+ */
+public class JSONWriter implements Closeable, Flushable {
+
+    private final Writer out;
+
+    /** Lexical scopes, with the same meaning as in {@link JSONStringer}. */
+    private final List<Scope> stack = new ArrayList<Scope>();
+
+    private boolean hasRoot = false;
+
+    public JSONWriter(Writer out) {
+        if (out == null) {
+            throw new NullPointerException("out == null");
+        }
+        this.out = out;
+    }
+
+    /**
+     * Begins encoding a new array. Each call to this method must be paired with
+     * a call to {@link #endArray}.
+     *
+     * @return this writer.
+     */
+    public JSONWriter array() throws IOException, JSONException {
+        return open(Scope.EMPTY_ARRAY, '[');
+    }
+
+    /**
+     * Ends encoding the current array.
+     *
+     * @return this writer.
+     */
+    public JSONWriter endArray() throws IOException, JSONException {
+        return close(Scope.EMPTY_ARRAY, Scope.NONEMPTY_ARRAY, ']');
+    }
+
+    /**
+     * Begins encoding a new object. Each call to this method must be paired
+     * with a call to {@link #endObject}.
+     *
+     * @return this writer.
+     */
+    public JSONWriter object() throws IOException, JSONException {
+        return open(Scope.EMPTY_OBJECT, '{');
+    }
+
+    /**
+     * Ends encoding the current object.
+     *
+     * @return this writer.
+     */
+    public JSONWriter endObject() throws IOException, JSONException {
+        return close(Scope.EMPTY_OBJECT, Scope.NONEMPTY_OBJECT, '}');
+    }
+
+    /**
+     * Encodes the key (property name) to this writer.
+     *
+     * @param name the name of the forthcoming value. May not be null.
+     * @return this writer.
+     */
+    public JSONWriter key(String name) throws IOException, JSONException {
+        if (name == null) {
+            throw new JSONException("Names must be non-null");
+        }
+        Scope context = peek();
+        if (context == Scope.NONEMPTY_OBJECT) {
+            out.write(',');
+        } else if (context != Scope.EMPTY_OBJECT) {
+            throw new JSONException("Nesting problem");
+        }
+        replaceTop(Scope.DANGLING_KEY);
+        string(name);
+        return this;
+    }
+
+    /**
+     * Encodes {@code value}, or null if {@code value} is null.
+     *
+     * @return this writer.
+     */
+    public JSONWriter value(String value) throws IOException, JSONException {
+        beforeValue();
+        if (value == null) {
+            out.write("null");
+        } else {
+            string(value);
+        }
+        return this;
+    }
+
+    /**
+     * Encodes {@code value} to this writer.
+     *
+     * @return this writer.
+     */
+    public JSONWriter value(boolean value) throws IOException, JSONException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Encodes {@code value} to this writer.
+     *
+     * @return this writer.
+     */
+    public JSONWriter value(long value) throws IOException, JSONException {
+        beforeValue();
+        out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Encodes {@code value} to this writer, in the same format as {@link
+     * JSONObject#numberToString}.
+     *
+     * @param value a finite value. May not be {@link Double#isNaN() NaNs} or
+     *     {@link Double#isInfinite() infinities}.
+     * @return this writer.
+     */
+    public JSONWriter value(double value) throws IOException, JSONException {
+        JSON.checkDouble(value);
+        beforeValue();
+        long longValue = (long) value;
+        if (value == (double) longValue
+                && (longValue != 0 || Double.doubleToRawLongBits(value) == 0)) {
+            out.write(Long.toString(longValue));
+        } else if (value == 0) {
+            // the original returns "-0" instead of "-0.0" for negative zero
+            out.write("-0");
+        } else {
+            out.write(Double.toString(value));
+        }
+        return this;
+    }
+
+    /**
+     * Encodes the null literal to this writer.
+     *
+     * @return this writer.
+     */
+    public JSONWriter nullValue() throws IOException, JSONException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    /**
+     * Flushes the underlying writer.
+     */
+    @Override public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Closes the underlying writer. Fails if the top-level value is
+     * incomplete.
+     */
+    @Override public void close() throws IOException {
+        out.close();
+        if (!stack.isEmpty()) {
+            throw new IOException("Incomplete document");
+        }
+    }
+
+    private JSONWriter open(Scope empty, char openBracket) throws IOException, JSONException {
+        beforeValue();
+        stack.add(empty);
+        out.write(openBracket);
+        return this;
+    }
+
+    private JSONWriter close(Scope empty, Scope nonempty, char closeBracket)
+            throws IOException, JSONException {
+        Scope context = peek();
+        if (context != nonempty && context != empty) {
+            throw new JSONException("Nesting problem");
+        }
+        stack.remove(stack.size() - 1);
+        out.write(closeBracket);
+        return this;
+    }
+
+    private Scope peek() throws JSONException {
+        if (stack.isEmpty()) {
+            throw new JSONException("Nesting problem");
+        }
+        return stack.get(stack.size() - 1);
+    }
+
+    private void replaceTop(Scope topOfStack) {
+        stack.set(stack.size() - 1, topOfStack);
+    }
+
+    /**
+     * Inserts any necessary separators before a value, and checks that a value
+     * is allowed here.
+     */
+    private void beforeValue() throws IOException, JSONException {
+        if (stack.isEmpty()) {
+            if (hasRoot) {
+                throw new JSONException("Nesting problem: multiple top-level roots");
+            }
+            hasRoot = true;
+            return;
+        }
+        Scope context = peek();
+        if (context == Scope.EMPTY_ARRAY) {
+            replaceTop(Scope.NONEMPTY_ARRAY);
+        } else if (context == Scope.NONEMPTY_ARRAY) {
+            out.write(',');
+        } else if (context == Scope.DANGLING_KEY) {
+            out.write(':');
+            replaceTop(Scope.NONEMPTY_OBJECT);
+        } else {
+            throw new JSONException("Nesting problem");
+        }
+    }
+
+    /**
+     * Writes {@code value} as a quoted string, escaping the characters
+     * escaped by {@link JSONStringer}. Runs of unescaped characters are
+     * written in a single call.
+     */
+    private void string(String value) throws IOException {
+        out.write('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '"':
+                    replacement = "\\\"";
+                    break;
+                case '\\':
+                    replacement = "\\\\";
+                    break;
+                case '/':
+                    replacement = "\\/";
+                    break;
+                case '\t':
+                    replacement = "\\t";
+                    break;
+                case '\b':
+                    replacement = "\\b";
+                    break;
+                case '\n':
+                    replacement = "\\n";
+                    break;
+                case '\r':
+                    replacement = "\\r";
+                    break;
+                case '\f':
+                    replacement = "\\f";
+                    break;
+                default:
+                    if (c > 0x1F) {
+                        continue;
+                    }
+                    replacement = String.format("\\u%04x", (int) c);
+                    break;
+            }
+            if (start < i) {
+                out.write(value, start, i - start);
+            }
+            out.write(replacement);
+            start = i + 1;
+        }
+        if (start < length) {
+            out.write(value, start, length - start);
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.org.json;
+
+import java.io.IOException;
+import java.io.StringReader;
+import junit.framework.TestCase;
+import org.json.JSONException;
+import org.json.JSONReader;
+import org.json.JSONReader.Token;
+
+public class JSONReaderTest extends TestCase {
+
+    public void testReadObject() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader(
+                "{\"a\": \"android\", \"b\": true, \"c\": null, \"d\": [1, -2.5e1, 3]}"));
+        reader.beginObject();
+        assertEquals("a", reader.nextName());
+        assertEquals("android", reader.nextString());
+        assertEquals("b", reader.nextName());
+        assertTrue(reader.nextBoolean());
+        assertEquals("c", reader.nextName());
+        assertEquals(Token.NULL, reader.peek());
+        reader.nextNull();
+        assertEquals("d", reader.nextName());
+        reader.beginArray();
+        assertEquals(1, reader.nextInt());
+        assertEquals(-25L, reader.nextLong());
+        assertEquals(3.0, reader.nextDouble());
+        assertFalse(reader.hasNext());
+        reader.endArray();
+        assertFalse(reader.hasNext());
+        reader.endObject();
+        assertEquals(Token.END_DOCUMENT, reader.peek());
+    }
+
+    public void testEmptyArrayAndObject() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader("[[], {}]"));
+        reader.beginArray();
+        reader.beginArray();
+        reader.endArray();
+        reader.beginObject();
+        reader.endObject();
+        reader.endArray();
+        assertEquals(Token.END_DOCUMENT, reader.peek());
+    }
+
+    public void testTopLevelValue() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader(" 42 "));
+        assertEquals(Token.NUMBER, reader.peek());
+        assertEquals(42, reader.nextInt());
+        assertEquals(Token.END_DOCUMENT, reader.peek());
+    }
+
+    public void testLongs() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader(
+                "[9223372036854775807, -9223372036854775808, 1e3, 9223372036854775808]"));
+        reader.beginArray();
+        assertEquals(Long.MAX_VALUE, reader.nextLong());
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        assertEquals(1000L, reader.nextLong());
+        try {
+            reader.nextLong();
+            fail();
+        } catch (JSONException expected) {
+        }
+        assertEquals(9.223372036854775808e18, reader.nextDouble());
+        reader.endArray();
+
+        // Values just outside the long range round to +/-2^63 as doubles.
+        reader = new JSONReader(new StringReader(
+                "[9223372036854775809, -9223372036854775809, 9.223372036854775807e18]"));
+        reader.beginArray();
+        try {
+            reader.nextLong();
+            fail();
+        } catch (JSONException expected) {
+        }
+        assertEquals(9.223372036854775809e18, reader.nextDouble());
+        try {
+            reader.nextLong();
+            fail();
+        } catch (JSONException expected) {
+        }
+        assertEquals("-9223372036854775809", reader.nextString());
+        assertEquals(Long.MAX_VALUE, reader.nextLong());
+        reader.endArray();
+
+        // 2^53 + 1 has no exact double representation.
+        reader = new JSONReader(new StringReader(
+                "[9007199254740993, 9007199254740993.0, 9.007199254740993e15, 1.5e0]"));
+        reader.beginArray();
+        assertEquals(9007199254740993L, reader.nextLong());
+        assertEquals(9007199254740993L, reader.nextLong());
+        assertEquals(9007199254740993L, reader.nextLong());
+        try {
+            reader.nextLong();
+            fail();
+        } catch (JSONException expected) {
+        }
+        assertEquals(1.5, reader.nextDouble());
+        reader.endArray();
+    }
+
+    public void testIntOverflow() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader("[2147483648, 1.5]"));
+        reader.beginArray();
+        try {
+            reader.nextInt();
+            fail();
+        } catch (JSONException expected) {
+        }
+        assertEquals(2147483648L, reader.nextLong());
+        try {
+            reader.nextInt();
+            fail();
+        } catch (JSONException expected) {
+        }
+        assertEquals(1.5, reader.nextDouble());
+    }
+
+    public void testNumberAsString() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader("[-1.25E-3]"));
+        reader.beginArray();
+        assertEquals("-1.25E-3", reader.nextString());
+        reader.endArray();
+    }
+
+    public void testEscapes() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader(
+                "[\"\\\"\\\\\\/\\b\\f\\n\\r\\t\\u00e9\"]"));
+        reader.beginArray();
+        assertEquals("\"\\/\b\f\n\r\t\u00e9", reader.nextString());
+        reader.endArray();
+    }
+
+    public void testRepeatedNamesArePooled() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader(
+                "[{\"name\": 1}, {\"name\": 2}]"));
+        reader.beginArray();
+        reader.beginObject();
+        String first = reader.nextName();
+        reader.skipValue();
+        reader.endObject();
+        reader.beginObject();
+        assertSame(first, reader.nextName());
+    }
+
+    public void testSkipValue() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader(
+                "{\"skip\": {\"a\": [1, \"x\\\"]\", {}], \"b\": false}, \"keep\": 7}"));
+        reader.beginObject();
+        assertEquals("skip", reader.nextName());
+        reader.skipValue();
+        assertEquals("keep", reader.nextName());
+        assertEquals(7, reader.nextInt());
+        reader.endObject();
+    }
+
+    public void testValuesSpanningBufferBoundaries() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        StringBuilder longString = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longString.append((char) ('a' + i % 26));
+        }
+        for (int i = 0; i < 1000; i++) {
+            json.append(i).append(", \"").append(longString).append("\\n\", ");
+        }
+        json.append("true]");
+        JSONReader reader = new JSONReader(new StringReader(json.toString()));
+        reader.beginArray();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, reader.nextInt());
+            assertEquals(longString + "\n", reader.nextString());
+        }
+        assertTrue(reader.nextBoolean());
+        reader.endArray();
+        assertEquals(Token.END_DOCUMENT, reader.peek());
+    }
+
+    public void testWrongToken() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader("[\"a\"]"));
+        reader.beginArray();
+        try {
+            reader.nextInt();
+            fail();
+        } catch (JSONException expected) {
+        }
+        assertEquals("a", reader.nextString());
+    }
+
+    public void testMalformed() throws Exception {
+        assertMalformed("[1 2]");
+        assertMalformed("{\"a\" 1}");
+        assertMalformed("{a: 1}");
+        assertMalformed("[\"unterminated");
+        assertMalformed("[tru]");
+        assertMalformed("[nulls]");
+        assertMalformed("[1] [2]");
+        assertMalformed("");
+    }
+
+    public void testClose() throws Exception {
+        JSONReader reader = new JSONReader(new StringReader("[]"));
+        reader.close();
+        try {
+            reader.peek();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private void assertMalformed(String json) throws IOException {
+        JSONReader reader = new JSONReader(new StringReader(json));
+        try {
+            reader.skipValue();
+            reader.peek();
+            fail(json);
+        } catch (JSONException expected) {
+        }
+    }
+}
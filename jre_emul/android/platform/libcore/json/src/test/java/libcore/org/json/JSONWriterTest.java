@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.org.json;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import junit.framework.TestCase;
+import org.json.JSONException;
+import org.json.JSONReader;
+import org.json.JSONStringer;
+import org.json.JSONWriter;
+
+public class JSONWriterTest extends TestCase {
+
+    public void testObject() throws Exception {
+        StringWriter out = new StringWriter();
+        JSONWriter writer = new JSONWriter(out);
+        writer.object()
+                .key("a").value("android")
+                .key("b").value(true)
+                .key("c").nullValue()
+                .key("d").array().value(5L).value(-2.5).value(4.0).endArray()
+                .endObject();
+        writer.close();
+        assertEquals("{\"a\":\"android\",\"b\":true,\"c\":null,\"d\":[5,-2.5,4]}",
+                out.toString());
+    }
+
+    public void testMatchesStringer() throws Exception {
+        String value = "\"quoted\" \\ / \t\b\n\r\f \u0001 \u00e9";
+        StringWriter out = new StringWriter();
+        new JSONWriter(out).array().value(value).value(-0.0).value(1e20).endArray();
+        String expected = new JSONStringer()
+                .array().value(value).value(-0.0).value(1e20).endArray().toString();
+        assertEquals(expected, out.toString());
+    }
+
+    public void testRoundTrip() throws Exception {
+        StringWriter out = new StringWriter();
+        new JSONWriter(out).object()
+                .key("text").value("line\nbreak \u2028")
+                .key("big").value(Long.MIN_VALUE)
+                .endObject();
+        JSONReader reader = new JSONReader(new StringReader(out.toString()));
+        reader.beginObject();
+        assertEquals("text", reader.nextName());
+        assertEquals("line\nbreak \u2028", reader.nextString());
+        assertEquals("big", reader.nextName());
+        assertEquals(Long.MIN_VALUE, reader.nextLong());
+        reader.endObject();
+    }
+
+    public void testNestingProblems() throws Exception {
+        JSONWriter writer = new JSONWriter(new StringWriter());
+        writer.array();
+        try {
+            writer.key("a");
+            fail();
+        } catch (JSONException expected) {
+        }
+        try {
+            writer.endObject();
+            fail();
+        } catch (JSONException expected) {
+        }
+        writer.endArray();
+        try {
+            writer.array();
+            fail();
+        } catch (JSONException expected) {
+        }
+    }
+
+    public void testNonFiniteDouble() throws Exception {
+        JSONWriter writer = new JSONWriter(new StringWriter());
+        writer.array();
+        try {
+            writer.value(Double.NaN);
+            fail();
+        } catch (JSONException expected) {
+        }
+    }
+}
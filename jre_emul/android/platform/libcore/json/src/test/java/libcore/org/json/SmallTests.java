@@ -23,8 +23,10 @@ public class SmallTests extends TestSuite {
   private static final Class<?>[] smallTestClasses = new Class[] {
     JSONArrayTest.class,
     JSONObjectTest.class,
+    JSONReaderTest.class,
     JSONStringerTest.class,
     JSONTokenerTest.class,
+    JSONWriterTest.class,
     ParsingTest.class,
     SelfUseTest.class
   };
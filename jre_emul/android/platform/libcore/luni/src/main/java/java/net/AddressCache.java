@@ -16,7 +16,7 @@
 
 package java.net;
 
-import libcore.util.BasicLruCache;
+import libcore.util.ConcurrentLruCache;
 
 /**
  * Implements caching for {@code InetAddress}. We use a unified cache for both positive and negative
@@ -37,8 +37,8 @@ class AddressCache {
     private static final long TTL_NANOS = 2 * 1000000000L;
 
     // The actual cache.
-    private final BasicLruCache<AddressCacheKey, AddressCacheEntry> cache
-            = new BasicLruCache<AddressCacheKey, AddressCacheEntry>(MAX_ENTRIES);
+    private final ConcurrentLruCache<AddressCacheKey, AddressCacheEntry> cache
+            = new ConcurrentLruCache<AddressCacheKey, AddressCacheEntry>(MAX_ENTRIES);
 
     static class AddressCacheKey {
         private final String mHostname;
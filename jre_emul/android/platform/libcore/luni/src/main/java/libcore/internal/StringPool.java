@@ -23,7 +23,33 @@ package libcore.internal;
  */
 public final class StringPool {
 
-    private final String[] pool = new String[512];
+    private final int maxCapacity;
+
+    private String[] pool;
+
+    /** The number of pooled strings replaced by a different one since the last resize. */
+    private int evictions;
+
+    /** Creates a pool with a fixed capacity of 512 strings. */
+    public StringPool() {
+        this(512, 512);
+    }
+
+    /**
+     * Creates a pool that starts with room for {@code initialCapacity}
+     * strings and doubles, up to {@code maxCapacity}, whenever more strings
+     * have been evicted than it has slots. Both capacities must be powers of
+     * two.
+     */
+    public StringPool(int initialCapacity, int maxCapacity) {
+        if (Integer.bitCount(initialCapacity) != 1 || Integer.bitCount(maxCapacity) != 1
+                || initialCapacity > maxCapacity) {
+            throw new IllegalArgumentException(
+                    "initialCapacity=" + initialCapacity + " maxCapacity=" + maxCapacity);
+        }
+        this.pool = new String[initialCapacity];
+        this.maxCapacity = maxCapacity;
+    }
 
     private static boolean contentEquals(String s, char[] chars, int start, int length) {
         if (s.length() != length) {
@@ -41,24 +67,48 @@ public final class StringPool {
      * Returns a string equal to {@code new String(array, start, length)}.
      */
     public String get(char[] array, int start, int length) {
-        // Compute an arbitrary hash of the content
+        // Compute an arbitrary hash of the content. This matches String.hashCode(),
+        // so pooled strings can be rehashed without their chars.
         int hashCode = 0;
         for (int i = start; i < start + length; i++) {
             hashCode = (hashCode * 31) + array[i];
         }
 
-        // Pick a bucket using Doug Lea's supplemental secondaryHash function (from HashMap)
-        hashCode ^= (hashCode >>> 20) ^ (hashCode >>> 12);
-        hashCode ^= (hashCode >>> 7) ^ (hashCode >>> 4);
-        int index = hashCode & (pool.length - 1);
-
+        int index = indexFor(hashCode, pool.length);
         String pooled = pool[index];
         if (pooled != null && contentEquals(pooled, array, start, length)) {
             return pooled;
         }
 
         String result = new String(array, start, length);
+        if (pooled != null && ++evictions > pool.length && pool.length < maxCapacity) {
+            grow();
+            index = indexFor(hashCode, pool.length);
+        }
         pool[index] = result;
         return result;
     }
+
+    /** Returns the number of strings this pool can currently hold. */
+    public int capacity() {
+        return pool.length;
+    }
+
+    private void grow() {
+        String[] newPool = new String[pool.length * 2];
+        for (String s : pool) {
+            if (s != null) {
+                newPool[indexFor(s.hashCode(), newPool.length)] = s;
+            }
+        }
+        pool = newPool;
+        evictions = 0;
+    }
+
+    private static int indexFor(int hashCode, int length) {
+        // Pick a bucket using Doug Lea's supplemental secondaryHash function (from HashMap)
+        hashCode ^= (hashCode >>> 20) ^ (hashCode >>> 12);
+        hashCode ^= (hashCode >>> 7) ^ (hashCode >>> 4);
+        return hashCode & (length - 1);
+    }
 }
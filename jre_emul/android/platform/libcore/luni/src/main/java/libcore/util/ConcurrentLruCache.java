@@ -0,0 +1,355 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size-bounded cache for libcore that, unlike {@link BasicLruCache}, can be
+ * read concurrently without taking a lock.
+ *
+ * <p>Entries live in a {@link ConcurrentHashMap}. A cache hit only reads the
+ * map and marks the entry as referenced, so readers never block each other or
+ * writers. Inserts, replacements and evictions are serialized on a single
+ * lock. Eviction approximates least-recently-used order with the CLOCK
+ * algorithm: entries are kept in insertion order, and the oldest entry that
+ * hasn't been referenced since the clock hand last passed it is evicted first.
+ *
+ * <p>By default every entry has a size of 1, so {@code maxSize} is the
+ * maximum number of entries. Override {@link #sizeOf} to bound the cache by
+ * some other weight, such as bytes.
+ *
+ * <p>As with {@link BasicLruCache}, {@link #create} and {@link #entryEvicted}
+ * are never called while holding a lock.
+ * @hide
+ */
+public class ConcurrentLruCache<K, V> {
+    /** Hit counters, striped by thread so concurrent hits don't contend. */
+    private static final int HIT_STRIPES =
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    private final ConcurrentHashMap<K, Node<K, V>> map;
+    private final int maxSize;
+
+    /** Guards every field below and all modifications of {@link #map}. */
+    private final Object evictionLock = new Object();
+
+    /** Live entries in insertion order, interleaved with entries since replaced. */
+    private final ArrayDeque<Node<K, V>> clock = new ArrayDeque<Node<K, V>>();
+    private int deadCount;
+    private int size;
+
+    private final AtomicLong[] hitCounts = new AtomicLong[HIT_STRIPES];
+    private final AtomicLong missCount = new AtomicLong();
+    private long evictionCount;
+
+    public ConcurrentLruCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+        this.map = new ConcurrentHashMap<K, Node<K, V>>();
+        for (int i = 0; i < hitCounts.length; i++) {
+            hitCounts[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Returns the value for {@code key} if it exists in the cache or can be
+     * created by {@code #create}. If a value was returned, it is marked as
+     * recently used. This returns null if a value is not cached and cannot
+     * be created.
+     *
+     * <p>If another thread caches a value for {@code key} while this one is
+     * creating it, the other thread's value is kept and returned.
+     */
+    public final V get(K key) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+
+        Node<K, V> node = map.get(key);
+        if (node != null) {
+            // Avoid writing to a shared cache line on every hit.
+            if (!node.referenced) {
+                node.referenced = true;
+            }
+            hitCounts[(int) (Thread.currentThread().getId() & (HIT_STRIPES - 1))]
+                    .incrementAndGet();
+            return node.value;
+        }
+        missCount.incrementAndGet();
+
+        // Don't hold any locks while calling create.
+        V result = create(key);
+        if (result == null) {
+            return null;
+        }
+        return insert(key, result, true);
+    }
+
+    /**
+     * Caches {@code value} for {@code key}, marking it as recently used.
+     *
+     * @return the previous value mapped by {@code key}. Although that entry is
+     *     no longer cached, it has not been passed to {@link #entryEvicted}.
+     */
+    public final V put(K key, V value) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        } else if (value == null) {
+            throw new NullPointerException("value == null");
+        }
+        return insert(key, value, false);
+    }
+
+    /**
+     * Adds an entry for {@code key}. If {@code onlyIfAbsent}, an entry that is
+     * already cached is kept and its value returned; otherwise the entry is
+     * replaced and the previous value, if any, returned.
+     */
+    private V insert(K key, V value, boolean onlyIfAbsent) {
+        Node<K, V> node = new Node<K, V>(key, value, safeSizeOf(key, value));
+        V result;
+        List<Node<K, V>> evicted;
+        synchronized (evictionLock) {
+            Node<K, V> previous;
+            if (onlyIfAbsent) {
+                previous = map.putIfAbsent(key, node);
+                if (previous != null) {
+                    previous.referenced = true;
+                    return previous.value;
+                }
+                result = value;
+            } else {
+                previous = map.put(key, node);
+                if (previous != null) {
+                    previous.live = false;
+                    size -= previous.size;
+                    deadCount++;
+                }
+                result = previous != null ? previous.value : null;
+            }
+            node.referenced = true;
+            clock.addLast(node);
+            size += node.size;
+            evicted = trimToSize(maxSize);
+            compactIfNeeded();
+        }
+        notifyEvicted(evicted);
+        return result;
+    }
+
+    /**
+     * Evicts entries until the total size is at most {@code maxSize}, giving
+     * each referenced entry a second chance. Returns the evicted entries, or
+     * null if there were none.
+     */
+    private List<Node<K, V>> trimToSize(int maxSize) {
+        List<Node<K, V>> evicted = null;
+        // Bound the sweep so readers re-referencing entries can't keep it going.
+        int secondChances = clock.size();
+        while (size > maxSize) {
+            Node<K, V> node = clock.pollFirst();
+            if (!node.live) {
+                deadCount--;
+                continue;
+            }
+            if (node.referenced && secondChances > 0) {
+                node.referenced = false;
+                clock.addLast(node);
+                secondChances--;
+                continue;
+            }
+            map.remove(node.key, node);
+            node.live = false;
+            size -= node.size;
+            evictionCount++;
+            if (evicted == null) {
+                evicted = new ArrayList<Node<K, V>>();
+            }
+            evicted.add(node);
+        }
+        return evicted;
+    }
+
+    /** Drops replaced entries from the clock once they outnumber live ones. */
+    private void compactIfNeeded() {
+        if (deadCount <= clock.size() / 2) {
+            return;
+        }
+        for (Iterator<Node<K, V>> it = clock.iterator(); it.hasNext(); ) {
+            if (!it.next().live) {
+                it.remove();
+            }
+        }
+        deadCount = 0;
+    }
+
+    private void notifyEvicted(List<Node<K, V>> evicted) {
+        if (evicted != null) {
+            for (Node<K, V> node : evicted) {
+                entryEvicted(node.key, node.value);
+            }
+        }
+    }
+
+    private int safeSizeOf(K key, V value) {
+        int result = sizeOf(key, value);
+        if (result < 0) {
+            throw new IllegalStateException("Negative size: " + key + "=" + value);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the size of the entry for {@code key} and {@code value} in
+     * user-defined units. The default implementation returns 1 so that size
+     * is the number of entries and max size is the maximum number of entries.
+     *
+     * <p>An entry's size must not change while it is in the cache. An entry
+     * larger than the max size is evicted as soon as it is added.
+     */
+    protected int sizeOf(K key, V value) {
+        return 1;
+    }
+
+    /**
+     * Called for entries that have been evicted to keep the cache within its
+     * max size. The default implementation does nothing.
+     */
+    protected void entryEvicted(K key, V value) {}
+
+    /**
+     * Called after a cache miss to compute a value for the corresponding key.
+     * Returns the computed value or null if no value can be computed. The
+     * default implementation returns null.
+     */
+    protected V create(K key) {
+        return null;
+    }
+
+    /**
+     * Returns a copy of the current contents of the cache, ordered from the
+     * next entry to be considered for eviction to the last.
+     */
+    public final Map<K, V> snapshot() {
+        synchronized (evictionLock) {
+            Map<K, V> result = new LinkedHashMap<K, V>();
+            for (Node<K, V> node : clock) {
+                if (node.live) {
+                    result.put(node.key, node.value);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Clear the cache, calling {@link #entryEvicted} on each removed entry.
+     */
+    public final void evictAll() {
+        List<Node<K, V>> evicted = new ArrayList<Node<K, V>>();
+        synchronized (evictionLock) {
+            for (Node<K, V> node : clock) {
+                if (node.live) {
+                    map.remove(node.key, node);
+                    node.live = false;
+                    evicted.add(node);
+                }
+            }
+            clock.clear();
+            deadCount = 0;
+            size = 0;
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Returns the sum of the sizes of the entries in the cache, as computed by
+     * {@link #sizeOf}.
+     */
+    public final int size() {
+        synchronized (evictionLock) {
+            return size;
+        }
+    }
+
+    public final int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of times {@link #get} returned a cached value.
+     */
+    public final long hitCount() {
+        long result = 0;
+        for (AtomicLong count : hitCounts) {
+            result += count.get();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of times {@link #get} found no cached value.
+     */
+    public final long missCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the number of entries evicted to keep the cache within its max
+     * size, not counting those removed by {@link #evictAll}.
+     */
+    public final long evictionCount() {
+        synchronized (evictionLock) {
+            return evictionCount;
+        }
+    }
+
+    @Override public final String toString() {
+        long hits = hitCount();
+        long misses = missCount();
+        long accesses = hits + misses;
+        int hitPercent = accesses != 0 ? (int) (100 * hits / accesses) : 0;
+        return String.format("ConcurrentLruCache[maxSize=%d,hits=%d,misses=%d,hitRate=%d%%]",
+                maxSize, hits, misses, hitPercent);
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final int size;
+
+        /** Set by readers on every hit, cleared as the clock hand passes. */
+        volatile boolean referenced;
+
+        /** False once the entry has been replaced or evicted. Guarded by evictionLock. */
+        boolean live = true;
+
+        Node(K key, V value, int size) {
+            this.key = key;
+            this.value = value;
+            this.size = size;
+        }
+    }
+}
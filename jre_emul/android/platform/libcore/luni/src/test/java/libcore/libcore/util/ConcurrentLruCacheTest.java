@@ -0,0 +1,273 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package libcore.libcore.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import junit.framework.TestCase;
+
+import libcore.util.ConcurrentLruCache;
+
+public final class ConcurrentLruCacheTest extends TestCase {
+
+    public void testCreateOnCacheMiss() {
+        ConcurrentLruCache<String, String> cache = newCreatingCache();
+        String created = cache.get("aa");
+        assertEquals("created-aa", created);
+        assertEquals(0, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    public void testNoCreateOnCacheHit() {
+        ConcurrentLruCache<String, String> cache = newCreatingCache();
+        cache.put("aa", "put-aa");
+        assertEquals("put-aa", cache.get("aa"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(0, cache.missCount());
+    }
+
+    public void testCreateReturningNullIsNotCached() {
+        ConcurrentLruCache<String, String> cache = newCreatingCache();
+        assertNull(cache.get("a"));
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.missCount());
+        assertSnapshot(cache);
+    }
+
+    public void testConstructorDoesNotAllowZeroCacheSize() {
+        try {
+            new ConcurrentLruCache<String, String>(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testCannotPutNullKey() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(3);
+        try {
+            cache.put(null, "A");
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    public void testCannotPutNullValue() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(3);
+        try {
+            cache.put("a", null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    public void testEvictionWithSingletonCache() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(1);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        assertSnapshot(cache, "b", "B");
+        assertEquals(1, cache.evictionCount());
+    }
+
+    public void testEntryEvictedWhenFull() {
+        List<String> expectedEvictionLog = new ArrayList<String>();
+        final List<String> evictionLog = new ArrayList<String>();
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(3) {
+            @Override protected void entryEvicted(String key, String value) {
+                evictionLog.add(key + "=" + value);
+            }
+        };
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertEquals(expectedEvictionLog, evictionLog);
+
+        cache.put("d", "D");
+        expectedEvictionLog.add("a=A");
+        assertEquals(expectedEvictionLog, evictionLog);
+    }
+
+    /**
+     * An entry read since the clock hand last passed it gets a second chance,
+     * so the least recently used unread entry is evicted instead.
+     */
+    public void testReferencedEntryIsNotEvicted() {
+        final List<String> evictionLog = new ArrayList<String>();
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(3) {
+            @Override protected void entryEvicted(String key, String value) {
+                evictionLog.add(key + "=" + value);
+            }
+        };
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        cache.put("d", "D"); // Clears every referenced bit, evicts a.
+        cache.get("b");
+        cache.put("e", "E");
+        assertEquals(Arrays.asList("a=A", "c=C"), evictionLog);
+        assertSnapshot(cache, "d", "D", "e", "E", "b", "B");
+    }
+
+    /**
+     * Replacing the value for a key doesn't cause an eviction.
+     */
+    public void testPutDoesNotCauseEviction() {
+        final List<String> evictionLog = new ArrayList<String>();
+        List<String> expectedEvictionLog = new ArrayList<String>();
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(3) {
+            @Override protected void entryEvicted(String key, String value) {
+                evictionLog.add(key + "=" + value);
+            }
+        };
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertEquals("B", cache.put("b", "B2"));
+        assertEquals(expectedEvictionLog, evictionLog);
+        assertSnapshot(cache, "a", "A", "c", "C", "b", "B2");
+        assertEquals(3, cache.size());
+    }
+
+    public void testManyReplacementsKeepSize() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(3);
+        cache.put("a", "A");
+        for (int i = 0; i < 1000; i++) {
+            cache.put("b", "B" + i);
+        }
+        assertEquals(2, cache.size());
+        assertSnapshot(cache, "a", "A", "b", "B999");
+        assertEquals(0, cache.evictionCount());
+    }
+
+    public void testSizeOf() {
+        final List<String> evictionLog = new ArrayList<String>();
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10) {
+            @Override protected int sizeOf(String key, String value) {
+                return value.length();
+            }
+            @Override protected void entryEvicted(String key, String value) {
+                evictionLog.add(key + "=" + value);
+            }
+        };
+
+        cache.put("a", "AAAA");
+        cache.put("b", "BBBB");
+        assertEquals(8, cache.size());
+        cache.put("c", "CCCC");
+        assertEquals(Arrays.asList("a=AAAA"), evictionLog);
+        assertEquals(8, cache.size());
+
+        // An entry larger than the whole cache doesn't stay.
+        cache.put("d", "DDDDDDDDDDDD");
+        assertFalse(cache.snapshot().containsKey("d"));
+        assertTrue(cache.size() <= 10);
+    }
+
+    public void testNegativeSizeOf() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10) {
+            @Override protected int sizeOf(String key, String value) {
+                return -1;
+            }
+        };
+        try {
+            cache.put("a", "A");
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    public void testEvictAll() {
+        final List<String> evictionLog = new ArrayList<String>();
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10) {
+            @Override protected void entryEvicted(String key, String value) {
+                evictionLog.add(key + "=" + value);
+            }
+        };
+
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        cache.put("b", "B2");
+        cache.evictAll();
+        assertSnapshot(cache);
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+        assertEquals(Arrays.asList("a=A", "c=C", "b=B2"), evictionLog);
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final ConcurrentLruCache<Integer, String> cache =
+                new ConcurrentLruCache<Integer, String>(64) {
+            @Override protected String create(Integer key) {
+                return "v" + key;
+            }
+        };
+        final int threadCount = 4;
+        final int iterations = 20000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            final int seed = t;
+            threads[t] = new Thread() {
+                @Override public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < iterations; i++) {
+                            int key = (i * 31 + seed) % 100;
+                            assertEquals("v" + key, cache.get(key));
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        assertEquals(threadCount * iterations, cache.hitCount() + cache.missCount());
+        assertTrue(cache.size() <= 64);
+        assertEquals(cache.size(), cache.snapshot().size());
+    }
+
+    private ConcurrentLruCache<String, String> newCreatingCache() {
+        return new ConcurrentLruCache<String, String>(3) {
+            @Override protected String create(String key) {
+                return (key.length() > 1) ? ("created-" + key) : null;
+            }
+        };
+    }
+
+    private <T> void assertSnapshot(ConcurrentLruCache<T, T> cache, T... keysAndValues) {
+        List<T> actualKeysAndValues = new ArrayList<T>();
+        for (Map.Entry<T, T> entry : cache.snapshot().entrySet()) {
+            actualKeysAndValues.add(entry.getKey());
+            actualKeysAndValues.add(entry.getValue());
+        }
+
+        // assert using lists because order is important for LRUs
+        assertEquals(Arrays.asList(keysAndValues), actualKeysAndValues);
+    }
+}
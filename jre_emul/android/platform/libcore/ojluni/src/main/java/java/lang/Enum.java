@@ -31,7 +31,7 @@ import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
-import libcore.util.BasicLruCache;
+import libcore.util.ConcurrentLruCache;
 
 /*-[
 #include "IOSReflection.h"
@@ -246,7 +246,7 @@ public abstract class Enum<E extends Enum<E>>
      */
     public static <T extends Enum<T>> T valueOf(Class<T> enumType,
                                                 String name) {
-        // Android-changed: Use a static BasicLruCache mapping Enum class -> Enum instance array.
+        // Android-changed: Use a static ConcurrentLruCache mapping Enum class -> Enum instance array.
         if (enumType == null) {
             throw new NullPointerException("enumType == null");
         }
@@ -271,8 +271,8 @@ public abstract class Enum<E extends Enum<E>>
     }
 
     @SuppressWarnings("rawtypes")
-    private static final BasicLruCache<Class<? extends Enum>, Object[]> sharedConstantsCache
-            = new BasicLruCache<Class<? extends Enum>, Object[]>(64) {
+    private static final ConcurrentLruCache<Class<? extends Enum>, Object[]> sharedConstantsCache
+            = new ConcurrentLruCache<Class<? extends Enum>, Object[]>(64) {
         // Use a native reflective lookup so that enums with stripped reflection will work.
         @Override protected native Object[] create(Class<? extends Enum> enumType) /*-[
           (void)nil_chk(enumType);
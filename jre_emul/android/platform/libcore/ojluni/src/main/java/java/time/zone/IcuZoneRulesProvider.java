@@ -41,7 +41,7 @@ import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
-import libcore.util.BasicLruCache;
+import libcore.util.ConcurrentLruCache;
 
 /**
  * A ZoneRulesProvider that generates rules from ICU4J TimeZones.
@@ -55,7 +55,7 @@ public class IcuZoneRulesProvider extends ZoneRulesProvider {
 
     private static final int SECONDS_IN_DAY = 24 * 60 * 60;
 
-    private final BasicLruCache<String, ZoneRules> cache = new ZoneRulesCache(8);
+    private final ConcurrentLruCache<String, ZoneRules> cache = new ZoneRulesCache(8);
 
     @Override
     protected Set<String> provideZoneIds() {
@@ -293,7 +293,7 @@ public class IcuZoneRulesProvider extends ZoneRulesProvider {
         return ZoneOffset.ofTotalSeconds((int) TimeUnit.MILLISECONDS.toSeconds(offset));
     }
 
-    private static class ZoneRulesCache extends BasicLruCache<String, ZoneRules> {
+    private static class ZoneRulesCache extends ConcurrentLruCache<String, ZoneRules> {
 
         ZoneRulesCache(int maxSize) {
             super(maxSize);
@@ -179,7 +179,7 @@ public class KXmlParser implements XmlPullParser, Closeable {
 
     private boolean unresolved;
 
-    public final StringPool stringPool = new StringPool();
+    public final StringPool stringPool = new StringPool(512, 8192);
 
     /**
      * Retains namespace attributes like {@code xmlns="http://foo"} or {@code xmlns:foo="http:foo"}
@@ -27,7 +27,6 @@
 #include <objc/objc.h>
 
 // Begin synchronizing on 'obj'.  
-// Allocates recursive pthread_mutex associated with 'obj' if needed.
 // Returns OBJC_SYNC_SUCCESS once lock is acquired.  
 OBJC_EXPORT  int objc_sync_enter(id obj) J2OBJC_METHOD_ATTR;
 
@@ -54,7 +53,7 @@ enum {
 	OBJC_SYNC_NOT_INITIALIZED         = -3		
 };
 
-// Returns true if an object has a pthread_mutux allocated for it on this thread.
+// Returns true if the current thread holds the lock on 'obj'.
 BOOL j2objc_sync_holds_lock(id obj) J2OBJC_METHOD_ATTR;
 
 #endif // __OBJC_SNYC_H_
@@ -21,286 +21,36 @@
  * @APPLE_LICENSE_HEADER_END@
  */
 
-#include <pthread.h>
-#include <AssertMacros.h>
-#include <libkern/OSAtomic.h>
-#include <os/lock.h>
-
 #include "JreEmulation.h"
+#include "JreThinLock.h"
 #include "java/lang/Thread.h"
 #include "java_lang_Thread.h"
 #include "objc-sync.h"
 
-#pragma clang diagnostic push
-#pragma GCC diagnostic ignored "-Wdeprecated-declarations"
-#pragma GCC diagnostic ignored "-Wincompatible-pointer-types"
-
-// Redefine DEBUG_ASSERT_MESSAGE macro to not call the deprecated DebugAssert call.
-#undef DEBUG_ASSERT_MESSAGE
-#define DEBUG_ASSERT_MESSAGE(name, assertion, label, message, file, line, value) \
-  fprintf(stderr, "Assertion failed: %s, %s file: %s, line: %d\n", \
-      assertion, (message != 0) ? message : "", file, line);
-
-// OSSpinlock causes deadlock on iOS. we avoid it if possible
-#undef J2OBJC_FAST_LOCK_TYPE
-#undef J2OBJC_FAST_LOCK_LOCK
-#undef J2OBJC_FAST_LOCK_UNLOCK
-
-#if !defined(__IPHONE_10_0) || __IPHONE_OS_VERSION_MIN_REQUIRED < __IPHONE_10_0
-#define J2OBJC_FAST_LOCK_TYPE OSSpinLock
-#define J2OBJC_FAST_LOCK_LOCK(LOCK) OSSpinLockLock(LOCK)
-#define J2OBJC_FAST_LOCK_UNLOCK(LOCK) OSSpinLockUnlock(LOCK)
-
-#else
-
-#define J2OBJC_FAST_LOCK_TYPE os_unfair_lock_t
-#define J2OBJC_FAST_LOCK_LOCK(LOCK) os_unfair_lock_lock(LOCK)
-#define J2OBJC_FAST_LOCK_UNLOCK(LOCK) os_unfair_lock_unlock(LOCK)
-
-#endif
-
-
 //
-// Allocate a lock only when needed.  Since few locks are needed at any point
-// in time, keep them on a single list.
+// Monitors are JreThinLocks keyed by the object's address: an uncontended
+// enter or exit is a single atomic operation, and a mutex and condition
+// variables are only attached to an object's lock when a thread blocks or
+// waits on it.
 //
-static pthread_mutexattr_t	sRecursiveLockAttr;
-static bool			sRecursiveLockAttrIntialized = false;
 
-
-static pthread_mutexattr_t* recursiveAttributes()
+static inline void setJavaThreadState(JavaLangThread *javaThread, jint state)
 {
-    if ( !sRecursiveLockAttrIntialized ) {
-        int err = pthread_mutexattr_init(&sRecursiveLockAttr);
-        __Require_noErr_String(err, done, "pthread_mutexattr_init failed");
-
-        err = pthread_mutexattr_settype(&sRecursiveLockAttr, PTHREAD_MUTEX_RECURSIVE);
-        __Require_noErr_String(err, done, "pthread_mutexattr_settype failed");
-
-        sRecursiveLockAttrIntialized = true;
+    if (javaThread != NULL) {
+        JreAssignVolatileInt(&javaThread->state_, state);
     }
-
-done:
-    return &sRecursiveLockAttr;
 }
 
-
-typedef struct SyncData {
-    struct SyncData* nextData;
-    __unsafe_unretained id object;
-    int              threadCount;  // number of THREADS using this block
-    pthread_mutex_t  mutex;
-    pthread_cond_t   conditionVariable;
-} SyncData;
-
-typedef struct {
-    SyncData *data;
-    unsigned int lockCount;  // number of times THIS THREAD locked this block
-} SyncCacheItem;
-
-typedef struct SyncCache {
-    unsigned int allocated;
-    unsigned int used;
-    SyncCacheItem list[0];
-} SyncCache;
-
-typedef struct {
-    J2OBJC_FAST_LOCK_TYPE lock;
-    SyncData *data;
-} SyncList __attribute__((aligned(64)));
-// aligned to put locks on separate cache lines
-
-// Use multiple parallel lists to decrease contention among unrelated objects.
-#define COUNT 16
-#define HASH(obj) ((((uintptr_t)(obj)) >> 5) & (COUNT - 1))
-#define LOCK_FOR_OBJ(obj) sDataLists[HASH(obj)].lock
-#define LIST_FOR_OBJ(obj) sDataLists[HASH(obj)].data
-static SyncList sDataLists[COUNT];
-
-static pthread_key_t j2objc_pthread_key = 0;
-static pthread_once_t oneTimeInit = PTHREAD_ONCE_INIT;
-
-typedef struct {
-  struct SyncCache *syncCache;
-} j2objc_pthread_data;
-
-enum usage { ACQUIRE, RELEASE, CHECK, TEST };
-
-
-static void j2objc_destroy_key(void *thread_data) {
-  pthread_setspecific(j2objc_pthread_key, NULL);
-  j2objc_pthread_data *data = (j2objc_pthread_data *)thread_data;
-  if (data->syncCache) {
-    free(data->syncCache);
-  }
-  free(thread_data);
-}
-
-
-void init_j2objc_thread_data(void) {
-  pthread_key_create(&j2objc_pthread_key, j2objc_destroy_key);
-}
-
-
-static SyncCache *fetch_cache(BOOL create)
+static inline int syncResult(int result)
 {
-    pthread_once(&oneTimeInit, init_j2objc_thread_data);
-    j2objc_pthread_data *data = (j2objc_pthread_data *)pthread_getspecific(j2objc_pthread_key);
-    if (!data && !create) {
-      return NULL;
-    }
-    if (!data) {
-      data = (j2objc_pthread_data *)calloc(1, sizeof(j2objc_pthread_data));
-      pthread_setspecific(j2objc_pthread_key, data);
-    }
-    if (!data->syncCache) {
-        if (!create) {
-            return NULL;
-        } else {
-            int count = 4;
-            data->syncCache = (struct SyncCache *)calloc(1, sizeof(SyncCache) +
-                                                            count*sizeof(SyncCacheItem));
-            data->syncCache->allocated = count;
-        }
+    switch (result) {
+        case JRE_THIN_LOCK_SUCCESS:
+            return OBJC_SYNC_SUCCESS;
+        case JRE_THIN_LOCK_TIMED_OUT:
+            return OBJC_SYNC_TIMED_OUT;
+        default:
+            return OBJC_SYNC_NOT_OWNING_THREAD_ERROR;
     }
-
-    // Make sure there's at least one open slot in the list.
-    if (data->syncCache->allocated == data->syncCache->used) {
-        data->syncCache->allocated *= 2;
-        data->syncCache = (struct SyncCache *)
-            realloc(data->syncCache, sizeof(SyncCache)
-                    + data->syncCache->allocated * sizeof(SyncCacheItem));
-    }
-
-    return data->syncCache;
-}
-
-
-static SyncCacheItem* id2SyncCacheItem(id object, enum usage why) J2OBJC_METHOD_ATTR
-{
-    J2OBJC_FAST_LOCK_TYPE *lockp = &LOCK_FOR_OBJ(object);
-    SyncData **listp = &LIST_FOR_OBJ(object);
-    SyncData* result = NULL;
-    SyncCacheItem *item = NULL;
-    int err;
-
-    // Check per-thread cache of already-owned locks for matching object
-    SyncCache *cache = fetch_cache(NO);
-    if (cache) {
-        unsigned i;
-        for (i = 0; i < cache->used; i++) {
-            item = &cache->list[i];
-            if (item->data->object != object) continue;
-
-            // Found a match.
-            result = item->data;
-            __Require_Action_String(result->threadCount > 0, cache_done,
-                                  item = NULL, "id2data cache is buggy");
-            __Require_Action_String(item->lockCount > 0, cache_done,
-                                  item = NULL, "id2data cache is buggy");
-
-            switch(why) {
-            case ACQUIRE:
-                item->lockCount++;
-                break;
-            case RELEASE:
-                item->lockCount--;
-                if (item->lockCount == 0) {
-                    // remove from per-thread cache
-                    cache->list[i] = cache->list[--cache->used];
-                    // atomic because may collide with concurrent ACQUIRE
-                    OSAtomicDecrement32Barrier(&result->threadCount);
-                }
-                break;
-            case CHECK:
-            case TEST:
-                // do nothing
-                break;
-            }
-
-        cache_done:
-            return item;
-        }
-    }
-    if (why == TEST) {
-      return NULL;
-    }
-
-    // Thread cache didn't find anything.
-    // Walk in-use list looking for matching object
-    // Spinlock prevents multiple threads from creating multiple
-    // locks for the same new object.
-    // We could keep the nodes in some hash table if we find that there are
-    // more than 20 or so distinct locks active, but we don't do that now.
-
-    J2OBJC_FAST_LOCK_LOCK(lockp);
-
-    SyncData* p;
-    SyncData* firstUnused = NULL;
-    for (p = *listp; p != NULL; p = p->nextData) {
-        if ( p->object == object ) {
-            result = p;
-            // atomic because may collide with concurrent RELEASE
-            OSAtomicIncrement32Barrier(&result->threadCount);
-            goto done;
-        }
-        if ( (firstUnused == NULL) && (p->threadCount == 0) )
-            firstUnused = p;
-    }
-
-    // no SyncData currently associated with object
-    if ( (why == RELEASE) || (why == CHECK) )
-	goto done;
-
-    // an unused one was found, use it
-    if ( firstUnused != NULL ) {
-        result = firstUnused;
-        result->object = object;
-        result->threadCount = 1;
-        goto done;
-    }
-
-    // malloc a new SyncData and add to list.
-    // XXX calling malloc with a global lock held is bad practice,
-    // might be worth releasing the lock, mallocing, and searching again.
-    // But since we never free these guys we won't be stuck in malloc very often.
-    result = (SyncData*)malloc(sizeof(SyncData));
-    result->object = object;
-    result->threadCount = 1;
-    err = pthread_mutex_init(&result->mutex, recursiveAttributes());
-    __Require_noErr_String(err, done, "pthread_mutex_init failed");
-    err = pthread_cond_init(&result->conditionVariable, NULL);
-    __Require_noErr_String(err, done, "pthread_cond_init failed");
-    result->nextData = *listp;
-    *listp = result;
-
- done:
-    J2OBJC_FAST_LOCK_UNLOCK(lockp);
-    if (result) {
-        // Only new ACQUIRE should get here.
-        // All RELEASE and CHECK and recursive ACQUIRE are
-        // handled by the per-thread cache above.
-
-        __Require_String(result != NULL, really_done, "id2data is buggy");
-        __Require_Action_String(why == ACQUIRE || why == TEST, really_done,
-                              item = NULL, "id2data is buggy");
-        __Require_Action_String(result->object == object, really_done,
-                              item = NULL, "id2data is buggy");
-
-        if (!cache) cache = fetch_cache(YES);
-        item = &cache->list[cache->used++];
-        *item = (SyncCacheItem){result, 1};
-    }
-
- really_done:
-    return item;
-}
-
-
-static SyncData* id2data(id object, enum usage why) J2OBJC_METHOD_ATTR
-{
-    SyncCacheItem *item = id2SyncCacheItem(object, why);
-    return item ? item->data : NULL;
 }
 
 
@@ -312,39 +62,25 @@ int objc_sync_nil(void)
 
 
 // Begin synchronizing on 'obj'.
-// Allocates recursive pthread_mutex associated with 'obj' if needed.
 // Returns OBJC_SYNC_SUCCESS once lock is acquired.
 int objc_sync_enter(id obj) J2OBJC_METHOD_ATTR
 {
-    int result = OBJC_SYNC_SUCCESS;
-
-    if (obj) {
-        SyncData* data = id2data(obj, ACQUIRE);
-        __Require_Action_String(data != NULL, done, result = OBJC_SYNC_NOT_INITIALIZED, "id2data failed");
-
-        JavaLangThread *javaThread = getCurrentJavaThreadOrNull();
-        if (javaThread != NULL) {
-            result = pthread_mutex_trylock(&data->mutex);
-            if (result != 0 ) {
-                JreAssignVolatileInt(&javaThread->state_, JavaLangThread_STATE_BLOCKED);
-                result = pthread_mutex_lock(&data->mutex);
-                JreAssignVolatileInt(&javaThread->state_, JavaLangThread_STATE_RUNNABLE);
-            }
-        } else {
-            result = pthread_mutex_lock(&data->mutex);
-        }
-
-        __Require_noErr_String(result, done, "pthread_mutex_lock failed");
-    } else {
+    if (!obj) {
         // @synchronized(nil) does nothing
 #ifdef DEBUG_NIL_SYNC
-            NSLog(@"NIL SYNC DEBUG: @synchronized(nil); set a breakpoint on objc_sync_nil to debug");
+        NSLog(@"NIL SYNC DEBUG: @synchronized(nil); set a breakpoint on objc_sync_nil to debug");
 #endif
-        result = objc_sync_nil();
+        return objc_sync_nil();
     }
 
-done:
-    return result;
+    const void *key = (__bridge const void *)obj;
+    if (__builtin_expect(!JreThinLockTryEnter(key), 0)) {
+        JavaLangThread *javaThread = getCurrentJavaThreadOrNull();
+        setJavaThreadState(javaThread, JavaLangThread_STATE_BLOCKED);
+        JreThinLockEnter(key);
+        setJavaThreadState(javaThread, JavaLangThread_STATE_RUNNABLE);
+    }
+    return OBJC_SYNC_SUCCESS;
 }
 
 
@@ -352,87 +88,29 @@ done:
 // Returns OBJC_SYNC_SUCCESS or OBJC_SYNC_NOT_OWNING_THREAD_ERROR
 int objc_sync_exit(id obj) J2OBJC_METHOD_ATTR
 {
-    int result = OBJC_SYNC_SUCCESS;
-
-    if (obj) {
-        SyncData* data = id2data(obj, RELEASE);
-        __Require_Action_String(data != NULL, done, result = OBJC_SYNC_NOT_OWNING_THREAD_ERROR, "id2data failed");
-
-        result = pthread_mutex_unlock(&data->mutex);
-        __Require_noErr_String(result, done, "pthread_mutex_unlock failed");
-    } else {
+    if (!obj) {
         // @synchronized(nil) does nothing
+        return OBJC_SYNC_SUCCESS;
     }
-
-done:
-    if ( result == EPERM )
-        result = OBJC_SYNC_NOT_OWNING_THREAD_ERROR;
-
-    return result;
+    return syncResult(JreThinLockExit((__bridge const void *)obj));
 }
 
 
 // Temporarily release lock on 'obj' and wait for another thread to notify on 'obj'
-// Return OBJC_SYNC_SUCCESS, OBJC_SYNC_NOT_OWNING_THREAD_ERROR, OBJC_SYNC_TIMED_OUT, OBJC_SYNC_INTERRUPTED
+// Return OBJC_SYNC_SUCCESS, OBJC_SYNC_NOT_OWNING_THREAD_ERROR, OBJC_SYNC_TIMED_OUT
 int objc_sync_wait(id obj, long long milliSecondsMaxWait) J2OBJC_METHOD_ATTR
 {
-    int result = OBJC_SYNC_SUCCESS;
-
-    SyncCacheItem* syncCacheItem = id2SyncCacheItem(obj, CHECK);
-
-    if (!syncCacheItem) {
+    const void *key = (__bridge const void *)obj;
+    if (!JreThinLockHeldByCurrentThread(key)) {
         return OBJC_SYNC_NOT_OWNING_THREAD_ERROR;
     }
 
-    int savedLockCount = syncCacheItem->lockCount;
-    SyncData* data = syncCacheItem->data;
-
-    // Perform savedLockCount-1 unlock actions on obj
-    for (int i = 0; i < savedLockCount - 1; ++i) {
-        pthread_mutex_unlock(&data->mutex);
-    }
-
     JavaLangThread *javaThread = getCurrentJavaThreadOrNull();
-
-    // XXX need to retry cond_wait under out-of-our-control failures
-    if ( milliSecondsMaxWait == 0 ) {
-        if (javaThread != NULL) {
-          JreAssignVolatileInt(&javaThread->state_, JavaLangThread_STATE_WAITING);
-        }
-        result = pthread_cond_wait(&data->conditionVariable, &data->mutex);
-        __Require_noErr_String(result, done, "pthread_cond_wait failed");
-    }
-    else {
-       	struct timespec maxWait;
-        maxWait.tv_sec  = (time_t)(milliSecondsMaxWait / 1000);
-        maxWait.tv_nsec = (long)((milliSecondsMaxWait - (maxWait.tv_sec * 1000)) * 1000000);
-        if (javaThread != NULL) {
-          JreAssignVolatileInt(&javaThread->state_, JavaLangThread_STATE_TIMED_WAITING);
-        }
-        result = pthread_cond_timedwait_relative_np(&data->conditionVariable, &data->mutex, &maxWait);
-        if (result != ETIMEDOUT) {
-          __Require_noErr_String(result, done, "pthread_cond_timedwait_relative_np failed");
-        }
-    }
-    // no-op to keep compiler from complaining about branch to next instruction
-    syncCacheItem = NULL;
-
-done:
-    if (javaThread != NULL) {
-            JreAssignVolatileInt(&javaThread->state_, JavaLangThread_STATE_RUNNABLE);
-        }
-
-    if ( result == EPERM )
-        result = OBJC_SYNC_NOT_OWNING_THREAD_ERROR;
-    else if ( result == ETIMEDOUT )
-        result = OBJC_SYNC_TIMED_OUT;
-
-    // Perform savedLockCount-1 lock actions on obj
-    for (int i = 0; i < savedLockCount - 1; ++i) {
-        pthread_mutex_lock(&data->mutex);
-    }
-
-    return result;
+    setJavaThreadState(javaThread, milliSecondsMaxWait == 0
+        ? JavaLangThread_STATE_WAITING : JavaLangThread_STATE_TIMED_WAITING);
+    int result = JreThinLockWait(key, milliSecondsMaxWait);
+    setJavaThreadState(javaThread, JavaLangThread_STATE_RUNNABLE);
+    return syncResult(result);
 }
 
 
@@ -440,21 +118,7 @@ done:
 // Return OBJC_SYNC_SUCCESS, OBJC_SYNC_NOT_OWNING_THREAD_ERROR
 int objc_sync_notify(id obj) J2OBJC_METHOD_ATTR
 {
-    int result = OBJC_SYNC_SUCCESS;
-
-    SyncData* data = id2data(obj, CHECK);
-    if (!data) {
-      return OBJC_SYNC_NOT_OWNING_THREAD_ERROR;
-    }
-
-    result = pthread_cond_signal(&data->conditionVariable);
-    __Require_noErr_String(result, done, "pthread_cond_signal failed");
-
-done:
-    if ( result == EPERM )
-        result = OBJC_SYNC_NOT_OWNING_THREAD_ERROR;
-
-    return result;
+    return syncResult(JreThinLockNotify((__bridge const void *)obj));
 }
 
 
@@ -462,29 +126,22 @@ done:
 // Return OBJC_SYNC_SUCCESS, OBJC_SYNC_NOT_OWNING_THREAD_ERROR
 int objc_sync_notifyAll(id obj) J2OBJC_METHOD_ATTR
 {
-    int result = OBJC_SYNC_SUCCESS;
-
-    SyncData* data = id2data(obj, CHECK);
-    if (!data) {
-      return OBJC_SYNC_NOT_OWNING_THREAD_ERROR;
-    }
-
-    result = pthread_cond_broadcast(&data->conditionVariable);
-    __Require_noErr_String(result, done, "pthread_cond_broadcast failed");
-
-done:
-    if ( result == EPERM )
-        result = OBJC_SYNC_NOT_OWNING_THREAD_ERROR;
-
-    return result;
+    return syncResult(JreThinLockNotifyAll((__bridge const void *)obj));
 }
 
 
-// Returns true if an object has a pthread_mutux allocated for it on this thread.
+// Returns true if the current thread holds the lock on 'obj'.
 BOOL j2objc_sync_holds_lock(id obj) J2OBJC_METHOD_ATTR {
   (void)nil_chk(obj);
-  SyncData* data = id2data(obj, TEST);
-  return data ? YES : NO;
+  return JreThinLockHeldByCurrentThread((__bridge const void *)obj) ? YES : NO;
+}
+
+
+id JreMonitorEnter(id obj) J2OBJC_METHOD_ATTR {
+  objc_sync_enter(obj);
+  return obj;
 }
-#pragma clang diagnostic pop
 
+void JreMonitorExit(id obj) J2OBJC_METHOD_ATTR {
+  objc_sync_exit(obj);
+}
@@ -41,6 +41,7 @@ NATIVE_JRE_SOURCES_CORE = \
   J2ObjC_common.m \
   J2ObjC_icu.m \
   JavaThrowable.m \
+  JreThinLock.m \
   MappedByteBuffer.m \
   NSCopying+JavaCloneable.m \
   NSDataInputStream.m \
@@ -79,6 +80,12 @@ JAVA_PUBLIC_SOURCES_CORE = \
   android/system/Int64Ref.java \
   com/google/j2objc/util/AutoreleasePool.java \
   com/google/j2objc/util/CurrencyNumericCodes.java \
+  com/google/j2objc/util/IntArrayList.java \
+  com/google/j2objc/util/IntIntHashMap.java \
+  com/google/j2objc/util/IntObjectHashMap.java \
+  com/google/j2objc/util/LongArrayList.java \
+  com/google/j2objc/util/LongLongHashMap.java \
+  com/google/j2objc/util/LongObjectHashMap.java \
   com/google/j2objc/util/logging/IOSLogHandler.java \
   java/io/BufferedInputStream.java \
   java/io/BufferedOutputStream.java \
@@ -560,7 +567,10 @@ JAVA_PRIVATE_SOURCES_CORE = \
   com/google/j2objc/nio/charset/IOSCharset.java \
   com/google/j2objc/nio/charset/IconvCharsetDecoder.java \
   com/google/j2objc/nio/charset/IconvCharsetEncoder.java \
+  com/google/j2objc/util/IntKeyTable.java \
+  com/google/j2objc/util/LongKeyTable.java \
   com/google/j2objc/util/NativeTimeZone.java \
+  com/google/j2objc/util/PrimitiveHashing.java \
   com/google/j2objc/util/ReflectionUtil.java \
   dalvik/annotation/compat/UnsupportedAppUsage.java \
   dalvik/annotation/optimization/FastNative.java \
@@ -636,6 +646,7 @@ JAVA_PRIVATE_SOURCES_CORE = \
   libcore/icu/ICU.java \
   libcore/icu/LocaleData.java \
   libcore/icu/TimeZoneNames.java \
+  libcore/internal/StringPool.java \
   libcore/io/AsynchronousCloseMonitor.java \
   libcore/io/DeleteOnExit.java \
   libcore/io/IoBridge.java \
@@ -669,6 +680,7 @@ JAVA_PRIVATE_SOURCES_CORE = \
   libcore/reflect/WildcardTypeImpl.java \
   libcore/util/ArrayUtils.java \
   libcore/util/BasicLruCache.java \
+  libcore/util/ConcurrentLruCache.java \
   libcore/util/EmptyArray.java \
   libcore/util/HexEncoding.java \
   libcore/util/NonNull.java \
@@ -1709,7 +1721,6 @@ JAVA_PUBLIC_SOURCES_XMLPULL = \
   org/xmlpull/v1/sax2/Driver.java
 
 JAVA_PRIVATE_SOURCES_XML = \
-  libcore/internal/StringPool.java \
   org/apache/harmony/xml/dom/AttrImpl.java \
   org/apache/harmony/xml/dom/CDATASectionImpl.java \
   org/apache/harmony/xml/dom/CharacterDataImpl.java \
@@ -2229,8 +2240,10 @@ ANDROID_PUBLIC_SOURCES = \
   org/json/JSONArray.java \
   org/json/JSONException.java \
   org/json/JSONObject.java \
+  org/json/JSONReader.java \
   org/json/JSONStringer.java \
   org/json/JSONTokener.java \
+  org/json/JSONWriter.java \
   android/annotation/NonNull.java \
   android/annotation/Nullable.java \
   android/os/BadParcelableException.java \
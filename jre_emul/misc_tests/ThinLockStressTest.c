@@ -0,0 +1,169 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+// Stress test for the JreThinLock monitors. It only needs a C11 compiler and
+// pthreads, so it also runs off Apple platforms:
+//
+//   cc -std=gnu11 -O2 -pthread -IClasses -o thin_lock_stress_test
+//       misc_tests/ThinLockStressTest.c -x c Classes/JreThinLock.m
+
+#include "JreThinLock.h"
+
+#include <pthread.h>
+#include <sched.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+
+#define THREAD_COUNT 8
+#define ITERATIONS 200000
+
+// More objects than the lock table has buckets, so that locks are reassigned.
+#define OBJECT_COUNT 4096
+
+#define QUEUE_CAPACITY 4
+#define ITEMS_PER_PRODUCER 20000
+
+static int failures = 0;
+
+#define CHECK(condition) \
+  if (!(condition)) { \
+    fprintf(stderr, "%s:%d: check failed: %s\n", __FILE__, __LINE__, #condition); \
+    failures++; \
+  }
+
+// Non-atomic counters that are only consistent if the locks exclude each other.
+static long counters[OBJECT_COUNT];
+
+static uint32_t NextRandom(uint32_t *state) {
+  uint32_t x = *state;
+  x ^= x << 13;
+  x ^= x >> 17;
+  x ^= x << 5;
+  return *state = x;
+}
+
+static void *CountThread(void *arg) {
+  uint32_t seed = (uint32_t)(uintptr_t)arg;
+  for (int i = 0; i < ITERATIONS; i++) {
+    // Mostly contend on a few hot objects, sometimes touch a cold one.
+    uint32_t index = NextRandom(&seed) % ((i & 7) ? 4 : OBJECT_COUNT);
+    long *counter = &counters[index];
+    if (!JreThinLockTryEnter(counter)) {
+      JreThinLockEnter(counter);
+    }
+    JreThinLockEnter(counter);  // Recursive enter.
+    long value = *counter;
+    if ((i & 255) == 0) {
+      sched_yield();
+    }
+    *counter = value + 1;
+    JreThinLockExit(counter);
+    JreThinLockExit(counter);
+  }
+  return NULL;
+}
+
+static void TestMutualExclusion(void) {
+  pthread_t threads[THREAD_COUNT];
+  for (int i = 0; i < THREAD_COUNT; i++) {
+    pthread_create(&threads[i], NULL, CountThread, (void *)(uintptr_t)(i + 1));
+  }
+  for (int i = 0; i < THREAD_COUNT; i++) {
+    pthread_join(threads[i], NULL);
+  }
+  long total = 0;
+  for (int i = 0; i < OBJECT_COUNT; i++) {
+    total += counters[i];
+    CHECK(!JreThinLockHeldByCurrentThread(&counters[i]));
+  }
+  CHECK(total == (long)THREAD_COUNT * ITERATIONS);
+}
+
+// A bounded queue guarded by its own monitor, using wait and notifyAll.
+static struct {
+  int items[QUEUE_CAPACITY];
+  int size;
+  long sum;
+} queue;
+
+static void *Producer(void *arg) {
+  for (int i = 1; i <= ITEMS_PER_PRODUCER; i++) {
+    JreThinLockEnter(&queue);
+    while (queue.size == QUEUE_CAPACITY) {
+      JreThinLockWait(&queue, 0);
+    }
+    queue.items[queue.size++] = i;
+    JreThinLockNotifyAll(&queue);
+    JreThinLockExit(&queue);
+  }
+  return NULL;
+}
+
+static void *Consumer(void *arg) {
+  for (int i = 0; i < ITEMS_PER_PRODUCER; i++) {
+    JreThinLockEnter(&queue);
+    JreThinLockEnter(&queue);  // Waiting must release recursive holds.
+    while (queue.size == 0) {
+      // Time out regularly to exercise timed waits without losing wakeups.
+      JreThinLockWait(&queue, 1);
+    }
+    queue.sum += queue.items[--queue.size];
+    JreThinLockNotify(&queue);
+    JreThinLockExit(&queue);
+    JreThinLockExit(&queue);
+  }
+  return NULL;
+}
+
+static void TestWaitNotify(void) {
+  pthread_t producers[THREAD_COUNT / 2];
+  pthread_t consumers[THREAD_COUNT / 2];
+  for (int i = 0; i < THREAD_COUNT / 2; i++) {
+    pthread_create(&producers[i], NULL, Producer, NULL);
+    pthread_create(&consumers[i], NULL, Consumer, NULL);
+  }
+  for (int i = 0; i < THREAD_COUNT / 2; i++) {
+    pthread_join(producers[i], NULL);
+    pthread_join(consumers[i], NULL);
+  }
+  long expected = (long)ITEMS_PER_PRODUCER * (ITEMS_PER_PRODUCER + 1) / 2 * (THREAD_COUNT / 2);
+  CHECK(queue.size == 0);
+  CHECK(queue.sum == expected);
+}
+
+static void TestErrors(void) {
+  int object = 0;
+  CHECK(JreThinLockExit(&object) == JRE_THIN_LOCK_NOT_OWNER);
+  CHECK(JreThinLockWait(&object, 0) == JRE_THIN_LOCK_NOT_OWNER);
+  CHECK(JreThinLockNotify(&object) == JRE_THIN_LOCK_NOT_OWNER);
+  CHECK(JreThinLockNotifyAll(&object) == JRE_THIN_LOCK_NOT_OWNER);
+  JreThinLockEnter(&object);
+  CHECK(JreThinLockHeldByCurrentThread(&object));
+  CHECK(JreThinLockNotify(&object) == JRE_THIN_LOCK_SUCCESS);
+  CHECK(JreThinLockWait(&object, 10) == JRE_THIN_LOCK_TIMED_OUT);
+  CHECK(JreThinLockHeldByCurrentThread(&object));
+  CHECK(JreThinLockExit(&object) == JRE_THIN_LOCK_SUCCESS);
+  CHECK(!JreThinLockHeldByCurrentThread(&object));
+}
+
+int main(int argc, char *argv[]) {
+  TestErrors();
+  TestMutualExclusion();
+  TestWaitNotify();
+  if (failures) {
+    fprintf(stderr, "ThinLockStressTest: %d failures\n", failures);
+    return 1;
+  }
+  printf("ThinLockStressTest: OK\n");
+  return 0;
+}
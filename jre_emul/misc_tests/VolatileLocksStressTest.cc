@@ -0,0 +1,247 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+// Stress test and contention benchmark for the ARGC volatile field locks,
+// using reference-counted stand-ins for objects. It only needs a C++11
+// compiler, so it also runs off Apple platforms:
+//
+//   c++ -std=c++11 -O2 -pthread -IClasses/ARGC -o volatile_locks_stress_test
+//       misc_tests/VolatileLocksStressTest.cc
+//
+// Pass --benchmark to compare the striped locks with a single global lock.
+
+#include "VolatileLocks.h"
+
+#include <pthread.h>
+
+#include <chrono>
+#include <cstdio>
+#include <cstring>
+#include <thread>
+#include <vector>
+
+static const int THREAD_COUNT = 8;
+static const int ITERATIONS = 200000;
+static const int FIELD_COUNT = 64;
+
+static std::atomic<int> failures(0);
+
+#define CHECK(condition) \
+  if (!(condition)) { \
+    fprintf(stderr, "%s:%d: check failed: %s\n", __FILE__, __LINE__, #condition); \
+    failures++; \
+  }
+
+// An object is never deleted, so that using one after its last release is
+// detected instead of crashing.
+struct Object {
+  std::atomic<int> refs{1};
+  std::atomic<bool> freed{false};
+};
+
+static std::atomic<long> liveObjects(0);
+
+static Object *newObject() {
+  liveObjects++;
+  return new Object();
+}
+
+static void retain(Object *obj) {
+  CHECK(!obj->freed.load());
+  obj->refs++;
+}
+
+static void release(Object *obj) {
+  if (obj == nullptr) {
+    return;
+  }
+  int refs = --obj->refs;
+  CHECK(refs >= 0);
+  if (refs == 0) {
+    obj->freed = true;
+    liveObjects--;
+  }
+}
+
+static std::atomic<Object *> fields[FIELD_COUNT];
+
+static uint32_t nextRandom(uint32_t *state) {
+  uint32_t x = *state;
+  x ^= x << 13;
+  x ^= x >> 17;
+  x ^= x << 5;
+  return *state = x;
+}
+
+static void mutateFields(uint32_t seed) {
+  for (int i = 0; i < ITERATIONS; i++) {
+    std::atomic<Object *> *field = &fields[nextRandom(&seed) % FIELD_COUNT];
+    switch (nextRandom(&seed) % 4) {
+      case 0: {
+        Object *obj = VolatileLocks::loadRetained(field, retain);
+        if (obj != nullptr) {
+          CHECK(!obj->freed.load());
+          release(obj);
+        }
+        break;
+      }
+      case 1: {
+        Object *obj = newObject();
+        retain(obj);
+        release(VolatileLocks::exchange(field, obj));
+        release(obj);
+        break;
+      }
+      case 2: {
+        Object *expected = VolatileLocks::loadRetained(field, retain);
+        Object *obj = newObject();
+        retain(obj);
+        bool swapped = VolatileLocks::compareAndSwap(field, expected, obj);
+        release(swapped ? expected : obj);
+        release(expected);
+        release(obj);
+        break;
+      }
+      default:
+        release(VolatileLocks::exchange(field, (Object *)nullptr));
+        break;
+    }
+  }
+}
+
+static void testConcurrentFields() {
+  std::vector<std::thread> threads;
+  for (int i = 0; i < THREAD_COUNT; i++) {
+    threads.emplace_back(mutateFields, (uint32_t)(i + 1));
+  }
+  for (std::thread &thread : threads) {
+    thread.join();
+  }
+  // Only the objects still stored in fields are alive, each with one reference.
+  long stored = 0;
+  for (int i = 0; i < FIELD_COUNT; i++) {
+    Object *obj = fields[i].load();
+    if (obj != nullptr) {
+      stored++;
+      CHECK(obj->refs.load() == 1);
+    }
+  }
+  CHECK(liveObjects.load() == stored);
+}
+
+static void testLockAll() {
+  VolatileLocks::lockAll();
+  std::atomic<bool> stored(false);
+  std::thread writer([&stored] {
+    Object *obj = newObject();
+    release(VolatileLocks::exchange(&fields[0], obj));
+    stored = true;
+  });
+  std::this_thread::sleep_for(std::chrono::milliseconds(10));
+  CHECK(!stored.load());
+  VolatileLocks::unlockAll();
+  writer.join();
+  CHECK(stored.load());
+}
+
+// The lock that all volatile fields used to share, for comparison.
+class GlobalLock {
+public:
+  static void lock() {
+    pthread_t self = pthread_self();
+    if (!pthread_equal(self, _owner.load())) {
+      pthread_t none = pthread_t();
+      while (!_owner.compare_exchange_weak(none, self)) {
+        none = pthread_t();
+      }
+    }
+    _count++;
+  }
+
+  static void unlock() {
+    if (--_count == 0) {
+      _owner.store(pthread_t());
+    }
+  }
+
+private:
+  static std::atomic<pthread_t> _owner;
+  static int _count;
+};
+
+std::atomic<pthread_t> GlobalLock::_owner;
+int GlobalLock::_count = 0;
+
+// Each thread reads and writes its own fields, so all contention comes from
+// the locks themselves.
+template <bool striped>
+static void accessOwnFields(int thread, int iterations) {
+  Object *obj = newObject();
+  std::atomic<Object *> *own = &fields[thread * (FIELD_COUNT / THREAD_COUNT)];
+  for (int i = 0; i < iterations; i++) {
+    std::atomic<Object *> *field = &own[i % (FIELD_COUNT / THREAD_COUNT)];
+    if (striped) {
+      retain(obj);
+      release(VolatileLocks::exchange(field, obj));
+      release(VolatileLocks::loadRetained(field, retain));
+    } else {
+      GlobalLock::lock();
+      retain(obj);
+      release(field->exchange(obj));
+      GlobalLock::unlock();
+      GlobalLock::lock();
+      Object *value = field->load();
+      retain(value);
+      GlobalLock::unlock();
+      release(value);
+    }
+  }
+}
+
+template <bool striped>
+static double benchmark(int threadCount, int iterations) {
+  auto start = std::chrono::steady_clock::now();
+  std::vector<std::thread> threads;
+  for (int i = 0; i < threadCount; i++) {
+    threads.emplace_back(accessOwnFields<striped>, i, iterations);
+  }
+  for (std::thread &thread : threads) {
+    thread.join();
+  }
+  std::chrono::duration<double, std::nano> elapsed = std::chrono::steady_clock::now() - start;
+  return elapsed.count() / ((double)threadCount * iterations * 2);
+}
+
+static void runBenchmarks() {
+  for (int threadCount = 1; threadCount <= THREAD_COUNT; threadCount *= 2) {
+    double global = benchmark<false>(threadCount, ITERATIONS * 5);
+    double striped = benchmark<true>(threadCount, ITERATIONS * 5);
+    printf("%d threads: global lock %.1f ns/access, striped locks %.1f ns/access\n",
+           threadCount, global, striped);
+  }
+  printf("(%u hardware threads)\n", std::thread::hardware_concurrency());
+}
+
+int main(int argc, char *argv[]) {
+  if (argc > 1 && strcmp(argv[1], "--benchmark") == 0) {
+    runBenchmarks();
+    return 0;
+  }
+  testConcurrentFields();
+  testLockAll();
+  if (failures) {
+    fprintf(stderr, "VolatileLocksStressTest: %d failures\n", failures.load());
+    return 1;
+  }
+  printf("VolatileLocksStressTest: OK\n");
+  return 0;
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.icu.impl;
+
+import android.icu.util.ULocale;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import junit.framework.TestCase;
+
+/**
+ * Tests that ICU data embedded in the binary is read in place.
+ */
+public class ICUBinaryTest extends TestCase {
+
+  public void testEmbeddedDataIsNotCopied() {
+    ByteBuffer bytes = ICUBinary.getData("root.res");
+    assertNotNull(bytes);
+    assertTrue(bytes.isDirect());
+    assertTrue(bytes.isReadOnly());
+    try {
+      bytes.put(0, (byte) 0);
+      fail();
+    } catch (ReadOnlyBufferException expected) {
+    }
+  }
+
+  public void testEmbeddedDataHasIndependentPositions() {
+    ByteBuffer first = ICUBinary.getData("en.res");
+    ByteBuffer second = ICUBinary.getData("en.res");
+    first.position(16);
+    assertEquals(0, second.position());
+    assertEquals(first.capacity(), second.capacity());
+    assertEquals(first.get(16), second.get(16));
+  }
+
+  public void testMissingData() {
+    assertNull(ICUBinary.getData("no_such_locale.res"));
+  }
+
+  public void testBundleFromEmbeddedData() {
+    ICUResourceBundle bundle = ICUResourceBundle.getBundleInstance(
+        ICUData.ICU_BASE_NAME, ULocale.ENGLISH, ICUResourceBundle.OpenType.LOCALE_DEFAULT_ROOT);
+    assertEquals(".", bundle.getStringWithFallback("NumberElements/latn/symbols/decimal"));
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.icu.text;
+
+import android.icu.util.TimeZone;
+import android.icu.util.ULocale;
+import java.util.Date;
+import junit.framework.TestCase;
+
+/**
+ * Tests for the formatter prototype caches in DecimalFormat, NumberFormat and
+ * SimpleDateFormat.
+ */
+@SuppressWarnings("deprecation")
+public class FormatPrototypeCacheTest extends TestCase {
+
+  private static final String NUMBER_PATTERN = "#,##0.00;(#,##0.00)";
+  private static final String DATE_PATTERN = "yyyy-MM-dd HH:mm:ss zzz";
+
+  public void testCachedDecimalFormatMatchesConstructor() {
+    for (ULocale locale : new ULocale[] { ULocale.US, ULocale.GERMANY, new ULocale("ar_EG") }) {
+      DecimalFormat expected = new DecimalFormat(NUMBER_PATTERN, new DecimalFormatSymbols(locale));
+      DecimalFormat cached = DecimalFormat.getCachedInstance(NUMBER_PATTERN, locale);
+      assertEquals(expected, cached);
+      assertEquals(expected.format(-1234567.891), cached.format(-1234567.891));
+    }
+  }
+
+  public void testCachedDecimalFormatsAreIndependent() {
+    DecimalFormat first = DecimalFormat.getCachedInstance(NUMBER_PATTERN, ULocale.US);
+    first.setMaximumFractionDigits(4);
+    DecimalFormatSymbols symbols = first.getDecimalFormatSymbols();
+    symbols.setDecimalSeparator('!');
+    first.setDecimalFormatSymbols(symbols);
+
+    DecimalFormat second = DecimalFormat.getCachedInstance(NUMBER_PATTERN, ULocale.US);
+    assertNotSame(first, second);
+    assertEquals(2, second.getMaximumFractionDigits());
+    assertEquals("1,234.50", second.format(1234.5));
+  }
+
+  public void testCachedDecimalFormatRejectsInvalidPattern() {
+    for (int i = 0; i < 2; i++) {
+      try {
+        DecimalFormat.getCachedInstance("#,##0.00'", ULocale.US);
+        fail();
+      } catch (IllegalArgumentException expected) {
+      }
+    }
+  }
+
+  public void testNumberFormatInstancesAreIndependent() {
+    NumberFormat first = NumberFormat.getInstance(ULocale.FRANCE, NumberFormat.CURRENCYSTYLE);
+    first.setMinimumFractionDigits(5);
+    first.setGroupingUsed(false);
+    NumberFormat second = NumberFormat.getInstance(ULocale.FRANCE, NumberFormat.CURRENCYSTYLE);
+    assertNotSame(first, second);
+    assertEquals(2, second.getMinimumFractionDigits());
+    assertTrue(second.isGroupingUsed());
+  }
+
+  public void testIntegerInstance() {
+    NumberFormat format = NumberFormat.getInstance(ULocale.US, NumberFormat.INTEGERSTYLE);
+    assertEquals("1,235", format.format(1234.6));
+    assertTrue(format.isParseIntegerOnly());
+  }
+
+  public void testCachedSimpleDateFormatMatchesConstructor() {
+    Date date = new Date(1234567890123L);
+    for (ULocale locale : new ULocale[] { ULocale.US, ULocale.JAPAN, new ULocale("th_TH") }) {
+      SimpleDateFormat expected = new SimpleDateFormat(DATE_PATTERN, locale);
+      SimpleDateFormat cached = SimpleDateFormat.getCachedInstance(DATE_PATTERN, locale);
+      assertEquals(expected.format(date), cached.format(date));
+      assertEquals(expected.getCalendar().getType(), cached.getCalendar().getType());
+    }
+  }
+
+  public void testCachedSimpleDateFormatUsesCurrentDefaultTimeZone() {
+    TimeZone defaultZone = TimeZone.getDefault();
+    try {
+      TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+      SimpleDateFormat first = SimpleDateFormat.getCachedInstance(DATE_PATTERN, ULocale.US);
+      assertEquals("America/New_York", first.getTimeZone().getID());
+
+      first.setTimeZone(TimeZone.getTimeZone("UTC"));
+      TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+      SimpleDateFormat second = SimpleDateFormat.getCachedInstance(DATE_PATTERN, ULocale.US);
+      assertEquals("Asia/Tokyo", second.getTimeZone().getID());
+      assertEquals("UTC", first.getTimeZone().getID());
+    } finally {
+      TimeZone.setDefault(defaultZone);
+    }
+  }
+
+  public void testMessageFormatPatternArguments() {
+    Date date = new Date(1234567890123L);
+    MessageFormat message = new MessageFormat(
+        "{0,number," + NUMBER_PATTERN + "} {1,date," + DATE_PATTERN + "}", ULocale.GERMANY);
+    String expected = new DecimalFormat(NUMBER_PATTERN, new DecimalFormatSymbols(ULocale.GERMANY))
+        .format(-1234.5) + " " + new SimpleDateFormat(DATE_PATTERN, ULocale.GERMANY).format(date);
+    assertEquals(expected, message.format(new Object[] { -1234.5, date }));
+
+    // Changing one message's formats must not leak into the next one's.
+    ((DecimalFormat) message.getFormatsByArgumentIndex()[0]).setMaximumFractionDigits(0);
+    MessageFormat next = new MessageFormat("{0,number," + NUMBER_PATTERN + "}", ULocale.GERMANY);
+    assertEquals("(1.234,50)", next.format(new Object[] { -1234.5 }));
+  }
+
+  public void testSkeletonInstancesAreIndependent() {
+    DateFormat first = DateFormat.getInstanceForSkeleton("yMMMd", ULocale.US);
+    first.setTimeZone(TimeZone.getTimeZone("UTC"));
+    TimeZone defaultZone = TimeZone.getDefault();
+    try {
+      TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+      DateFormat second = DateFormat.getInstanceForSkeleton("yMMMd", ULocale.US);
+      assertNotSame(first, second);
+      assertEquals("Asia/Tokyo", second.getTimeZone().getID());
+      assertEquals("UTC", first.getTimeZone().getID());
+    } finally {
+      TimeZone.setDefault(defaultZone);
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.org.kxml2.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * Measures how much of KXmlParser's time on UTF-8 input goes to decoding.
+ *
+ * <p>testParseInputStream is the usual path, where an InputStreamReader decodes the bytes as the
+ * parser reads. testParseDecodedString parses the same document already decoded, so the gap
+ * between the two bounds what any input mode that tokenizes bytes directly could save.
+ * testDecodeOnly times the decoding by itself.
+ */
+class KXmlParserBenchmarks {
+
+  private static final int RUNS = 10;
+
+  public static void main(String[] args) throws Exception {
+    String[] texts = { "text value ", "\u30c6\u30ad\u30b9\u30c8 \u00e9t\u00e9 \ud83d\ude00 " };
+    String[] labels = { "ASCII", "non-ASCII" };
+    System.out.println("Running KXmlParser benchmarks, best of " + RUNS + " runs in MB/s...");
+    Method[] methods = KXmlParserBenchmarks.class.getDeclaredMethods();
+    for (Method method : methods) {
+      if (method.getName().startsWith("test")) {
+        for (int feed = 0; feed < texts.length; feed++) {
+          String document = createFeed(texts[feed]);
+          byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+          long best = Long.MAX_VALUE;
+          for (int i = 0; i < RUNS; i++) {
+            long startTime = System.nanoTime();
+            method.invoke(null, bytes, document);
+            best = Math.min(best, System.nanoTime() - startTime);
+          }
+          System.out.printf("%s (%s): %.1f%n", method.getName(), labels[feed],
+              bytes.length * 1000.0 / best);
+        }
+      }
+    }
+  }
+
+  private static void testParseInputStream(byte[] bytes, String document) throws Exception {
+    KXmlParser parser = new KXmlParser();
+    parser.setInput(new ByteArrayInputStream(bytes), "UTF-8");
+    parseAll(parser);
+  }
+
+  private static void testParseDecodedString(byte[] bytes, String document) throws Exception {
+    KXmlParser parser = new KXmlParser();
+    parser.setInput(new StringReader(document));
+    parseAll(parser);
+  }
+
+  private static void testDecodeOnly(byte[] bytes, String document) throws Exception {
+    Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+    char[] buffer = new char[8192];
+    while (reader.read(buffer) != -1) {
+    }
+  }
+
+  /** Reads every token, along with its names, text and attribute values. */
+  private static void parseAll(KXmlParser parser) throws Exception {
+    int type;
+    while ((type = parser.next()) != XmlPullParser.END_DOCUMENT) {
+      if (type == XmlPullParser.START_TAG) {
+        parser.getName();
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+          parser.getAttributeName(i);
+          parser.getAttributeValue(i);
+        }
+      } else if (type == XmlPullParser.TEXT) {
+        parser.getText();
+      }
+    }
+  }
+
+  private static String createFeed(String text) {
+    StringBuilder sb = new StringBuilder("<?xml version='1.0' encoding='UTF-8'?>\n<feed>\n");
+    for (int i = 0; i < 100000; i++) {
+      sb.append("  <item id='").append(i).append("' kind='k").append(i % 50).append("'>")
+          .append(text).append(i).append("</item>\n");
+    }
+    sb.append("</feed>\n");
+    return sb.toString();
+  }
+}
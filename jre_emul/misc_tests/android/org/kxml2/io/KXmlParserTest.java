@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package android.org.kxml2.io;
+
+import java.io.StringReader;
+import junit.framework.TestCase;
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * Tests for KXmlParser's name pool.
+ */
+public class KXmlParserTest extends TestCase {
+
+  public void testNamePoolGrows() throws Exception {
+    StringBuilder document = new StringBuilder("<root>");
+    for (int i = 0; i < 4000; i++) {
+      document.append("<name").append(i).append("/>");
+    }
+    document.append("</root>");
+    KXmlParser parser = new KXmlParser();
+    parser.setInput(new StringReader(document.toString()));
+    assertEquals(512, parser.stringPool.capacity());
+    while (parser.next() != XmlPullParser.END_DOCUMENT) {
+    }
+    assertTrue(parser.stringPool.capacity() > 512);
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.j2objc.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tests for IntArrayList and LongArrayList.
+ */
+public class PrimitiveArrayListTest extends TestCase {
+
+  public void testIntArrayList() {
+    IntArrayList list = new IntArrayList();
+    List<Integer> expected = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      list.add(i * 7 % 13);
+      expected.add(i * 7 % 13);
+    }
+    list.add(0, -1);
+    expected.add(0, -1);
+    assertEquals(expected.remove(50).intValue(), list.removeAt(50));
+    assertEquals(expected.set(3, 42).intValue(), list.set(3, 42));
+    assertEquals(expected.size(), list.size());
+    assertEquals(expected.indexOf(42), list.indexOf(42));
+    assertFalse(list.contains(100));
+    assertEquals(expected.hashCode(), list.hashCode());
+    assertEquals(expected.toString(), list.toString());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).intValue(), list.get(i));
+    }
+    try {
+      list.get(list.size());
+      fail("expected IndexOutOfBoundsException");
+    } catch (IndexOutOfBoundsException expectedException) {
+      // expected
+    }
+  }
+
+  public void testLongArrayList() {
+    LongArrayList list = LongArrayList.of(5, Long.MAX_VALUE, -3);
+    list.addAll(new long[] {9, 0});
+    list.sort();
+    assertTrue(Arrays.equals(new long[] {-3, 0, 5, 9, Long.MAX_VALUE}, list.toArray()));
+    assertEquals(LongArrayList.of(-3, 0, 5, 9, Long.MAX_VALUE), list);
+    list.clear();
+    assertTrue(list.isEmpty());
+    assertEquals("[]", list.toString());
+  }
+}
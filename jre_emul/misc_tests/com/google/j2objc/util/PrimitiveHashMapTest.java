@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.j2objc.util;
+
+import junit.framework.TestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for the primitive-keyed open-addressing maps, checked against java.util.HashMap.
+ */
+public class PrimitiveHashMapTest extends TestCase {
+
+  public void testIntIntMatchesHashMap() {
+    Random random = new Random(42);
+    IntIntHashMap map = new IntIntHashMap();
+    Map<Integer, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 20000; i++) {
+      // A small key range makes collisions, removals and reinsertions frequent.
+      int key = random.nextInt(512) - 256;
+      int value = random.nextInt();
+      switch (random.nextInt(4)) {
+        case 0:
+        case 1:
+          assertEquals(orZero(expected.put(key, value)), map.put(key, value));
+          break;
+        case 2:
+          assertEquals(orZero(expected.remove(key)), map.remove(key));
+          break;
+        default:
+          expected.merge(key, value, Integer::sum);
+          assertEquals((int) expected.get(key), map.addTo(key, value));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    for (int key = -300; key < 300; key++) {
+      assertEquals(expected.containsKey(key), map.containsKey(key));
+      assertEquals(orZero(expected.get(key)), map.get(key));
+    }
+    assertEquals(expected.hashCode(), map.hashCode());
+    Map<Integer, Integer> visited = new HashMap<>();
+    map.forEach(visited::put);
+    assertEquals(expected, visited);
+    assertEquals(expected.size(), map.keys().length);
+  }
+
+  public void testLongObjectMatchesHashMap() {
+    Random random = new Random(7);
+    LongObjectHashMap<String> map = new LongObjectHashMap<>(4);
+    Map<Long, String> expected = new HashMap<>();
+    for (int i = 0; i < 20000; i++) {
+      // Keys that differ only in their high bits must still spread out.
+      long key = ((long) random.nextInt(512) << 40) - (1L << 48);
+      String value = Integer.toString(i);
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        assertEquals(expected.put(key, value), map.put(key, value));
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    for (Map.Entry<Long, String> entry : expected.entrySet()) {
+      assertEquals(entry.getValue(), map.get(entry.getKey()));
+    }
+    assertEquals(expected.hashCode(), map.hashCode());
+    Map<Long, String> visited = new HashMap<>();
+    map.forEach(visited::put);
+    assertEquals(expected, visited);
+  }
+
+  public void testZeroKey() {
+    LongLongHashMap map = new LongLongHashMap();
+    assertFalse(map.containsKey(0));
+    assertEquals(-1, map.getOrDefault(0, -1));
+    assertEquals(0, map.put(0, 5));
+    assertTrue(map.containsKey(0));
+    assertEquals(6, map.addTo(0, 1));
+    assertEquals(1, map.size());
+    assertEquals("{0=6}", map.toString());
+    assertEquals(6, map.remove(0));
+    assertTrue(map.isEmpty());
+
+    IntObjectHashMap<String> objects = new IntObjectHashMap<>();
+    objects.put(0, null);
+    assertTrue(objects.containsKey(0));
+    assertNull(objects.get(0));
+    assertEquals(1, objects.size());
+  }
+
+  public void testComputeIfAbsent() {
+    IntObjectHashMap<StringBuilder> map = new IntObjectHashMap<>();
+    map.computeIfAbsent(3, key -> new StringBuilder()).append('a');
+    map.computeIfAbsent(3, key -> new StringBuilder()).append('b');
+    assertEquals("ab", map.get(3).toString());
+    assertNull(map.computeIfAbsent(4, key -> null));
+    assertFalse(map.containsKey(4));
+  }
+
+  public void testComputeIfAbsentReplacesNullValue() {
+    LongObjectHashMap<String> map = new LongObjectHashMap<>();
+    for (long key : new long[] {0, 7}) {
+      map.put(key, null);
+      assertNull(map.computeIfAbsent(key, k -> null));
+      assertTrue(map.containsKey(key));
+      assertEquals("v" + key, map.computeIfAbsent(key, k -> "v" + k));
+      assertEquals("v" + key, map.computeIfAbsent(key, k -> "other"));
+      assertEquals("v" + key, map.get(key));
+    }
+    assertEquals(2, map.size());
+  }
+
+  public void testComputeIfAbsentGrowingMap() {
+    IntObjectHashMap<String> map = new IntObjectHashMap<>(0);
+    assertEquals("x", map.computeIfAbsent(1, key -> {
+      // Force the table to grow while the function runs.
+      for (int i = 2; i < 100; i++) {
+        map.put(i, "v" + i);
+      }
+      return "x";
+    }));
+    assertEquals("x", map.get(1));
+    assertEquals("v99", map.get(99));
+    assertEquals(99, map.size());
+  }
+
+  public void testCapacityLimit() {
+    assertEquals(1 << 30, PrimitiveHashing.doubleCapacity(1 << 29));
+    try {
+      PrimitiveHashing.doubleCapacity(1 << 30);
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("cannot grow"));
+    }
+  }
+
+  public void testEqualsAndClear() {
+    IntIntHashMap a = new IntIntHashMap();
+    IntIntHashMap b = new IntIntHashMap(1000);
+    for (int i = 0; i < 100; i++) {
+      a.put(i, i * i);
+      b.put(99 - i, (99 - i) * (99 - i));
+    }
+    assertEquals(a, b);
+    b.put(5, 0);
+    assertFalse(a.equals(b));
+    a.clear();
+    assertTrue(a.isEmpty());
+    assertFalse(a.containsKey(5));
+    assertEquals(0, a.get(5));
+  }
+
+  private static int orZero(Integer value) {
+    return value != null ? value : 0;
+  }
+}
@@ -267,6 +267,9 @@ TEST_SOURCES := \
     android/icu/dev/test/timezone/TimeZoneRegressionTest.java \
     android/icu/dev/test/timezone/TimeZoneRuleTest.java \
     android/icu/dev/test/timezone/TimeZoneTest.java \
+    android/icu/impl/ICUBinaryTest.java \
+    android/icu/text/FormatPrototypeCacheTest.java \
+    android/org/kxml2/io/KXmlParserTest.java \
     android/text/SpannableStringBuilderTest.java \
     android/text/SpannableStringTest.java \
     android/text/TextUtilsTest.java \
@@ -306,6 +309,8 @@ TEST_SOURCES := \
     com/google/j2objc/security/IosSHAMessageDigestTest.java \
     com/google/j2objc/security/IosSecureRandomImplTest.java \
     com/google/j2objc/util/NativeTimeZoneTest.java \
+    com/google/j2objc/util/PrimitiveArrayListTest.java \
+    com/google/j2objc/util/PrimitiveHashMapTest.java \
     dalvik/system/JniTest.java \
     java/io/FileTest.java \
     java/lang/SystemTest.java \
@@ -680,12 +685,15 @@ TEST_SOURCES := \
     libcore/libcore/net/url/UrlUtilsTest.java \
     libcore/libcore/util/ArrayUtilsTest.java \
     libcore/libcore/util/BasicLruCacheTest.java \
+    libcore/libcore/util/ConcurrentLruCacheTest.java \
     libcore/libcore/util/HexEncodingTest.java \
     libcore/libcore/util/SneakyThrowTest.java \
     libcore/org/json/JSONArrayTest.java \
     libcore/org/json/JSONObjectTest.java \
+    libcore/org/json/JSONReaderTest.java \
     libcore/org/json/JSONStringerTest.java \
     libcore/org/json/JSONTokenerTest.java \
+    libcore/org/json/JSONWriterTest.java \
     libcore/org/json/ParsingTest.java \
     libcore/org/json/SelfUseTest.java \
     libcore/sun/util/logging/PlatformLoggerTest.java \
@@ -168,7 +168,8 @@ $(foreach root,$(TEST_RESOURCE_ROOTS),$(eval $(call resource_copy_rule,$(root)))
 #
 # See http://stackoverflow.com/questions/16279867/gmake-change-the-stack-size-limit
 # and https://savannah.gnu.org/bugs/?22010
-run-tests: link resources $(TEST_BIN) run-initialization-test run-core-size-test
+run-tests: link resources $(TEST_BIN) run-initialization-test run-core-size-test \
+  run-thin-lock-stress-test run-volatile-locks-stress-test
 	@ulimit -s 8192 && $(TEST_BIN) org.junit.runner.JUnitCore $(ALL_TESTS_CLASS)
 
 # Useful when investigating flaky tests. Example:
@@ -183,6 +184,15 @@ run-single-test: link resources $(TEST_BIN)
 run-initialization-test: resources $(TESTS_DIR)/jreinitialization
 	@$(TESTS_DIR)/jreinitialization > /dev/null 2>&1
 
+run-thin-lock-stress-test: $(TESTS_DIR)/thin_lock_stress_test
+	@$(TESTS_DIR)/thin_lock_stress_test
+
+run-volatile-locks-stress-test: $(TESTS_DIR)/volatile_locks_stress_test
+	@$(TESTS_DIR)/volatile_locks_stress_test
+
+run-volatile-locks-benchmark: $(TESTS_DIR)/volatile_locks_stress_test
+	@$(TESTS_DIR)/volatile_locks_stress_test --benchmark
+
 run-core-size-test: $(TESTS_DIR)/core_size \
   $(TESTS_DIR)/full_jre_size \
   $(TESTS_DIR)/core_plus_android_util \
@@ -306,6 +316,19 @@ $(ALL_TESTS_SOURCE): tests.mk test_sources.mk
 $(TESTS_DIR)/jreinitialization: $(MISC_TEST_ROOT)/JreInitialization.m $(DIST_JRE_EMUL_LIB)
 	@$(J2OBJCC) -o $@ -ljre_emul -ObjC -Os $(MISC_TEST_ROOT)/JreInitialization.m
 
+# Plain C, so that it can also be built and run off Apple platforms.
+$(TESTS_DIR)/thin_lock_stress_test: $(MISC_TEST_ROOT)/ThinLockStressTest.c \
+  $(EMULATION_CLASS_DIR)/JreThinLock.h $(EMULATION_CLASS_DIR)/JreThinLock.m
+	@mkdir -p $(@D)
+	@$(CC) -std=gnu11 -O2 -pthread -I$(EMULATION_CLASS_DIR) -o $@ \
+	  $(MISC_TEST_ROOT)/ThinLockStressTest.c -x c $(EMULATION_CLASS_DIR)/JreThinLock.m
+
+$(TESTS_DIR)/volatile_locks_stress_test: $(MISC_TEST_ROOT)/VolatileLocksStressTest.cc \
+  $(EMULATION_CLASS_DIR)/ARGC/VolatileLocks.h
+	@mkdir -p $(@D)
+	@$(CXX) -std=c++11 -O2 -pthread -I$(EMULATION_CLASS_DIR)/ARGC -o $@ \
+	  $(MISC_TEST_ROOT)/VolatileLocksStressTest.cc
+
 $(GEN_JAVA_DIR)/com/google/j2objc/arc/%.java: $(MISC_TEST_ROOT)/com/google/j2objc/%.java
 	@mkdir -p $(@D)
 	@echo $<
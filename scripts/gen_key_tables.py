@@ -0,0 +1,82 @@
+#!/usr/bin/python
+#
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+# http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+"""Script that generates IntKeyTable.java and LongKeyTable.java.
+
+Both classes are written from KeyTable.java.template, so that a change to one
+key type's table can't miss the other.
+
+Usage:
+  $ gen_key_tables.py [--check]
+"""
+
+import argparse
+import os
+import string
+import sys
+
+# Used by argparse to build help string.
+USAGE_STRING = """
+Script that generates IntKeyTable.java and LongKeyTable.java from
+KeyTable.java.template.
+"""
+
+UTIL_DIR = os.path.join(
+    os.path.dirname(os.path.abspath(__file__)), os.pardir,
+    "jre_emul", "Classes", "com", "google", "j2objc", "util")
+
+TEMPLATE = "KeyTable.java.template"
+
+KEY_TYPES = ["int", "long"]
+
+GENERATED_COMMENT = (
+    "// Generated from {} by scripts/gen_key_tables.py; edit the template "
+    "instead.\n\n".format(TEMPLATE))
+
+
+def Generate(template, key):
+  """Returns the source of the table class for the primitive type key."""
+  source = string.Template(template).substitute(key=key, Key=key.capitalize())
+  package = source.index("package ")
+  return source[:package] + GENERATED_COMMENT + source[package:]
+
+
+def Main():
+  """Writes the table classes, or with --check, verifies they're current."""
+  parser = argparse.ArgumentParser(description=USAGE_STRING)
+  parser.add_argument(
+      "--check",
+      action="store_true",
+      help="fail instead of writing if a generated file is out of date")
+  args = parser.parse_args()
+  with open(os.path.join(UTIL_DIR, TEMPLATE)) as f:
+    template = f.read()
+  stale = []
+  for key in KEY_TYPES:
+    path = os.path.join(UTIL_DIR, "{}KeyTable.java".format(key.capitalize()))
+    source = Generate(template, key)
+    with open(path) as f:
+      current = f.read()
+    if current == source:
+      continue
+    if args.check:
+      stale.append(path)
+    else:
+      with open(path, "w") as f:
+        f.write(source)
+  if stale:
+    sys.exit("Out of date, run gen_key_tables.py: " + ", ".join(stale))
+
+if __name__ == "__main__":
+  Main()
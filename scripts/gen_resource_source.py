@@ -65,7 +65,7 @@ def ProcessResourceFile(resource_path, output_file):
   if array_name[0] != "_":
     array_name = "_" + array_name
   array_name_hash = "0x{:02x}".format(hash(array_name) & (2**32 - 1))
-  output_file.write("\nstatic jbyte {}[] = {{".format(array_name))
+  output_file.write("\nstatic const jbyte {}[] = {{".format(array_name))
   length = 0
   file_path = os.path.join(args.sourcepath, resource_path)
   with open(file_path, "rb") as in_file:
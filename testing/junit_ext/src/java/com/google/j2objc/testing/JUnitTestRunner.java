@@ -16,21 +16,34 @@ package com.google.j2objc.testing;
 
 import com.google.j2objc.annotations.AutoreleasePool;
 import com.google.j2objc.annotations.WeakOuter;
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.StringReader;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import junit.framework.Test;
 import junit.runner.Version;
 import org.junit.internal.TextListener;
@@ -58,6 +71,19 @@ import org.junit.runners.Suite;
  * JUnit tests. This behavior can be changed by overriding {@link #isJUnitTestClass},
  * {@link #isJUnit3TestClass} or {@link #isJUnit4TestClass}.
  *
+ * Large test suites can be split between processes and threads with these properties:
+ * <ul>
+ * <li>shardIndex, shardCount: runs only the test classes of one of shardCount shards. The
+ *     TEST_SHARD_INDEX and TEST_TOTAL_SHARDS environment variables are used if they aren't set.
+ * <li>threads: the number of test classes run at the same time, or 0 for one per processor.
+ * <li>timingFile: a file with the durations of test classes in a previous run, as written to
+ *     timingOutputFile. Shards are balanced using these durations, and the longest classes
+ *     are started first.
+ * <li>timingOutputFile: a file that the duration of each test class is written to.
+ * </ul>
+ * When any of these are set, the output of each test class is printed once it finishes, followed
+ * by its duration, and a summary of all test classes is printed at the end.
+ *
  * @author iroth@google.com (Ian Roth)
  */
 public class JUnitTestRunner {
@@ -98,6 +124,13 @@ public class JUnitTestRunner {
   private final Random random = new Random(System.currentTimeMillis());
   private OutputFormat outputFormat = OutputFormat.JUNIT;
   private SortOrder sortOrder = SortOrder.ALPHABETICAL;
+  private int threads = 1;
+  private int shardIndex = 0;
+  private int shardCount = 1;
+  private String timingFile = null;
+  private String timingOutputFile = null;
+  final Map<String, Double> classDurations = new ConcurrentHashMap<>();
+  private double averageDuration = 1.0;
 
   public JUnitTestRunner() {
     this(System.err);
@@ -111,6 +144,7 @@ public class JUnitTestRunner {
     // Create JUnit test runner.
     PrintStream nsLogOut = new PrintStream(new NSLogOutputStream(), true);
     JUnitTestRunner runner = new JUnitTestRunner(nsLogOut);
+    runner.loadShardFromEnvironment();
     runner.loadPropertiesFromResource(PROPERTIES_FILE_NAME);
     return runner.run();
   }
@@ -140,26 +174,190 @@ public class JUnitTestRunner {
     }
     Set<Class<?>> classesSet = getTestClasses();
     Class<?>[] classes = classesSet.toArray(new Class<?>[classesSet.size()]);
+    if (threads == 1 && shardCount == 1 && timingFile == null && timingOutputFile == null) {
+      sortClasses(classes, sortOrder);
+      RunListener listener = newRunListener(outputFormat);
+      return run(classes, listener);
+    }
+    if (shardCount < 1 || shardIndex < 0 || shardIndex >= shardCount) {
+      onError(new IllegalArgumentException(
+          String.format("Invalid shard %d of %d shards", shardIndex, shardCount)));
+      return 1;
+    }
+    if (timingFile != null) {
+      loadClassDurations(timingFile);
+    }
+    if (shardCount > 1) {
+      classes = getShard(classes, shardIndex, shardCount);
+    }
     sortClasses(classes, sortOrder);
-    RunListener listener = newRunListener(outputFormat);
-    return run(classes, listener);
+    if (!classDurations.isEmpty()) {
+      sortByDuration(classes);
+    }
+    if (outputFormat == OutputFormat.JUNIT) {
+      out.println("JUnit version " + Version.id());
+    }
+    int result = runInParallel(classes, threads > 0 ? threads : Runtime.getRuntime()
+        .availableProcessors());
+    if (timingOutputFile != null) {
+      saveClassDurations(timingOutputFile);
+    }
+    return result;
   }
 
   /**
    * Returns a new {@link RunListener} instance for the given {@param outputFormat}.
    */
   public RunListener newRunListener(OutputFormat outputFormat) {
+    if (outputFormat == OutputFormat.JUNIT) {
+      out.println("JUnit version " + Version.id());
+    }
+    return newRunListener(outputFormat, out);
+  }
+
+  private RunListener newRunListener(OutputFormat outputFormat, PrintStream out) {
     switch (outputFormat) {
       case JUNIT:
-        out.println("JUnit version " + Version.id());
         return new TextListener(out);
       case GTM_UNIT_TESTING:
-        return new GtmUnitTestingTextListener();
+        return new GtmUnitTestingTextListener(out);
       default:
         throw new IllegalArgumentException("outputFormat");
     }
   }
 
+  /**
+   * Runs {@param classes} on {@param threadCount} threads, in order. The output of each class is
+   * buffered and printed when the class finishes, so that the output of classes that run at the
+   * same time isn't interleaved.
+   * @returns Zero if all tests pass, non-zero otherwise.
+   */
+  private int runInParallel(final Class<?>[] classes, int threadCount) {
+    final AtomicInteger nextClass = new AtomicInteger();
+    final AtomicBoolean hasError = new AtomicBoolean();
+    final ResultCounter counter = new ResultCounter();
+    long startTime = System.currentTimeMillis();
+    Runnable worker = new Runnable() {
+      @Override
+      public void run() {
+        for (int i = nextClass.getAndIncrement(); i < classes.length;
+            i = nextClass.getAndIncrement()) {
+          if (!runTestClass(classes[i], counter)) {
+            hasError.set(true);
+          }
+        }
+      }
+    };
+    List<Thread> workers = new ArrayList<>();
+    for (int i = 1; i < Math.min(threadCount, classes.length); i++) {
+      Thread thread = new Thread(worker, "JUnitTestRunner-" + i);
+      thread.start();
+      workers.add(thread);
+    }
+    worker.run();
+    for (Thread thread : workers) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        onError(e);
+        hasError.set(true);
+      }
+    }
+    double elapsedSeconds = 0.001 * (System.currentTimeMillis() - startTime);
+    counter.printSummary(classes.length, threadCount, elapsedSeconds);
+    return hasError.get() ? 1 : 0;
+  }
+
+  /**
+   * Runs the tests of {@param testClass}, records its duration and prints its output.
+   * @returns true if all tests pass.
+   */
+  @AutoreleasePool
+  private boolean runTestClass(Class<?> testClass, ResultCounter counter) {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    PrintStream classOut = new PrintStream(buffer, true);
+    JUnitCore junitCore = new JUnitCore();
+    junitCore.addListener(newRunListener(outputFormat, classOut));
+    junitCore.addListener(counter);
+    boolean success;
+    long startTime = System.currentTimeMillis();
+    try {
+      success = junitCore.run(testClass).wasSuccessful();
+    } catch (Throwable t) {
+      t.printStackTrace(classOut);
+      success = false;
+    }
+    double elapsedSeconds = 0.001 * (System.currentTimeMillis() - startTime);
+    classDurations.put(testClass.getName(), elapsedSeconds);
+    classOut.printf("Test class '%s' finished in %.3f seconds.\n", replaceAll(testClass.getName()),
+        elapsedSeconds);
+    classOut.flush();
+    printLines(buffer.toString());
+    return success;
+  }
+
+  /**
+   * Prints {@param output} to the runner's output one line at a time, without lines from other
+   * threads in between.
+   */
+  private void printLines(String output) {
+    synchronized (out) {
+      try {
+        BufferedReader reader = new BufferedReader(new StringReader(output));
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+          out.println(line);
+        }
+      } catch (IOException e) {
+        throw new AssertionError(e);
+      }
+    }
+  }
+
+  /**
+   * Returns the classes in shard {@param index} of {@param count}. The classes are assigned
+   * longest first, each to the shard with the shortest total duration so far. Classes without a
+   * recorded duration are assumed to take the average duration, so without a timing file the
+   * classes are dealt out to the shards in turn. Each shard makes the same assignment, given the
+   * same classes and timing file.
+   */
+  Class<?>[] getShard(Class<?>[] classes, int index, int count) {
+    Class<?>[] sorted = classes.clone();
+    sortClasses(sorted, SortOrder.ALPHABETICAL);
+    sortByDuration(sorted);
+    double[] shardDurations = new double[count];
+    List<Class<?>> shard = new ArrayList<>();
+    for (Class<?> testClass : sorted) {
+      int shortest = 0;
+      for (int i = 1; i < count; i++) {
+        if (shardDurations[i] < shardDurations[shortest]) {
+          shortest = i;
+        }
+      }
+      shardDurations[shortest] += getEstimatedDuration(testClass);
+      if (shortest == index) {
+        shard.add(testClass);
+      }
+    }
+    return shard.toArray(new Class<?>[shard.size()]);
+  }
+
+  /**
+   * Stably sorts {@param classes} by their recorded durations, longest first.
+   */
+  void sortByDuration(Class<?>[] classes) {
+    Arrays.sort(classes, new Comparator<Class<?>>() {
+      @Override
+      public int compare(Class<?> class1, Class<?> class2) {
+        return Double.compare(getEstimatedDuration(class2), getEstimatedDuration(class1));
+      }
+    });
+  }
+
+  private double getEstimatedDuration(Class<?> cls) {
+    Double duration = classDurations.get(cls.getName());
+    return duration != null ? duration : averageDuration;
+  }
+
   /**
    * Sorts the classes given in {@param classes} according to {@param sortOrder}.
    */
@@ -324,6 +522,75 @@ public class JUnitTestRunner {
     return testClass.getCanonicalName().contains(pattern);
   }
 
+  /**
+   * Reads test class durations in seconds, as written by {@link #saveClassDurations}.
+   */
+  void loadClassDurations(String path) {
+    Properties properties = new Properties();
+    try (InputStream stream = new FileInputStream(path)) {
+      properties.load(stream);
+    } catch (IOException e) {
+      // A missing timing file only makes the shards less balanced.
+      onError(e);
+      return;
+    }
+    for (String className : properties.stringPropertyNames()) {
+      try {
+        classDurations.put(className, Double.parseDouble(properties.getProperty(className)));
+      } catch (NumberFormatException e) {
+        onError(e);
+      }
+    }
+    if (!classDurations.isEmpty()) {
+      double total = 0;
+      for (double duration : classDurations.values()) {
+        total += duration;
+      }
+      averageDuration = total / classDurations.size();
+    }
+  }
+
+  /**
+   * Writes the durations of test classes, including ones from the timing file that weren't run,
+   * so that shards can share it.
+   */
+  void saveClassDurations(String path) {
+    try (PrintStream stream = new PrintStream(new FileOutputStream(path), false, "UTF-8")) {
+      stream.println("# Test class durations in seconds.");
+      for (Map.Entry<String, Double> entry : new TreeMap<>(classDurations).entrySet()) {
+        stream.printf("%s=%.3f\n", entry.getKey(), entry.getValue());
+      }
+    } catch (IOException e) {
+      onError(e);
+    }
+  }
+
+  /**
+   * Reads the shard to run from the environment variables used by Bazel's test sharding.
+   */
+  private void loadShardFromEnvironment() {
+    String index = System.getenv("TEST_SHARD_INDEX");
+    String count = System.getenv("TEST_TOTAL_SHARDS");
+    if (index == null || count == null) {
+      return;
+    }
+    try {
+      shardIndex = Integer.parseInt(index);
+      shardCount = Integer.parseInt(count);
+    } catch (NumberFormatException e) {
+      onError(e);
+    }
+    // Tells the test runner that sharding is supported.
+    String statusFile = System.getenv("TEST_SHARD_STATUS_FILE");
+    if (statusFile != null) {
+      try {
+        new File(statusFile).createNewFile();
+      } catch (IOException e) {
+        onError(e);
+      }
+    }
+  }
+
   private void loadProperties(InputStream stream) {
     Properties properties = new Properties();
     try {
@@ -339,6 +606,20 @@ public class JUnitTestRunner {
           outputFormat = OutputFormat.valueOf(value);
         } else if (key.equals("sortOrder")) {
           sortOrder = SortOrder.valueOf(value);
+        } else if (key.equals("threads")) {
+          int n = Integer.parseInt(value);
+          if (n < 0) {
+            throw new IllegalArgumentException("Invalid thread count: " + value);
+          }
+          threads = n;
+        } else if (key.equals("shardIndex")) {
+          shardIndex = Integer.parseInt(value);
+        } else if (key.equals("shardCount")) {
+          shardCount = Integer.parseInt(value);
+        } else if (key.equals("timingFile")) {
+          timingFile = value;
+        } else if (key.equals("timingOutputFile")) {
+          timingOutputFile = value;
         } else if (value.equals(TestInclusion.RUN_TEST.name())) {
           testsToRun.add(key);
         } else if (value.equals(TestInclusion.INCLUDE.name())) {
@@ -384,6 +665,7 @@ public class JUnitTestRunner {
   @WeakOuter
   private class GtmUnitTestingTextListener extends RunListener {
 
+    private final PrintStream out;
     private int numTests = 0;
     private int numFailures = 0;
     private final int numUnexpected = 0; // Never changes, but required in output.
@@ -391,6 +673,10 @@ public class JUnitTestRunner {
     private Failure testFailure;
     private double testStartTime;
 
+    GtmUnitTestingTextListener(PrintStream out) {
+      this.out = out;
+    }
+
     @Override
     public void testRunFinished(Result result) throws Exception {
       printf("Executed %d tests, with %d failures (%d unexpected)\n", numTests, numFailures,
@@ -443,6 +729,63 @@ public class JUnitTestRunner {
     }
   }
 
+  /**
+   * Counts the results of all test classes, which may run at the same time, and prints a summary
+   * of them in the output format.
+   */
+  @WeakOuter
+  private class ResultCounter extends RunListener {
+
+    private final AtomicInteger numTests = new AtomicInteger();
+    private final AtomicInteger numIgnored = new AtomicInteger();
+    private final Queue<Failure> failures = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void testFinished(Description description) throws Exception {
+      numTests.incrementAndGet();
+    }
+
+    @Override
+    public void testFailure(Failure failure) throws Exception {
+      failures.add(failure);
+    }
+
+    @Override
+    public void testIgnored(Description description) throws Exception {
+      numIgnored.incrementAndGet();
+    }
+
+    void printSummary(int numClasses, int numThreads, double elapsedSeconds) {
+      StringBuilder sb = new StringBuilder();
+      sb.append(String.format("\nRan %d test classes on %d threads in %.3f seconds.\n",
+          numClasses, numThreads, elapsedSeconds));
+      switch (outputFormat) {
+        case JUNIT:
+          if (failures.isEmpty()) {
+            sb.append(String.format("OK (%d tests)\n", numTests.get()));
+          } else {
+            sb.append("Failed tests:\n");
+            for (Failure failure : failures) {
+              sb.append("  ").append(failure.getTestHeader()).append('\n');
+            }
+            sb.append(String.format("FAILURES!!!\nTests run: %d,  Failures: %d\n",
+                numTests.get(), failures.size()));
+          }
+          if (numIgnored.get() > 0) {
+            sb.append(String.format("Ignored: %d\n", numIgnored.get()));
+          }
+          break;
+        case GTM_UNIT_TESTING:
+          sb.append(String.format("Executed %d tests, with %d failures (0 unexpected)\n",
+              numTests.get(), failures.size()));
+          break;
+        default:
+          throw new IllegalArgumentException("outputFormat");
+      }
+      printLines(sb.toString());
+    }
+  }
+
   /**
    * Logs test runner output using NSLog().
    */
@@ -0,0 +1,171 @@
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package com.google.j2objc.testing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for JUnitTestRunner's sharding and timing files. */
+@RunWith(JUnit4.class)
+public class JUnitTestRunnerTest {
+
+  private static final Class<?>[] CLASSES = {
+    Boolean.class, Byte.class, Character.class, Double.class, Float.class, Integer.class,
+    Long.class, Object.class, Short.class, String.class, StringBuilder.class, Void.class,
+  };
+
+  @Test
+  public void everyClassIsInExactlyOneShard() throws IOException {
+    JUnitTestRunner timedRunner = newRunner();
+    timedRunner.loadClassDurations(writeTimingFile(
+        "java.lang.Integer=9.5", "java.lang.String=0.25", "java.lang.Void=3"));
+    for (JUnitTestRunner runner : new JUnitTestRunner[] { newRunner(), timedRunner }) {
+      for (int count = 1; count <= CLASSES.length + 1; count++) {
+        Map<Class<?>, Integer> shardOfClass = new HashMap<>();
+        for (int index = 0; index < count; index++) {
+          for (Class<?> testClass : runner.getShard(CLASSES, index, count)) {
+            Integer previous = shardOfClass.put(testClass, index);
+            assertEquals(testClass + " is in two shards", null, previous);
+          }
+        }
+        assertEquals(CLASSES.length, shardOfClass.size());
+      }
+    }
+  }
+
+  @Test
+  public void shardsWithoutTimingFileAreDealtInTurn() {
+    JUnitTestRunner runner = newRunner();
+    assertArrayEquals(
+        new Class<?>[] { Boolean.class, Double.class, Long.class, String.class },
+        runner.getShard(CLASSES, 0, 3));
+    assertArrayEquals(
+        new Class<?>[] { Character.class, Integer.class, Short.class, Void.class },
+        runner.getShard(CLASSES, 2, 3));
+  }
+
+  @Test
+  public void shardsAreAssignedLongestFirstToShortestShard() throws IOException {
+    JUnitTestRunner runner = newRunner();
+    runner.loadClassDurations(writeTimingFile(
+        "java.lang.Byte=8", "java.lang.Double=7", "java.lang.Float=6", "java.lang.Integer=5",
+        "java.lang.Long=4"));
+    Class<?>[] classes = { Long.class, Integer.class, Float.class, Double.class, Byte.class };
+    // 8 and 7 start the shards, 6 joins 7, 5 joins 8, and 4 breaks the 13-13 tie to shard 0.
+    assertArrayEquals(
+        new Class<?>[] { Byte.class, Integer.class, Long.class },
+        runner.getShard(classes, 0, 2));
+    assertArrayEquals(
+        new Class<?>[] { Double.class, Float.class }, runner.getShard(classes, 1, 2));
+  }
+
+  @Test
+  public void shardsAreBalanced() throws IOException {
+    List<String> lines = new ArrayList<>();
+    double longest = 0;
+    for (int i = 0; i < CLASSES.length; i++) {
+      double duration = (i * 7 % 12) + 0.5;
+      lines.add(CLASSES[i].getName() + "=" + duration);
+      longest = Math.max(longest, duration);
+    }
+    JUnitTestRunner runner = newRunner();
+    runner.loadClassDurations(writeTimingFile(lines.toArray(new String[0])));
+    for (int count = 2; count <= 5; count++) {
+      double min = Double.MAX_VALUE;
+      double max = 0;
+      for (int index = 0; index < count; index++) {
+        double total = 0;
+        for (Class<?> testClass : runner.getShard(CLASSES, index, count)) {
+          total += runner.classDurations.get(testClass.getName());
+        }
+        min = Math.min(min, total);
+        max = Math.max(max, total);
+      }
+      // Each class goes to the shortest shard, so no shard can end up longer than the shortest
+      // one by more than a single class.
+      assertTrue(count + " shards: " + min + " to " + max, max - min <= longest);
+    }
+  }
+
+  @Test
+  public void sortByDurationIsStable() throws IOException {
+    JUnitTestRunner runner = newRunner();
+    runner.loadClassDurations(writeTimingFile("java.lang.Long=2", "java.lang.Void=0.5"));
+    // Classes without a duration take the average, 1.25 seconds.
+    Class<?>[] classes = { Void.class, String.class, Long.class, Byte.class };
+    runner.sortByDuration(classes);
+    assertArrayEquals(
+        new Class<?>[] { Long.class, String.class, Byte.class, Void.class }, classes);
+  }
+
+  @Test
+  public void savedTimingFileLoadsBackToSameDurations() throws IOException {
+    JUnitTestRunner runner = newRunner();
+    runner.loadClassDurations(writeTimingFile(
+        "# Comments are ignored.", "java.lang.Integer=9.5", "java.lang.String=0.125",
+        "java.lang.Void=120", "com.example.NotRunTest=0.001"));
+    assertEquals(4, runner.classDurations.size());
+    File saved = File.createTempFile("timing", ".properties");
+    saved.deleteOnExit();
+    runner.saveClassDurations(saved.getPath());
+
+    JUnitTestRunner loaded = newRunner();
+    loaded.loadClassDurations(saved.getPath());
+    assertEquals(runner.classDurations, loaded.classDurations);
+    for (int count = 1; count <= 4; count++) {
+      for (int index = 0; index < count; index++) {
+        assertArrayEquals(
+            runner.getShard(CLASSES, index, count), loaded.getShard(CLASSES, index, count));
+      }
+    }
+  }
+
+  @Test
+  public void missingOrMalformedTimingFileIsIgnored() throws IOException {
+    JUnitTestRunner runner = newRunner();
+    runner.loadClassDurations(new File("does-not-exist.properties").getAbsolutePath());
+    runner.loadClassDurations(writeTimingFile("java.lang.Long=slow", "java.lang.Void=2"));
+    assertEquals(1, runner.classDurations.size());
+    assertEquals(Double.valueOf(2), runner.classDurations.get("java.lang.Void"));
+  }
+
+  private static JUnitTestRunner newRunner() {
+    return new JUnitTestRunner(new PrintStream(new ByteArrayOutputStream()));
+  }
+
+  private static String writeTimingFile(String... lines) throws IOException {
+    File file = File.createTempFile("timing", ".properties");
+    file.deleteOnExit();
+    try (PrintStream out = new PrintStream(new FileOutputStream(file), false, "UTF-8")) {
+      for (String line : lines) {
+        out.println(line);
+      }
+    }
+    return file.getPath();
+  }
+}
@@ -82,6 +82,10 @@ public class Options {
   private boolean staticAccessorMethods = false;
   private boolean classProperties = false;
   private String processors = null;
+  private boolean integratedAnnotationProcessing = false;
+  private int autoreleasePoolThreshold = 0;
+  private boolean monitorFunctions = false;
+  private boolean fuseStreams = false;
   private boolean disallowInheritedConstructors = true;
   private boolean nullability = false;
   private boolean defaultNonnull = false;
@@ -122,6 +126,8 @@ public class Options {
   private static final String X_HELP_MSG_KEY = "x-help-message";
   private static final String XBOOTCLASSPATH = "-Xbootclasspath:";
   private static final String TIMING_INFO_ARG = "--timing-info";
+  private static final String AUTORELEASE_POOLS_ARG = "-Xauto-autorelease-pools";
+  private static final int DEFAULT_AUTORELEASE_POOL_THRESHOLD = 4;
 
   private static final Pattern KNOWN_FILE_SUFFIX_PATTERN
       = Pattern.compile(".*\\.(java|class|jar|zip)");
@@ -504,6 +510,8 @@ public class Options {
         processors = getArgValue(args, arg);
       } else if (arg.equals("--allow-inherited-constructors")) {
         disallowInheritedConstructors = false;
+      } else if (arg.equals("--monitor-functions")) {
+        monitorFunctions = true;
       } else if (arg.equals("--nullability")) {
         nullability = true;
       } else if (arg.equals("--no-nullability")) {
@@ -514,6 +522,22 @@ public class Options {
         lintArgument = arg;
       } else if (arg.equals("-Xtranslate-bootclasspath")) {
         translateBootclasspath = true;
+      } else if (arg.equals("-Xintegrated-annotation-processing")) {
+        integratedAnnotationProcessing = true;
+      } else if (arg.equals(AUTORELEASE_POOLS_ARG)) {
+        autoreleasePoolThreshold = DEFAULT_AUTORELEASE_POOL_THRESHOLD;
+      } else if (arg.startsWith(AUTORELEASE_POOLS_ARG + ':')) {
+        String thresholdArg = arg.substring(AUTORELEASE_POOLS_ARG.length() + 1);
+        try {
+          autoreleasePoolThreshold = Integer.parseInt(thresholdArg);
+        } catch (NumberFormatException e) {
+          autoreleasePoolThreshold = 0;
+        }
+        if (autoreleasePoolThreshold <= 0) {
+          usage("invalid " + AUTORELEASE_POOLS_ARG + " argument");
+        }
+      } else if (arg.equals("-Xfuse-streams")) {
+        fuseStreams = true;
       } else if (arg.equals("-Xdump-ast")) {
         dumpAST = true;
       } else if (arg.equals("-Xtranslate-classfiles")) {
@@ -1011,6 +1035,55 @@ public class Options {
     this.processors = processors;
   }
 
+  public boolean integratedAnnotationProcessing() {
+    return integratedAnnotationProcessing;
+  }
+
+  @VisibleForTesting
+  public void setIntegratedAnnotationProcessing(boolean b) {
+    integratedAnnotationProcessing = b;
+  }
+
+  /**
+   * Returns the minimum estimated number of allocations per iteration for a
+   * loop body to be wrapped in an autorelease pool, or zero if loops aren't
+   * wrapped automatically.
+   */
+  public int autoreleasePoolThreshold() {
+    return autoreleasePoolThreshold;
+  }
+
+  @VisibleForTesting
+  public void setAutoreleasePoolThreshold(int threshold) {
+    autoreleasePoolThreshold = threshold;
+  }
+
+  /**
+   * Returns true if synchronized statements and methods are translated to
+   * calls to JreMonitorEnter() and JreMonitorExit() instead of @synchronized.
+   */
+  public boolean useMonitorFunctions() {
+    return monitorFunctions;
+  }
+
+  @VisibleForTesting
+  public void setMonitorFunctions(boolean b) {
+    monitorFunctions = b;
+  }
+
+  /**
+   * Returns true if simple sequential stream pipelines are translated to
+   * loops.
+   */
+  public boolean fuseStreams() {
+    return fuseStreams;
+  }
+
+  @VisibleForTesting
+  public void setFuseStreams(boolean b) {
+    fuseStreams = b;
+  }
+
   public boolean disallowInheritedConstructors() {
     return disallowInheritedConstructors;
   }
@@ -1129,4 +1202,9 @@ public class Options {
   public boolean hasCustomImportRule() {
 	return hasCustomImportRule;
   }
+
+  @VisibleForTesting
+  public void setHasCustomImportRule(boolean b) {
+    hasCustomImportRule = b;
+  }
 }
@@ -18,7 +18,7 @@ package com.google.devtools.j2objc.ast;
  * A link between a parent and child node that allows for efficient swapping of
  * nodes and handles reparenting of the old and new node when setting a child.
  */
-class ChildLink<T extends TreeNode> {
+class ChildLink<T extends TreeNode> implements TreeNode.Owner {
 
   private final Class<T> childType;
   private final TreeNode parent;
@@ -33,6 +33,7 @@ class ChildLink<T extends TreeNode> {
     return new ChildLink<T>(childType, parent);
   }
 
+  @Override
   public TreeNode getParent() {
     return parent;
   }
@@ -66,6 +67,16 @@ class ChildLink<T extends TreeNode> {
     set((T) newChild);
   }
 
+  @Override
+  public void removeChild(TreeNode oldChild) {
+    remove();
+  }
+
+  @Override
+  public void replaceChild(TreeNode oldChild, TreeNode newChild) {
+    setDynamic(newChild);
+  }
+
   @SuppressWarnings("unchecked")
   public void copyFrom(T other) {
     set(other != null ? (T) other.copy() : null);
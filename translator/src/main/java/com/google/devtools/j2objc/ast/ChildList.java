@@ -11,22 +11,41 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.google.devtools.j2objc.ast;
 
 import java.util.AbstractList;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * List type for lists of child nodes. Nodes added or removed from a ChildList
  * are reparented appropriately.
+ *
+ * <p>Children are stored directly in an array, and each child's owner is the
+ * list itself, so a list costs one array no matter how many children it has.
+ * Each child also records its index, so removing or replacing it through the
+ * node doesn't search the list.
  */
-class ChildList<T extends TreeNode> extends AbstractList<T> {
+class ChildList<T extends TreeNode> extends AbstractList<T> implements TreeNode.Owner {
+
+  private static final TreeNode[] EMPTY = new TreeNode[0];
 
   private final Class<T> childType;
   private final TreeNode parent;
-  private ArrayListImpl<ChildLink<T>> delegate = new ArrayListImpl<>();
+  private TreeNode[] elements = EMPTY;
+  private int size = 0;
+
+  // The number of accept() calls iterating over the current elements array.
+  // While nonzero, the array is copied before any child is added or removed,
+  // so those iterations continue over the children present when they started.
+  private int iterating = 0;
+
+  // The arrays replaced by such copies while iterations over them are still
+  // in progress. Children replaced in the list are replaced in these too, and
+  // removed children are cleared, so those iterations visit each replacement
+  // in place of the node it replaced, and skip removed nodes even if they are
+  // added back.
+  private Snapshot snapshots = null;
 
   public ChildList(Class<T> childType, TreeNode parent) {
     this.childType = childType;
@@ -38,115 +57,221 @@ class ChildList<T extends TreeNode> extends AbstractList<T> {
   }
 
   @Override
+  public TreeNode getParent() {
+    return parent;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
   public T get(int index) {
-    return delegate.get(index).get();
+    checkIndex(index, size);
+    return (T) elements[index];
   }
 
   @Override
   public int size() {
-    return delegate.size();
+    return size;
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public T set(int index, T node) {
-    ChildLink<T> link = delegate.get(index);
-    T oldNode = link.get();
-    link.set(node);
+    checkIndex(index, size);
+    T oldNode = (T) elements[index];
+    if (oldNode != node) {
+      if (oldNode != null) {
+        oldNode.setOwner(null);
+        oldNode.setOwnerIndex(-1);
+      }
+      if (node != null) {
+        node.setOwner(this);
+        node.setOwnerIndex(index);
+      }
+      // Replaced in place, so that iterations in progress visit the new node.
+      elements[index] = node;
+      if (oldNode != null) {
+        replaceInSnapshots(oldNode, node);
+      }
+    }
     return oldNode;
   }
 
   @Override
   public void add(int index, T node) {
-    ChildLink<T> link = new Link(childType, parent);
-    link.set(node);
-    modifiableDelegate().add(index, link);
+    checkIndex(index, size + 1);
+    if (node != null) {
+      node.setOwner(this);
+    }
+    if (iterating != 0 || size == elements.length) {
+      TreeNode[] newElements = new TreeNode[Math.max(size + 1, size + (size >> 1))];
+      System.arraycopy(elements, 0, newElements, 0, index);
+      System.arraycopy(elements, index, newElements, index + 1, size - index);
+      replaceElements(newElements);
+    } else {
+      System.arraycopy(elements, index, elements, index + 1, size - index);
+    }
+    elements[index] = node;
+    size++;
+    updateOwnerIndexes(index);
   }
 
   @Override
   public T remove(int index) {
-    ChildLink<T> link = modifiableDelegate().remove(index);
-    T node = link.get();
-    link.set(null);
+    T node = get(index);
+    removeRange(index, index + 1);
     return node;
   }
 
-  @SuppressWarnings("unchecked")
-  public void copyFrom(List<T> other) {
-    for (T elem : other) {
-      add((T) elem.copy());
+  @Override
+  protected void removeRange(int fromIndex, int toIndex) {
+    for (int i = fromIndex; i < toIndex; i++) {
+      TreeNode node = elements[i];
+      if (node != null) {
+        node.setOwner(null);
+        node.setOwnerIndex(-1);
+        replaceInSnapshots(node, null);
+      }
+    }
+    int newSize = size - (toIndex - fromIndex);
+    if (iterating != 0) {
+      TreeNode[] newElements = newSize == 0 ? EMPTY : new TreeNode[newSize];
+      System.arraycopy(elements, 0, newElements, 0, fromIndex);
+      System.arraycopy(elements, toIndex, newElements, fromIndex, size - toIndex);
+      TreeNode[] oldElements = elements;
+      replaceElements(newElements);
+      // The iterations over the old array skip the removed nodes.
+      Arrays.fill(oldElements, fromIndex, toIndex, null);
+    } else {
+      System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+      Arrays.fill(elements, newSize, size, null);
     }
+    size = newSize;
+    updateOwnerIndexes(fromIndex);
   }
 
-  void replaceAll(List<T> other) {
-    clear();
-    addAll(other);
+  private void replaceElements(TreeNode[] newElements) {
+    if (iterating != 0) {
+      snapshots = new Snapshot(elements, iterating, snapshots);
+      iterating = 0;
+    }
+    elements = newElements;
   }
 
-  public void accept(TreeVisitor visitor) {
-    if (!delegate.isEmpty()) {
-      ArrayListImpl<ChildLink<T>> childLinks = delegate;
-      childLinks.incrementCount();
-      for (ChildLink<?> link : childLinks) {
-        link.accept(visitor);
+  private void updateOwnerIndexes(int fromIndex) {
+    for (int i = fromIndex; i < size; i++) {
+      if (elements[i] != null) {
+        elements[i].setOwnerIndex(i);
       }
-      childLinks.decrementCount();
     }
   }
 
-  @Override
-  public String toString() {
-    return delegate.toString();
+  private void replaceInSnapshots(TreeNode oldNode, TreeNode newNode) {
+    for (Snapshot snapshot = snapshots; snapshot != null; snapshot = snapshot.next) {
+      TreeNode[] children = snapshot.children;
+      for (int i = 0; i < children.length; i++) {
+        if (children[i] == oldNode) {
+          children[i] = newNode;
+          break;
+        }
+      }
+    }
   }
 
-  /**
-   * Returns an ArrayListImpl that is safe to modify. If delegate.count does not equal to zero,
-   * returns a copy of delegate.
-   */
-  private ArrayListImpl<ChildLink<T>> modifiableDelegate() {
-    if (delegate.getCount() != 0) {
-      delegate = new ArrayListImpl<>(delegate);
-    }
-    return delegate;
+  @Override
+  public void removeChild(TreeNode child) {
+    remove(indexOfChild(child));
   }
 
-  private class Link extends ChildLink<T> {
+  @Override
+  @SuppressWarnings("unchecked")
+  public void replaceChild(TreeNode child, TreeNode newChild) {
+    assert newChild == null || childType.isInstance(newChild)
+        : "Cannot assign node of type " + newChild.getClass().getName() + " to child of type "
+            + childType.getName();
+    set(indexOfChild(child), (T) newChild);
+  }
 
-    public Link(Class<T> childType, TreeNode parent) {
-      super(childType, parent);
+  private int indexOfChild(TreeNode child) {
+    int index = child.getOwnerIndex();
+    if (index < 0 || index >= size || elements[index] != child) {
+      throw new AssertionError("Node is not a child of this list");
     }
+    return index;
+  }
 
-    @Override
-    public void remove() {
-      super.remove();
-      modifiableDelegate().remove(this);
+  @SuppressWarnings("unchecked")
+  public void copyFrom(List<T> other) {
+    if (size + other.size() > elements.length && iterating == 0) {
+      elements = Arrays.copyOf(elements, size + other.size());
+    }
+    for (T elem : other) {
+      add((T) elem.copy());
     }
   }
 
-  /**
-   * Mutation-safe ArrayList. Increment count before iterating through the list and decrement count
-   * after iteration is complete. If count equals to zero, it's safe to mutate the list.
-   */
-  private static class ArrayListImpl<T> extends ArrayList<T> {
-    private int count = 0;
+  void replaceAll(List<T> other) {
+    clear();
+    addAll(other);
+  }
 
-    public ArrayListImpl() {
-      super();
+  public void accept(TreeVisitor visitor) {
+    if (size != 0) {
+      TreeNode[] children = elements;
+      int count = size;
+      iterating++;
+      try {
+        for (int i = 0; i < count; i++) {
+          TreeNode child = children[i];
+          if (child != null) {
+            child.accept(visitor);
+          }
+        }
+      } finally {
+        if (children == elements) {
+          iterating--;
+        } else {
+          endSnapshotIteration(children);
+        }
+      }
     }
+  }
 
-    public ArrayListImpl(ArrayListImpl<T> list) {
-      super(list);
+  private void endSnapshotIteration(TreeNode[] children) {
+    Snapshot previous = null;
+    for (Snapshot snapshot = snapshots; snapshot != null; snapshot = snapshot.next) {
+      if (snapshot.children == children) {
+        if (--snapshot.iterating == 0) {
+          if (previous == null) {
+            snapshots = snapshot.next;
+          } else {
+            previous.next = snapshot.next;
+          }
+        }
+        return;
+      }
+      previous = snapshot;
     }
+    throw new AssertionError("No iteration over this array is in progress");
+  }
 
-    public int getCount() {
-      return count;
+  private void checkIndex(int index, int limit) {
+    if (index < 0 || index >= limit) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
     }
+  }
 
-    public void incrementCount() {
-      ++count;
-    }
+  /**
+   * An array that iterations are still visiting after the list stopped using it.
+   */
+  private static class Snapshot {
+    private final TreeNode[] children;
+    private int iterating;
+    private Snapshot next;
 
-    public void decrementCount() {
-      --count;
+    Snapshot(TreeNode[] children, int iterating, Snapshot next) {
+      this.children = children;
+      this.iterating = iterating;
+      this.next = next;
     }
   }
 }
@@ -30,6 +30,7 @@ public class FunctionDeclaration extends BodyDeclaration {
 
   private String name = null;
   private boolean returnsRetained = false;
+  private boolean isConstructor = false;
   private final ChildLink<Type> returnType = ChildLink.create(Type.class, this);
   private final ChildList<SingleVariableDeclaration> parameters =
       ChildList.create(SingleVariableDeclaration.class, this);
@@ -41,6 +42,7 @@ public class FunctionDeclaration extends BodyDeclaration {
     super(other);
     name = other.getName();
     returnsRetained = other.returnsRetained();
+    isConstructor = other.isConstructor();
     returnType.copyFrom(other.getReturnType());
     parameters.copyFrom(other.getParameters());
     body.copyFrom(other.getBody());
@@ -70,6 +72,18 @@ public class FunctionDeclaration extends BodyDeclaration {
     returnsRetained = value;
   }
 
+  /**
+   * Returns true if this function holds the body of a constructor, with the
+   * instance being initialized passed as its first parameter.
+   */
+  public boolean isConstructor() {
+    return isConstructor;
+  }
+
+  public void setIsConstructor(boolean value) {
+    isConstructor = value;
+  }
+
   public Type getReturnType() {
     return returnType.get();
   }
@@ -19,7 +19,9 @@ package com.google.devtools.j2objc.ast;
  */
 public abstract class TreeNode {
 
-  private ChildLink<? extends TreeNode> owner = null;
+  private Owner owner = null;
+  // The node's index in its owner, when that is a ChildList.
+  private int ownerIndex = -1;
   private int startPosition = -1;
   private int length = 0;
   private int lineNumber = -1;
@@ -39,20 +41,32 @@ public abstract class TreeNode {
     return owner == null ? null : owner.getParent();
   }
 
-  /* package */ void setOwner(ChildLink<? extends TreeNode> newOwner) {
+  /* package */ Owner getOwner() {
+    return owner;
+  }
+
+  /* package */ void setOwner(Owner newOwner) {
     assert owner == null || newOwner == null : "Node is already parented";
     owner = newOwner;
   }
 
+  /* package */ int getOwnerIndex() {
+    return ownerIndex;
+  }
+
+  /* package */ void setOwnerIndex(int index) {
+    ownerIndex = index;
+  }
+
   public void remove() {
     if (owner != null) {
-      owner.remove();
+      owner.removeChild(this);
     }
   }
 
   public void replaceWith(TreeNode other) {
     assert owner != null : "Can't replace a parentless node.";
-    owner.setDynamic(other);
+    owner.replaceChild(this, other);
   }
 
   public final int getStartPosition() {
@@ -129,6 +143,19 @@ public abstract class TreeNode {
     }
   }
 
+  /**
+   * Holds a node as a child of its parent: either a {@link ChildLink} or a
+   * {@link ChildList}.
+   */
+  /* package */ interface Owner {
+
+    TreeNode getParent();
+
+    void removeChild(TreeNode child);
+
+    void replaceChild(TreeNode child, TreeNode newChild);
+  }
+
   /**
    * Enumeration of all the node types. Useful for switch statements.
    */
@@ -725,6 +725,20 @@ public class StatementGenerator extends UnitTreeVisitor {
 
   @Override
   public boolean visit(SynchronizedStatement node) {
+    if (options.useMonitorFunctions()) {
+      // The monitor is exited by a cleanup when the enclosing block's scope ends.
+      buffer.append("{\nJ2OBJC_SYNCHRONIZED(");
+      node.getExpression().accept(this);
+      buffer.append(");\n");
+      Block body = node.getBody();
+      if (body.hasAutoreleasePool()) {
+        body.accept(this);
+      } else {
+        printStatements(body.getStatements());
+      }
+      buffer.append("}\n");
+      return false;
+    }
     buffer.append("@synchronized(");
     node.getExpression().accept(this);
     buffer.append(") ");
@@ -431,7 +431,7 @@ public class TypeDeclarationGenerator extends TypeGenerator {
       }
       String fieldName = nameTable.getVariableShortName(var);
       String isVolatile = ElementUtil.isVolatile(var) ? "_VOLATILE" : "";
-      String refType = typeUtil.getArgcFieldTypeEx(typeElement, var.asType());
+      String refType = typeUtil.getArgcFieldTypeEx(typeElement, var.asType()).getName();
       println(UnicodeUtils.format("J2OBJC%s_FIELD_SETTER(%s, %s, %s, %s)",
         isVolatile, typeName, refType, fieldName, typeStr));
     }
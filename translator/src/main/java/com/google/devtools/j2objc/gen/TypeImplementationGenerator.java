@@ -23,10 +23,12 @@ import com.google.devtools.j2objc.util.ElementUtil;
 import com.google.devtools.j2objc.util.NameTable;
 import com.google.devtools.j2objc.util.TranslationUtil;
 import com.google.devtools.j2objc.util.TypeUtil;
+import com.google.devtools.j2objc.util.TypeUtil.ArgcFieldType;
 import com.google.j2objc.annotations.Property;
 import java.lang.reflect.Modifier;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -113,6 +115,7 @@ public class TypeImplementationGenerator extends TypeGenerator {
 
     printOuterDeclarations();
     printTypeLiteralImplementation();
+    printArgcScanTable();
     printNameMapping();
   }
 
@@ -273,6 +276,58 @@ public class TypeImplementationGenerator extends TypeGenerator {
     }
   }
 
+  /**
+   * Prints the table of object field offsets that the ARGC collector scans,
+   * so the runtime doesn't need to inspect the class's ivars on first use.
+   * Reference fields are the ones declared __unsafe_unretained in GC mode,
+   * native fields the strong ones.
+   */
+  private void printArgcScanTable() {
+    if (!options.useGC() || isInterfaceType()
+        || typeUtil.getArgcFieldTypeEx(typeElement, typeElement.asType()) == ArgcFieldType.NATIVE) {
+      return;
+    }
+    List<String> refFields = new ArrayList<>();
+    List<String> nativeFields = new ArrayList<>();
+    for (VariableDeclarationFragment fragment : getAllInstanceFields()) {
+      VariableElement var = fragment.getVariableElement();
+      TypeMirror type = var.asType();
+      if (type.getKind().isPrimitive()) {
+        continue;
+      }
+      if (ElementUtil.getObjectiveCType(var) != null) {
+        // Unknown field layout, let the runtime inspect the ivars instead.
+        return;
+      }
+      String name = nameTable.getVariableShortName(var);
+      if (ElementUtil.isVolatile(var) || ElementUtil.isWeakReference(var)
+          || typeUtil.isARGCFieldEx(typeElement, type)) {
+        refFields.add(name);
+      } else {
+        nativeFields.add(name);
+      }
+    }
+    newline();
+    println("#if J2OBJC_USE_GC");
+    String filler = "NULL";
+    if (!refFields.isEmpty() || !nativeFields.isEmpty()) {
+      filler = typeName + "_fillScanOffsets";
+      printf("\nstatic void %s(scan_offset_t *refOffsets, scan_offset_t *nativeOffsets) {\n",
+          filler);
+      for (int i = 0; i < refFields.size(); i++) {
+        printf("  refOffsets[%d] = ARGC_FIELD_OFFSET(%s, %s);\n", i, typeName, refFields.get(i));
+      }
+      for (int i = 0; i < nativeFields.size(); i++) {
+        printf("  nativeOffsets[%d] = ARGC_FIELD_OFFSET(%s, %s);\n",
+            i, typeName, nativeFields.get(i));
+      }
+      println("}");
+    }
+    printf("\nJ2OBJC_ARGC_SCAN_TABLE_SOURCE(%s, %d, %d, %s)\n",
+        typeName, refFields.size(), nativeFields.size(), filler);
+    println("\n#endif");
+  }
+
   private void printNameMapping() {
     if (!options.stripNameMapping()) {
       Optional<String> mapping = nameTable.getNameMapping(typeElement, typeName);
@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.javac;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled form of the --exclude rules. Class rules are kept in a hash set,
+ * package rules (which always end with '.') in a trie keyed by package name
+ * segment, so a lookup costs a single pass over the name instead of a scan
+ * of every rule. Results are memoized per queried name.
+ *
+ * Instances are immutable once constructed and safe to share between threads.
+ */
+class ImportExclusionRules {
+
+  private static final String JAVA_SUFFIX = ".java";
+
+  private final Set<String> excludedClasses;
+  private final Set<String> excludedPackages;
+  private final Node packageRoot = new Node();
+  private final Map<String, Boolean> classCache = new ConcurrentHashMap<>();
+
+  ImportExclusionRules(Collection<String> classRules, Collection<String> packageRules) {
+    excludedClasses = new HashSet<>(classRules);
+    excludedPackages = new HashSet<>(packageRules);
+    for (String rule : packageRules) {
+      addPackageRule(rule);
+    }
+  }
+
+  /**
+   * Returns true if the package (in either '.' or '/' form, without a
+   * trailing separator) is not excluded by a package rule.
+   */
+  boolean canImportPackage(String packageName) {
+    return !excludedPackages.contains(packageName.replace('/', '.') + '.');
+  }
+
+  /**
+   * Returns true if the class, given either as a qualified name or as a
+   * relative source path, is not excluded by a class or package rule.
+   */
+  boolean canImportClass(String filename) {
+    Boolean result = classCache.get(filename);
+    if (result == null) {
+      result = computeCanImportClass(filename);
+      classCache.put(filename, result);
+    }
+    return result;
+  }
+
+  private boolean computeCanImportClass(String filename) {
+    String name = filename.replace('/', '.');
+    if (name.endsWith(JAVA_SUFFIX)) {
+      name = name.substring(0, name.length() - JAVA_SUFFIX.length());
+    }
+    return !excludedClasses.contains(name) && !hasExcludedPackagePrefix(name);
+  }
+
+  /**
+   * Walks the trie one segment at a time. Since every package rule ends with
+   * '.', a rule matches exactly when all of its segments are consumed, each
+   * followed by a '.' in the name.
+   */
+  private boolean hasExcludedPackagePrefix(String name) {
+    Node node = packageRoot;
+    int start = 0;
+    int dot;
+    while ((dot = name.indexOf('.', start)) >= 0) {
+      node = node.children.get(name.substring(start, dot));
+      if (node == null) {
+        return false;
+      }
+      if (node.terminal) {
+        return true;
+      }
+      start = dot + 1;
+    }
+    return false;
+  }
+
+  private void addPackageRule(String rule) {
+    Node node = packageRoot;
+    int start = 0;
+    int dot;
+    while ((dot = rule.indexOf('.', start)) >= 0) {
+      String segment = rule.substring(start, dot);
+      Node child = node.children.get(segment);
+      if (child == null) {
+        child = new Node();
+        node.children.put(segment, child);
+      }
+      node = child;
+      start = dot + 1;
+    }
+    node.terminal = true;
+  }
+
+  private static class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private boolean terminal;
+  }
+}
@@ -41,6 +41,7 @@ import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
 import javax.tools.StandardLocation;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.devtools.j2objc.J2ObjC;
 import com.google.devtools.j2objc.Options;
 
@@ -67,8 +68,10 @@ public class ImportManager {
   private static ArrayList<String> notImportClasses = new ArrayList<String>();
   private static ArrayList<String> notImportPackages = new ArrayList<String>();
   private static HashMap<String, CompilationUnit> units = new HashMap<>();
+  private static volatile ImportExclusionRules compiledRules;
 
-  public static void addNotImportRule(String classpath) {
+  public static synchronized void addNotImportRule(String classpath) {
+    compiledRules = null;
     if (classpath.charAt(0) != '!') {
       if ('.' == classpath.charAt(classpath.length() - 1)) {
         notImportPackages.add(classpath);
@@ -91,40 +94,39 @@ public class ImportManager {
     }
   }
 
+  @VisibleForTesting
+  public static synchronized void clearNotImportRules() {
+    notImportClasses.clear();
+    notImportPackages.clear();
+    compiledRules = null;
+  }
+
   public static boolean canImportPackage(String _package) {
     if (!J2ObjC.options.hasCustomImportRule()) {
       return true;
     }
-
-    _package = _package.replace('/', '.') + '.';
-    for (String s : notImportPackages) {
-      if (_package.equals(s)) {
-        return false;
-      }
-    }
-    return true;
+    return getCompiledRules().canImportPackage(_package);
   }
 
   public static boolean canImportClass(String filename) {
     if (!J2ObjC.options.hasCustomImportRule()) {
       return true;
     }
-    
-    filename = filename.replace('/', '.');
-    if (filename.endsWith(".java")) {
-      filename = filename.substring(0, filename.length() - 5);
-    }
-    for (String s : notImportClasses) {
-      if (filename.equals(s)) {
-        return false;
-      }
-    }
-    for (String s : notImportPackages) {
-      if (filename.startsWith(s)) {
-        return false;
+    return getCompiledRules().canImportClass(filename);
+  }
+
+  private static ImportExclusionRules getCompiledRules() {
+    ImportExclusionRules rules = compiledRules;
+    if (rules == null) {
+      synchronized (ImportManager.class) {
+        rules = compiledRules;
+        if (rules == null) {
+          rules = new ImportExclusionRules(notImportClasses, notImportPackages);
+          compiledRules = rules;
+        }
       }
     }
-    return true;
+    return rules;
   }
 
   public static void resolveImportability(CompilationUnit unit) {
@@ -24,10 +24,13 @@ import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.jar.JarFile;
+import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -67,6 +70,8 @@ import com.strobel.decompiler.PlainTextOutput;
 import com.sun.source.tree.CompilationUnitTree;
 import com.sun.source.util.JavacTask;
 import com.sun.source.util.SourcePositions;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
 
 /**
  * Parser front-end that uses javac.
@@ -75,8 +80,15 @@ import com.sun.source.util.SourcePositions;
  */
 public class JavacParser extends Parser {
 
+  private static final Logger logger = Logger.getLogger(JavacParser.class.getName());
+
   private StandardJavaFileManager fileManager;
 
+  // With integrated annotation processing, the javac task that ran the processors and
+  // attributed the inputs, and its compilation units keyed by canonical source path.
+  private JavacEnvironment processedEnv;
+  private Map<String, CompilationUnitTree> processedUnits;
+
   public JavacParser(Options options){
     super(options);
   }
@@ -238,7 +250,9 @@ public class JavacParser extends Parser {
       javacOptions.add(explicitProcessors);
     }
     if (processAnnotations) {
-      javacOptions.add("-proc:only");
+      if (!options.integratedAnnotationProcessing()) {
+        javacOptions.add("-proc:only");
+      }
     } else {
       javacOptions.add("-proc:none");
     }
@@ -254,12 +268,18 @@ public class JavacParser extends Parser {
       files.add(new File(path));
     }
     try {
-      JavacEnvironment env = createEnvironment(files, null, false);
-      List<CompilationUnitTree> units = new ArrayList<>();
-      for (CompilationUnitTree unit : env.task().parse()) {
-        units.add(unit);
+      JavacEnvironment env = processedEnv;
+      List<CompilationUnitTree> units = takeProcessedUnits(files);
+      boolean reusedProcessedUnits = units != null;
+      if (!reusedProcessedUnits) {
+        logger.fine("Parsing " + files.size() + " files");
+        env = createEnvironment(files, null, false);
+        units = new ArrayList<>();
+        for (CompilationUnitTree unit : env.task().parse()) {
+          units.add(unit);
+        }
+        env.task().analyze();
       }
-      env.task().analyze();
 
       ArrayList<com.google.devtools.j2objc.ast.CompilationUnit> compileUnits = new ArrayList<>();
       if (ErrorUtil.errorCount() == 0) {
@@ -290,7 +310,10 @@ public class JavacParser extends Parser {
           }
         }
       }
-      processDiagnostics(paths, env.diagnostics());
+      if (!reusedProcessedUnits) {
+        // Otherwise they were already reported by processAnnotations().
+        processDiagnostics(paths, env.diagnostics());
+      }
 
     } catch (Exception e) {
       ErrorUtil.warning(e, "javac file manager error");
@@ -388,6 +411,10 @@ public class JavacParser extends Parser {
       }
       try {
         JavacEnvironment env = createEnvironment(inputFiles, null, true);
+        Map<String, CompilationUnitTree> enteredUnits = null;
+        if (options.integratedAnnotationProcessing()) {
+          enteredUnits = collectEnteredUnits(env.task());
+        }
         env.task().parse();
         env.task().analyze();
         processDiagnostics(null, env.diagnostics());
@@ -395,6 +422,11 @@ public class JavacParser extends Parser {
         File sourceOutputDirectory =
             env.fileManager().getLocation(StandardLocation.SOURCE_OUTPUT).iterator().next();
         collectGeneratedInputs(sourceOutputDirectory, "", generatedInputs);
+        if (enteredUnits != null && ErrorUtil.errorCount() == 0) {
+          // Keep the attributed trees, including generated sources, for parseFiles().
+          processedEnv = env;
+          processedUnits = enteredUnits;
+        }
         return new JavacProcessingResult(generatedInputs, sourceOutputDirectory);
       } catch (IOException e) {
         ErrorUtil.fatalError(e, "javac file manager error");
@@ -404,8 +436,65 @@ public class JavacParser extends Parser {
     return new JavacProcessingResult(generatedInputs, null);
   }
 
+  /**
+   * Records each compilation unit as javac enters it. Every processing round enters all the
+   * round's units again, so the map ends up with the trees of the final round, which are the
+   * ones that get attributed.
+   */
+  private static Map<String, CompilationUnitTree> collectEnteredUnits(JavacTask task) {
+    final Map<String, CompilationUnitTree> units = new HashMap<>();
+    task.addTaskListener(new TaskListener() {
+      @Override
+      public void started(TaskEvent e) {}
+
+      @Override
+      public void finished(TaskEvent e) {
+        if (e.getKind() == TaskEvent.Kind.ENTER && e.getCompilationUnit() != null) {
+          units.put(canonicalPath(e.getSourceFile()), e.getCompilationUnit());
+        }
+      }
+    });
+    return units;
+  }
+
+  /**
+   * Returns the trees attributed by annotation processing for the specified files, or null if
+   * processing wasn't integrated or didn't see all of them. Either way the processed trees are
+   * only offered once, so they can be freed once translated.
+   */
+  private List<CompilationUnitTree> takeProcessedUnits(List<File> files) throws IOException {
+    Map<String, CompilationUnitTree> units = processedUnits;
+    processedUnits = null;
+    processedEnv = null;
+    if (units == null) {
+      return null;
+    }
+    List<CompilationUnitTree> result = new ArrayList<>();
+    for (File file : files) {
+      CompilationUnitTree unit = units.get(file.getCanonicalPath());
+      if (unit == null) {
+        logger.info("Annotation processing did not attribute " + file.getPath()
+            + "; parsing all " + files.size() + " files again instead of reusing its trees");
+        return null;
+      }
+      result.add(unit);
+    }
+    return result;
+  }
+
+  private static String canonicalPath(JavaFileObject fileObject) {
+    try {
+      return new File(fileObject.toUri()).getCanonicalPath();
+    } catch (IllegalArgumentException | IOException e) {
+      // Not a file on disk, so no input path can match it.
+      return fileObject.getName();
+    }
+  }
+
   @Override
   public void close() throws IOException {
+    processedEnv = null;
+    processedUnits = null;
     if (fileManager != null) {
       try {
         fileManager.close();
@@ -431,6 +520,22 @@ public class JavacParser extends Parser {
     }
   }
 
+  @Override
+  public String mainTypeName(InputFile file, String source) {
+    return qualifiedMainTypeName(file, source);
+  }
+
+  private static String qualifiedMainTypeName(InputFile file, String source) {
+    String qualifiedName = FileUtil.getMainTypeName(file);
+    // The API for accessing a compilation unit's package changed between
+    // Java 8 and Java 10, so instead this gets the package from the source.
+    String packageName = packageName(source);
+    if (packageName != null) {
+      qualifiedName = packageName + "." + qualifiedName;
+    }
+    return qualifiedName;
+  }
+
   /**
    * Extract the name of a Java source's package, or null if not found. This method is only used
    * before javac parsing to determine the main type name.
@@ -497,14 +602,7 @@ public class JavacParser extends Parser {
 
     @Override
     public String mainTypeName() {
-      String qualifiedName = FileUtil.getMainTypeName(file);
-      // The API for accessing a compilation unit's package changed between
-      // Java 8 and Java 10, so instead this gets the package from the source.
-      String packageName = JavacParser.packageName(source);
-      if (packageName != null) {
-        qualifiedName = packageName + "." + qualifiedName;
-      }
-      return qualifiedName;
+      return qualifiedMainTypeName(file, source);
     }
 
     @Override
@@ -17,11 +17,12 @@ package com.google.devtools.j2objc.pipeline;
 import com.google.common.collect.Sets;
 import com.google.devtools.j2objc.Options;
 import com.google.devtools.j2objc.file.InputFile;
-import com.google.devtools.j2objc.util.ErrorUtil;
-import java.io.File;
-import java.io.IOException;
+import com.google.devtools.j2objc.util.TypeLocationIndex;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -36,8 +37,11 @@ public class BuildClosureQueue {
 
   private final Set<String> queuedNames = Sets.newLinkedHashSet();
 
+  private final TypeLocationIndex index;
+
   public BuildClosureQueue(Options options) {
     this.options = options;
+    this.index = new TypeLocationIndex(options.fileUtil());
     queuedNames.addAll(options.entryClasses());
   }
 
@@ -58,6 +62,19 @@ public class BuildClosureQueue {
     return null;
   }
 
+  /**
+   * Returns the Java source files for every name currently in the queue, so
+   * that a whole dependency frontier can be parsed as one batch. Returns an
+   * empty list if the queue is empty.
+   */
+  public List<InputFile> getNextFiles() {
+    List<InputFile> files = new ArrayList<>();
+    for (InputFile file = getNextFile(); file != null; file = getNextFile()) {
+      files.add(file);
+    }
+    return files;
+  }
+
   /**
    * Adds a name to the queue. The name must be the fully qualified type name
    * to search for (dot separated).
@@ -78,26 +95,19 @@ public class BuildClosureQueue {
   }
 
   private InputFile getFileForName(String name) {
-    InputFile inputFile = null;
-    try {
-      inputFile = options.fileUtil().findTypeOnSourcePath(name);
-    } catch (IOException e) {
-      ErrorUtil.warning(e.getMessage());
-    }
+    InputFile inputFile = index.findSource(name);
 
     if (inputFile == null) {
       // Check if class exists on classpath.
-      if (findClassFile(name)) {
+      if (logger.isLoggable(Level.FINEST) && findClassFile(name)) {
         logger.finest("no source for " + name + ", class found");
       }
       return null;
     }
 
     // Check if the source file is older than the generated header file.
-    File headerSource = new File(
-        options.fileUtil().getHeaderOutputDirectory(),
-        name.replace('.', File.separatorChar) + ".h");
-    if (headerSource.exists() && inputFile.lastModified() < headerSource.lastModified()) {
+    long headerLastModified = index.getHeaderLastModified(name);
+    if (headerLastModified != 0 && inputFile.lastModified() < headerLastModified) {
       return null;
     }
 
@@ -105,13 +115,7 @@ public class BuildClosureQueue {
   }
 
   private boolean findClassFile(String name) {
-    InputFile f = null;
-    try {
-      f = options.fileUtil().findTypeOnClassPath(name);
-    } catch (IOException e) {
-      ErrorUtil.warning(e.getMessage());
-    }
-    if (f != null) {
+    if (index.isOnClassPath(name)) {
       return true;
     }
     // See if it's a JRE class.
@@ -76,15 +76,17 @@ abstract class FileProcessor {
   private void processBuildClosureDependencies() {
     if (closureQueue != null) {
       while (true) {
-        InputFile file = closureQueue.getNextFile();
-        if (file == null) {
+        List<InputFile> files = closureQueue.getNextFiles();
+        if (files.isEmpty()) {
           processBatch();
-          file = closureQueue.getNextFile();
+          files = closureQueue.getNextFiles();
         }
-        if (file == null) {
+        if (files.isEmpty()) {
           break;
         }
-        processInput(ProcessingContext.fromFile(file, options));
+        for (InputFile file : files) {
+          processInput(ProcessingContext.fromFile(file, options));
+        }
       }
     }
   }
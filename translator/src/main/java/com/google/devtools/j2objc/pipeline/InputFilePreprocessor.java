@@ -16,7 +16,10 @@ package com.google.devtools.j2objc.pipeline;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 
 import com.google.common.io.Files;
 import com.google.devtools.j2objc.Options;
@@ -32,6 +35,9 @@ public class InputFilePreprocessor {
 
   private static final Logger logger = Logger.getLogger(InputFilePreprocessor.class.getName());
 
+  // Stripping of J2ObjCIncompatible code is currently turned off.
+  private static final boolean STRIP_INCOMPATIBLE_SOURCES = false;
+
   private final Parser parser;
   private File strippedSourcesDir;
   private final Options options;
@@ -42,20 +48,30 @@ public class InputFilePreprocessor {
   }
 
   public void processInputs(Iterable<ProcessingContext> inputs) {
+    boolean shouldMapHeaders = options.getHeaderMap().useSourceDirectories();
+    if (!(shouldMapHeaders || STRIP_INCOMPATIBLE_SOURCES)) {
+      // No need to read the sources.
+      return;
+    }
+    List<ProcessingContext> sources = new ArrayList<>();
     for (ProcessingContext input : inputs) {
-      if (input.getFile().getUnitName().endsWith(".java")) {
-        processInput(input);
+      String unitName = input.getFile().getUnitName();
+      if (unitName.endsWith(".java") && !unitName.endsWith("package-info.java")) {
+        sources.add(input);
       }
     }
-  }
 
-  private void processInput(ProcessingContext input) {
-    try {
-      if (!input.getFile().getUnitName().endsWith("package-info.java")) {
-        processRegularSource(input);
+    // Reading and scanning each source is independent of the others, so it's done in parallel.
+    // The header map is then updated in input order, parsing only the sources to be stripped.
+    final SourceScan[] scans = new SourceScan[sources.size()];
+    IntStream.range(0, scans.length).parallel().forEach(
+        i -> scans[i] = scanSource(sources.get(i).getFile()));
+    for (int i = 0; i < scans.length; i++) {
+      try {
+        processRegularSource(sources.get(i), scans[i], shouldMapHeaders);
+      } catch (IOException e) {
+        ErrorUtil.error(e.getMessage());
       }
-    } catch (IOException e) {
-      ErrorUtil.error(e.getMessage());
     }
   }
 
@@ -71,25 +87,34 @@ public class InputFilePreprocessor {
     return strippedSourcesDir;
   }
 
-  private void processRegularSource(ProcessingContext input) throws IOException {
-    InputFile file = input.getFile();
-    String source = options.fileUtil().readFile(file);
-    boolean shouldMapHeaders = options.getHeaderMap().useSourceDirectories();
-    boolean doIncompatibleStripping = source.contains("J2ObjCIncompatible");
-    if (!(shouldMapHeaders || doIncompatibleStripping)) {
-      // No need to parse.
-      return;
+  /**
+   * Reads a source and finds its main type name from its tokens. May be called concurrently.
+   */
+  private SourceScan scanSource(InputFile file) {
+    try {
+      String source = options.fileUtil().readFile(file);
+      return new SourceScan(source, parser.mainTypeName(file, source), null);
+    } catch (IOException e) {
+      return new SourceScan(null, null, e);
     }
-    Parser.ParseResult parseResult = parser.parseWithoutBindings(file, source);
-    if (parseResult == null) {
-      // The parser found and reported one or more errors.
-      return;
+  }
+
+  private void processRegularSource(
+      ProcessingContext input, SourceScan scan, boolean shouldMapHeaders) throws IOException {
+    if (scan.error != null) {
+      throw scan.error;
     }
-    String qualifiedName = parseResult.mainTypeName();
+    String qualifiedName = scan.mainTypeName;
     if (shouldMapHeaders) {
       options.getHeaderMap().put(qualifiedName, input.getGenerationUnit().getOutputPath() + ".h");
     }
-    if (false && doIncompatibleStripping) {
+    if (STRIP_INCOMPATIBLE_SOURCES && scan.source.contains("J2ObjCIncompatible")) {
+      InputFile file = input.getFile();
+      Parser.ParseResult parseResult = parser.parseWithoutBindings(file, scan.source);
+      if (parseResult == null) {
+        // The parser found and reported one or more errors.
+        return;
+      }
       parseResult.stripIncompatibleSource();
       File strippedDir = getCreatedStrippedSourcesDir();
       String relativePath = qualifiedName.replace('.', File.separatorChar) + ".java";
@@ -100,4 +125,16 @@ public class InputFilePreprocessor {
       input.setFile(new RegularInputFile(strippedFile.getPath(), relativePath));
     }
   }
+
+  private static class SourceScan {
+    private final String source;
+    private final String mainTypeName;
+    private final IOException error;
+
+    private SourceScan(String source, String mainTypeName, IOException error) {
+      this.source = source;
+      this.mainTypeName = mainTypeName;
+      this.error = error;
+    }
+  }
 }
@@ -30,6 +30,7 @@ import com.google.devtools.j2objc.gen.ObjectiveCSegmentedHeaderGenerator;
 import com.google.devtools.j2objc.translate.AbstractMethodRewriter;
 import com.google.devtools.j2objc.translate.AnnotationRewriter;
 import com.google.devtools.j2objc.translate.ArrayRewriter;
+import com.google.devtools.j2objc.translate.AutoreleasePoolInserter;
 import com.google.devtools.j2objc.translate.Autoboxer;
 import com.google.devtools.j2objc.translate.CastResolver;
 import com.google.devtools.j2objc.translate.ComplexExpressionExtractor;
@@ -49,6 +50,7 @@ import com.google.devtools.j2objc.translate.JavaToIOSMethodTranslator;
 import com.google.devtools.j2objc.translate.LabelRewriter;
 import com.google.devtools.j2objc.translate.LambdaRewriter;
 import com.google.devtools.j2objc.translate.LambdaTypeElementAdder;
+import com.google.devtools.j2objc.translate.LoopConcatenationRewriter;
 import com.google.devtools.j2objc.translate.MetadataWriter;
 import com.google.devtools.j2objc.translate.NilCheckResolver;
 import com.google.devtools.j2objc.translate.NumberMethodRewriter;
@@ -61,6 +63,7 @@ import com.google.devtools.j2objc.translate.Rewriter;
 import com.google.devtools.j2objc.translate.SerializationStripper;
 import com.google.devtools.j2objc.translate.StaticVarRewriter;
 import com.google.devtools.j2objc.translate.SuperMethodInvocationRewriter;
+import com.google.devtools.j2objc.translate.StreamPipelineFuser;
 import com.google.devtools.j2objc.translate.SwitchRewriter;
 import com.google.devtools.j2objc.translate.UnsequencedExpressionRewriter;
 import com.google.devtools.j2objc.translate.VarargsRewriter;
@@ -140,6 +143,13 @@ public class TranslationProcessor extends FileProcessor {
       TimeTracker ticker) {
     ticker.push();
 
+    // Before: LambdaTypeElementAdder - Removes the lambdas that it inlines.
+    // Before: OuterReferenceResolver - Moves lambda bodies into their enclosing methods.
+    if (unit.getEnv().options().fuseStreams()) {
+      new StreamPipelineFuser(unit).run();
+      ticker.tick("StreamPipelineFuser");
+    }
+
     // Before: OuterReferenceResolver - OuterReferenceResolver needs the bindings fixed.
     new LambdaTypeElementAdder(unit).run();
     ticker.tick("LambdaTypeElementAdder");
@@ -184,6 +194,10 @@ public class TranslationProcessor extends FileProcessor {
     new VariableRenamer(unit).run();
     ticker.tick("VariableRenamer");
 
+    // Before: EnhancedForRewriter - Computes the capacity from enhanced for loops over arrays.
+    new LoopConcatenationRewriter(unit).run();
+    ticker.tick("LoopConcatenationRewriter");
+
     // Rewrite enhanced for loops into correct C code.
     new EnhancedForRewriter(unit).run();
     ticker.tick("EnhancedForRewriter");
@@ -196,6 +210,13 @@ public class TranslationProcessor extends FileProcessor {
     new Autoboxer(unit).run();
     ticker.tick("Autoboxer");
 
+    // Wraps allocation-heavy loop bodies in autorelease pools, if requested.
+    // After: EnhancedForRewriter, Autoboxer - Counts the allocations they add.
+    if (unit.getEnv().options().autoreleasePoolThreshold() > 0) {
+      new AutoreleasePoolInserter(unit).run();
+      ticker.tick("AutoreleasePoolInserter");
+    }
+
     new InnerClassExtractor(unit).run();
     ticker.tick("InnerClassExtractor");
 
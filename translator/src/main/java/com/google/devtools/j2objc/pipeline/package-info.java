@@ -18,9 +18,10 @@
  * - Annotation processing. The AnnotationPreProcessor searches the classpath
  *   for annotation processors and does a java compile step to run annotation
  *   processing and collect the generated .java files.
- * - J2ObjC preprocessing. The InputFilePreprocessor parses each input Java
- *   source file without resolving bindings. This step is used to generate
- *   header mappings and package prefix mappings (from package-info.java files).
+ * - J2ObjC preprocessing. The InputFilePreprocessor scans the tokens of each
+ *   input Java source file, in parallel, to find its main type. This step is
+ *   used to generate header mappings. Only sources that need stripping of
+ *   J2ObjCIncompatible code are parsed, without resolving bindings.
  * - J2ObjC processing and generation. The final step parses each input file
  *   with bindings and converts the tree to our own AST structure. The resulting
  *   tree is passed through each of the mutation passes (in the translate
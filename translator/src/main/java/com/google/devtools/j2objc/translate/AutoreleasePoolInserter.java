@@ -0,0 +1,300 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.translate;
+
+import com.google.devtools.j2objc.ast.ArrayCreation;
+import com.google.devtools.j2objc.ast.Assignment;
+import com.google.devtools.j2objc.ast.Block;
+import com.google.devtools.j2objc.ast.ClassInstanceCreation;
+import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.ast.DoStatement;
+import com.google.devtools.j2objc.ast.EnhancedForStatement;
+import com.google.devtools.j2objc.ast.Expression;
+import com.google.devtools.j2objc.ast.ForStatement;
+import com.google.devtools.j2objc.ast.FunctionInvocation;
+import com.google.devtools.j2objc.ast.InfixExpression;
+import com.google.devtools.j2objc.ast.LambdaExpression;
+import com.google.devtools.j2objc.ast.MethodInvocation;
+import com.google.devtools.j2objc.ast.PrefixExpression;
+import com.google.devtools.j2objc.ast.ReturnStatement;
+import com.google.devtools.j2objc.ast.SingleVariableDeclaration;
+import com.google.devtools.j2objc.ast.Statement;
+import com.google.devtools.j2objc.ast.SuperMethodInvocation;
+import com.google.devtools.j2objc.ast.TreeNode;
+import com.google.devtools.j2objc.ast.TreeUtil;
+import com.google.devtools.j2objc.ast.TreeVisitor;
+import com.google.devtools.j2objc.ast.TypeDeclaration;
+import com.google.devtools.j2objc.ast.TypeDeclarationStatement;
+import com.google.devtools.j2objc.ast.UnitTreeVisitor;
+import com.google.devtools.j2objc.ast.VariableDeclarationFragment;
+import com.google.devtools.j2objc.ast.WhileStatement;
+import com.google.devtools.j2objc.util.ElementUtil;
+import com.google.devtools.j2objc.util.TypeUtil;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Logger;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Wraps the bodies of allocation-heavy loops in autorelease pools, as if
+ * they had been annotated with {@link com.google.j2objc.annotations.AutoreleasePool},
+ * so that the temporary objects each iteration autoreleases are freed before
+ * the next iteration instead of when the enclosing pool drains.
+ *
+ * <p>The allocations of a loop body are estimated by counting the object
+ * creations, string concatenations, lambdas and calls returning objects in
+ * it, weighting those in nested loops that don't have pools of their own.
+ * Bodies whose estimate is below {@link
+ * com.google.devtools.j2objc.Options#autoreleasePoolThreshold} are left alone.
+ *
+ * <p>A body is also left alone if an object it creates might outlive the
+ * iteration: with reference counting, local variables don't retain their
+ * values, so a body that returns an object or assigns one to a local
+ * variable declared outside it could leave that variable dangling once the
+ * pool drains. Stores to fields and array elements retain the stored value,
+ * and are safe.
+ */
+public class AutoreleasePoolInserter extends UnitTreeVisitor {
+
+  private static final Logger logger = Logger.getLogger(AutoreleasePoolInserter.class.getName());
+
+  // Assumed number of iterations of a loop nested in the body being estimated.
+  private static final int NESTED_LOOP_WEIGHT = 8;
+  private static final int MAX_NESTED_LOOP_DEPTH = 3;
+
+  private final int threshold;
+
+  public AutoreleasePoolInserter(CompilationUnit unit) {
+    super(unit);
+    threshold = options.autoreleasePoolThreshold();
+  }
+
+  @Override
+  public void endVisit(DoStatement node) {
+    maybeAddAutoreleasePool(node, node.getBody());
+  }
+
+  @Override
+  public void endVisit(EnhancedForStatement node) {
+    maybeAddAutoreleasePool(node, node.getBody());
+  }
+
+  @Override
+  public void endVisit(ForStatement node) {
+    maybeAddAutoreleasePool(node, node.getBody());
+  }
+
+  @Override
+  public void endVisit(WhileStatement node) {
+    maybeAddAutoreleasePool(node, node.getBody());
+  }
+
+  private void maybeAddAutoreleasePool(Statement loop, Statement body) {
+    if (body instanceof Block && ((Block) body).hasAutoreleasePool()) {
+      return;
+    }
+    BodyScanner scanner = new BodyScanner();
+    body.accept(scanner);
+    if (scanner.escapes || scanner.allocations < threshold) {
+      return;
+    }
+    Block block;
+    if (body instanceof Block) {
+      block = (Block) body;
+    } else {
+      block = new Block();
+      body.replaceWith(block);
+      block.addStatement(body);
+    }
+    block.setHasAutoreleasePool(true);
+    logger.info(String.format(
+        "%s:%d: added autorelease pool to loop body (%d estimated allocations per iteration)",
+        unit.getSourceFilePath(), loop.getLineNumber(), scanner.allocations));
+  }
+
+  /**
+   * Estimates the allocations of a loop body, and checks whether any object
+   * it creates can escape the iteration through a local variable.
+   */
+  private class BodyScanner extends TreeVisitor {
+
+    private final Set<VariableElement> declaredVars = new HashSet<>();
+    private int allocations = 0;
+    private boolean escapes = false;
+    private int loopDepth = 0;
+    private int pooledDepth = 0;
+
+    private void addAllocation() {
+      if (pooledDepth == 0) {
+        int weight = 1;
+        for (int i = Math.min(loopDepth, MAX_NESTED_LOOP_DEPTH); i > 0; i--) {
+          weight *= NESTED_LOOP_WEIGHT;
+        }
+        allocations += weight;
+      }
+    }
+
+    private void addAllocation(TypeMirror resultType) {
+      if (resultType != null && TypeUtil.isReferenceType(resultType)) {
+        addAllocation();
+      }
+    }
+
+    // Returns true if expr is a reference-typed local variable that is
+    // declared outside the loop body.
+    private boolean isOuterReferenceVariable(Expression expr) {
+      VariableElement var = TreeUtil.getVariableElement(expr);
+      return var != null && !ElementUtil.isField(var) && !declaredVars.contains(var)
+          && TypeUtil.isReferenceType(var.asType());
+    }
+
+    @Override
+    public boolean preVisit(TreeNode node) {
+      if (isLoop(node)) {
+        loopDepth++;
+      }
+      return !escapes;
+    }
+
+    @Override
+    public void postVisit(TreeNode node) {
+      if (isLoop(node)) {
+        loopDepth--;
+      }
+    }
+
+    private boolean isLoop(TreeNode node) {
+      switch (node.getKind()) {
+        case DO_STATEMENT:
+        case ENHANCED_FOR_STATEMENT:
+        case FOR_STATEMENT:
+        case WHILE_STATEMENT:
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    @Override
+    public boolean visit(Block node) {
+      if (node.hasAutoreleasePool()) {
+        pooledDepth++;
+      }
+      return true;
+    }
+
+    @Override
+    public void endVisit(Block node) {
+      if (node.hasAutoreleasePool()) {
+        pooledDepth--;
+      }
+    }
+
+    @Override
+    public boolean visit(VariableDeclarationFragment node) {
+      declaredVars.add(node.getVariableElement());
+      return true;
+    }
+
+    @Override
+    public boolean visit(SingleVariableDeclaration node) {
+      declaredVars.add(node.getVariableElement());
+      return true;
+    }
+
+    @Override
+    public boolean visit(Assignment node) {
+      if (isOuterReferenceVariable(node.getLeftHandSide())) {
+        escapes = true;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean visit(PrefixExpression node) {
+      // The Autoboxer passes boxed variables by address to functions that update them.
+      if (node.getOperator() == PrefixExpression.Operator.ADDRESS_OF
+          && isOuterReferenceVariable(node.getOperand())) {
+        escapes = true;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean visit(ReturnStatement node) {
+      Expression expr = node.getExpression();
+      if (expr != null && TypeUtil.isReferenceType(expr.getTypeMirror())) {
+        escapes = true;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean visit(ArrayCreation node) {
+      addAllocation();
+      return true;
+    }
+
+    @Override
+    public boolean visit(ClassInstanceCreation node) {
+      addAllocation();
+      return true;
+    }
+
+    @Override
+    public boolean visit(FunctionInvocation node) {
+      addAllocation(node.getTypeMirror());
+      return true;
+    }
+
+    @Override
+    public boolean visit(InfixExpression node) {
+      if (typeUtil.isString(node.getTypeMirror())) {
+        addAllocation();
+      }
+      return true;
+    }
+
+    @Override
+    public boolean visit(LambdaExpression node) {
+      addAllocation();
+      return false;
+    }
+
+    @Override
+    public boolean visit(MethodInvocation node) {
+      addAllocation(node.getTypeMirror());
+      return true;
+    }
+
+    @Override
+    public boolean visit(SuperMethodInvocation node) {
+      addAllocation(node.getTypeMirror());
+      return true;
+    }
+
+    // Local and anonymous class bodies don't run as part of the iteration.
+    @Override
+    public boolean visit(TypeDeclaration node) {
+      return false;
+    }
+
+    @Override
+    public boolean visit(TypeDeclarationStatement node) {
+      return false;
+    }
+  }
+}
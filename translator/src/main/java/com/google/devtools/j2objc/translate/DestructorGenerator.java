@@ -42,6 +42,7 @@ import com.google.devtools.j2objc.types.PointerType;
 import com.google.devtools.j2objc.util.ElementUtil;
 import com.google.devtools.j2objc.util.NameTable;
 import com.google.devtools.j2objc.util.TypeUtil;
+import com.google.devtools.j2objc.util.TypeUtil.ArgcFieldType;
 import java.util.List;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
@@ -144,7 +145,7 @@ public class DestructorGenerator extends UnitTreeVisitor {
     String funcName = null;
     if (isRetainedWith) {
       funcName = isVolatile ? "JreVolatileRetainedWithRelease" : "JreRetainedWithRelease";
-    } else if (isVolatile && (!options.useGC() || typeUtil.getArgcFieldTypeEx(node.getTypeElement(), var.asType()) == "Native")) {
+    } else if (isVolatile && (!options.useGC() || typeUtil.getArgcFieldTypeEx(node.getTypeElement(), var.asType()) == ArgcFieldType.NATIVE)) {
     	// @zee Type of volatile_id is (__unsafe_unretained id). so It should be released manually in Native class.
       funcName = "JreReleaseVolatile";
     } else if (options.useReferenceCounting()) {
@@ -420,6 +420,7 @@ public class Functionizer extends UnitTreeVisitor {
     function.resolveObjCReturnType(elem);
     function.setJniSignature(signatureGenerator.createJniFunctionSignature(elem));
     function.setLineNumber(method.getLineNumber());
+    function.setIsConstructor(ElementUtil.isConstructor(elem));
 
     if (!ElementUtil.isStatic(elem)) {
       VariableElement var = GeneratedVariableElement.newParameter(
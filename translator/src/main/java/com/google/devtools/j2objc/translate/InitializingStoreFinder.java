@@ -0,0 +1,218 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.translate;
+
+import com.google.devtools.j2objc.ast.Assignment;
+import com.google.devtools.j2objc.ast.Expression;
+import com.google.devtools.j2objc.ast.ExpressionStatement;
+import com.google.devtools.j2objc.ast.FieldAccess;
+import com.google.devtools.j2objc.ast.FunctionDeclaration;
+import com.google.devtools.j2objc.ast.FunctionInvocation;
+import com.google.devtools.j2objc.ast.LambdaExpression;
+import com.google.devtools.j2objc.ast.MethodInvocation;
+import com.google.devtools.j2objc.ast.NativeExpression;
+import com.google.devtools.j2objc.ast.NativeStatement;
+import com.google.devtools.j2objc.ast.QualifiedName;
+import com.google.devtools.j2objc.ast.SimpleName;
+import com.google.devtools.j2objc.ast.Statement;
+import com.google.devtools.j2objc.ast.SuperMethodInvocation;
+import com.google.devtools.j2objc.ast.SuperMethodReference;
+import com.google.devtools.j2objc.ast.ThisExpression;
+import com.google.devtools.j2objc.ast.TreeNode;
+import com.google.devtools.j2objc.ast.TreeUtil;
+import com.google.devtools.j2objc.ast.TreeVisitor;
+import com.google.devtools.j2objc.util.ElementUtil;
+import com.google.devtools.j2objc.util.TypeUtil;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+
+/**
+ * Finds the field stores in a functionized constructor that happen before the
+ * instance being initialized can be seen by any other code. Such stores can't
+ * race with another thread, so under GC memory management they can use a
+ * non-atomic initializing store instead of the full write barrier.
+ *
+ * The analysis is deliberately simple: it walks the top-level statements of
+ * the constructor body in order and stops at the first one that may let
+ * "self" escape, i.e. that passes it anywhere, calls a method on it, or runs
+ * code the translator can't see. Only a constructor whose super call is the
+ * java.lang.Object constructor is considered, since any other superclass
+ * constructor may already have published the instance.
+ */
+class InitializingStoreFinder {
+
+  private final VariableElement self;
+  private final Set<Assignment> stores = new HashSet<>();
+
+  private InitializingStoreFinder(VariableElement self) {
+    this.self = self;
+  }
+
+  /**
+   * Returns the top-level assignments to non-static fields of "self" that are
+   * executed before "self" may escape the constructor.
+   */
+  static Set<Assignment> find(FunctionDeclaration function) {
+    if (!function.isConstructor() || function.getBody() == null
+        || function.getParameters().isEmpty()) {
+      return Collections.emptySet();
+    }
+    InitializingStoreFinder finder =
+        new InitializingStoreFinder(function.getParameter(0).getVariableElement());
+    finder.scan(function.getBody().getStatements());
+    return finder.stores;
+  }
+
+  private void scan(List<Statement> statements) {
+    if (statements.isEmpty() || !isObjectConstructorCall(statements.get(0))) {
+      return;
+    }
+    for (Statement stmt : statements.subList(1, statements.size())) {
+      Assignment store = getFieldStore(stmt);
+      if (store != null) {
+        if (mayEscape(store.getRightHandSide())) {
+          return;
+        }
+        stores.add(store);
+      } else if (mayEscape(stmt)) {
+        return;
+      }
+    }
+  }
+
+  private boolean isObjectConstructorCall(Statement stmt) {
+    if (!(stmt instanceof ExpressionStatement)) {
+      return false;
+    }
+    Expression expr = ((ExpressionStatement) stmt).getExpression();
+    if (!(expr instanceof FunctionInvocation)) {
+      return false;
+    }
+    FunctionInvocation invocation = (FunctionInvocation) expr;
+    TypeElement declaringClass = invocation.getFunctionElement().getDeclaringClass();
+    List<Expression> args = invocation.getArguments();
+    return declaringClass != null && TypeUtil.isJavaObject(declaringClass.asType())
+        && args.size() == 1 && isSelf(args.get(0));
+  }
+
+  private Assignment getFieldStore(Statement stmt) {
+    if (!(stmt instanceof ExpressionStatement)) {
+      return null;
+    }
+    Expression expr = ((ExpressionStatement) stmt).getExpression();
+    if (!(expr instanceof Assignment)) {
+      return null;
+    }
+    Assignment assignment = (Assignment) expr;
+    if (assignment.getOperator() != Assignment.Operator.ASSIGN) {
+      return null;
+    }
+    Expression lhs = assignment.getLeftHandSide();
+    Expression target;
+    if (lhs instanceof QualifiedName) {
+      target = ((QualifiedName) lhs).getQualifier();
+    } else if (lhs instanceof FieldAccess) {
+      target = ((FieldAccess) lhs).getExpression();
+    } else {
+      return null;
+    }
+    VariableElement var = TreeUtil.getVariableElement(lhs);
+    if (var == null || ElementUtil.isStatic(var) || !isSelf(target)) {
+      return null;
+    }
+    return assignment;
+  }
+
+  private boolean isSelf(Expression expr) {
+    return expr instanceof SimpleName && TreeUtil.getVariableElement(expr) == self;
+  }
+
+  private boolean mayEscape(TreeNode node) {
+    EscapeScanner scanner = new EscapeScanner();
+    node.accept(scanner);
+    return scanner.escapes;
+  }
+
+  private class EscapeScanner extends TreeVisitor {
+
+    private boolean escapes = false;
+
+    @Override
+    public boolean preVisit(TreeNode node) {
+      return !escapes;
+    }
+
+    private boolean escape() {
+      escapes = true;
+      return false;
+    }
+
+    @Override
+    public boolean visit(QualifiedName node) {
+      // Reading or writing a field of self doesn't publish it.
+      return !isSelf(node.getQualifier());
+    }
+
+    @Override
+    public boolean visit(FieldAccess node) {
+      return !isSelf(node.getExpression());
+    }
+
+    @Override
+    public boolean visit(SimpleName node) {
+      return isSelf(node) ? escape() : true;
+    }
+
+    @Override
+    public boolean visit(ThisExpression node) {
+      return escape();
+    }
+
+    @Override
+    public boolean visit(MethodInvocation node) {
+      // A null receiver is an implicit invocation on this.
+      return node.getExpression() == null ? escape() : true;
+    }
+
+    @Override
+    public boolean visit(SuperMethodInvocation node) {
+      return escape();
+    }
+
+    @Override
+    public boolean visit(SuperMethodReference node) {
+      return escape();
+    }
+
+    @Override
+    public boolean visit(LambdaExpression node) {
+      return escape();
+    }
+
+    @Override
+    public boolean visit(NativeExpression node) {
+      return escape();
+    }
+
+    @Override
+    public boolean visit(NativeStatement node) {
+      return escape();
+    }
+  }
+}
@@ -0,0 +1,484 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.translate;
+
+import com.google.devtools.j2objc.ast.Assignment;
+import com.google.devtools.j2objc.ast.Block;
+import com.google.devtools.j2objc.ast.BreakStatement;
+import com.google.devtools.j2objc.ast.ClassInstanceCreation;
+import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.ast.ContinueStatement;
+import com.google.devtools.j2objc.ast.DoStatement;
+import com.google.devtools.j2objc.ast.EnhancedForStatement;
+import com.google.devtools.j2objc.ast.Expression;
+import com.google.devtools.j2objc.ast.ExpressionStatement;
+import com.google.devtools.j2objc.ast.FieldAccess;
+import com.google.devtools.j2objc.ast.ForStatement;
+import com.google.devtools.j2objc.ast.InfixExpression;
+import com.google.devtools.j2objc.ast.MethodInvocation;
+import com.google.devtools.j2objc.ast.NumberLiteral;
+import com.google.devtools.j2objc.ast.PostfixExpression;
+import com.google.devtools.j2objc.ast.PrefixExpression;
+import com.google.devtools.j2objc.ast.QualifiedName;
+import com.google.devtools.j2objc.ast.ReturnStatement;
+import com.google.devtools.j2objc.ast.SimpleName;
+import com.google.devtools.j2objc.ast.Statement;
+import com.google.devtools.j2objc.ast.StringLiteral;
+import com.google.devtools.j2objc.ast.TreeNode;
+import com.google.devtools.j2objc.ast.TreeUtil;
+import com.google.devtools.j2objc.ast.TreeVisitor;
+import com.google.devtools.j2objc.ast.TryStatement;
+import com.google.devtools.j2objc.ast.UnitTreeVisitor;
+import com.google.devtools.j2objc.ast.VariableDeclarationExpression;
+import com.google.devtools.j2objc.ast.VariableDeclarationFragment;
+import com.google.devtools.j2objc.ast.VariableDeclarationStatement;
+import com.google.devtools.j2objc.ast.WhileStatement;
+import com.google.devtools.j2objc.types.ExecutablePair;
+import com.google.devtools.j2objc.types.GeneratedVariableElement;
+import com.google.devtools.j2objc.util.ElementUtil;
+import com.google.devtools.j2objc.util.TypeUtil;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * Rewrites string local variables that a loop accumulates with "+=" to use a
+ * single StringBuilder, so that the loop doesn't create a new string on each
+ * iteration. For example:
+ *
+ * <pre>
+ * String s = "";
+ * for (String field : fields) {
+ *   s += field + ",";
+ * }
+ * </pre>
+ *
+ * becomes:
+ *
+ * <pre>
+ * String s = "";
+ * {
+ *   StringBuilder s$builder = new StringBuilder(s.length() + fields.length).append(s);
+ *   for (String field : fields) {
+ *     s$builder.append(field + ",");
+ *   }
+ *   s = s$builder.toString();
+ * }
+ * </pre>
+ *
+ * <p>A variable is only rewritten if the loop doesn't otherwise read it, and
+ * nothing can observe it before the loop exits normally: the loop mustn't be
+ * in a try statement within the variable's scope, or jump to an outer label.
+ * The variable also mustn't be null at the loop, since a StringBuilder would
+ * append null as the string "null" even if the loop never runs.
+ *
+ * <p>When the number of iterations is known before the loop starts, and each
+ * iteration appends at least a known number of characters, the builder is
+ * created with that capacity.
+ */
+public class LoopConcatenationRewriter extends UnitTreeVisitor {
+
+  private final TypeElement builderElement;
+  private final ExecutableElement toStringElement;
+  private final Map<VariableElement, VariableDeclarationFragment> declarations = new HashMap<>();
+
+  public LoopConcatenationRewriter(CompilationUnit unit) {
+    super(unit);
+    builderElement = typeUtil.resolveJavaType("java.lang.StringBuilder");
+    toStringElement = ElementUtil.findMethod(builderElement, "toString");
+  }
+
+  @Override
+  public boolean visit(VariableDeclarationFragment node) {
+    declarations.put(node.getVariableElement(), node);
+    return true;
+  }
+
+  @Override
+  public void endVisit(DoStatement node) {
+    rewriteLoop(node, node.getBody());
+  }
+
+  @Override
+  public void endVisit(EnhancedForStatement node) {
+    rewriteLoop(node, node.getBody());
+  }
+
+  @Override
+  public void endVisit(ForStatement node) {
+    rewriteLoop(node, node.getBody());
+  }
+
+  @Override
+  public void endVisit(WhileStatement node) {
+    rewriteLoop(node, node.getBody());
+  }
+
+  private void rewriteLoop(Statement loop, Statement body) {
+    if (!(loop.getParent() instanceof Block)) {
+      // Labeled loops, and loops that aren't in a block.
+      return;
+    }
+    LoopScanner scanner = new LoopScanner(loop);
+    loop.accept(scanner);
+    if (scanner.hasLabeledJump) {
+      return;
+    }
+    for (Map.Entry<VariableElement, List<Assignment>> entry : scanner.appends.entrySet()) {
+      VariableElement var = entry.getKey();
+      if (!scanner.otherReferences.contains(var) && canRewrite(loop, var)) {
+        rewrite(loop, body, var, entry.getValue(), scanner);
+        // The loop is now in a new block, which may hold further builders.
+      }
+    }
+  }
+
+  private boolean canRewrite(Statement loop, VariableElement var) {
+    VariableDeclarationFragment fragment = declarations.get(var);
+    if (fragment == null || !(fragment.getParent() instanceof VariableDeclarationStatement)
+        || !(fragment.getParent().getParent() instanceof Block)) {
+      return false;
+    }
+    Block scope = (Block) fragment.getParent().getParent();
+    for (TreeNode n = loop.getParent(); n != scope; n = n.getParent()) {
+      // Catch and finally clauses could read the variable after an exception.
+      if (n == null || n instanceof TryStatement) {
+        return false;
+      }
+    }
+    if (!isNonNullString(fragment.getInitializer())) {
+      return false;
+    }
+    boolean[] nullable = new boolean[1];
+    scope.accept(new TreeVisitor() {
+      @Override
+      public void endVisit(Assignment node) {
+        if (TreeUtil.getVariableElement(node.getLeftHandSide()) == var
+            && node.getOperator() != Assignment.Operator.PLUS_ASSIGN
+            && !isNonNullString(node.getRightHandSide())) {
+          nullable[0] = true;
+        }
+      }
+    });
+    return !nullable[0];
+  }
+
+  private boolean isNonNullString(Expression expr) {
+    if (expr instanceof StringLiteral) {
+      return true;
+    }
+    if (expr instanceof InfixExpression) {
+      // String concatenation.
+      return typeUtil.isString(expr.getTypeMirror());
+    }
+    return expr instanceof MethodInvocation
+        && ((MethodInvocation) expr).getExecutableElement() == toStringElement;
+  }
+
+  private void rewrite(
+      Statement loop, Statement body, VariableElement var, List<Assignment> appends,
+      LoopScanner scanner) {
+    TypeMirror builderType = builderElement.asType();
+    VariableElement builderVar = GeneratedVariableElement.newLocalVar(
+        ElementUtil.getName(var) + "$builder", builderType, null);
+
+    int minLength = 0;
+    for (Assignment append : appends) {
+      if (append.getParent().getParent() == body || append.getParent() == body) {
+        minLength += minimumLength(append.getRightHandSide());
+      }
+      ExecutablePair appendMethod = findAppendMethod(append.getRightHandSide().getTypeMirror());
+      MethodInvocation invocation =
+          new MethodInvocation(appendMethod, builderType, new SimpleName(builderVar));
+      invocation.addArgument(TreeUtil.remove(append.getRightHandSide()));
+      append.replaceWith(invocation);
+    }
+
+    Expression iterations = scanner.hasEarlyExit ? null : iterationCount(loop, scanner);
+    Expression builder;
+    if (iterations != null && minLength > 0) {
+      Expression appended = minLength == 1 ? iterations : new InfixExpression(
+          typeUtil.getInt(), InfixExpression.Operator.TIMES, iterations,
+          new NumberLiteral(minLength, typeUtil));
+      Expression capacity = new InfixExpression(
+          typeUtil.getInt(), InfixExpression.Operator.PLUS,
+          new MethodInvocation(
+              new ExecutablePair(ElementUtil.findMethod(typeUtil.getJavaString(), "length")),
+              new SimpleName(var)),
+          appended);
+      MethodInvocation append = new MethodInvocation(
+          findAppendMethod(var.asType()), builderType,
+          new ClassInstanceCreation(new ExecutablePair(
+              ElementUtil.findConstructor(builderElement, "int")), builderType)
+          .addArgument(capacity));
+      append.addArgument(new SimpleName(var));
+      builder = append;
+    } else {
+      builder = new ClassInstanceCreation(new ExecutablePair(
+          ElementUtil.findConstructor(builderElement, "java.lang.String")), builderType)
+          .addArgument(new SimpleName(var));
+    }
+
+    Block block = new Block();
+    loop.replaceWith(block);
+    block.addStatement(new VariableDeclarationStatement(builderVar, builder));
+    block.addStatement(loop);
+    block.addStatement(new ExpressionStatement(new Assignment(new SimpleName(var),
+        new MethodInvocation(new ExecutablePair(toStringElement), new SimpleName(builderVar)))));
+  }
+
+  private ExecutablePair findAppendMethod(TypeMirror type) {
+    String paramType;
+    if (typeUtil.isString(type)) {
+      paramType = "java.lang.String";
+    } else if (!type.getKind().isPrimitive()) {
+      // Appends String.valueOf(obj), as concatenation does, including for char[].
+      paramType = "java.lang.Object";
+    } else if (type.getKind() == TypeKind.BYTE || type.getKind() == TypeKind.SHORT) {
+      paramType = "int";
+    } else {
+      paramType = TypeUtil.getQualifiedName(type);
+    }
+    return new ExecutablePair(ElementUtil.findMethod(builderElement, "append", paramType));
+  }
+
+  /**
+   * Returns a lower bound of the length of the string that appending expr
+   * adds. Operands of concatenations other than string literals may be numbers
+   * that are added before they are converted, so they count as empty.
+   */
+  private int minimumLength(Expression expr) {
+    if (expr instanceof StringLiteral) {
+      return ((StringLiteral) expr).getLiteralValue().length();
+    }
+    if (expr instanceof InfixExpression && typeUtil.isString(expr.getTypeMirror())) {
+      int length = 0;
+      for (Expression operand : ((InfixExpression) expr).getOperands()) {
+        if (operand instanceof StringLiteral) {
+          length += ((StringLiteral) operand).getLiteralValue().length();
+        }
+      }
+      return length;
+    }
+    TypeKind kind = expr.getTypeMirror().getKind();
+    if (kind == TypeKind.BOOLEAN) {
+      return 4;
+    }
+    return kind.isPrimitive() ? 1 : 0;
+  }
+
+  /**
+   * Returns a new expression for the number of times the loop runs, if that is
+   * known and non-negative before it starts: enhanced for loops over an array
+   * variable, and for loops counting from zero to a constant or to the length
+   * of an array variable.
+   */
+  private Expression iterationCount(Statement loop, LoopScanner scanner) {
+    if (loop instanceof EnhancedForStatement) {
+      Expression expr = ((EnhancedForStatement) loop).getExpression();
+      VariableElement array = TreeUtil.getVariableElement(expr);
+      if (!(expr instanceof SimpleName) || !isUnmodifiedLocal(array, scanner)
+          || !TypeUtil.isArray(array.asType())) {
+        return null;
+      }
+      TypeMirror componentType = ((ArrayType) array.asType()).getComponentType();
+      VariableElement sizeField = GeneratedVariableElement.newField(
+          "size", typeUtil.getInt(), typeUtil.getIosArray(componentType))
+          .addModifiers(Modifier.PUBLIC);
+      return new FieldAccess(sizeField, new SimpleName(array));
+    }
+    if (!(loop instanceof ForStatement)) {
+      return null;
+    }
+    ForStatement forLoop = (ForStatement) loop;
+    if (forLoop.getInitializers().size() != 1 || forLoop.getUpdaters().size() != 1
+        || !(forLoop.getInitializers().get(0) instanceof VariableDeclarationExpression)) {
+      return null;
+    }
+    List<VariableDeclarationFragment> fragments =
+        ((VariableDeclarationExpression) forLoop.getInitializers().get(0)).getFragments();
+    if (fragments.size() != 1 || !isIntLiteral(fragments.get(0).getInitializer(), 0)) {
+      return null;
+    }
+    VariableElement index = fragments.get(0).getVariableElement();
+    if (!isIncrement(forLoop.getUpdaters().get(0), index)
+        || scanner.modifiedVars.contains(index)
+        || !(forLoop.getExpression() instanceof InfixExpression)) {
+      return null;
+    }
+    InfixExpression condition = (InfixExpression) forLoop.getExpression();
+    List<Expression> operands = condition.getOperands();
+    if (condition.getOperator() != InfixExpression.Operator.LESS || operands.size() != 2
+        || TreeUtil.getVariableElement(operands.get(0)) != index) {
+      return null;
+    }
+    Expression bound = operands.get(1);
+    if (bound instanceof NumberLiteral && isIntLiteral(bound, -1)) {
+      return bound.copy();
+    }
+    Expression array = null;
+    if (bound instanceof QualifiedName
+        && ((QualifiedName) bound).getName().getIdentifier().equals("length")) {
+      array = ((QualifiedName) bound).getQualifier();
+    } else if (bound instanceof FieldAccess
+        && ((FieldAccess) bound).getName().getIdentifier().equals("length")) {
+      array = ((FieldAccess) bound).getExpression();
+    }
+    if (array instanceof SimpleName && TypeUtil.isArray(array.getTypeMirror())
+        && isUnmodifiedLocal(TreeUtil.getVariableElement(array), scanner)) {
+      return bound.copy();
+    }
+    return null;
+  }
+
+  private boolean isUnmodifiedLocal(VariableElement var, LoopScanner scanner) {
+    return var != null && (ElementUtil.isLocalVariable(var) || ElementUtil.isParameter(var))
+        && !scanner.modifiedVars.contains(var);
+  }
+
+  // Returns true if expr is an int literal that is zero, or any non-negative
+  // int literal if value is -1.
+  private static boolean isIntLiteral(Expression expr, int value) {
+    if (!(expr instanceof NumberLiteral) || expr.getTypeMirror().getKind() != TypeKind.INT) {
+      return false;
+    }
+    int literal = ((NumberLiteral) expr).getValue().intValue();
+    return value == -1 ? literal >= 0 : literal == value;
+  }
+
+  private static boolean isIncrement(Expression expr, VariableElement var) {
+    if (expr instanceof PostfixExpression) {
+      PostfixExpression postfix = (PostfixExpression) expr;
+      return postfix.getOperator() == PostfixExpression.Operator.INCREMENT
+          && TreeUtil.getVariableElement(postfix.getOperand()) == var;
+    }
+    if (expr instanceof PrefixExpression) {
+      PrefixExpression prefix = (PrefixExpression) expr;
+      return prefix.getOperator() == PrefixExpression.Operator.INCREMENT
+          && TreeUtil.getVariableElement(prefix.getOperand()) == var;
+    }
+    return false;
+  }
+
+  /**
+   * Finds the string variables declared outside a loop that it appends to
+   * with "+=" statements, and how else the loop uses variables.
+   */
+  private class LoopScanner extends TreeVisitor {
+
+    private final Statement loop;
+    private final Map<VariableElement, List<Assignment>> appends = new LinkedHashMap<>();
+    private final Set<VariableElement> otherReferences = new HashSet<>();
+    // Variables the loop body assigns, increments or decrements.
+    private final Set<VariableElement> modifiedVars = new HashSet<>();
+    private boolean hasLabeledJump = false;
+    private boolean hasEarlyExit = false;
+
+    private LoopScanner(Statement loop) {
+      this.loop = loop;
+    }
+
+    @Override
+    public boolean visit(SimpleName node) {
+      VariableElement var = TreeUtil.getVariableElement(node);
+      if (var == null || !ElementUtil.isLocalVariable(var) || !typeUtil.isString(var.asType())) {
+        return false;
+      }
+      VariableDeclarationFragment fragment = declarations.get(var);
+      if (fragment != null && isInLoop(fragment)) {
+        return false;
+      }
+      TreeNode parent = node.getParent();
+      if (parent instanceof Assignment && ((Assignment) parent).getLeftHandSide() == node
+          && ((Assignment) parent).getOperator() == Assignment.Operator.PLUS_ASSIGN
+          && parent.getParent() instanceof ExpressionStatement) {
+        appends.computeIfAbsent(var, v -> new ArrayList<>()).add((Assignment) parent);
+      } else {
+        otherReferences.add(var);
+      }
+      return false;
+    }
+
+    private boolean isInLoop(TreeNode node) {
+      for (TreeNode n = node; n != null; n = n.getParent()) {
+        if (n == loop) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public void endVisit(Assignment node) {
+      addModifiedVar(node.getLeftHandSide());
+    }
+
+    @Override
+    public void endVisit(PostfixExpression node) {
+      addModifiedVar(node.getOperand());
+    }
+
+    @Override
+    public void endVisit(PrefixExpression node) {
+      if (node.getOperator() == PrefixExpression.Operator.INCREMENT
+          || node.getOperator() == PrefixExpression.Operator.DECREMENT) {
+        addModifiedVar(node.getOperand());
+      }
+    }
+
+    private void addModifiedVar(Expression expr) {
+      VariableElement var = TreeUtil.getVariableElement(expr);
+      if (var != null && !isForUpdater(expr)) {
+        modifiedVars.add(var);
+      }
+    }
+
+    private boolean isForUpdater(Expression expr) {
+      return loop instanceof ForStatement
+          && ((ForStatement) loop).getUpdaters().contains(expr.getParent());
+    }
+
+    @Override
+    public boolean visit(BreakStatement node) {
+      hasLabeledJump |= node.getLabel() != null;
+      hasEarlyExit = true;
+      return false;
+    }
+
+    @Override
+    public boolean visit(ContinueStatement node) {
+      hasLabeledJump |= node.getLabel() != null;
+      hasEarlyExit = true;
+      return false;
+    }
+
+    @Override
+    public boolean visit(ReturnStatement node) {
+      hasEarlyExit = true;
+      return true;
+    }
+  }
+}
@@ -71,7 +71,7 @@ import javax.lang.model.type.TypeMirror;
 public class MetadataWriter extends UnitTreeVisitor {
 
   // Metadata structure version. Increment it when any structure changes are made.
-  public static final int METADATA_VERSION = 7;
+  public static final int METADATA_VERSION = 8;
 
   private static final NativeType CLASS_INFO_TYPE = new NativeType("const J2ObjcClassInfo *");
   private final ArrayType annotationArray;
@@ -136,6 +136,8 @@ public class MetadataWriter extends UnitTreeVisitor {
     // Use a LinkedHashMap so that we can de-dupe values that are added to the pointer table.
     private final LinkedHashMap<String, Integer> pointers = new LinkedHashMap<>();
     private int annotationFuncCount = 0;
+    private String methodIndexIdx = "-1";
+    private String fieldIndexIdx = "-1";
 
     private MetadataGenerator(AbstractTypeDeclaration typeNode, List<Statement> stmts) {
       this.typeNode = typeNode;
@@ -159,7 +161,7 @@ public class MetadataWriter extends UnitTreeVisitor {
       int modifiers = getTypeModifiers(type);
       String metadata = UnicodeUtils.format(
           "static const J2ObjcClassInfo _%s = { "
-          + "%s, %%s, %s, %s, %d, 0x%x, %d, %d, %s, %s, %s, %s, %s };",
+          + "%s, %%s, %s, %s, %d, 0x%x, %d, %d, %s, %s, %s, %s, %s, %s, %s };",
           fullName,
           needsClassInit() ? (fullName + "_initialize") : "empty_static_initialize",
           methodMetadataCount > 0 ? "methods" : "NULL",
@@ -172,7 +174,9 @@ public class MetadataWriter extends UnitTreeVisitor {
           cStrIdx(getTypeList(ElementUtil.asTypes(ElementUtil.getDeclaredTypes(type)))),
           cStrIdx(getEnclosingMethodSelector()),
           cStrIdx(signatureGenerator.createClassSignature(type)),
-          funcPtrIdx(annotationsFunc));
+          funcPtrIdx(annotationsFunc),
+          methodIndexIdx,
+          fieldIndexIdx);
       // Add the pointer table in a second format pass since it's value is dependent on all other
       // values.
       metadata = UnicodeUtils.format(metadata, getPtrTableEntry());
@@ -245,6 +249,7 @@ public class MetadataWriter extends UnitTreeVisitor {
     private int generateMethodsMetadata(StringBuilder sb) {
       List<String> methodMetadata = new ArrayList<>();
       List<String> selectorMetadata = new ArrayList<>();
+      List<String> methodNames = new ArrayList<>();
       int methodCount = 0;
       for (MethodDeclaration decl : TreeUtil.getMethodDeclarations(typeNode)) {
         ExecutableElement element = decl.getExecutableElement();
@@ -257,6 +262,8 @@ public class MetadataWriter extends UnitTreeVisitor {
         String paramAnnotationsFunc = createParamAnnotationsFunction(decl);
         methodMetadata.add(getMethodMetadata(element, annotationsFunc, paramAnnotationsFunc));
         String selector = nameTable.getMethodSelector(element);
+        String javaName = getMethodJavaName(element);
+        methodNames.add(javaName != null ? javaName : selector);
         String metadata = UnicodeUtils.format("methods[%d].selector = @selector(%s);",
             methodCount, selector);
         ++methodCount;
@@ -271,6 +278,7 @@ public class MetadataWriter extends UnitTreeVisitor {
               cStr(returnType),
               java.lang.reflect.Modifier.PUBLIC | java.lang.reflect.Modifier.ABSTRACT);
           methodMetadata.add(metadata);
+          methodNames.add(name);
           metadata = UnicodeUtils.format("methods[%d].selector = @selector(%s);",
               methodCount, name);
           ++methodCount;
@@ -294,17 +302,27 @@ public class MetadataWriter extends UnitTreeVisitor {
         }
         sb.append("#pragma clang diagnostic pop\n");
       }
+      methodIndexIdx = addNameIndex("methodIndex", methodNames);
       return methodMetadata.size();
     }
 
-    private String getMethodMetadata(
-        ExecutableElement method, String annotationsFunc, String paramAnnotationsFunc) {
+    /**
+     * Returns the method's Java name, or null if the runtime can use its selector instead.
+     */
+    private String getMethodJavaName(ExecutableElement method) {
       String methodName = ElementUtil.getName(method);
       String selector = nameTable.getMethodSelector(method);
-      boolean isConstructor = ElementUtil.isConstructor(method);
-      if (selector.equals(methodName) || isConstructor || translationUtil.isJUnit3TestClass(type)) {
-        methodName = null;  // Reduce redundant data.
+      if (selector.equals(methodName) || ElementUtil.isConstructor(method)
+          || translationUtil.isJUnit3TestClass(type)) {
+        return null;  // Reduce redundant data.
       }
+      return methodName;
+    }
+
+    private String getMethodMetadata(
+        ExecutableElement method, String annotationsFunc, String paramAnnotationsFunc) {
+      String methodName = getMethodJavaName(method);
+      boolean isConstructor = ElementUtil.isConstructor(method);
 
       int modifiers = getMethodModifiers(method) & ElementUtil.ACC_FLAG_MASK;
       String returnTypeStr = isConstructor ? null : getTypeName(method.getReturnType());
@@ -326,17 +344,20 @@ public class MetadataWriter extends UnitTreeVisitor {
 
     private int generateFieldsMetadata() {
       List<String> fieldMetadata = new ArrayList<>();
+      List<String> fieldNames = new ArrayList<>();
       if (typeNode instanceof EnumDeclaration) {
         for (EnumConstantDeclaration decl : ((EnumDeclaration) typeNode).getEnumConstants()) {
           String annotationsFunc = createAnnotationsFunction(decl);
-          fieldMetadata.add(generateFieldMetadata(decl.getVariableElement(), annotationsFunc));
+          fieldMetadata.add(
+              generateFieldMetadata(decl.getVariableElement(), annotationsFunc, fieldNames));
         }
       }
       for (FieldDeclaration decl : TreeUtil.getFieldDeclarations(typeNode)) {
         // Fields that share a declaration can share an annotations function.
         String annotationsFunc = createAnnotationsFunction(decl);
         VariableDeclarationFragment f = decl.getFragment();
-        String metadata = generateFieldMetadata(f.getVariableElement(), annotationsFunc);
+        String metadata =
+            generateFieldMetadata(f.getVariableElement(), annotationsFunc, fieldNames);
         if (metadata != null) {
           fieldMetadata.add(metadata);
         }
@@ -349,10 +370,16 @@ public class MetadataWriter extends UnitTreeVisitor {
         sb.append("  };");
         stmts.add(new NativeStatement(sb.toString()));
       }
+      fieldIndexIdx = addNameIndex("fieldIndex", fieldNames);
       return fieldMetadata.size();
     }
 
-    private String generateFieldMetadata(VariableElement var, String annotationsFunc) {
+    /**
+     * Adds the metadata of a field, and its name to fieldNames. The name is null if the runtime
+     * can't recover it from the metadata.
+     */
+    private String generateFieldMetadata(
+        VariableElement var, String annotationsFunc, List<String> fieldNames) {
       int modifiers = getFieldModifiers(var);
       boolean isStatic = ElementUtil.isStatic(var);
       String javaName = ElementUtil.getName(var);
@@ -365,6 +392,7 @@ public class MetadataWriter extends UnitTreeVisitor {
       if ((ElementUtil.isEnumConstant(var) && options.stripEnumConstants())) {
         objcName = null;
       }
+      fieldNames.add(javaName != null || objcName != null ? ElementUtil.getName(var) : null);
       String staticRef = null;
       String constantValue;
       if (ElementUtil.isPrimitiveConstant(var)) {
@@ -384,6 +412,25 @@ public class MetadataWriter extends UnitTreeVisitor {
           cStrIdx(signatureGenerator.createFieldTypeSignature(var)), funcPtrIdx(annotationsFunc));
     }
 
+    /**
+     * Adds an array with the positions of names in ascending order, so that the runtime can find
+     * a method or field with a binary search. Names are ordered by code point, which is the
+     * order in which strcmp() compares their UTF-8 encodings.
+     */
+    private String addNameIndex(String arrayName, List<String> names) {
+      if (names.size() < 2 || names.contains(null)) {
+        return "-1";
+      }
+      List<Integer> index = new ArrayList<>();
+      for (int i = 0; i < names.size(); i++) {
+        index.add(i);
+      }
+      index.sort((a, b) -> compareCodePoints(names.get(a), names.get(b)));
+      stmts.add(new NativeStatement(UnicodeUtils.format("static const uint16_t %s[] = { %s };",
+          arrayName, Joiner.on(", ").join(index))));
+      return getPointerIdx(arrayName);
+    }
+
     private String getEnclosingMethodSelector() {
       Element enclosing = type.getEnclosingElement();
       return ElementUtil.isExecutableElement(enclosing)
@@ -615,6 +662,24 @@ public class MetadataWriter extends UnitTreeVisitor {
     return modifiers;
   }
 
+  /**
+   * Compares strings by code point, which orders them as strcmp() orders their UTF-8 encodings.
+   */
+  private static int compareCodePoints(String s1, String s2) {
+    int i1 = 0;
+    int i2 = 0;
+    while (i1 < s1.length() && i2 < s2.length()) {
+      int c1 = s1.codePointAt(i1);
+      int c2 = s2.codePointAt(i2);
+      if (c1 != c2) {
+        return Integer.compare(c1, c2);
+      }
+      i1 += Character.charCount(c1);
+      i2 += Character.charCount(c2);
+    }
+    return Integer.compare(s1.length() - i1, s2.length() - i2);
+  }
+
   private String cStr(String s) {
     return s == null ? "NULL" : "\"" + s + "\"";
   }
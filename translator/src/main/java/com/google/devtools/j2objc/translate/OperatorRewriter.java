@@ -23,6 +23,7 @@ import com.google.devtools.j2objc.util.ElementUtil;
 import com.google.devtools.j2objc.util.NameTable;
 import com.google.devtools.j2objc.util.TranslationUtil;
 import com.google.devtools.j2objc.util.TypeUtil;
+import com.google.devtools.j2objc.util.TypeUtil.ArgcFieldType;
 import com.google.devtools.j2objc.util.UnicodeUtils;
 import com.google.j2objc.annotations.RetainedLocalRef;
 import com.sun.tools.javac.code.Symbol;
@@ -55,6 +56,8 @@ public class OperatorRewriter extends UnitTreeVisitor {
   private Set<VariableElement> retainedLocalCandidates = new HashSet<>();
   private boolean isSynchronizedMethod = false;
 private FunctionDeclaration argc_currentMethod;
+  // Constructor field stores that run before the instance can escape.
+  private Set<Assignment> initializingStores = Collections.emptySet();
 
   public OperatorRewriter(CompilationUnit unit) {
     super(unit);
@@ -117,12 +120,16 @@ private FunctionDeclaration argc_currentMethod;
   public boolean visit(FunctionDeclaration node) {
     assert this.argc_currentMethod == null;
     this.argc_currentMethod = node;
+    if (options.useGC()) {
+      initializingStores = InitializingStoreFinder.find(node);
+    }
     return true;
   }
 
   @Override 
   public void endVisit(FunctionDeclaration node) {
     this.argc_currentMethod = null;
+    initializingStores = Collections.emptySet();
   }
   
   @Override
@@ -282,13 +289,19 @@ private FunctionDeclaration argc_currentMethod;
           funcName = "JreStaticAssign";
         }
         else {
-          String fType = typeUtil.getArgcFieldTypeEx(enc, type);
-          if (fType == "Object" || fType == "Generic") {
+          ArgcFieldType argcType = typeUtil.getArgcFieldTypeEx(enc, type);
+          String fType = argcType.getName();
+          if (argcType != ArgcFieldType.NATIVE) {
             if (ElementUtil.isWeakReference(var) && !ElementUtil.isVolatile(var)) {
               fType = "Unsafe";
             }
           }
-          funcName = "Jre" + fType + "FieldAssign";
+          if (argcType != ArgcFieldType.NATIVE && initializingStores.contains(node)) {
+            // No other thread can see the instance yet, so skip the atomic exchange.
+            funcName = "Jre" + fType + "FieldInit";
+          } else {
+            funcName = "Jre" + fType + "FieldAssign";
+          }
         }
       }
       else if (isStrong && options.useReferenceCounting()) {
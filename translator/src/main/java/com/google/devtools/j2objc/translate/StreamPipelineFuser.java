@@ -0,0 +1,557 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.translate;
+
+import com.google.devtools.j2objc.ast.Assignment;
+import com.google.devtools.j2objc.ast.Block;
+import com.google.devtools.j2objc.ast.BooleanLiteral;
+import com.google.devtools.j2objc.ast.BreakStatement;
+import com.google.devtools.j2objc.ast.ClassInstanceCreation;
+import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.ast.ContinueStatement;
+import com.google.devtools.j2objc.ast.EnhancedForStatement;
+import com.google.devtools.j2objc.ast.Expression;
+import com.google.devtools.j2objc.ast.ExpressionStatement;
+import com.google.devtools.j2objc.ast.FieldAccess;
+import com.google.devtools.j2objc.ast.FunctionalExpression;
+import com.google.devtools.j2objc.ast.IfStatement;
+import com.google.devtools.j2objc.ast.LambdaExpression;
+import com.google.devtools.j2objc.ast.MethodInvocation;
+import com.google.devtools.j2objc.ast.NumberLiteral;
+import com.google.devtools.j2objc.ast.ParenthesizedExpression;
+import com.google.devtools.j2objc.ast.PostfixExpression;
+import com.google.devtools.j2objc.ast.PrefixExpression;
+import com.google.devtools.j2objc.ast.QualifiedName;
+import com.google.devtools.j2objc.ast.ReturnStatement;
+import com.google.devtools.j2objc.ast.SimpleName;
+import com.google.devtools.j2objc.ast.SingleVariableDeclaration;
+import com.google.devtools.j2objc.ast.Statement;
+import com.google.devtools.j2objc.ast.SwitchStatement;
+import com.google.devtools.j2objc.ast.ThisExpression;
+import com.google.devtools.j2objc.ast.TreeNode;
+import com.google.devtools.j2objc.ast.TreeUtil;
+import com.google.devtools.j2objc.ast.TreeVisitor;
+import com.google.devtools.j2objc.ast.TypeDeclaration;
+import com.google.devtools.j2objc.ast.TypeDeclarationStatement;
+import com.google.devtools.j2objc.ast.UnitTreeVisitor;
+import com.google.devtools.j2objc.ast.VariableDeclarationFragment;
+import com.google.devtools.j2objc.ast.VariableDeclarationStatement;
+import com.google.devtools.j2objc.types.ExecutablePair;
+import com.google.devtools.j2objc.types.GeneratedVariableElement;
+import com.google.devtools.j2objc.util.ElementUtil;
+import com.google.devtools.j2objc.util.TypeUtil;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+
+/**
+ * Lowers simple sequential stream pipelines to loops, so that each element
+ * doesn't pass through a chain of pipeline stages and lambda objects. For
+ * example:
+ *
+ * <pre>
+ * List&lt;String&gt; names = people.stream()
+ *     .filter(p -&gt; p.age &gt;= 18).map(p -&gt; p.name).collect(Collectors.toList());
+ * </pre>
+ *
+ * becomes:
+ *
+ * <pre>
+ * List&lt;String&gt; stream$0 = new ArrayList&lt;&gt;();
+ * for (Person p : people) {
+ *   if (!(p.age &gt;= 18)) continue;
+ *   String p$1 = p.name;
+ *   stream$0.add(p$1);
+ * }
+ * List&lt;String&gt; names = stream$0;
+ * </pre>
+ *
+ * <p>Only pipelines with these parts are lowered, and anything else is left
+ * alone:
+ * <ul>
+ * <li>a source that is Collection.stream() or Arrays.stream(array), on a
+ *     variable, so that evaluating it has no side effects;
+ * <li>any number of filter() and map() stages;
+ * <li>a forEach(), forEachOrdered(), count(), anyMatch(), allMatch(),
+ *     noneMatch(), collect(Collectors.toList()) or
+ *     collect(Collectors.toSet()) terminal operation;
+ * <li>lambda expressions with a single parameter for all arguments, whose
+ *     bodies don't declare classes or lambdas, and, for block bodies of
+ *     forEach(), don't return;
+ * <li>a pipeline that is the expression of an expression or return
+ *     statement, the only initializer of a variable declaration, or the
+ *     right-hand side of an assignment statement to a variable.
+ * </ul>
+ * The lambda bodies are inlined into the loop, so this pass runs before
+ * lambdas are given types and outer references are resolved.
+ */
+public class StreamPipelineFuser extends UnitTreeVisitor {
+
+  private static final String STREAM = "java.util.stream.Stream";
+
+  private int count = 0;
+
+  public StreamPipelineFuser(CompilationUnit unit) {
+    super(unit);
+  }
+
+  @Override
+  public void endVisit(ExpressionStatement node) {
+    Expression expr = node.getExpression();
+    if (expr instanceof Assignment) {
+      Assignment assignment = (Assignment) expr;
+      if (assignment.getOperator() == Assignment.Operator.ASSIGN
+          && assignment.getLeftHandSide() instanceof SimpleName) {
+        fuse(node, assignment.getRightHandSide());
+      }
+    } else {
+      fuse(node, expr);
+    }
+  }
+
+  @Override
+  public void endVisit(ReturnStatement node) {
+    fuse(node, node.getExpression());
+  }
+
+  @Override
+  public void endVisit(VariableDeclarationStatement node) {
+    if (node.getFragments().size() == 1) {
+      fuse(node, node.getFragments().get(0).getInitializer());
+    }
+  }
+
+  private void fuse(Statement stmt, Expression expr) {
+    if (!(expr instanceof MethodInvocation)) {
+      return;
+    }
+    Pipeline pipeline = Pipeline.parse(this, (MethodInvocation) expr);
+    if (pipeline == null) {
+      return;
+    }
+    // Only forEach() pipelines are worth fusing when the result is discarded.
+    boolean forEach =
+        ElementUtil.getName(pipeline.terminal.getExecutableElement()).startsWith("forEach");
+    if (forEach != (stmt instanceof ExpressionStatement
+        && ((ExpressionStatement) stmt).getExpression() == expr)) {
+      return;
+    }
+    new Fusion(pipeline, stmt).run();
+  }
+
+  /**
+   * The parts of a pipeline of the supported form.
+   */
+  private static class Pipeline {
+
+    private Expression source;
+    private final List<MethodInvocation> stages = new ArrayList<>();
+    private MethodInvocation terminal;
+
+    private static Pipeline parse(StreamPipelineFuser fuser, MethodInvocation terminal) {
+      String terminalName = fuser.streamMethodName(terminal);
+      if (terminalName == null) {
+        return null;
+      }
+      Pipeline pipeline = new Pipeline();
+      pipeline.terminal = terminal;
+      switch (terminalName) {
+        case "forEach":
+        case "forEachOrdered":
+          if (!fuser.isInlinableLambda(terminal, true)) {
+            return null;
+          }
+          break;
+        case "anyMatch":
+        case "allMatch":
+        case "noneMatch":
+          if (!fuser.isInlinableLambda(terminal, false)) {
+            return null;
+          }
+          break;
+        case "count":
+          break;
+        case "collect":
+          if (fuser.collectionType(terminal) == null) {
+            return null;
+          }
+          break;
+        default:
+          return null;
+      }
+      Expression expr = terminal.getExpression();
+      while (expr instanceof MethodInvocation) {
+        MethodInvocation invocation = (MethodInvocation) expr;
+        String name = fuser.streamMethodName(invocation);
+        if (name != null && (name.equals("filter") || name.equals("map"))) {
+          if (!fuser.isInlinableLambda(invocation, false)
+              || (name.equals("map") && fuser.elementType(invocation) == null)) {
+            return null;
+          }
+          pipeline.stages.add(0, invocation);
+          expr = invocation.getExpression();
+        } else {
+          pipeline.source = fuser.sourceCollection(invocation);
+          return pipeline.source != null ? pipeline : null;
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Returns the name of the invoked method if it is an instance method of
+   * Stream, and the stream's element type can be declared.
+   */
+  private String streamMethodName(MethodInvocation node) {
+    ExecutableElement method = node.getExecutableElement();
+    Expression receiver = node.getExpression();
+    if (ElementUtil.isStatic(method) || receiver == null
+        || !ElementUtil.getDeclaringClass(method).getQualifiedName().contentEquals(STREAM)
+        || elementType(receiver) == null) {
+      return null;
+    }
+    return ElementUtil.getName(method);
+  }
+
+  // Returns the element type of a Stream expression.
+  private TypeMirror elementType(Expression stream) {
+    DeclaredType type = typeUtil.findSupertype(stream.getTypeMirror(), STREAM);
+    if (type == null || type.getTypeArguments().size() != 1) {
+      return null;
+    }
+    TypeMirror elementType = type.getTypeArguments().get(0);
+    if (elementType.getKind() == TypeKind.WILDCARD) {
+      elementType = ((WildcardType) elementType).getExtendsBound();
+      if (elementType == null) {
+        elementType = typeUtil.getJavaObject().asType();
+      }
+    }
+    switch (elementType.getKind()) {
+      case ARRAY:
+      case DECLARED:
+      case TYPEVAR:
+        return elementType;
+      default:
+        return null;
+    }
+  }
+
+  // Returns the collection or array that a Collection.stream() or
+  // Arrays.stream(array) invocation streams, if it is a variable.
+  private Expression sourceCollection(MethodInvocation node) {
+    ExecutableElement method = node.getExecutableElement();
+    String declaringClass = ElementUtil.getDeclaringClass(method).getQualifiedName().toString();
+    if (!ElementUtil.getName(method).equals("stream")) {
+      return null;
+    }
+    Expression source;
+    if (declaringClass.equals("java.util.Collection") && !ElementUtil.isStatic(method)
+        && node.getArguments().isEmpty()) {
+      source = node.getExpression();
+    } else if (declaringClass.equals("java.util.Arrays") && node.getArguments().size() == 1
+        && isReferenceArray(node.getArguments().get(0).getTypeMirror())) {
+      source = node.getArguments().get(0);
+    } else {
+      return null;
+    }
+    return isVariable(source) ? source : null;
+  }
+
+  private static boolean isReferenceArray(TypeMirror type) {
+    return TypeUtil.isArray(type)
+        && !((ArrayType) type).getComponentType().getKind().isPrimitive();
+  }
+
+  private static boolean isVariable(Expression expr) {
+    if (expr instanceof SimpleName || expr instanceof QualifiedName) {
+      return TreeUtil.getVariableElement(expr) != null;
+    }
+    if (expr instanceof FieldAccess) {
+      return ((FieldAccess) expr).getExpression() instanceof ThisExpression;
+    }
+    return false;
+  }
+
+  // Returns the type of collection that a collect() terminal operation
+  // creates, for Collectors.toList() and Collectors.toSet().
+  private TypeElement collectionType(MethodInvocation node) {
+    if (node.getArguments().size() != 1
+        || !(node.getArguments().get(0) instanceof MethodInvocation)) {
+      return null;
+    }
+    MethodInvocation collector = (MethodInvocation) node.getArguments().get(0);
+    ExecutableElement method = collector.getExecutableElement();
+    if (!collector.getArguments().isEmpty() || !ElementUtil.getDeclaringClass(method)
+        .getQualifiedName().contentEquals("java.util.stream.Collectors")) {
+      return null;
+    }
+    switch (ElementUtil.getName(method)) {
+      case "toList":
+        return typeUtil.resolveJavaType("java.util.ArrayList");
+      case "toSet":
+        return typeUtil.resolveJavaType("java.util.HashSet");
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Returns true if the invocation's only argument is a lambda expression
+   * with one parameter, whose body can be moved into a loop. Only forEach()
+   * lambdas may have block bodies.
+   */
+  private boolean isInlinableLambda(MethodInvocation node, boolean allowBlock) {
+    if (node.getArguments().size() != 1
+        || !(node.getArguments().get(0) instanceof LambdaExpression)) {
+      return false;
+    }
+    LambdaExpression lambda = (LambdaExpression) node.getArguments().get(0);
+    TreeNode body = lambda.getBody();
+    if (lambda.getParameters().size() != 1 || (body instanceof Block && !allowBlock)) {
+      return false;
+    }
+    boolean[] inlinable = { true };
+    body.accept(new TreeVisitor() {
+      @Override
+      public boolean preVisit(TreeNode node) {
+        if (node instanceof FunctionalExpression || node instanceof TypeDeclaration
+            || node instanceof TypeDeclarationStatement || node instanceof ReturnStatement) {
+          inlinable[0] = false;
+        }
+        return inlinable[0];
+      }
+    });
+    return inlinable[0];
+  }
+
+  /**
+   * Replaces a pipeline with a loop.
+   */
+  private class Fusion {
+
+    private final Pipeline pipeline;
+    private final Statement stmt;
+    private final Set<String> names = new HashSet<>();
+    private final Block loopBody = new Block();
+    private VariableElement value;
+
+    private Fusion(Pipeline pipeline, Statement stmt) {
+      this.pipeline = pipeline;
+      this.stmt = stmt;
+      reserveVariableNames();
+    }
+
+    // Reserves the name of every variable used or declared in the enclosing
+    // method, including in the lambda bodies that get inlined, so that the new
+    // locals don't collide with or shadow any of them. The parameters of the
+    // pipeline's lambdas are left out, since the new locals replace them.
+    private void reserveVariableNames() {
+      Set<VariableElement> replaced = new HashSet<>();
+      for (MethodInvocation stage : pipeline.stages) {
+        replaced.add(lambdaParameter(stage));
+      }
+      MethodInvocation terminal = pipeline.terminal;
+      if (terminal.getArguments().size() == 1
+          && terminal.getArguments().get(0) instanceof LambdaExpression) {
+        replaced.add(lambdaParameter(terminal));
+      }
+      TreeNode scope = TreeUtil.getEnclosingMethod(stmt);
+      if (scope == null) {
+        scope = TreeUtil.getEnclosingType(stmt);
+      }
+      scope.accept(new TreeVisitor() {
+        @Override
+        public void endVisit(SimpleName node) {
+          reserve(TreeUtil.getVariableElement(node));
+        }
+
+        @Override
+        public void endVisit(SingleVariableDeclaration node) {
+          reserve(node.getVariableElement());
+        }
+
+        @Override
+        public void endVisit(VariableDeclarationFragment node) {
+          reserve(node.getVariableElement());
+        }
+
+        private void reserve(VariableElement var) {
+          if (var != null && !replaced.contains(var)) {
+            names.add(ElementUtil.getName(var));
+          }
+        }
+      });
+    }
+
+    private void run() {
+      MethodInvocation first =
+          pipeline.stages.isEmpty() ? pipeline.terminal : pipeline.stages.get(0);
+      TypeMirror sourceType = elementType(first.getExpression());
+      VariableElement loopVar = newValue(firstLambdaParameterName(), sourceType);
+      value = loopVar;
+      EnhancedForStatement loop = new EnhancedForStatement()
+          .setParameter(new SingleVariableDeclaration(loopVar))
+          .setExpression(TreeUtil.remove(pipeline.source))
+          .setBody(loopBody);
+
+      for (MethodInvocation stage : pipeline.stages) {
+        Expression body = (Expression) inlineLambda(stage);
+        if (ElementUtil.getName(stage.getExecutableElement()).equals("filter")) {
+          loopBody.addStatement(new IfStatement()
+              .setExpression(not(body))
+              .setThenStatement(new ContinueStatement()));
+        } else {
+          VariableElement mapped = newValue(null, elementType(stage));
+          loopBody.addStatement(new VariableDeclarationStatement(mapped, body));
+          value = mapped;
+        }
+      }
+
+      MethodInvocation terminal = pipeline.terminal;
+      String name = ElementUtil.getName(terminal.getExecutableElement());
+      if (name.startsWith("forEach")) {
+        TreeNode body = inlineLambda(terminal);
+        loopBody.addStatement(body instanceof Block
+            ? (Block) body : new ExpressionStatement((Expression) body));
+        stmt.replaceWith(loop);
+        return;
+      }
+
+      VariableElement result;
+      Expression initialValue;
+      switch (name) {
+        case "count":
+          result = newResult(typeUtil.getLong());
+          initialValue = new NumberLiteral(0L, typeUtil);
+          loopBody.addStatement(new ExpressionStatement(
+              new PostfixExpression(result, PostfixExpression.Operator.INCREMENT)));
+          break;
+        case "collect":
+          result = newResult(terminal.getTypeMirror());
+          TypeElement collectionType = collectionType(terminal);
+          initialValue = new ClassInstanceCreation(
+              new ExecutablePair(ElementUtil.findConstructor(collectionType)),
+              typeUtil.erasure(collectionType.asType()));
+          ExecutableElement add = ElementUtil.findMethod(
+              typeUtil.resolveJavaType("java.util.Collection"), "add", "E");
+          loopBody.addStatement(new ExpressionStatement(new MethodInvocation(
+              new ExecutablePair(add), typeUtil.getBoolean(), new SimpleName(result))
+              .addArgument(new SimpleName(value))));
+          break;
+        default:
+          // anyMatch() stops at the first match, allMatch() and noneMatch()
+          // at the first element that makes them false.
+          boolean any = name.equals("anyMatch");
+          boolean all = name.equals("allMatch");
+          result = newResult(typeUtil.getBoolean());
+          initialValue = new BooleanLiteral(!any, typeUtil);
+          Expression body = (Expression) inlineLambda(terminal);
+          loopBody.addStatement(new IfStatement()
+              .setExpression(all ? not(body) : body)
+              .setThenStatement(new Block()
+                  .addStatement(new ExpressionStatement(new Assignment(
+                      new SimpleName(result), new BooleanLiteral(any, typeUtil))))
+                  .addStatement(new BreakStatement())));
+          break;
+      }
+
+      terminal.replaceWith(new SimpleName(result));
+      Statement resultDecl = new VariableDeclarationStatement(result, initialValue);
+      TreeNode parent = stmt.getParent();
+      if (parent instanceof Block || parent instanceof SwitchStatement) {
+        // Insert into the enclosing statement list, so that a variable
+        // declared by stmt stays in scope for the statements after it.
+        List<Statement> stmts = parent instanceof Block
+            ? ((Block) parent).getStatements() : ((SwitchStatement) parent).getStatements();
+        int index = stmts.indexOf(stmt);
+        stmts.add(index, loop);
+        stmts.add(index, resultDecl);
+      } else {
+        // A lone statement, such as an if branch, can't be a declaration, so
+        // wrapping it in a block doesn't change what is in scope.
+        Block block = new Block();
+        stmt.replaceWith(block);
+        block.addStatement(resultDecl);
+        block.addStatement(loop);
+        block.addStatement(stmt);
+      }
+    }
+
+    private String firstLambdaParameterName() {
+      MethodInvocation first =
+          pipeline.stages.isEmpty() ? pipeline.terminal : pipeline.stages.get(0);
+      if (first.getArguments().size() == 1
+          && first.getArguments().get(0) instanceof LambdaExpression) {
+        return ElementUtil.getName(lambdaParameter(first));
+      }
+      return null;
+    }
+
+    private VariableElement lambdaParameter(MethodInvocation node) {
+      return ((LambdaExpression) node.getArguments().get(0))
+          .getParameters().get(0).getVariableElement();
+    }
+
+    // Creates a local variable for the elements of a stage, named after the
+    // lambda parameter that they are passed to.
+    private VariableElement newValue(String name, TypeMirror type) {
+      String baseName = name != null ? name : ElementUtil.getName(value);
+      String uniqueName = baseName;
+      for (int i = 1; !names.add(uniqueName); i++) {
+        uniqueName = baseName + "$" + i;
+      }
+      return GeneratedVariableElement.newLocalVar(uniqueName, type, null);
+    }
+
+    private VariableElement newResult(TypeMirror type) {
+      return GeneratedVariableElement.newLocalVar("stream$" + count++, type, null);
+    }
+
+    // Returns the body of an invocation's lambda argument, with references to
+    // its parameter replaced by the current element.
+    private TreeNode inlineLambda(MethodInvocation node) {
+      VariableElement param = lambdaParameter(node);
+      TreeNode body = TreeUtil.remove(
+          ((LambdaExpression) node.getArguments().get(0)).getBody());
+      if (body instanceof SimpleName && TreeUtil.getVariableElement((SimpleName) body) == param) {
+        return new SimpleName(value);
+      }
+      body.accept(new TreeVisitor() {
+        @Override
+        public void endVisit(SimpleName node) {
+          if (TreeUtil.getVariableElement(node) == param) {
+            node.replaceWith(new SimpleName(value));
+          }
+        }
+      });
+      return body;
+    }
+
+    private Expression not(Expression expr) {
+      return new PrefixExpression(typeUtil.getBoolean(), PrefixExpression.Operator.NOT,
+          ParenthesizedExpression.parenthesize(expr));
+    }
+  }
+}
@@ -153,6 +153,12 @@ public abstract class Parser implements Closeable {
    */
   public abstract ParseResult parseWithoutBindings(InputFile file, String source);
 
+  /**
+   * Returns the fully qualified name of a source's main type, found from its file name and
+   * package declaration without parsing it. Safe to call from multiple threads.
+   */
+  public abstract String mainTypeName(InputFile file, String source);
+
   /**
    * Runs annotation processing on a source set.
    *
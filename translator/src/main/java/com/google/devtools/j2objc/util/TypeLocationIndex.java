@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.util;
+
+import com.google.devtools.j2objc.file.InputFile;
+import com.google.devtools.j2objc.javac.ImportManager;
+import java.io.File;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import javax.annotation.Nullable;
+
+/**
+ * Resolves qualified type names for --build-closure. Sources are looked up
+ * in the {@link SourceStore}, and generated headers are checked on each
+ * lookup so that their timestamps are current. The class path is only
+ * indexed if {@link #isOnClassPath} is called, which
+ * {@link com.google.devtools.j2objc.pipeline.BuildClosureQueue} only does
+ * when finest logging is on; the index then replaces a path search and a
+ * class load per name.
+ */
+public class TypeLocationIndex {
+
+  private final FileUtil fileUtil;
+  private Set<String> classes;
+
+  public TypeLocationIndex(FileUtil fileUtil) {
+    this.fileUtil = fileUtil;
+  }
+
+  /**
+   * Returns the registered source file declaring the qualified type name, or
+   * null if there is none, it doesn't exist or the type is excluded.
+   */
+  @Nullable
+  public InputFile findSource(String qualifiedName) {
+    String unitPath = qualifiedName.replace('.', File.separatorChar) + ".java";
+    if (!ImportManager.canImportClass(unitPath)) {
+      return null;
+    }
+    InputFile file = SourceStore.getInputFile(unitPath);
+    try {
+      return file != null && file.exists() ? file : null;
+    } catch (IOException e) {
+      ErrorUtil.warning(e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Returns true if a class file for the qualified type name is on the
+   * class path. Nested classes are indexed by their source name.
+   */
+  public boolean isOnClassPath(String qualifiedName) {
+    if (classes == null) {
+      classes = new HashSet<>();
+      for (String pathEntry : fileUtil.getClassPathEntries()) {
+        File entry = new File(pathEntry);
+        if (entry.isDirectory()) {
+          indexDirectory(entry, "");
+        } else if (entry.isFile()) {
+          indexJar(pathEntry);
+        }
+      }
+    }
+    return classes.contains(qualifiedName);
+  }
+
+  /**
+   * Returns the modification time of the type's generated header, or 0 if
+   * it doesn't exist.
+   */
+  public long getHeaderLastModified(String qualifiedName) {
+    File header = new File(fileUtil.getHeaderOutputDirectory(),
+        qualifiedName.replace('.', File.separatorChar) + ".h");
+    return header.lastModified();
+  }
+
+  private void indexDirectory(File dir, String relativeDir) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File f : files) {
+      String relativePath = relativeDir + f.getName();
+      if (f.isDirectory()) {
+        indexDirectory(f, relativePath + '/');
+      } else {
+        addClass(relativePath);
+      }
+    }
+  }
+
+  private void indexJar(String jarPath) {
+    try (ZipFile zfile = new ZipFile(jarPath)) {
+      Enumeration<? extends ZipEntry> enumerator = zfile.entries();
+      while (enumerator.hasMoreElements()) {
+        ZipEntry entry = enumerator.nextElement();
+        if (!entry.isDirectory()) {
+          addClass(entry.getName());
+        }
+      }
+    } catch (ZipException e) {
+      // Not a zip or jar file, so there is nothing to index.
+    } catch (IOException e) {
+      ErrorUtil.warning(e.getMessage());
+    }
+  }
+
+  private void addClass(String relativePath) {
+    if (relativePath.endsWith(".class")) {
+      String name = relativePath.substring(0, relativePath.length() - ".class".length());
+      classes.add(name.replace('/', '.').replace('$', '.'));
+    }
+  }
+}
@@ -16,6 +16,7 @@ package com.google.devtools.j2objc.util;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.MapMaker;
 import com.google.devtools.j2objc.J2ObjC;
 import com.google.devtools.j2objc.Options;
 import com.google.devtools.j2objc.ast.CompilationUnit;
@@ -254,59 +255,88 @@ public final class TypeUtil {
     return typeElement != null && !isPureInterface(t) && isNone(typeElement.getSuperclass());
   }
 
-  public boolean isARGCFieldEx(TypeElement owner, TypeMirror t) {
-    if (getArgcFieldType(owner.asType()) == "Native") {
-      return false;
+  /**
+   * How a reference field is managed in GC mode. The name is the infix of
+   * the runtime's Jre*FieldAssign functions.
+   */
+  public enum ArgcFieldType {
+    // A subclass of ARGCObject, scanned by the collector.
+    OBJECT("Object"),
+    // An interface, type variable or java.lang.Object, which may or may not be an ARGCObject.
+    GENERIC("Generic"),
+    // A type mapped to a native Foundation class, held by a strong reference.
+    NATIVE("Native");
+
+    private final String name;
+
+    ArgcFieldType(String name) {
+      this.name = name;
     }
 
-    if (isPrimitiveOrVoid(t)) {
-      return false;
+    public String getName() {
+      return name;
     }
+  }
+
+  // Classification of class elements, computed once and shared by all units.
+  private static final Map<TypeElement, ArgcFieldType> argcClassTypes =
+      new MapMaker().weakKeys().makeMap();
 
-    return getArgcFieldType(t) != "Native";
+  public boolean isARGCFieldEx(TypeElement owner, TypeMirror t) {
+    return !isPrimitiveOrVoid(t) && getArgcFieldTypeEx(owner, t) != ArgcFieldType.NATIVE;
   }
-  
-  public String getArgcFieldTypeEx(Element owner, TypeMirror t) {
-    if (getArgcFieldType(owner.asType()) == "Native") {
-      return "Native";
+
+  public ArgcFieldType getArgcFieldTypeEx(Element owner, TypeMirror t) {
+    if (getArgcFieldType(owner.asType()) == ArgcFieldType.NATIVE) {
+      return ArgcFieldType.NATIVE;
     }
     return getArgcFieldType(t);
   }
-  
-  private String getArgcFieldType(TypeMirror t) {
+
+  private ArgcFieldType getArgcFieldType(TypeMirror t) {
     if (TypeUtil.isPureInterface(t)) {
-      return "Generic";
+      return ArgcFieldType.GENERIC;
     }
     if (J2ObjC.options.generateIOSTest() && CompilationUnit.isTestClass(t)) {
       // IOSTest class is not inherits ARGCObject
-      return "Native";
+      return ArgcFieldType.NATIVE;
     }
 
     TypeElement e = asTypeElement(t);
     if (e == null) {
       TypeParameterElement tp = TypeUtil.asTypeParameterElement(t);
       if (tp != null) {
-        return "Generic";
+        return ArgcFieldType.GENERIC;
       }
+      return ArgcFieldType.OBJECT;
+    }
+    return getArgcClassType(e);
+  }
+
+  private ArgcFieldType getArgcClassType(TypeElement e) {
+    ArgcFieldType result = argcClassTypes.get(e);
+    if (result == null) {
+      result = computeArgcClassType(e);
+      argcClassTypes.put(e, result);
     }
+    return result;
+  }
+
+  private ArgcFieldType computeArgcClassType(TypeElement e) {
     if (e == javaObject) {
-      return "Generic";
+      return ArgcFieldType.GENERIC;
     }
-    while (e != null) {
-      if (e == this.javaNumber  || e == javaThrowable
-          ||  e == javaClass || e == this.javaString) {
-        return "Native";
-      }
-      TypeMirror m = e.getSuperclass();
-      if (isNone(m)) {
-        break;
-      }
-      e = asTypeElement(m);
+    if (e == javaNumber || e == javaThrowable || e == javaClass || e == javaString) {
+      return ArgcFieldType.NATIVE;
+    }
+    TypeMirror superclass = e.getSuperclass();
+    TypeElement superElement = isNone(superclass) ? null : asTypeElement(superclass);
+    if (superElement != null && getArgcClassType(superElement) == ArgcFieldType.NATIVE) {
+      return ArgcFieldType.NATIVE;
     }
-    return "Object";
+    return ArgcFieldType.OBJECT;
   }
-  
-  
+
   public static TypeParameterElement asTypeParameterElement(TypeMirror t) {
     return isTypeVariable(t) ? (TypeParameterElement) ((TypeVariable) t).asElement() : null;
   }
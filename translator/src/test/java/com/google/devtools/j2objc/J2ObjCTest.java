@@ -14,15 +14,21 @@
 
 package com.google.devtools.j2objc;
 
+import com.google.devtools.j2objc.javac.JavacParser;
 import com.google.devtools.j2objc.util.FileUtil;
 import com.google.devtools.j2objc.util.HeaderMap;
 import com.google.devtools.j2objc.util.SourceVersion;
 import com.google.devtools.j2objc.util.Version;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 
 /**
  * Tests for {@link com.google.devtools.j2objc.J2ObjC}.
@@ -241,12 +247,67 @@ public class J2ObjCTest extends GenerationTest {
     options.getProcessorPathEntries().add(processorPath);
 
     String examplePath = addSourceFile(EXAMPLE_JAVA_SOURCE, "annotations/Example.java");
-    J2ObjC.run(Collections.singletonList(examplePath), options);
+    List<String> parserLog = runAndRecordParserLog(examplePath);
     assertErrorCount(0);
 
+    // Without integrated processing, the inputs are parsed again after the processors ran.
+    assertFalse(parserLog.isEmpty());
+    for (String message : parserLog) {
+      assertTrue(message, message.startsWith("Parsing "));
+    }
+
     assertServiceAnnotationProcessorOutput();
   }
 
+  // Test translating the trees attributed while running the annotation processor.
+  public void testIntegratedAnnotationProcessing() throws Exception {
+    String processorPath = getResourceAsFile("annotations/Processor.jar");
+    options.getProcessorPathEntries().add(processorPath);
+    options.setIntegratedAnnotationProcessing(true);
+
+    String examplePath = addSourceFile(EXAMPLE_JAVA_SOURCE, "annotations/Example.java");
+    List<String> parserLog = runAndRecordParserLog(examplePath);
+    assertErrorCount(0);
+
+    // The processed trees are translated, so javac never parses the inputs a second time.
+    assertEquals(Collections.emptyList(), parserLog);
+    assertServiceAnnotationProcessorOutput();
+    assertTrue("Example was not translated",
+        getTempFile("com/google/devtools/j2objc/annotations/Example.h").exists());
+  }
+
+  /**
+   * Translates a file, and returns the messages JavacParser logged: one for each time javac
+   * parsed inputs, and one for each time processed trees couldn't be reused.
+   */
+  private List<String> runAndRecordParserLog(String path) {
+    final List<String> messages = new ArrayList<>();
+    Handler handler = new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        messages.add(record.getMessage());
+      }
+
+      @Override
+      public void flush() {}
+
+      @Override
+      public void close() {}
+    };
+    handler.setLevel(Level.ALL);
+    Logger logger = Logger.getLogger(JavacParser.class.getName());
+    Level oldLevel = logger.getLevel();
+    logger.setLevel(Level.FINE);
+    logger.addHandler(handler);
+    try {
+      J2ObjC.run(Collections.singletonList(path), options);
+    } finally {
+      logger.removeHandler(handler);
+      logger.setLevel(oldLevel);
+    }
+    return messages;
+  }
+
   // Test a specified annotation processor.
   public void testSpecifiedAnnotationProcessing() throws Exception {
     String processorPath = getResourceAsFile("annotations/ExplicitProcessor.jar");
@@ -17,6 +17,7 @@
 package com.google.devtools.j2objc;
 
 import com.google.devtools.j2objc.ast.AnnotationTest;
+import com.google.devtools.j2objc.ast.ChildListTest;
 import com.google.devtools.j2objc.ast.InfixExpressionTest;
 import com.google.devtools.j2objc.ast.LambdaExpressionTest;
 import com.google.devtools.j2objc.ast.MethodReferenceTest;
@@ -35,6 +36,7 @@ import com.google.devtools.j2objc.gen.StatementGeneratorTest;
 import com.google.devtools.j2objc.gen.TypeDeclarationGeneratorTest;
 import com.google.devtools.j2objc.gen.TypeImplementationGeneratorTest;
 import com.google.devtools.j2objc.javac.ClassFileConverterTest;
+import com.google.devtools.j2objc.javac.ImportExclusionRulesTest;
 import com.google.devtools.j2objc.javac.JavacParserTest;
 import com.google.devtools.j2objc.javac.JavacTreeConverterTest;
 import com.google.devtools.j2objc.pipeline.J2ObjCIncompatibleStripperTest;
@@ -44,6 +46,7 @@ import com.google.devtools.j2objc.translate.AnnotationRewriterTest;
 import com.google.devtools.j2objc.translate.AnonymousClassConverterTest;
 import com.google.devtools.j2objc.translate.ArrayRewriterTest;
 import com.google.devtools.j2objc.translate.AutoboxerTest;
+import com.google.devtools.j2objc.translate.AutoreleasePoolInserterTest;
 import com.google.devtools.j2objc.translate.CastResolverTest;
 import com.google.devtools.j2objc.translate.ComplexExpressionExtractorTest;
 import com.google.devtools.j2objc.translate.ConstantBranchPrunerTest;
@@ -60,6 +63,7 @@ import com.google.devtools.j2objc.translate.InnerClassExtractorTest;
 import com.google.devtools.j2objc.translate.JavaCloneWriterTest;
 import com.google.devtools.j2objc.translate.JavaToIOSMethodTranslatorTest;
 import com.google.devtools.j2objc.translate.LambdaTypeElementAdderTest;
+import com.google.devtools.j2objc.translate.LoopConcatenationRewriterTest;
 import com.google.devtools.j2objc.translate.MetadataWriterTest;
 import com.google.devtools.j2objc.translate.NilCheckResolverTest;
 import com.google.devtools.j2objc.translate.NumberMethodRewriterTest;
@@ -71,6 +75,7 @@ import com.google.devtools.j2objc.translate.PackageInfoRewriterTest;
 import com.google.devtools.j2objc.translate.PrivateDeclarationResolverTest;
 import com.google.devtools.j2objc.translate.RewriterTest;
 import com.google.devtools.j2objc.translate.StaticVarRewriterTest;
+import com.google.devtools.j2objc.translate.StreamPipelineFuserTest;
 import com.google.devtools.j2objc.translate.SuperMethodInvocationRewriterTest;
 import com.google.devtools.j2objc.translate.SwitchRewriterTest;
 import com.google.devtools.j2objc.translate.TypeUseAnnotationTest;
@@ -90,6 +95,8 @@ import com.google.devtools.j2objc.util.PackageInfoLookupTest;
 import com.google.devtools.j2objc.util.PackagePrefixesTest;
 import com.google.devtools.j2objc.util.ProGuardUsageParserTest;
 import com.google.devtools.j2objc.util.TranslationUtilTest;
+import com.google.devtools.j2objc.util.TypeLocationIndexTest;
+import com.google.devtools.j2objc.util.TypeUtilTest;
 import com.google.devtools.j2objc.util.UnicodeUtilsTest;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -109,7 +116,9 @@ public class SmallTests {
         ArrayCreationTest.class,
         ArrayRewriterTest.class,
         AutoboxerTest.class,
+        AutoreleasePoolInserterTest.class,
         CastResolverTest.class,
+        ChildListTest.class,
         ClassFileConverterTest.class,
         ClassFileTest.class,
         CodeReferenceMapTest.class,
@@ -129,6 +138,7 @@ public class SmallTests {
         GwtConverterTest.class,
         HeaderImportCollectorTest.class,
         ImplementationImportCollectorTest.class,
+        ImportExclusionRulesTest.class,
         InfixExpressionTest.class,
         InitializationNormalizerTest.class,
         InnerClassExtractorTest.class,
@@ -143,6 +153,7 @@ public class SmallTests {
         LambdaTypeElementAdderTest.class,
         LineDirectivesTest.class,
         LiteralGeneratorTest.class,
+        LoopConcatenationRewriterTest.class,
         MetadataWriterTest.class,
         MethodReferenceTest.class,
         NameTableTest.class,
@@ -167,6 +178,7 @@ public class SmallTests {
         SignatureGeneratorTest.class,
         StatementGeneratorTest.class,
         StaticVarRewriterTest.class,
+        StreamPipelineFuserTest.class,
         SuperMethodInvocationRewriterTest.class,
         SwitchRewriterTest.class,
         TypeDeclarationGeneratorTest.class,
@@ -174,6 +186,8 @@ public class SmallTests {
         TypeUseAnnotationTest.class,
         TranslationProcessorTest.class,
         TranslationUtilTest.class,
+        TypeLocationIndexTest.class,
+        TypeUtilTest.class,
         UnicodeUtilsTest.class,
         UnsequencedExpressionRewriterTest.class,
         VarargsRewriterTest.class,
@@ -0,0 +1,162 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.ast;
+
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ChildList}.
+ */
+public class ChildListTest extends TestCase {
+
+  private Block block;
+  private List<Statement> statements;
+  private List<Statement> visited;
+
+  @Override
+  protected void setUp() {
+    block = new Block();
+    statements = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      Statement stmt = new EmptyStatement();
+      statements.add(stmt);
+      block.addStatement(stmt);
+    }
+    visited = new ArrayList<>();
+  }
+
+  private void visit(final Statement target, final Runnable action) {
+    block.accept(new TreeVisitor() {
+      @Override
+      public boolean visit(EmptyStatement node) {
+        visited.add(node);
+        if (node == target) {
+          action.run();
+        }
+        return true;
+      }
+    });
+  }
+
+  public void testReparenting() {
+    Statement stmt = statements.get(1);
+    assertSame(block, stmt.getParent());
+    stmt.remove();
+    assertNull(stmt.getParent());
+    assertEquals(3, block.getStatements().size());
+    Statement replacement = new EmptyStatement();
+    statements.get(2).replaceWith(replacement);
+    assertNull(statements.get(2).getParent());
+    assertSame(block, replacement.getParent());
+    assertSame(replacement, block.getStatements().get(1));
+    block.getStatements().clear();
+    assertNull(replacement.getParent());
+    assertTrue(block.getStatements().isEmpty());
+  }
+
+  public void testCopy() {
+    Block copy = block.copy();
+    assertEquals(4, copy.getStatements().size());
+    for (Statement stmt : copy.getStatements()) {
+      assertSame(copy, stmt.getParent());
+      assertFalse(statements.contains(stmt));
+    }
+  }
+
+  public void testRemoveSelfWhileVisiting() {
+    visit(statements.get(1), () -> statements.get(1).remove());
+    assertEquals(statements, visited);
+    assertEquals(3, block.getStatements().size());
+  }
+
+  public void testInsertWhileVisiting() {
+    Statement inserted = new EmptyStatement();
+    visit(statements.get(1), () -> block.getStatements().add(1, inserted));
+    // Nodes added during an iteration aren't visited by it.
+    assertEquals(statements, visited);
+    assertEquals(5, block.getStatements().size());
+  }
+
+  public void testRemoveLaterSiblingWhileVisiting() {
+    visit(statements.get(1), () -> statements.get(3).remove());
+    assertEquals(statements.subList(0, 3), visited);
+  }
+
+  public void testReplaceLaterSiblingWhileVisiting() {
+    Statement replacement = new EmptyStatement();
+    visit(statements.get(1), () -> {
+      block.getStatements().add(0, new EmptyStatement());
+      statements.get(2).replaceWith(replacement);
+    });
+    // The replacement is visited in place of the node it replaced.
+    assertEquals(4, visited.size());
+    assertSame(replacement, visited.get(2));
+    assertSame(statements.get(3), visited.get(3));
+  }
+
+  public void testRemoveAndAddBackWhileVisiting() {
+    Statement moved = statements.get(3);
+    visit(statements.get(1), () -> {
+      moved.remove();
+      block.getStatements().add(0, moved);
+    });
+    // The moved node left the list during the iteration, so it isn't visited.
+    assertEquals(statements.subList(0, 3), visited);
+    assertSame(moved, block.getStatements().get(0));
+  }
+
+  public void testReplaceAfterNestedVisit() {
+    final Statement replacement = new EmptyStatement();
+    final List<Statement> nestedVisits = new ArrayList<>();
+    visit(statements.get(1), () -> {
+      block.getStatements().add(0, new EmptyStatement());
+      // A nested iteration that also copies the list mustn't lose track of
+      // the outer iteration's array.
+      block.accept(new TreeVisitor() {
+        @Override
+        public boolean visit(EmptyStatement node) {
+          nestedVisits.add(node);
+          if (node == statements.get(2)) {
+            block.getStatements().add(new EmptyStatement());
+          }
+          return true;
+        }
+      });
+      statements.get(3).replaceWith(replacement);
+    });
+    assertEquals(5, nestedVisits.size());
+    assertEquals(4, visited.size());
+    assertSame(replacement, visited.get(3));
+  }
+
+  public void testRemoveAndReplaceAfterMoves() {
+    List<Statement> stmts = block.getStatements();
+    Statement first = new EmptyStatement();
+    stmts.add(0, first);
+    statements.get(0).remove();
+    Statement replacement = new EmptyStatement();
+    statements.get(3).replaceWith(replacement);
+    statements.get(2).remove();
+    assertEquals(3, stmts.size());
+    assertSame(first, stmts.get(0));
+    assertSame(statements.get(1), stmts.get(1));
+    assertSame(replacement, stmts.get(2));
+    for (int i = 0; i < stmts.size(); i++) {
+      assertEquals(i, stmts.get(i).getOwnerIndex());
+    }
+  }
+}
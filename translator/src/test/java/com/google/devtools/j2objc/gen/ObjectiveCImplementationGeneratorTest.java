@@ -518,6 +518,31 @@ public class ObjectiveCImplementationGeneratorTest extends GenerationTest {
         + "  @synchronized(Test_class_()) {");
   }
 
+  public void testSynchronizedMethodWithMonitorFunctions() throws IOException {
+    options.setMonitorFunctions(true);
+    String translation = translateSourceFile(
+        "public class Test {"
+        + "  int i;"
+        + "  public synchronized void foo() { i++; }"
+        + "  public static synchronized void bar() {} }",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "@synchronized");
+    assertTranslatedLines(translation,
+        "- (void)foo {",
+        "  {",
+        "    J2OBJC_SYNCHRONIZED(self);",
+        "    i_++;",
+        "  }",
+        "}");
+    assertTranslatedLines(translation,
+        "void Test_bar() {",
+        "  Test_initialize();",
+        "  {",
+        "    J2OBJC_SYNCHRONIZED(Test_class_());",
+        "  }",
+        "}");
+  }
+
   // Verify that an interface that has a generated implementation file and an Object method
   // like toString() doesn't print a description method.
   public void testNoInterfaceToString() throws IOException {
@@ -1671,4 +1671,26 @@ public class StatementGeneratorTest extends GenerationTest {
     assertTranslation(translation,
         "@interface Test_$Lambda$1 : NSObject < JavaUtilFunctionFunction >");
   }
+
+  public void testSynchronizedStatementWithMonitorFunctions() throws IOException {
+    options.setMonitorFunctions(true);
+    String translation = translateSourceFile(
+        "class Test { int i; void test(Object lock) {"
+        + "  synchronized (lock) { i++; }"
+        + "  synchronized (this) { for (int j = 0; j < 10; j++) { i += j; } } }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "@synchronized");
+    assertTranslatedLines(translation,
+        "{",
+        "J2OBJC_SYNCHRONIZED(lock);",
+        "i_++;",
+        "}");
+    assertTranslatedLines(translation,
+        "{",
+        "J2OBJC_SYNCHRONIZED(self);",
+        "for (jint j = 0; j < 10; j++) {",
+        "i_ += j;",
+        "}",
+        "}");
+  }
 }
@@ -15,6 +15,7 @@
 package com.google.devtools.j2objc.gen;
 
 import com.google.devtools.j2objc.GenerationTest;
+import com.google.devtools.j2objc.Options.MemoryManagementOption;
 import java.io.IOException;
 
 /**
@@ -172,4 +173,40 @@ public class TypeImplementationGeneratorTest extends GenerationTest {
     assertTranslation(translation, "@synthesize foo = foo_;");
     assertNotInTranslation(translation, "@synthesize bar");
   }
+
+  // Verify that GC mode emits a scan-offset table matching the declared fields.
+  public void testArgcScanTable() throws IOException {
+    options.setMemoryManagementOption(MemoryManagementOption.GC);
+    String source = "class Test { Test next; int count; String name; Object value; "
+        + "volatile Object pending; }";
+    String translation = translateSourceFile(source, "Test", "Test.m");
+    assertTranslatedLines(translation,
+        "#if J2OBJC_USE_GC",
+        "",
+        "static void Test_fillScanOffsets(scan_offset_t *refOffsets, "
+          + "scan_offset_t *nativeOffsets) {",
+        "  refOffsets[0] = ARGC_FIELD_OFFSET(Test, next_);",
+        "  refOffsets[1] = ARGC_FIELD_OFFSET(Test, value_);",
+        "  refOffsets[2] = ARGC_FIELD_OFFSET(Test, pending_);",
+        "  nativeOffsets[0] = ARGC_FIELD_OFFSET(Test, name_);",
+        "}",
+        "",
+        "J2OBJC_ARGC_SCAN_TABLE_SOURCE(Test, 3, 1, Test_fillScanOffsets)",
+        "",
+        "#endif");
+  }
+
+  public void testArgcScanTableWithoutObjectFields() throws IOException {
+    options.setMemoryManagementOption(MemoryManagementOption.GC);
+    String translation = translateSourceFile(
+        "class Test { int count; }", "Test", "Test.m");
+    assertTranslation(translation, "J2OBJC_ARGC_SCAN_TABLE_SOURCE(Test, 0, 0, NULL)");
+    assertNotInTranslation(translation, "Test_fillScanOffsets");
+  }
+
+  public void testNoArgcScanTableWithoutGC() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { Test next; }", "Test", "Test.m");
+    assertNotInTranslation(translation, "J2OBJC_ARGC_SCAN_TABLE_SOURCE");
+  }
 }
@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.javac;
+
+import java.util.Arrays;
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ImportExclusionRules}.
+ */
+public class ImportExclusionRulesTest extends TestCase {
+
+  private final ImportExclusionRules rules = new ImportExclusionRules(
+      Arrays.asList("foo.bar.Excluded", "Toplevel"),
+      Arrays.asList("com.example.internal.", "org.skip."));
+
+  public void testClassRules() {
+    assertFalse(rules.canImportClass("foo.bar.Excluded"));
+    assertFalse(rules.canImportClass("foo/bar/Excluded.java"));
+    assertFalse(rules.canImportClass("Toplevel"));
+    assertTrue(rules.canImportClass("foo.bar.ExcludedToo"));
+    assertTrue(rules.canImportClass("foo.bar.Excluded.h"));
+    assertTrue(rules.canImportClass("foo.Excluded"));
+  }
+
+  public void testPackageRules() {
+    assertFalse(rules.canImportClass("com.example.internal.Foo"));
+    assertFalse(rules.canImportClass("com/example/internal/sub/Foo.java"));
+    assertFalse(rules.canImportClass("org/skip/Foo.h"));
+    assertTrue(rules.canImportClass("com.example.Foo"));
+    assertTrue(rules.canImportClass("com.example.internals.Foo"));
+    assertTrue(rules.canImportClass("com.example.internal"));
+    assertTrue(rules.canImportClass("org.skipped.Foo"));
+  }
+
+  public void testPackageLookup() {
+    assertFalse(rules.canImportPackage("com.example.internal"));
+    assertFalse(rules.canImportPackage("org/skip"));
+    assertTrue(rules.canImportPackage("com.example"));
+    assertTrue(rules.canImportPackage("com.example.internal.sub"));
+  }
+
+  public void testMemoizedResultsAreStable() {
+    for (int i = 0; i < 3; i++) {
+      assertFalse(rules.canImportClass("org/skip/Foo.java"));
+      assertTrue(rules.canImportClass("org/keep/Foo.java"));
+    }
+  }
+}
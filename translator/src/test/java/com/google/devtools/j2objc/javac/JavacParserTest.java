@@ -15,6 +15,8 @@
 package com.google.devtools.j2objc.javac;
 
 import com.google.devtools.j2objc.GenerationTest;
+import com.google.devtools.j2objc.file.InputFile;
+import com.google.devtools.j2objc.file.RegularInputFile;
 
 /** Tests for {@link JavacParser}. */
 public class JavacParserTest extends GenerationTest {
@@ -30,4 +32,11 @@ public class JavacParserTest extends GenerationTest {
             "class Test {}");
     assertEquals("foo.bar", JavacParser.packageName(source));
   }
+
+  public void testMainTypeName() {
+    InputFile file = new RegularInputFile("foo/bar/Test.java");
+    assertEquals("foo.bar.Test",
+        parser.mainTypeName(file, "// package x.y;\npackage foo.bar;\nclass Test {}"));
+    assertEquals("Test", parser.mainTypeName(file, "class Test {}"));
+  }
 }
@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.translate;
+
+import com.google.devtools.j2objc.GenerationTest;
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link AutoreleasePoolInserter}.
+ */
+public class AutoreleasePoolInserterTest extends GenerationTest {
+
+  private static final String ALLOCATING_LOOP =
+      "import java.util.List;"
+      + "class Test { Object last; "
+      + "  void test(List<String> list, int n) {"
+      + "    for (int i = 0; i < n; i++) {"
+      + "      Object o = new Object();"
+      + "      last = o;"
+      + "      list.add(o.toString() + i);"
+      + "    }"
+      + "  }"
+      + "}";
+
+  public void testDisabledByDefault() throws IOException {
+    String translation = translateSourceFile(ALLOCATING_LOOP, "Test", "Test.m");
+    assertNotInTranslation(translation, "@autoreleasepool");
+  }
+
+  public void testAllocatingLoop() throws IOException {
+    options.setAutoreleasePoolThreshold(3);
+    String translation = translateSourceFile(ALLOCATING_LOOP, "Test", "Test.m");
+    assertTranslatedLines(translation,
+        "for (jint i = 0; i < n; i++) {",
+        "@autoreleasepool {",
+        "id o = create_NSObject_init();");
+  }
+
+  public void testBelowThreshold() throws IOException {
+    options.setAutoreleasePoolThreshold(4);
+    String translation = translateSourceFile(ALLOCATING_LOOP, "Test", "Test.m");
+    assertNotInTranslation(translation, "@autoreleasepool");
+  }
+
+  public void testNonBlockBody() throws IOException {
+    options.setAutoreleasePoolThreshold(1);
+    String translation = translateSourceFile(
+        "import java.util.*;"
+        + "class Test { void test(Iterator<Object> it, List<String> list) {"
+        + "  while (it.hasNext()) list.add(it.next().toString()); }}",
+        "Test", "Test.m");
+    assertTranslation(translation, "@autoreleasepool {");
+  }
+
+  public void testNestedLoopAllocationsAreWeighted() throws IOException {
+    options.setAutoreleasePoolThreshold(8);
+    String translation = translateSourceFile(
+        "class Test { void test(StringBuilder sb, int n, String s) {"
+        + "  for (int i = 0; i < n; i++) {"
+        + "    for (int j = 0; j < n; j++) {"
+        + "      sb.append(s.trim()); }}}}",
+        "Test", "Test.m");
+    // Only the outer loop's estimate includes the weighted inner allocations.
+    assertOccurrences(translation, "@autoreleasepool", 1);
+  }
+
+  public void testOuterLocalAssignment() throws IOException {
+    options.setAutoreleasePoolThreshold(1);
+    String translation = translateSourceFile(
+        "class Test { String test(int n) {"
+        + "  String last = null;"
+        + "  for (int i = 0; i < n; i++) { last = new Object().toString(); }"
+        + "  return last; }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "@autoreleasepool");
+  }
+
+  public void testReturnFromLoop() throws IOException {
+    options.setAutoreleasePoolThreshold(1);
+    String translation = translateSourceFile(
+        "class Test { String test(String[] strings) {"
+        + "  for (int i = 0; i < strings.length; i++) {"
+        + "    String s = strings[i].trim();"
+        + "    if (s.isEmpty()) { return s; }"
+        + "  }"
+        + "  return null; }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "@autoreleasepool");
+  }
+
+  public void testPrimitiveResults() throws IOException {
+    options.setAutoreleasePoolThreshold(2);
+    String translation = translateSourceFile(
+        "class Test { int test(String[] strings) {"
+        + "  int total = 0;"
+        + "  for (int i = 0; i < strings.length; i++) {"
+        + "    String s = strings[i].trim().toLowerCase();"
+        + "    total += s.length();"
+        + "    if (total > 100) { return total; }"
+        + "  }"
+        + "  return total; }}",
+        "Test", "Test.m");
+    assertTranslation(translation, "@autoreleasepool");
+  }
+}
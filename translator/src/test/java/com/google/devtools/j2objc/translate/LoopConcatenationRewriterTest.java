@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.translate;
+
+import com.google.devtools.j2objc.GenerationTest;
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link LoopConcatenationRewriter}.
+ */
+public class LoopConcatenationRewriterTest extends GenerationTest {
+
+  public void testEnhancedForOverArray() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { String test(String[] fields) {"
+        + "  String line = \"\";"
+        + "  for (String field : fields) { line += field + \",\"; }"
+        + "  return line; }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "JreStrAppend");
+    // Presized for one character per element.
+    assertTranslation(translation,
+        "JavaLangStringBuilder *line$builder = [create_JavaLangStringBuilder_initWithInt_("
+        + "[line java_length] + ");
+    assertTranslation(translation, "->size_) appendWithNSString:line];");
+    assertTranslation(translation, "[line$builder appendWithNSString:");
+    assertTranslatedLines(translation,
+        "}",
+        "line = [line$builder description];",
+        "}",
+        "return line;");
+  }
+
+  public void testCountedLoop() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { String test(int[] values) {"
+        + "  String s = \"[\";"
+        + "  for (int i = 0; i < values.length; i++) { s += \", \"; s += values[i]; }"
+        + "  return s + \"]\"; }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "JreStrAppend");
+    assertTranslation(translation, "create_JavaLangStringBuilder_initWithInt_([s java_length] + ");
+    assertTranslation(translation, "->size_ * 3)");
+    assertTranslation(translation, "[s$builder appendWithNSString:@\", \"];");
+    assertTranslation(translation, "[s$builder appendWithInt:");
+  }
+
+  public void testUnknownBounds() throws IOException {
+    String translation = translateSourceFile(
+        "import java.util.Iterator;"
+        + "class Test { String test(Iterator<Object> it) {"
+        + "  String s = \"\";"
+        + "  while (it.hasNext()) { s += it.next(); }"
+        + "  return s; }}",
+        "Test", "Test.m");
+    assertTranslation(translation,
+        "JavaLangStringBuilder *s$builder = create_JavaLangStringBuilder_initWithNSString_(s);");
+    assertTranslation(translation, "[s$builder appendWithId:");
+  }
+
+  public void testEarlyExitIsNotPresized() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { String test(String[] strings) {"
+        + "  String s = \"\";"
+        + "  for (String t : strings) { if (t == null) break; s += t + \";\"; }"
+        + "  return s; }}",
+        "Test", "Test.m");
+    assertTranslation(translation, "create_JavaLangStringBuilder_initWithNSString_(s)");
+  }
+
+  public void testReadInLoop() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { String test(String[] strings) {"
+        + "  String s = \"\";"
+        + "  for (String t : strings) { if (s.length() > 10) { return s; } s += t; }"
+        + "  return s; }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "JavaLangStringBuilder");
+  }
+
+  public void testNullableVariable() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { String test(String[] strings, String prefix) {"
+        + "  String s = prefix;"
+        + "  for (String t : strings) { s += t; }"
+        + "  String u = \"\";"
+        + "  u = null;"
+        + "  for (String t : strings) { u += t; }"
+        + "  return s + u; }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "JavaLangStringBuilder");
+  }
+
+  public void testLoopInTryStatement() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { String test(String[] strings) {"
+        + "  String s = \"\";"
+        + "  try { for (String t : strings) { s += t.trim(); } }"
+        + "  catch (NullPointerException e) { return s; }"
+        + "  return s; }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "JavaLangStringBuilder");
+  }
+
+  public void testLabeledContinue() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { String test(String[][] rows) {"
+        + "  String s = \"\";"
+        + "  outer: for (String[] row : rows) {"
+        + "    for (String cell : row) { if (cell == null) continue outer; s += cell; }"
+        + "    s += \"\\n\"; }"
+        + "  return s; }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "JavaLangStringBuilder");
+  }
+}
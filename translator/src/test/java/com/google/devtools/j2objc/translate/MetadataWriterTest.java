@@ -300,4 +300,28 @@ public class MetadataWriterTest extends GenerationTest {
         "interface Test<T> extends com.google.j2objc.NSFastEnumeration {}", "Test", "Test.m");
     assertNotInTranslation(translation, "NSFastEnumeration");
   }
+
+  public void testMethodNameIndex() throws IOException {
+    String translation = translateSourceFile(
+        "interface Test { void b(); void a(); void B(); void a(int i); }", "Test", "Test.m");
+    // Sorted by Java name as strcmp() compares them, with overloads in declaration order.
+    assertTranslation(translation, "static const uint16_t methodIndex[] = { 2, 1, 3, 0 };");
+    assertTranslation(translation, "static const void *ptrTable[] = { \"a\", \"I\", methodIndex };");
+    assertTranslation(translation, ", -1, 2, -1 };");
+  }
+
+  public void testFieldNameIndex() throws IOException {
+    String translation = translateSourceFile(
+        "class Test { int zebra; static int apple; int mango; Object id; }", "Test", "Test.m");
+    // The Java name of "id" is in the metadata, since it is a reserved name in Objective-C.
+    assertTranslation(translation, "static const uint16_t fieldIndex[] = { 1, 3, 2, 0 };");
+    assertTranslation(translation, "fieldIndex };");
+  }
+
+  public void testNoIndexForSingleMember() throws IOException {
+    String translation = translateSourceFile(
+        "interface Test { void test(); }", "Test", "Test.m");
+    assertNotInTranslation(translation, "methodIndex");
+    assertTranslation(translation, ", -1, -1, -1 };");
+  }
 }
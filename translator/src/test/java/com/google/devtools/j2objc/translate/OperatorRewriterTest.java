@@ -289,4 +289,27 @@ public class OperatorRewriterTest extends GenerationTest {
     assertTranslation(translation, "return JreRetainedLocalValue(f1)");
     assertTranslation(translation, "return val;");
   }
+
+  public void testGCConstructorInitializingStores() throws IOException {
+    options.setMemoryManagementOption(MemoryManagementOption.GC);
+    String translation = translateSourceFile(
+        "class Test { Test next; Test other; String name;"
+        + "  Test(Test next, String name) {"
+        + "    this.next = next; this.name = name; register(); this.other = next; }"
+        + "  void register() {} }", "Test", "Test.m");
+    assertTranslation(translation, "JreObjectFieldInit(&self->next_, next);");
+    // String is not an ARGC type, so it keeps its regular barrier.
+    assertTranslation(translation, "JreNativeFieldAssign(&self->name_, name);");
+    // The instance escapes through register(), so later stores need the full barrier.
+    assertTranslation(translation, "JreObjectFieldAssign(&self->other_, next);");
+  }
+
+  public void testGCNoInitializingStoresAfterSuperConstructor() throws IOException {
+    options.setMemoryManagementOption(MemoryManagementOption.GC);
+    String translation = translateSourceFile(
+        "class Test { static class Base {} static class Sub extends Base { Sub next;"
+        + "  Sub(Sub next) { this.next = next; } } }", "Test", "Test.m");
+    assertTranslation(translation, "JreObjectFieldAssign(&self->next_, next);");
+    assertNotInTranslation(translation, "FieldInit");
+  }
 }
@@ -0,0 +1,166 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.translate;
+
+import com.google.devtools.j2objc.GenerationTest;
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link StreamPipelineFuser}.
+ */
+public class StreamPipelineFuserTest extends GenerationTest {
+
+  private static final String PERSON =
+      "class Person { String name; int age; }";
+
+  @Override
+  protected void setUp() throws IOException {
+    super.setUp();
+    options.setFuseStreams(true);
+  }
+
+  public void testDisabledByDefault() throws IOException {
+    options.setFuseStreams(false);
+    String translation = translateSourceFile(
+        "import java.util.*; class Test { void test(List<String> list) {"
+        + "  list.stream().forEach(s -> System.out.println(s)); }}",
+        "Test", "Test.m");
+    assertTranslation(translation, "forEachWithJavaUtilFunctionConsumer:");
+  }
+
+  public void testFilterMapCollect() throws IOException {
+    String translation = translateSourceFile(
+        "import java.util.*; import java.util.stream.*; " + PERSON
+        + " class Test { List<String> test(List<Person> people) {"
+        + "  List<String> names = people.stream().filter(p -> p.age >= 18)"
+        + "      .map(p -> p.name).collect(Collectors.toList());"
+        + "  return names; }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "stream]");
+    assertNotInTranslation(translation, "Lambda");
+    assertTranslation(translation,
+        "id<JavaUtilList> stream$0 = create_JavaUtilArrayList_init();");
+    assertTranslation(translation, "if (!(((Person *) nil_chk(p))->age_ >= 18)) continue;");
+    assertTranslation(translation, "NSString *p$1 = p->name_;");
+    assertTranslation(translation, "[stream$0 addWithId:p$1];");
+    assertTranslation(translation, "id<JavaUtilList> names = stream$0;");
+  }
+
+  public void testForEachOverArray() throws IOException {
+    String translation = translateSourceFile(
+        "import java.util.*; class Test { void test(String[] strings, List<String> out) {"
+        + "  Arrays.stream(strings).map(s -> s.trim()).forEach(s -> { out.add(s); }); }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "Lambda");
+    assertTranslation(translation, "NSString *s$1 = [((NSString *) nil_chk(s)) java_trim];");
+    assertTranslation(translation, "[((id<JavaUtilList>) nil_chk(out)) addWithId:s$1];");
+  }
+
+  public void testCount() throws IOException {
+    String translation = translateSourceFile(
+        "import java.util.*; class Test { long test(Set<Integer> set) {"
+        + "  return set.stream().filter(i -> i > 0).count(); }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "Lambda");
+    assertTranslation(translation, "jlong stream$0 = 0;");
+    assertTranslation(translation, "stream$0++;");
+    assertTranslation(translation, "return stream$0;");
+  }
+
+  public void testMatches() throws IOException {
+    String translation = translateSourceFile(
+        "import java.util.*; class Test { boolean test(List<String> list) {"
+        + "  boolean any = list.stream().anyMatch(s -> s.isEmpty());"
+        + "  boolean all = list.stream().allMatch(s -> s.isEmpty());"
+        + "  boolean none = list.stream().noneMatch(s -> s.isEmpty());"
+        + "  return any || all || none; }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "Lambda");
+    assertTranslation(translation, "jboolean stream$0 = false;");
+    assertTranslation(translation, "jboolean stream$1 = true;");
+    assertTranslation(translation, "jboolean stream$2 = true;");
+    assertTranslatedLines(translation,
+        "stream$0 = true;",
+        "break;");
+    assertTranslatedLines(translation,
+        "stream$1 = false;",
+        "break;");
+    assertTranslation(translation, "jboolean any = stream$0;");
+  }
+
+  public void testStatementWithoutBlock() throws IOException {
+    String translation = translateSourceFile(
+        "import java.util.*; class Test { long test(List<String> list, boolean b) {"
+        + "  if (b) return list.stream().count(); return 0; }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "Lambda");
+    assertTranslatedLines(translation,
+        "if (b) {",
+        "jlong stream$0 = 0;");
+  }
+
+  public void testDeclarationInSwitchCase() throws IOException {
+    String translation = translateSourceFile(
+        "import java.util.*; class Test { long test(List<String> list, int i) {"
+        + "  switch (i) {"
+        + "    case 0:"
+        + "      long n = list.stream().count();"
+        + "      return n + 1;"
+        + "    default:"
+        + "      return 0; }}}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "Lambda");
+    // The declaration stays in the switch's scope, so n is still declared
+    // where it's used.
+    assertTranslation(translation, "jlong n;");
+    assertTranslation(translation, "n = stream$0;");
+    assertTranslation(translation, "return n + 1;");
+    assertNotInTranslation(translation, "jlong n = stream$0;");
+  }
+
+  public void testNamesDeclaredInLambdaBodies() throws IOException {
+    String translation = translateSourceFile(
+        "import java.util.*; " + PERSON
+        + " class Test { void test(List<Person> people, List<String> out) {"
+        + "  people.stream().filter(p -> p.age > 0).forEach(q -> {"
+        + "    Person p = q; out.add(p.name); }); }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "Lambda");
+    // The loop variable is named after the filter's parameter, but mustn't
+    // collide with the local declared in the forEach body.
+    assertTranslation(translation, "Person *p = p$1;");
+    assertTranslation(translation, "if (!(((Person *) nil_chk(p$1))->age_ > 0)) continue;");
+    assertNotInTranslation(translation, "Person *p = p;");
+  }
+
+  public void testUnsupportedPipelines() throws IOException {
+    String translation = translateSourceFile(
+        "import java.util.*; import java.util.stream.*; class Test {"
+        + "  List<String> list() { return null; }"
+        + "  void test(List<String> list, Collection<String> out) {"
+        + "    list.parallelStream().forEach(s -> out.add(s));"
+        + "    list.stream().parallel().forEach(s -> out.add(s));"
+        + "    list.stream().sorted().forEach(s -> out.add(s));"
+        + "    list.stream().forEach(out::add);"
+        + "    list().stream().forEach(s -> out.add(s));"
+        + "    Map<Integer, List<String>> m ="
+        + "        list.stream().collect(Collectors.groupingBy(s -> s.length()));"
+        + "    list.stream().forEach(s -> { if (s.isEmpty()) return; out.add(s); });"
+        + "    long n = list.stream().filter(s -> list.stream().anyMatch(t -> t == s)).count(); }}",
+        "Test", "Test.m");
+    assertNotInTranslation(translation, "stream$");
+    assertOccurrences(translation, "forEachWithJavaUtilFunctionConsumer:", 6);
+  }
+}
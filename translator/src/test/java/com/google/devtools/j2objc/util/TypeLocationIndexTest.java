@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.util;
+
+import com.google.devtools.j2objc.GenerationTest;
+import com.google.devtools.j2objc.J2ObjC;
+import com.google.devtools.j2objc.file.InputFile;
+import com.google.devtools.j2objc.javac.ImportManager;
+import com.google.devtools.j2objc.pipeline.BuildClosureQueue;
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link TypeLocationIndex}.
+ */
+public class TypeLocationIndexTest extends GenerationTest {
+
+  @Override
+  protected void tearDown() throws Exception {
+    ImportManager.clearNotImportRules();
+    J2ObjC.options.setHasCustomImportRule(false);
+    super.tearDown();
+  }
+
+  private void addStoredSource(String source, String fileName) throws IOException {
+    String path = addSourceFile(source, fileName);
+    SourceStore.addRootPath(tempDir);
+    new SourceStore(options).addSource(path);
+  }
+
+  public void testSourceLookup() throws IOException {
+    addStoredSource("package foo.bar; class Indexed {}", "foo/bar/Indexed.java");
+    // Only sources registered with the SourceStore are found, not other
+    // files on the source path.
+    addSourceFile("package foo.bar; class Unregistered {}", "foo/bar/Unregistered.java");
+    TypeLocationIndex index = new TypeLocationIndex(options.fileUtil());
+
+    InputFile file = index.findSource("foo.bar.Indexed");
+    assertNotNull(file);
+    assertTrue(file.exists());
+    assertNull(index.findSource("foo.bar.Unregistered"));
+    assertNull(index.findSource("foo.bar.Missing"));
+  }
+
+  public void testDeletedSource() throws IOException {
+    addStoredSource("package foo.bar; class Deleted {}", "foo/bar/Deleted.java");
+    removeFile("foo/bar/Deleted.java");
+    TypeLocationIndex index = new TypeLocationIndex(options.fileUtil());
+    assertNull(index.findSource("foo.bar.Deleted"));
+  }
+
+  public void testExcludedClassNotInClosure() throws IOException {
+    addStoredSource("package foo.bar; class Excluded {}", "foo/bar/Excluded.java");
+    addStoredSource("package foo.bar; class Included {}", "foo/bar/Included.java");
+    J2ObjC.options.setHasCustomImportRule(true);
+    ImportManager.addNotImportRule("foo.bar.Excluded");
+
+    BuildClosureQueue queue = new BuildClosureQueue(options);
+    queue.addName("foo.bar.Excluded");
+    queue.addName("foo.bar.Included");
+    InputFile file = queue.getNextFile();
+    assertNotNull(file);
+    assertEquals("foo/bar/Included.java", file.getUnitName());
+    assertNull(queue.getNextFile());
+  }
+
+  public void testClassPathLookup() throws IOException {
+    addSourceFile("", "foo/bar/Compiled.class");
+    addSourceFile("", "foo/bar/Compiled$Inner.class");
+    TypeLocationIndex index = new TypeLocationIndex(options.fileUtil());
+
+    assertTrue(index.isOnClassPath("foo.bar.Compiled"));
+    assertTrue(index.isOnClassPath("foo.bar.Compiled.Inner"));
+    assertFalse(index.isOnClassPath("foo.bar.Missing"));
+  }
+
+  public void testHeaderTimestamps() throws IOException {
+    TypeLocationIndex index = new TypeLocationIndex(options.fileUtil());
+    assertEquals(0L, index.getHeaderLastModified("foo.bar.Generated"));
+    // Headers written after the first lookup are seen.
+    addSourceFile("", "foo/bar/Generated.h");
+    assertEquals(getTempFile("foo/bar/Generated.h").lastModified(),
+        index.getHeaderLastModified("foo.bar.Generated"));
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.devtools.j2objc.util;
+
+import com.google.devtools.j2objc.GenerationTest;
+import com.google.devtools.j2objc.ast.AbstractTypeDeclaration;
+import com.google.devtools.j2objc.ast.CompilationUnit;
+import com.google.devtools.j2objc.util.TypeUtil.ArgcFieldType;
+import java.io.IOException;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+
+/**
+ * UnitTests for the {@link TypeUtil} class.
+ */
+public class TypeUtilTest extends GenerationTest {
+
+  public void testArgcFieldType() throws IOException {
+    CompilationUnit unit = translateType("Example",
+        "class Example { static class MyException extends RuntimeException {} "
+        + "static class Node {} static class Leaf extends Node {} }");
+    TypeUtil typeUtil = unit.getEnv().typeUtil();
+    TypeElement owner = findType(unit, "Example");
+    TypeMirror node = typeOf(unit, "Node");
+    TypeMirror leaf = typeOf(unit, "Leaf");
+    assertEquals(ArgcFieldType.OBJECT, typeUtil.getArgcFieldTypeEx(owner, node));
+    assertEquals(ArgcFieldType.OBJECT, typeUtil.getArgcFieldTypeEx(owner, leaf));
+    assertEquals(ArgcFieldType.NATIVE,
+        typeUtil.getArgcFieldTypeEx(owner, typeOf(unit, "MyException")));
+    assertEquals(ArgcFieldType.NATIVE,
+        typeUtil.getArgcFieldTypeEx(owner, typeUtil.javaString.asType()));
+    assertEquals(ArgcFieldType.GENERIC,
+        typeUtil.getArgcFieldTypeEx(owner, typeUtil.javaObject.asType()));
+    // Fields of a native class are always native.
+    TypeElement exception = findType(unit, "MyException");
+    assertEquals(ArgcFieldType.NATIVE, typeUtil.getArgcFieldTypeEx(exception, node));
+    assertFalse(typeUtil.isARGCFieldEx(exception, node));
+    assertTrue(typeUtil.isARGCFieldEx(owner, leaf));
+    assertFalse(typeUtil.isARGCFieldEx(owner, typeUtil.getInt()));
+  }
+
+  private static TypeElement findType(CompilationUnit unit, String simpleName) {
+    for (AbstractTypeDeclaration type : unit.getTypes()) {
+      if (type.getTypeElement().getSimpleName().contentEquals(simpleName)) {
+        return type.getTypeElement();
+      }
+    }
+    throw new AssertionError("No type named " + simpleName);
+  }
+
+  private static TypeMirror typeOf(CompilationUnit unit, String simpleName) {
+    return findType(unit, simpleName).asType();
+  }
+}
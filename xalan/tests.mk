@@ -0,0 +1,70 @@
+# Licensed under the Apache License, Version 2.0 (the "License");
+# you may not use this file except in compliance with the License.
+# You may obtain a copy of the License at
+#
+# http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+
+.PHONY: default clean
+
+include environment.mk
+
+#
+TEST_JAVA_SRC_DIR = tests
+TESTS_DIR = $(BUILD_DIR)/tests
+
+TEST_JAVA_SOURCES = \
+  $(TEST_JAVA_SRC_DIR)/org/apache/xml/serializer/ToStreamTest.java \
+  $(TEST_JAVA_SRC_DIR)/org/apache/xpath/jaxp/DOMDTMCacheTest.java \
+  $(TEST_JAVA_SRC_DIR)/org/apache/xpath/jaxp/XPathExpressionCacheTest.java
+TEST_OBJC_SOURCES = $(TEST_JAVA_SOURCES:$(TEST_JAVA_SRC_DIR)/%.java=$(TESTS_DIR)/%.m)
+TEST_CLASSES = \
+  org.apache.xml.serializer.ToStreamTest \
+  org.apache.xpath.jaxp.DOMDTMCacheTest \
+  org.apache.xpath.jaxp.XPathExpressionCacheTest
+
+CLASS_PATH_OPT = -classpath $(DIST_JAR_DIR)/$(JUNIT_JAR) -sourcepath $(SRC_DIR)
+LINKER_OPT = -ObjC -L$(ARCH_BUILD_DIR) -lxalan -ljunit -ljre_emul \
+  -I$(GEN_OBJC_DIR) -I$(TESTS_DIR)
+
+TEST_BIN = $(TESTS_DIR)/xalan_tests
+
+# The serializer loads its output method defaults as resources, which are
+# looked up next to the test binary.
+TEST_RESOURCES_RELATIVE = \
+  org/apache/xml/serializer/Encodings.properties \
+  org/apache/xml/serializer/HTMLEntities.properties \
+  org/apache/xml/serializer/XMLEntities.properties \
+  org/apache/xml/serializer/output_html.properties \
+  org/apache/xml/serializer/output_text.properties \
+  org/apache/xml/serializer/output_unknown.properties \
+  org/apache/xml/serializer/output_xml.properties
+TEST_RESOURCES = $(TEST_RESOURCES_RELATIVE:%=$(TESTS_DIR)/%)
+
+#
+default: test
+
+test: $(TEST_BIN) $(TEST_RESOURCES)
+	$< org.junit.runner.JUnitCore $(TEST_CLASSES)
+
+clean:
+	rm -rf $(TESTS_DIR)
+
+#
+$(TEST_BIN): $(TEST_OBJC_SOURCES) | $(TESTS_DIR)
+	$(DIST_DIR)/j2objcc $(LINKER_OPT) -o $@ $^
+
+$(TESTS_DIR)/%.m: $(TEST_JAVA_SRC_DIR)/%.java
+	$(DIST_DIR)/j2objc $(CLASS_PATH_OPT) -d $(TESTS_DIR) $<
+
+$(TESTS_DIR)/%.properties: $(SRC_DIR)/%.properties
+	@mkdir -p $(@D)
+	@install -m 0644 $< $@
+
+$(TESTS_DIR):
+	@mkdir -p $@
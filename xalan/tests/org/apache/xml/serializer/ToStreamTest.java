@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xml.serializer;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Tests that {@link ToStream} and {@link ToHTMLStream} escape text and
+ * attribute values exactly as they did before clean character runs were
+ * skipped in one go. The expected strings were produced by the serializer
+ * as it was before that change, quirks included: for instance, XML text
+ * writes each half of a surrogate pair as its own character reference.
+ */
+public class ToStreamTest extends TestCase {
+
+    /** Characters that take every branch of the escaping code. */
+    private static final String ALPHABET =
+            "ab <>&\"'\t\r\n\u0001\u001f\u007f\u0085\u009f\u00a0\u00e9\u00ff"
+            + "\u0100\u2028\u20ac\ud83d\ude00";
+
+    private String method;
+
+    public void testXml() throws Exception {
+        method = "xml";
+        assertSerialized("UTF-8", "",
+                "<p/>",
+                "<p a=\"\"/>");
+        assertSerialized("UTF-8", "plain text",
+                "<p>plain text</p>",
+                "<p a=\"plain text\"/>");
+        assertSerialized("UTF-8", "a<b>c&d\"e'f",
+                "<p>a&lt;b&gt;c&amp;d\"e'f</p>",
+                "<p a=\"a&lt;b&gt;c&amp;d&quot;e'f\"/>");
+        assertSerialized("UTF-8", "tab\there",
+                "<p>tab\there</p>",
+                "<p a=\"tab&#9;here\"/>");
+        assertSerialized("UTF-8", "cr\rlf\nend",
+                "<p>cr&#13;lf\nend</p>",
+                "<p a=\"cr&#13;lf&#10;end\"/>");
+        assertSerialized("UTF-8", "ctl\u0001\u001f\u007f\u0085\u009f",
+                "<p>ctl&#1;&#31;&#127;&#133;&#159;</p>",
+                "<p a=\"ctl&#1;&#31;&#127;&#133;&#159;\"/>");
+        assertSerialized("UTF-8", "lsep\u2028x",
+                "<p>lsep&#8232;x</p>",
+                "<p a=\"lsep&#8232;x\"/>");
+        assertSerialized("UTF-8", "nbsp\u00a0caf\u00e9",
+                "<p>nbsp\u00a0caf\u00e9</p>",
+                "<p a=\"nbsp\u00a0caf\u00e9\"/>");
+        assertSerialized("UTF-8", "\u00ff\u0100\u20ac",
+                "<p>\u00ff\u0100\u20ac</p>",
+                "<p a=\"\u00ff\u0100\u20ac\"/>");
+        assertSerialized("UTF-8", "emoji\ud83d\ude00end",
+                "<p>emoji&#55357;&#56832;end</p>",
+                "<p a=\"emoji&#55357;&#56832;end\"/>");
+        assertSerialized("UTF-8", "x]]>y",
+                "<p>x]]&gt;y</p>",
+                "<p a=\"x]]&gt;y\"/>");
+        assertSerialized("UTF-8", "clean run then <",
+                "<p>clean run then &lt;</p>",
+                "<p a=\"clean run then &lt;\"/>");
+        assertSerialized("UTF-8", "< then clean run",
+                "<p>&lt; then clean run</p>",
+                "<p a=\"&lt; then clean run\"/>");
+        assertSerialized("US-ASCII", "nbsp\u00a0caf\u00e9",
+                "<p>nbsp&#160;caf&#233;</p>",
+                "<p a=\"nbsp&#160;caf&#233;\"/>");
+        assertSerialized("US-ASCII", "\u00ff\u0100\u20ac",
+                "<p>&#255;&#256;&#8364;</p>",
+                "<p a=\"&#255;&#256;&#8364;\"/>");
+        assertSerialized("ISO-8859-1", "\u00ff\u0100\u20ac",
+                "<p>\u00ff&#256;&#8364;</p>",
+                "<p a=\"\u00ff&#256;&#8364;\"/>");
+    }
+
+    public void testHtml() throws Exception {
+        method = "html";
+        assertSerialized("UTF-8", "",
+                "<p></p>\n",
+                "<p a=\"\"></p>\n");
+        assertSerialized("UTF-8", "plain text",
+                "<p>plain text</p>\n",
+                "<p a=\"plain text\"></p>\n");
+        assertSerialized("UTF-8", "a<b>c&d\"e'f",
+                "<p>a&lt;b&gt;c&amp;d\"e'f</p>\n",
+                "<p a=\"a<b>c&amp;d&quot;e'f\"></p>\n");
+        assertSerialized("UTF-8", "tab\there",
+                "<p>tab\there</p>\n",
+                "<p a=\"tab\there\"></p>\n");
+        assertSerialized("UTF-8", "cr\rlf\nend",
+                "<p>cr&#13;lf\nend</p>\n",
+                "<p a=\"cr\rlf\nend\"></p>\n");
+        assertSerialized("UTF-8", "ctl\u0001\u001f\u007f\u0085\u009f",
+                "<p>ctl&#1;&#31;&#127;&#133;&#159;</p>\n",
+                "<p a=\"ctl&#1;&#31;\u007f\u0085\u009f\"></p>\n");
+        assertSerialized("UTF-8", "lsep\u2028x",
+                "<p>lsep&#8232;x</p>\n",
+                "<p a=\"lsep\u2028x\"></p>\n");
+        assertSerialized("UTF-8", "nbsp\u00a0caf\u00e9",
+                "<p>nbsp&nbsp;caf&eacute;</p>\n",
+                "<p a=\"nbsp&nbsp;caf&eacute;\"></p>\n");
+        assertSerialized("UTF-8", "\u00ff\u0100\u20ac",
+                "<p>&yuml;\u0100&euro;</p>\n",
+                "<p a=\"&yuml;\u0100&euro;\"></p>\n");
+        assertSerialized("UTF-8", "emoji\ud83d\ude00end",
+                "<p>emoji&#55357;&#56832;end</p>\n",
+                "<p a=\"emoji\ud83d\ude00&#55357;end\"></p>\n");
+        assertSerialized("UTF-8", "x]]>y",
+                "<p>x]]&gt;y</p>\n",
+                "<p a=\"x]]>y\"></p>\n");
+        assertSerialized("UTF-8", "clean run then <",
+                "<p>clean run then &lt;</p>\n",
+                "<p a=\"clean run then <\"></p>\n");
+        assertSerialized("UTF-8", "< then clean run",
+                "<p>&lt; then clean run</p>\n",
+                "<p a=\"< then clean run\"></p>\n");
+        assertSerialized("US-ASCII", "ctl\u0001\u001f\u007f\u0085\u009f",
+                "<p>ctl&#1;&#31;&#127;&#133;&#159;</p>\n",
+                "<p a=\"ctl&#1;&#31;\u007f&#133;&#159;\"></p>\n");
+        assertSerialized("US-ASCII", "lsep\u2028x",
+                "<p>lsep&#8232;x</p>\n",
+                "<p a=\"lsep&#8232;x\"></p>\n");
+        assertSerialized("US-ASCII", "\u00ff\u0100\u20ac",
+                "<p>&yuml;&#256;&euro;</p>\n",
+                "<p a=\"&yuml;&#256;&euro;\"></p>\n");
+        assertSerialized("US-ASCII", "emoji\ud83d\ude00end",
+                "<p>emoji&#55357;&#56832;end</p>\n",
+                "<p a=\"emoji&#128512;&#55357;end\"></p>\n");
+        assertSerialized("ISO-8859-1", "lsep\u2028x",
+                "<p>lsep&#8232;x</p>\n",
+                "<p a=\"lsep&#8232;x\"></p>\n");
+        assertSerialized("ISO-8859-1", "\u00ff\u0100\u20ac",
+                "<p>&yuml;&#256;&euro;</p>\n",
+                "<p a=\"&yuml;&#256;&euro;\"></p>\n");
+        assertSerialized("ISO-8859-1", "emoji\ud83d\ude00end",
+                "<p>emoji&#55357;&#56832;end</p>\n",
+                "<p a=\"emoji&#128512;&#55357;end\"></p>\n");
+    }
+
+    public void testPiecesMatchWhole() throws Exception {
+        Random random = new Random(42);
+        for (String method : new String[] { "xml", "html" }) {
+            for (String encoding : new String[] { "UTF-8", "US-ASCII", "ISO-8859-1" }) {
+                for (int i = 0; i < 50; i++) {
+                    String value = randomText(random, 1 + random.nextInt(40));
+                    assertEquals(value, serialize(method, encoding, value, null, false),
+                            serialize(method, encoding, value, null, true));
+                    assertEquals(value, attrValue(method, encoding, value),
+                            attrValueInPieces(method, encoding, value, 1));
+                }
+            }
+        }
+    }
+
+    public void testLongRunsAcrossBufferBoundaries() throws Exception {
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(7);
+        while (text.length() < 100000) {
+            // Long clean runs broken up by the odd character to escape.
+            for (int n = random.nextInt(3000); n > 0; n--) {
+                text.append((char) ('a' + n % 26));
+            }
+            text.append(randomText(random, 1));
+        }
+        String value = text.toString();
+        for (String method : new String[] { "xml", "html" }) {
+            for (String encoding : new String[] { "UTF-8", "US-ASCII" }) {
+                assertEquals(serialize(method, encoding, value, null, true),
+                        serialize(method, encoding, value, null, false));
+                assertEquals(attrValueInPieces(method, encoding, value, 1000),
+                        attrValue(method, encoding, value));
+            }
+        }
+    }
+
+    private void assertSerialized(String encoding, String input, String text, String attr)
+            throws Exception {
+        assertEquals(text, serialize(method, encoding, input, null, false));
+        assertEquals(attr, serialize(method, encoding, null, input, false));
+    }
+
+    /**
+     * Returns the escaped form of <code>value</code> in an attribute. No
+     * character is escaped differently depending on its neighbors, apart
+     * from the halves of a surrogate pair.
+     */
+    private static String attrValue(String method, String encoding, String value)
+            throws Exception {
+        String element = serialize(method, encoding, null, value, false);
+        return element.substring(element.indexOf('"') + 1, element.lastIndexOf('"'));
+    }
+
+    /**
+     * Returns the escaped form of <code>value</code> in an attribute, built
+     * by escaping pieces of about <code>pieceLength</code> chars separately.
+     */
+    private static String attrValueInPieces(String method, String encoding, String value,
+            int pieceLength) throws Exception {
+        StringBuilder result = new StringBuilder();
+        int start = 0;
+        while (start < value.length()) {
+            int end = Math.min(start + pieceLength, value.length());
+            if (end < value.length() && Character.isLowSurrogate(value.charAt(end))) {
+                end++;
+            }
+            result.append(attrValue(method, encoding, value.substring(start, end)));
+            start = end;
+        }
+        return result.toString();
+    }
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        while (text.length() < length) {
+            int i = random.nextInt(ALPHABET.length());
+            if (Character.isLowSurrogate(ALPHABET.charAt(i))) {
+                i--;
+            }
+            text.append(ALPHABET.charAt(i));
+            if (Character.isHighSurrogate(ALPHABET.charAt(i))) {
+                text.append(ALPHABET.charAt(i + 1));
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Serializes a <code>p</code> element with the given text content and
+     * attribute value, and decodes the result. If <code>inPieces</code> is
+     * set, the text is passed one code point per characters() call.
+     */
+    private static String serialize(String method, String encoding, String text, String attr,
+            boolean inPieces) throws Exception {
+        Properties format = OutputPropertiesFactory.getDefaultMethodProperties(method);
+        format.setProperty("encoding", encoding);
+        format.setProperty("omit-xml-declaration", "yes");
+        Serializer serializer = SerializerFactory.getSerializer(format);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        serializer.setOutputStream(out);
+        ContentHandler handler = serializer.asContentHandler();
+        handler.startDocument();
+        AttributesImpl attributes = new AttributesImpl();
+        if (attr != null) {
+            attributes.addAttribute("", "a", "a", "CDATA", attr);
+        }
+        handler.startElement("", "p", "p", attributes);
+        if (text != null) {
+            char[] chars = text.toCharArray();
+            if (inPieces) {
+                for (int i = 0; i < chars.length; ) {
+                    int length = Character.charCount(Character.codePointAt(chars, i));
+                    handler.characters(chars, i, length);
+                    i += length;
+                }
+            } else {
+                handler.characters(chars, 0, chars.length);
+            }
+        }
+        handler.endElement("", "p", "p");
+        handler.endDocument();
+        return new String(out.toByteArray(), encoding);
+    }
+}
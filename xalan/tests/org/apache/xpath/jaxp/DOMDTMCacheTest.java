@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xpath.jaxp;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+
+import junit.framework.TestCase;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+/**
+ * Tests for {@link DOMDTMCache}.
+ */
+public class DOMDTMCacheTest extends TestCase {
+
+    private XPathFactoryImpl factory;
+    private DOMDTMCache cache;
+
+    protected void setUp() throws Exception {
+        factory = new XPathFactoryImpl();
+        factory.setFeature(XPathFactoryImpl.FEATURE_DTM_CACHE, true);
+        cache = factory.getDTMCache();
+    }
+
+    public void testFeatureIsOffByDefault() throws Exception {
+        XPathFactoryImpl factory = new XPathFactoryImpl();
+        assertFalse(factory.getFeature(XPathFactoryImpl.FEATURE_DTM_CACHE));
+        assertNull(factory.getDTMCache());
+    }
+
+    public void testReuse() throws Exception {
+        Document document = parse("<a><b>1</b><b>2</b><c>3</c></a>");
+        XPath xpath = factory.newXPath();
+        XPathExpression sum = xpath.compile("sum(/a/b)");
+        assertEquals(3.0, sum.evaluate(document, XPathConstants.NUMBER));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+
+        assertEquals(3.0, sum.evaluate(document, XPathConstants.NUMBER));
+        assertEquals("3", xpath.evaluate("/a/c", document.getDocumentElement()));
+        Element c = (Element) xpath.evaluate("/a/c", document, XPathConstants.NODE);
+        assertSame(document.getDocumentElement().getLastChild(), c);
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    public void testInvalidateAfterMutation() throws Exception {
+        Document document = parse("<a><b>1</b><b>2</b></a>");
+        Document other = parse("<a><b>5</b></a>");
+        XPath xpath = factory.newXPath();
+        assertEquals("2", xpath.evaluate("count(/a/b)", document));
+        assertEquals("1", xpath.evaluate("count(/a/b)", other));
+        assertEquals(2, cache.size());
+
+        Element b = document.createElement("b");
+        b.appendChild(document.createTextNode("3"));
+        document.getDocumentElement().appendChild(b);
+        cache.invalidate(b);
+        assertEquals(1, cache.size());
+        assertEquals("3", xpath.evaluate("count(/a/b)", document));
+        assertEquals("6", xpath.evaluate("sum(/a/b)", document));
+
+        // The other tree's view survives.
+        long hits = cache.getHitCount();
+        assertEquals("1", xpath.evaluate("count(/a/b)", other));
+        assertEquals(hits + 1, cache.getHitCount());
+    }
+
+    public void testInvalidateDropsOutstandingLeaseOfThatTreeOnly() throws Exception {
+        Document document = parse("<a/>");
+        Document other = parse("<a/>");
+        DOMDTMCache.Lease lease = cache.acquire(document);
+        DOMDTMCache.Lease otherLease = cache.acquire(other);
+        cache.invalidate(document);
+        cache.release(lease, "");
+        cache.release(otherLease, "");
+        assertEquals(1, cache.size());
+
+        // A lease on the other tree is still returned.
+        long hits = cache.getHitCount();
+        cache.discard(cache.acquire(other));
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(0, cache.size());
+    }
+
+    public void testNodeListKeepsItsManager() throws Exception {
+        Document document = parse("<a><b>1</b><b>2</b><b>3</b></a>");
+        XPath xpath = factory.newXPath();
+        NodeList nodes = (NodeList) xpath.evaluate("/a/b", document, XPathConstants.NODESET);
+        // The list still reads its DTM, so the manager isn't shared.
+        assertEquals(0, cache.size());
+
+        assertEquals("6", xpath.evaluate("sum(/a/b)", document));
+        assertEquals(3, nodes.getLength());
+        assertEquals("3", nodes.item(2).getTextContent());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testFailedEvaluationDiscardsLease() throws Exception {
+        Document document = parse("<a/>");
+        XPath xpath = factory.newXPath();
+        try {
+            xpath.evaluate("$undefined", document);
+            fail();
+        } catch (Exception expected) {
+        }
+        assertEquals(0, cache.size());
+        assertEquals("a", xpath.evaluate("name(/a)", document));
+        assertEquals(1, cache.size());
+    }
+
+    public void testConcurrentUse() throws Exception {
+        StringBuilder xml = new StringBuilder("<a>");
+        for (int i = 1; i <= 500; i++) {
+            xml.append("<b>").append(i).append("</b>");
+        }
+        xml.append("</a>");
+        final Document[] documents = { parse(xml.toString()), parse(xml.toString()) };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < 8; i++) {
+                final Document document = documents[i % documents.length];
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        // XPath objects aren't thread safe; the cache is.
+                        XPath xpath = factory.newXPath();
+                        XPathExpression sum = xpath.compile("sum(/a/b)");
+                        for (int j = 0; j < 50; j++) {
+                            // The DOM isn't thread safe, so evaluations of one
+                            // tree are serialized, as an application would.
+                            // Managers still move between threads, and the
+                            // two trees are evaluated concurrently.
+                            synchronized (document) {
+                                if (!"125250".equals(sum.evaluate(document))
+                                        || !"500".equals(xpath.evaluate("/a/b[last()]",
+                                                document))) {
+                                    return false;
+                                }
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(800, cache.getHitCount() + cache.getMissCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+    }
+
+    private static Document parse(String xml) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new InputSource(new StringReader(xml)));
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xpath.jaxp;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFunction;
+import javax.xml.xpath.XPathFunctionResolver;
+import javax.xml.xpath.XPathVariableResolver;
+
+import junit.framework.TestCase;
+
+import org.apache.xml.utils.PrefixResolver;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+/**
+ * Tests for {@link XPathExpressionCache}.
+ */
+public class XPathExpressionCacheTest extends TestCase {
+
+    private static final String NS1 = "http://example.com/1";
+    private static final String NS2 = "http://example.com/2";
+
+    private XPathFactoryImpl factory;
+    private XPathExpressionCache cache;
+    private Document document;
+
+    protected void setUp() throws Exception {
+        factory = new XPathFactoryImpl();
+        factory.setFeature(XPathFactoryImpl.FEATURE_EXPRESSION_CACHE, true);
+        cache = factory.getExpressionCache();
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        document = dbf.newDocumentBuilder().parse(new InputSource(new StringReader(
+                "<a xmlns:x='" + NS1 + "' xmlns:y='" + NS2 + "'>"
+                + "<x:b/><x:b/><y:b/><c>text</c></a>")));
+    }
+
+    public void testFeatureIsOffByDefault() throws Exception {
+        XPathFactoryImpl factory = new XPathFactoryImpl();
+        assertFalse(factory.getFeature(XPathFactoryImpl.FEATURE_EXPRESSION_CACHE));
+        assertNull(factory.getExpressionCache());
+    }
+
+    public void testHitReturnsEquivalentExpression() throws Exception {
+        XPath xpath = factory.newXPath();
+        assertEquals("text", xpath.evaluate("/a/c", document));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // A second XPath from the same factory shares the cache.
+        XPath other = factory.newXPath();
+        assertEquals("text", other.evaluate("/a/c", document));
+        assertEquals("text", other.compile("/a/c").evaluate(document));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    public void testHitReturnsSameCompiledExpression() throws Exception {
+        PrefixResolver resolver = new JAXPPrefixResolver(null);
+        org.apache.xpath.XPath first = cache.get("/a/c", null, null, null, resolver);
+        assertSame(first, cache.get("/a/c", null, null, null, resolver));
+        assertNotSame(first, cache.get("/a/d", null, null, null, resolver));
+    }
+
+    public void testNamespaceContextChangeMisses() throws Exception {
+        XPath xpath = factory.newXPath();
+        xpath.setNamespaceContext(new SinglePrefix("p", NS1));
+        assertEquals(2.0, xpath.evaluate("count(/a/p:b)", document, XPathConstants.NUMBER));
+        xpath.setNamespaceContext(new SinglePrefix("p", NS2));
+        assertEquals(1.0, xpath.evaluate("count(/a/p:b)", document, XPathConstants.NUMBER));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testVariableResolverChangeMisses() throws Exception {
+        XPath xpath = factory.newXPath();
+        xpath.setXPathVariableResolver(new ConstantVariable("one"));
+        assertEquals("one", xpath.evaluate("$v", document));
+        xpath.setXPathVariableResolver(new ConstantVariable("two"));
+        assertEquals("two", xpath.evaluate("$v", document));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testFunctionResolverChangeMisses() throws Exception {
+        XPath xpath = factory.newXPath();
+        xpath.setNamespaceContext(new SinglePrefix("f", NS1));
+        xpath.setXPathFunctionResolver(new ConstantFunction("one"));
+        assertEquals("one", xpath.evaluate("f:g()", document));
+        xpath.setXPathFunctionResolver(new ConstantFunction("two"));
+        assertEquals("two", xpath.evaluate("f:g()", document));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        XPathExpressionCache cache = new XPathExpressionCache(2);
+        PrefixResolver resolver = new JAXPPrefixResolver(null);
+        org.apache.xpath.XPath one = cache.get("1", null, null, null, resolver);
+        cache.get("2", null, null, null, resolver);
+        assertSame(one, cache.get("1", null, null, null, resolver));
+        cache.get("3", null, null, null, resolver);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+
+        // "2" was the least recently used, so it had to be compiled again.
+        cache.get("2", null, null, null, resolver);
+        assertEquals(4, cache.getMissCount());
+        cache.get("3", null, null, null, resolver);
+        assertEquals(2, cache.getHitCount());
+    }
+
+    public void testInvalidExpressionIsNotCached() throws Exception {
+        XPath xpath = factory.newXPath();
+        try {
+            xpath.compile("/a/[");
+            fail();
+        } catch (XPathExpressionException expected) {
+        }
+        assertEquals(0, cache.size());
+    }
+
+    public void testClear() throws Exception {
+        XPath xpath = factory.newXPath();
+        xpath.evaluate("/a/c", document);
+        cache.clear();
+        assertEquals(0, cache.size());
+        xpath.evaluate("/a/c", document);
+        assertEquals(2, cache.getMissCount());
+    }
+
+    private static class SinglePrefix implements NamespaceContext {
+        private final String prefix;
+        private final String uri;
+
+        SinglePrefix(String prefix, String uri) {
+            this.prefix = prefix;
+            this.uri = uri;
+        }
+
+        public String getNamespaceURI(String prefix) {
+            return this.prefix.equals(prefix) ? uri : null;
+        }
+
+        public String getPrefix(String uri) {
+            return this.uri.equals(uri) ? prefix : null;
+        }
+
+        public Iterator getPrefixes(String uri) {
+            return this.uri.equals(uri) ? Collections.singleton(prefix).iterator()
+                    : Collections.emptySet().iterator();
+        }
+    }
+
+    private static class ConstantVariable implements XPathVariableResolver {
+        private final Object value;
+
+        ConstantVariable(Object value) {
+            this.value = value;
+        }
+
+        public Object resolveVariable(QName name) {
+            return value;
+        }
+    }
+
+    private static class ConstantFunction implements XPathFunctionResolver {
+        private final Object value;
+
+        ConstantFunction(Object value) {
+            this.value = value;
+        }
+
+        public XPathFunction resolveFunction(QName name, int arity) {
+            return new XPathFunction() {
+                public Object evaluate(List args) {
+                    return value;
+                }
+            };
+        }
+    }
+}
@@ -194,6 +194,16 @@ public class DTMManagerDefault extends DTMManager
 		return n; // count on addDTM() to throw exception if out of range
   }
 
+  /**
+   * Get one more than the highest DTM ID this manager can currently hold.
+   * Every ID in use is below this limit, so callers can scan the table
+   * with getDTM() without running off its end.
+   */
+  synchronized public int getDTMIDLimit()
+  {
+    return m_dtms.length;
+  }
+
   /**
    * The default table for exandedNameID lookups.
    */
@@ -462,9 +462,59 @@ final class CharInfo
         // implementation is faster (and less general).
         return get(value);
     }
-    
 
-     
+    /**
+     * Skip over a run of characters from a text node that can be written
+     * out as they are, that is printable ASCII characters and TABs that
+     * have no mapping to a String.
+     *
+     * @param chars the characters of the text node
+     * @param start the index of the first character to look at
+     * @param end the index after the last character to look at
+     * @return the index of the first character that needs special treatment,
+     * or end if there is none.
+     * @xsl.usage internal
+     */
+    final int skipCleanTextChars(char[] chars, int start, int end)
+    {
+        final boolean[] shouldMap = shouldMapTextChar_ASCII;
+        int i = start;
+        for (; i < end; i++)
+        {
+            final char ch = chars[i];
+            if (ch >= 0x7F
+                || (ch < S_SPACE && ch != S_HORIZONAL_TAB)
+                || shouldMap[ch])
+                break;
+        }
+        return i;
+    }
+
+    /**
+     * Skip over a run of characters from an attribute value that can be
+     * written out as they are, that is printable ASCII characters that
+     * have no mapping to a String.
+     *
+     * @param chars the characters of the attribute value
+     * @param start the index of the first character to look at
+     * @param end the index after the last character to look at
+     * @return the index of the first character that needs special treatment,
+     * or end if there is none.
+     * @xsl.usage internal
+     */
+    final int skipCleanAttrChars(char[] chars, int start, int end)
+    {
+        final boolean[] shouldMap = shouldMapAttrChar_ASCII;
+        int i = start;
+        for (; i < end; i++)
+        {
+            final char ch = chars[i];
+            if (ch >= 0x7F || ch < S_SPACE || shouldMap[ch])
+                break;
+        }
+        return i;
+    }
+
     private static CharInfo getCharInfoBasedOnPrivilege(
         final String entitiesFileName, final String method, 
         final boolean internal){
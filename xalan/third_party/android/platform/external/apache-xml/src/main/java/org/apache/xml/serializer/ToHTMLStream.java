@@ -1291,9 +1291,7 @@ public class ToHTMLStream extends ToStream
                 }
                 else
                 {
-                    writer.write("&#");
-                    writer.write(Integer.toString(ch));
-                    writer.write(';');
+                    writeCharRef(writer, ch);
                 }
                 // In this character range we have first written out any previously accumulated 
                 // "clean" characters, then processed the current more complicated character,
@@ -1403,6 +1401,18 @@ public class ToHTMLStream extends ToStream
         char ch = 0;
         for (int i = 0; i < end; i++)
         {
+            // Accumulate a whole run of clean characters at once.
+            final int cleanEnd = m_charInfo.skipCleanAttrChars(chars, i, end);
+            if (cleanEnd > i)
+            {
+                cleanLength += cleanEnd - i;
+                i = cleanEnd;
+                if (i == end)
+                {
+                    ch = chars[end - 1];
+                    break;
+                }
+            }
             ch = chars[i];
 
             // System.out.println("SPECIALSSIZE: "+SPECIALSSIZE);
@@ -1468,9 +1478,7 @@ public class ToHTMLStream extends ToStream
                     }
                     else
                     {
-                        writer.write("&#");
-                        writer.write(Integer.toString(ch));
-                        writer.write(';');
+                        writeCharRef(writer, ch);
                     }
                 }
                 cleanStart = i + 1;
@@ -164,6 +164,11 @@ abstract public class ToStream extends SerializerBase
        */
     boolean m_isUTF8 = false;
 
+    /**
+     * Scratch space for writing out numeric character references,
+     * long enough for "&#1114111;".
+     */
+    private final char[] m_charRefBuff = new char[10];
 
     /**
      * remembers if we are in between the startCDATA() and endCDATA() callbacks
@@ -1522,6 +1527,11 @@ abstract public class ToStream extends SerializerBase
             
             for (; i < end; i++)
             {
+                // Clean characters are only accumulated, so skip over
+                // a whole run of them before looking at the next one.
+                i = m_charInfo.skipCleanTextChars(chars, i, end);
+                if (i == end)
+                    break;
                 char ch = chars[i];
                 
                 if (m_charInfo.shouldMapTextChar(ch)) {
@@ -1566,9 +1576,7 @@ abstract public class ToStream extends SerializerBase
                             break;
                         default:
                             writeOutCleanChars(chars, i, lastDirtyCharProcessed);
-                            writer.write("&#");
-                            writer.write(Integer.toString(ch));
-                            writer.write(';');
+                            writeCharRef(writer, ch);
                             lastDirtyCharProcessed = i;
                             break;
 
@@ -1584,9 +1592,7 @@ abstract public class ToStream extends SerializerBase
                         // Range 0x7F through 0x9F inclusive
                         // More control characters, including NEL (0x85)
                         writeOutCleanChars(chars, i, lastDirtyCharProcessed);
-                        writer.write("&#");
-                        writer.write(Integer.toString(ch));
-                        writer.write(';');
+                        writeCharRef(writer, ch);
                         lastDirtyCharProcessed = i;
                     }
                     else if (ch == CharInfo.S_LINE_SEPARATOR) {
@@ -1607,9 +1613,7 @@ abstract public class ToStream extends SerializerBase
                         // (i.e. isn't in the encoding, etc.) then what
                         // should we do?  We choose to write out an entity
                         writeOutCleanChars(chars, i, lastDirtyCharProcessed);
-                        writer.write("&#");
-                        writer.write(Integer.toString(ch));
-                        writer.write(';');
+                        writeCharRef(writer, ch);
                         lastDirtyCharProcessed = i;
                     }
                 }
@@ -1660,7 +1664,28 @@ abstract public class ToStream extends SerializerBase
             int lengthClean = i - startClean;
             m_writer.write(chars, startClean, lengthClean);
         }
-    }     
+    }
+
+    /**
+     * Write out a decimal character reference, such as "&#160;", without
+     * creating a String for the digits.
+     *
+     * @param writer the writer to write the character reference to
+     * @param codePoint the Unicode code point to reference
+     * @throws IOException
+     */
+    final void writeCharRef(final Writer writer, int codePoint) throws IOException {
+        final char[] buff = m_charRefBuff;
+        int pos = buff.length;
+        buff[--pos] = ';';
+        do {
+            buff[--pos] = (char) ('0' + codePoint % 10);
+            codePoint /= 10;
+        } while (codePoint != 0);
+        buff[--pos] = '#';
+        buff[--pos] = '&';
+        writer.write(buff, pos, buff.length - pos);
+    }
     /**
      * This method checks if a given character is between C0 or C1 range
      * of Control characters.
@@ -1832,9 +1857,7 @@ abstract public class ToStream extends SerializerBase
                     codePoint = Encodings.toCodePoint(ch,next);
                 }
 
-                writer.write("&#");
-                writer.write(Integer.toString(codePoint));
-                writer.write(';');
+                writeCharRef(writer, codePoint);
                 pos += 2; // count the two characters that went into writing out this entity
             }
             else
@@ -1846,18 +1869,14 @@ abstract public class ToStream extends SerializerBase
                  */ 
                 if (isCharacterInC0orC1Range(ch) || isNELorLSEPCharacter(ch))
                 {
-                    writer.write("&#");
-                    writer.write(Integer.toString(ch));
-                    writer.write(';');
+                    writeCharRef(writer, ch);
                 }
                 else if ((!escapingNotNeeded(ch) || 
                     (  (fromTextNode && m_charInfo.shouldMapTextChar(ch))
                      || (!fromTextNode && m_charInfo.shouldMapAttrChar(ch)))) 
                 && m_elemContext.m_currentElemDepth > 0)
                 {
-                    writer.write("&#");
-                    writer.write(Integer.toString(ch));
-                    writer.write(';');
+                    writeCharRef(writer, ch);
                 }
                 else
                 {
@@ -2106,6 +2125,16 @@ abstract public class ToStream extends SerializerBase
 
         for (int i = 0; i < len; i++)
         {
+            // Write out a whole run of clean characters in one call
+            // rather than one character at a time.
+            final int cleanEnd = m_charInfo.skipCleanAttrChars(stringChars, i, len);
+            if (cleanEnd > i)
+            {
+                writer.write(stringChars, i, cleanEnd - i);
+                i = cleanEnd;
+                if (i == len)
+                    break;
+            }
             char ch = stringChars[i];
             
             if (m_charInfo.shouldMapAttrChar(ch)) {
@@ -2142,9 +2171,7 @@ abstract public class ToStream extends SerializerBase
                         writer.write("&#13;");
                         break;
                     default:
-                        writer.write("&#");
-                        writer.write(Integer.toString(ch));
-                        writer.write(';');
+                        writeCharRef(writer, ch);
                         break;
 
                     }
@@ -2157,9 +2184,7 @@ abstract public class ToStream extends SerializerBase
                 else if (ch <= 0x9F){
                     // Range 0x7F through 0x9F inclusive
                     // More control characters
-                    writer.write("&#");
-                    writer.write(Integer.toString(ch));
-                    writer.write(';');
+                    writeCharRef(writer, ch);
                 }
                 else if (ch == CharInfo.S_LINE_SEPARATOR) {
                     // LINE SEPARATOR
@@ -2176,9 +2201,7 @@ abstract public class ToStream extends SerializerBase
                     // but if the character wasn't previously handled
                     // (i.e. isn't in the encoding, etc.) then what
                     // should we do?  We choose to write out a character ref
-                    writer.write("&#");
-                    writer.write(Integer.toString(ch));
-                    writer.write(';');
+                    writeCharRef(writer, ch);
                 }
                     
             }
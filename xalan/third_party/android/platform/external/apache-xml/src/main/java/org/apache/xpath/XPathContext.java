@@ -112,6 +112,16 @@ public class XPathContext extends DTMManager // implements ExpressionContext
    {
      return m_dtmManager;
    }
+
+  /**
+   * Use the given DTMManager instead of this context's own, so that DTMs
+   * it has already built (for instance, one kept by a cache across
+   * evaluations) are reused. Must be called before the context is used.
+   */
+   public void setDTMManager(DTMManager manager)
+   {
+     m_dtmManager = manager;
+   }
   
   /**
    * Set the state of the secure processing feature
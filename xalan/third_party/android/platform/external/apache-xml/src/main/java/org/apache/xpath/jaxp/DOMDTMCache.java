@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xpath.jaxp;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.xml.dtm.DTM;
+import org.apache.xml.dtm.DTMManager;
+import org.apache.xml.dtm.ref.DTMManagerDefault;
+import org.apache.xml.dtm.ref.DTMNodeListBase;
+import org.apache.xpath.objects.XMLStringFactoryImpl;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Node;
+
+/**
+ * A cache of the DTM views built over DOM trees, shared by the
+ * <code>XPath</code>s and <code>XPathExpression</code>s of one
+ * {@link XPathFactoryImpl} that has the
+ * {@link XPathFactoryImpl#FEATURE_DTM_CACHE} feature enabled.
+ *
+ * <p>Evaluating an expression against a DOM node builds a DOM2DTM over the
+ * node's tree, incrementally shadowing the DOM into node tables. Without
+ * the cache that work is thrown away after every evaluation. With it, the
+ * DTMManager owning the DOM2DTM is kept per tree root (usually the
+ * <code>Document</code>) and handed to the next evaluation against the
+ * same tree, which continues from the tables already built.</p>
+ *
+ * <p>A cached manager is leased to one evaluation at a time; concurrent
+ * evaluations against the same tree each build their own. A manager whose
+ * DTM still backs a returned node list is never put back, since the list
+ * reads the DTM lazily and would race with the next evaluation. At most
+ * {@link #DEFAULT_MAX_SIZE} trees are kept, least recently used first
+ * out.</p>
+ *
+ * <p>The cache can't see DOM mutations, so an application that modifies a
+ * tree must call {@link #invalidate(Node)} (or {@link #clear()}) before
+ * evaluating against it again. Results already returned are unaffected.</p>
+ */
+public class DOMDTMCache {
+
+    /**
+     * <p>Number of trees whose DTM views are kept by default.</p>
+     */
+    public static final int DEFAULT_MAX_SIZE = 16;
+
+    private final int maxSize;
+
+    private final LinkedHashMap<RootKey, DTMManager> map;
+
+    /**
+     * Roots with leases outstanding. Invalidating a root bumps its
+     * generation, so managers leased before that aren't put back.
+     */
+    private final HashMap<RootKey, Leases> leased = new HashMap<RootKey, Leases>();
+
+    private long hitCount;
+    private long missCount;
+
+    public DOMDTMCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize Maximum number of trees to keep DTM views for.
+     */
+    public DOMDTMCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<RootKey, DTMManager>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<RootKey, DTMManager> eldest) {
+                return size() > DOMDTMCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * <p>Takes the cached DTMManager for the tree containing
+     * <code>node</code> out of the cache, or creates a new one. Every lease
+     * must be passed to {@link #release(Lease, Object)} once the
+     * evaluation's result has been converted, or to {@link #discard(Lease)}
+     * if the evaluation failed.</p>
+     */
+    Lease acquire(Node node) {
+        RootKey key = new RootKey(getRoot(node));
+        DTMManager manager;
+        int leaseGeneration;
+        synchronized (this) {
+            manager = map.remove(key);
+            if (manager != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+            Leases leases = leased.get(key);
+            if (leases == null) {
+                leases = new Leases();
+                leased.put(key, leases);
+            }
+            leases.count++;
+            leaseGeneration = leases.generation;
+        }
+        if (manager == null) {
+            manager = DTMManager.newInstance(XMLStringFactoryImpl.getFactory());
+        }
+        return new Lease(key, manager, leaseGeneration);
+    }
+
+    /**
+     * <p>Returns a leased DTMManager to the cache once <code>result</code>,
+     * the converted result of the evaluation, no longer needs it. The
+     * manager is dropped instead if <code>result</code> is a node list
+     * still reading its DTM, if the tree was invalidated meanwhile, or if
+     * the evaluation pulled other trees into the manager.</p>
+     */
+    void release(Lease lease, Object result) {
+        boolean reusable = !(result instanceof DTMNodeListBase)
+                && holdsOneDTM(lease.manager);
+        synchronized (this) {
+            if (endLease(lease) && reusable) {
+                map.put(lease.key, lease.manager);
+            }
+        }
+    }
+
+    /**
+     * <p>Ends a lease without returning its DTMManager to the cache.</p>
+     */
+    synchronized void discard(Lease lease) {
+        endLease(lease);
+    }
+
+    /**
+     * <p>Discards the DTM view of the tree containing <code>node</code>.
+     * Must be called after that tree is modified. Views of other trees are
+     * kept.</p>
+     */
+    public void invalidate(Node node) {
+        RootKey key = new RootKey(getRoot(node));
+        synchronized (this) {
+            map.remove(key);
+            Leases leases = leased.get(key);
+            if (leases != null) {
+                leases.generation++;
+            }
+        }
+    }
+
+    /**
+     * <p>Discards all cached DTM views. Statistics are kept.</p>
+     */
+    public synchronized void clear() {
+        map.clear();
+        for (Leases leases : leased.values()) {
+            leases.generation++;
+        }
+    }
+
+    /**
+     * <p>Returns the number of evaluations that reused a DTM view.</p>
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * <p>Returns the number of evaluations that had to build a DTM view.</p>
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * <p>Returns the number of trees with a cached DTM view.</p>
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized String toString() {
+        return "DOMDTMCache[size=" + map.size() + ",maxSize=" + maxSize
+                + ",hits=" + hitCount + ",misses=" + missCount + "]";
+    }
+
+    /**
+     * <p>Ends <code>lease</code>, returning true if its tree hasn't been
+     * invalidated since it was acquired. Callers must hold this lock.</p>
+     */
+    private boolean endLease(Lease lease) {
+        Leases leases = leased.get(lease.key);
+        if (--leases.count == 0) {
+            leased.remove(lease.key);
+        }
+        return lease.generation == leases.generation;
+    }
+
+    /**
+     * <p>Returns true if every DTM ID in use in <code>manager</code> maps to
+     * the same DTM. A large DOM2DTM takes several IDs, but a different DTM
+     * means the evaluation also shadowed some other tree, which this cache
+     * couldn't invalidate.</p>
+     */
+    private static boolean holdsOneDTM(DTMManager manager) {
+        if (!(manager instanceof DTMManagerDefault)) {
+            return false;
+        }
+        int limit = ((DTMManagerDefault) manager).getDTMIDLimit();
+        // DTM IDs are handed out from 1.
+        DTM first = manager.getDTM(1 << DTMManager.IDENT_DTM_NODE_BITS);
+        for (int id = 2; id < limit; id++) {
+            DTM dtm = manager.getDTM(id << DTMManager.IDENT_DTM_NODE_BITS);
+            if (dtm != null && dtm != first) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <p>Returns the root of the tree containing <code>node</code>, the same
+     * way DTMManagerDefault.getDTMHandleFromNode() finds the root to build
+     * a DOM2DTM over.</p>
+     */
+    private static Node getRoot(Node node) {
+        Node root = node;
+        Node p = (root.getNodeType() == Node.ATTRIBUTE_NODE)
+                ? ((Attr) root).getOwnerElement() : root.getParentNode();
+        for (; p != null; p = p.getParentNode()) {
+            root = p;
+        }
+        return root;
+    }
+
+    static final class Lease {
+        final RootKey key;
+        final DTMManager manager;
+        final int generation;
+
+        Lease(RootKey key, DTMManager manager, int generation) {
+            this.key = key;
+            this.manager = manager;
+            this.generation = generation;
+        }
+    }
+
+    /** Outstanding leases on one tree. */
+    private static final class Leases {
+        int count;
+        int generation;
+    }
+
+    /** Compares DOM nodes by identity, whatever their equals() does. */
+    private static final class RootKey {
+        private final Node root;
+
+        RootKey(Node root) {
+            this.root = root;
+        }
+
+        public boolean equals(Object o) {
+            return o instanceof RootKey && ((RootKey) o).root == root;
+        }
+
+        public int hashCode() {
+            return System.identityHashCode(root);
+        }
+    }
+}
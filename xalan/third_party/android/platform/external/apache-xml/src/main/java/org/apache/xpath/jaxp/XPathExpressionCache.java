@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the  "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.xpath.jaxp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.transform.TransformerException;
+import javax.xml.xpath.XPathFunctionResolver;
+import javax.xml.xpath.XPathVariableResolver;
+
+import org.apache.xml.utils.PrefixResolver;
+import org.apache.xpath.XPath;
+
+/**
+ * A bounded, thread-safe LRU cache of compiled XPath expressions, shared by
+ * the <code>XPath</code> objects of one {@link XPathFactoryImpl} that has
+ * the {@link XPathFactoryImpl#FEATURE_EXPRESSION_CACHE} feature enabled.
+ *
+ * <p>A compiled {@link XPath} is immutable once built and is evaluated
+ * against a fresh <code>XPathContext</code> on every call, so one instance
+ * can safely be shared between threads, as stylesheet templates already
+ * do. Entries are keyed by the expression string and the identities of the
+ * namespace context, function resolver and variable resolver in effect when
+ * it was compiled, along with the prefix resolver the expression was
+ * compiled with.</p>
+ */
+public class XPathExpressionCache {
+
+    /**
+     * <p>Number of compiled expressions kept by default.</p>
+     */
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+    private final int maxSize;
+
+    private final LinkedHashMap<Key, XPath> map;
+
+    private long hitCount;
+    private long missCount;
+
+    public XPathExpressionCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize Maximum number of compiled expressions to keep.
+     */
+    public XPathExpressionCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<Key, XPath>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Key, XPath> eldest) {
+                return size() > XPathExpressionCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * <p>Returns the compiled form of <code>expression</code>, compiling and
+     * caching it if it isn't cached yet. Expressions that fail to compile
+     * are not cached.</p>
+     */
+    XPath get(String expression, NamespaceContext namespaceContext,
+            XPathFunctionResolver functionResolver,
+            XPathVariableResolver variableResolver, PrefixResolver prefixResolver)
+            throws TransformerException {
+        Key key = new Key(expression, namespaceContext, functionResolver, variableResolver,
+                prefixResolver);
+        synchronized (this) {
+            XPath xpath = map.get(key);
+            if (xpath != null) {
+                hitCount++;
+                return xpath;
+            }
+            missCount++;
+        }
+
+        // Compile outside the lock; if two threads race, the last one wins.
+        XPath xpath = new XPath(expression, null, prefixResolver, XPath.SELECT);
+        synchronized (this) {
+            map.put(key, xpath);
+        }
+        return xpath;
+    }
+
+    /**
+     * <p>Returns the number of lookups that found a compiled expression.</p>
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * <p>Returns the number of lookups that had to compile the expression.</p>
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * <p>Returns the number of compiled expressions currently cached.</p>
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * <p>Discards all cached expressions. Statistics are kept.</p>
+     */
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized String toString() {
+        return "XPathExpressionCache[size=" + map.size() + ",maxSize=" + maxSize
+                + ",hits=" + hitCount + ",misses=" + missCount + "]";
+    }
+
+    private static final class Key {
+        private final String expression;
+        private final NamespaceContext namespaceContext;
+        private final XPathFunctionResolver functionResolver;
+        private final XPathVariableResolver variableResolver;
+        private final PrefixResolver prefixResolver;
+        private final int hashCode;
+
+        Key(String expression, NamespaceContext namespaceContext,
+                XPathFunctionResolver functionResolver,
+                XPathVariableResolver variableResolver, PrefixResolver prefixResolver) {
+            this.expression = expression;
+            this.namespaceContext = namespaceContext;
+            this.functionResolver = functionResolver;
+            this.variableResolver = variableResolver;
+            this.prefixResolver = prefixResolver;
+            int h = expression.hashCode();
+            h = 31 * h + System.identityHashCode(namespaceContext);
+            h = 31 * h + System.identityHashCode(functionResolver);
+            h = 31 * h + System.identityHashCode(variableResolver);
+            h = 31 * h + System.identityHashCode(prefixResolver);
+            this.hashCode = h;
+        }
+
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return expression.equals(other.expression)
+                    && namespaceContext == other.namespaceContext
+                    && functionResolver == other.functionResolver
+                    && variableResolver == other.variableResolver
+                    && prefixResolver == other.prefixResolver;
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.xpath.*;
 import javax.xml.transform.TransformerException;
 
 import org.apache.xpath.objects.XObject;
+import org.apache.xml.dtm.DTMManager;
 import org.apache.xml.utils.PrefixResolver;
 import org.apache.xpath.res.XPATHErrorResources;
 import org.apache.xalan.res.XSLMessages;
@@ -62,6 +63,10 @@ public class XPathExpressionImpl  implements javax.xml.xpath.XPathExpression{
     // extensions function need to throw XPathFunctionException
     private boolean featureSecureProcessing = false;
 
+    // DTM views of DOM trees shared with the factory's other XPaths, or null
+    // if the factory's DTM cache feature is off.
+    private DOMDTMCache dtmCache;
+
     /** Protected constructor to prevent direct instantiation; use compile()
      * from the context.
      */
@@ -90,17 +95,45 @@ public class XPathExpressionImpl  implements javax.xml.xpath.XPathExpression{
         this.featureSecureProcessing = featureSecureProcessing;
     };
 
+    protected XPathExpressionImpl(org.apache.xpath.XPath xpath,
+            JAXPPrefixResolver prefixResolver,
+            XPathFunctionResolver functionResolver,
+            XPathVariableResolver variableResolver,
+            boolean featureSecureProcessing, DOMDTMCache dtmCache ) { 
+        this( xpath, prefixResolver, functionResolver, variableResolver,
+                featureSecureProcessing );
+        this.dtmCache = dtmCache;
+    };
+
     public void setXPath (org.apache.xpath.XPath xpath ) {
         this.xpath = xpath;
     }  
 
     public Object eval(Object item, QName returnType)
             throws javax.xml.transform.TransformerException {
-        XObject resultObject = eval ( item );
-        return getResultAsType( resultObject, returnType );
+        // The lease covers converting the result, which may walk the DTM
+        // further. If evaluation fails, the lease is discarded.
+        DOMDTMCache.Lease lease = null;
+        if ( dtmCache != null && item instanceof Node ) {
+            lease = dtmCache.acquire( (Node) item );
+        }
+        try {
+            XObject resultObject = eval ( item,
+                    lease != null ? lease.manager : null );
+            Object result = getResultAsType( resultObject, returnType );
+            if ( lease != null ) {
+                dtmCache.release( lease, result );
+                lease = null;
+            }
+            return result;
+        } finally {
+            if ( lease != null ) {
+                dtmCache.discard( lease );
+            }
+        }
     }
     
-    private XObject eval ( Object contextItem )
+    private XObject eval ( Object contextItem, DTMManager dtmManager )
             throws javax.xml.transform.TransformerException {
         org.apache.xpath.XPathContext xpathSupport = null;
 
@@ -114,6 +147,9 @@ public class XPathExpressionImpl  implements javax.xml.xpath.XPathExpression{
         } else {
             xpathSupport = new org.apache.xpath.XPathContext(false);
         }
+        if ( dtmManager != null ) {
+            xpathSupport.setDTMManager( dtmManager );
+        }
 
         xpathSupport.setVarStack(new JAXPVariableStack(variableResolver));
         XObject xobj = null;
@@ -293,7 +329,10 @@ public class XPathExpressionImpl  implements javax.xml.xpath.XPathExpression{
             }
             db = dbf.newDocumentBuilder();
             Document document = db.parse( source );
-            return eval(  document, returnType );
+            // A freshly parsed document is never seen again, so don't cache
+            // its DTM view.
+            return getResultAsType( eval( document, (DTMManager) null ),
+                    returnType );
         } catch ( Exception e ) {
             throw new XPathExpressionException ( e );
         }
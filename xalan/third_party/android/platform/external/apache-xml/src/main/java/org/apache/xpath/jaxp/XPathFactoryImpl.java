@@ -40,6 +40,26 @@ public  class XPathFactoryImpl extends XPathFactory {
 	 * <p>Name of class as a constant to use for debugging.</p>
 	 */
 	private static final String CLASS_NAME = "XPathFactoryImpl";
+
+	/**
+	 * <p>Feature that caches compiled expressions across calls to
+	 * <code>evaluate</code> and <code>compile</code> on this factory's
+	 * <code>XPath</code>s. Off by default.</p>
+	 *
+	 * @see #getExpressionCache()
+	 */
+	public static final String FEATURE_EXPRESSION_CACHE =
+		"http://xml.apache.org/xpath/features/expression-cache";
+
+	/**
+	 * <p>Feature that keeps the DTM views built over DOM trees across
+	 * evaluations on this factory's <code>XPath</code>s and
+	 * <code>XPathExpression</code>s. Off by default.</p>
+	 *
+	 * @see #getDTMCache()
+	 */
+	public static final String FEATURE_DTM_CACHE =
+		"http://xml.apache.org/xpath/features/dtm-cache";
 	
 	/**
 	 *<p>XPathFunctionResolver for this XPathFactory and created XPaths.</p>
@@ -55,6 +75,18 @@ public  class XPathFactoryImpl extends XPathFactory {
 	 * <p>State of secure processing feature.</p>
 	 */
 	private boolean featureSecureProcessing = false;
+
+	/**
+	 * <p>Compiled expression cache, or <code>null</code> if the expression
+	 * cache feature is off.</p>
+	 */
+	private XPathExpressionCache expressionCache = null;
+
+	/**
+	 * <p>DTM cache, or <code>null</code> if the DTM cache feature is
+	 * off.</p>
+	 */
+	private DOMDTMCache dtmCache = null;
 		
 	/**
 	 * <p>Is specified object model supported by this 
@@ -104,7 +136,31 @@ public  class XPathFactoryImpl extends XPathFactory {
 	public javax.xml.xpath.XPath newXPath() {
 	    return new org.apache.xpath.jaxp.XPathImpl(
                     xPathVariableResolver, xPathFunctionResolver,
-                    featureSecureProcessing );
+                    featureSecureProcessing, expressionCache, dtmCache );
+	}
+
+	/**
+	 * <p>Returns the compiled expression cache shared by the
+	 * <code>XPath</code>s this factory creates, which also reports hit and
+	 * miss counts.</p>
+	 *
+	 * @return The cache, or <code>null</code> if
+	 * {@link #FEATURE_EXPRESSION_CACHE} is off.
+	 */
+	public XPathExpressionCache getExpressionCache() {
+	    return expressionCache;
+	}
+
+	/**
+	 * <p>Returns the DTM cache shared by the <code>XPath</code>s this
+	 * factory creates. Applications that modify a cached DOM tree must
+	 * invalidate it there.</p>
+	 *
+	 * @return The cache, or <code>null</code> if {@link #FEATURE_DTM_CACHE}
+	 * is off.
+	 */
+	public DOMDTMCache getDTMCache() {
+	    return dtmCache;
 	}
 	    
 	/**
@@ -152,6 +208,26 @@ public  class XPathFactoryImpl extends XPathFactory {
                 // all done processing feature
                 return;
             }
+
+            // compiled expression cache?
+            if (name.equals(FEATURE_EXPRESSION_CACHE)) {
+                if (!value) {
+                    expressionCache = null;
+                } else if (expressionCache == null) {
+                    expressionCache = new XPathExpressionCache();
+                }
+                return;
+            }
+
+            // DOM DTM cache?
+            if (name.equals(FEATURE_DTM_CACHE)) {
+                if (!value) {
+                    dtmCache = null;
+                } else if (dtmCache == null) {
+                    dtmCache = new DOMDTMCache();
+                }
+                return;
+            }
 		
             // unknown feature
             String fmsg = XSLMessages.createXPATHMessage(
@@ -198,6 +274,14 @@ public  class XPathFactoryImpl extends XPathFactory {
             if (name.equals(XMLConstants.FEATURE_SECURE_PROCESSING)) {
                 return featureSecureProcessing;
             }
+
+            if (name.equals(FEATURE_EXPRESSION_CACHE)) {
+                return expressionCache != null;
+            }
+
+            if (name.equals(FEATURE_DTM_CACHE)) {
+                return dtmCache != null;
+            }
 		
             // unknown feature
             String fmsg = XSLMessages.createXPATHMessage(
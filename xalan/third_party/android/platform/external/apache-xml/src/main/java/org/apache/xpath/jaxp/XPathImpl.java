@@ -28,6 +28,7 @@ import javax.xml.xpath.XPathVariableResolver;
 import javax.xml.xpath.XPathExpression;
 
 import org.apache.xml.dtm.DTM;
+import org.apache.xml.dtm.DTMManager;
 import org.apache.xpath.*;
 import org.apache.xpath.objects.XObject;
 import org.apache.xpath.res.XPATHErrorResources;
@@ -67,17 +68,33 @@ public class XPathImpl implements javax.xml.xpath.XPath {
     // Secure Processing Feature is set on XPathFactory then the invocation of
     // extensions function need to throw XPathFunctionException
     private boolean featureSecureProcessing = false; 
+    // Compiled expressions shared with the factory's other XPaths, or null
+    // if the factory's expression cache feature is off.
+    private final XPathExpressionCache expressionCache;
+    // DTM views of DOM trees shared with the factory's other XPaths, or null
+    // if the factory's DTM cache feature is off.
+    private final DOMDTMCache dtmCache;
 
     XPathImpl( XPathVariableResolver vr, XPathFunctionResolver fr ) {
         this.origVariableResolver = this.variableResolver = vr;
         this.origFunctionResolver = this.functionResolver = fr;
+        this.expressionCache = null;
+        this.dtmCache = null;
     }
 
     XPathImpl( XPathVariableResolver vr, XPathFunctionResolver fr, 
             boolean featureSecureProcessing ) {
+        this( vr, fr, featureSecureProcessing, null, null );
+    }
+
+    XPathImpl( XPathVariableResolver vr, XPathFunctionResolver fr, 
+            boolean featureSecureProcessing,
+            XPathExpressionCache expressionCache, DOMDTMCache dtmCache ) {
         this.origVariableResolver = this.variableResolver = vr;
         this.origFunctionResolver = this.functionResolver = fr;
         this.featureSecureProcessing = featureSecureProcessing;
+        this.expressionCache = expressionCache;
+        this.dtmCache = dtmCache;
     }
 
     /**
@@ -190,10 +207,24 @@ public class XPathImpl implements javax.xml.xpath.XPath {
     }
 
     
-    private XObject eval(String expression, Object contextItem)
+    /**
+     * <p>Compiles <code>expression</code> with the current namespace context,
+     * or returns the cached compiled form if the expression cache is on.</p>
+     */
+    private org.apache.xpath.XPath compileXPath(String expression)
         throws javax.xml.transform.TransformerException {
-        org.apache.xpath.XPath xpath = new org.apache.xpath.XPath( expression,
-            null, prefixResolver, org.apache.xpath.XPath.SELECT ); 
+        if ( expressionCache != null ) {
+            return expressionCache.get( expression, namespaceContext,
+                    functionResolver, variableResolver, prefixResolver );
+        }
+        return new org.apache.xpath.XPath( expression, null, prefixResolver,
+                org.apache.xpath.XPath.SELECT );
+    }
+
+    private XObject eval(String expression, Object contextItem,
+            DTMManager dtmManager)
+        throws javax.xml.transform.TransformerException {
+        org.apache.xpath.XPath xpath = compileXPath( expression );
         org.apache.xpath.XPathContext xpathSupport = null;
 
         // Create an XPathContext that doesn't support pushing and popping of
@@ -206,6 +237,9 @@ public class XPathImpl implements javax.xml.xpath.XPath {
         } else { 
             xpathSupport = new org.apache.xpath.XPathContext(false);
         }
+        if ( dtmManager != null ) {
+            xpathSupport.setDTMManager( dtmManager );
+        }
 
         XObject xobj = null;
         
@@ -278,8 +312,26 @@ public class XPathImpl implements javax.xml.xpath.XPath {
 
         try {
  
-            XObject resultObject = eval( expression, item );
-            return getResultAsType( resultObject, returnType );
+            // The lease covers converting the result, which may walk the DTM
+            // further. If evaluation fails, the lease is discarded.
+            DOMDTMCache.Lease lease = null;
+            if ( dtmCache != null && item instanceof Node ) {
+                lease = dtmCache.acquire( (Node) item );
+            }
+            try {
+                XObject resultObject = eval( expression, item,
+                        lease != null ? lease.manager : null );
+                Object result = getResultAsType( resultObject, returnType );
+                if ( lease != null ) {
+                    dtmCache.release( lease, result );
+                    lease = null;
+                }
+                return result;
+            } finally {
+                if ( lease != null ) {
+                    dtmCache.discard( lease );
+                }
+            }
         } catch ( java.lang.NullPointerException npe ) {
             // If VariableResolver returns null Or if we get 
             // NullPointerException at this stage for some other reason
@@ -397,12 +449,11 @@ public class XPathImpl implements javax.xml.xpath.XPath {
             throw new NullPointerException ( fmsg );
         }
         try {
-            org.apache.xpath.XPath xpath = new XPath (expression, null,
-                    prefixResolver, org.apache.xpath.XPath.SELECT );
+            org.apache.xpath.XPath xpath = compileXPath( expression );
             // Can have errorListener
             XPathExpressionImpl ximpl = new XPathExpressionImpl (xpath,
                     prefixResolver, functionResolver, variableResolver,
-                    featureSecureProcessing );
+                    featureSecureProcessing, dtmCache );
             return ximpl;
         } catch ( javax.xml.transform.TransformerException te ) {
             throw new XPathExpressionException ( te ) ;
@@ -473,7 +524,7 @@ public class XPathImpl implements javax.xml.xpath.XPath {
 
             Document document = getParser().parse( source );
 
-            XObject resultObject = eval( expression, document );
+            XObject resultObject = eval( expression, document, null );
             return getResultAsType( resultObject, returnType );
         } catch ( SAXException e ) {
             throw new XPathExpressionException ( e );